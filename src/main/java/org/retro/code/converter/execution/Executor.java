@@ -12,16 +12,33 @@
 package org.retro.code.converter.execution;
 
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.retro.code.converter.exception.ExecutionException;
+import org.retro.code.converter.exception.FileException;
 import org.retro.code.converter.exception.TranslationIdException;
 import org.retro.code.converter.execution.convert.Converter;
+import org.retro.code.converter.execution.convert.types.Properties;
+import org.retro.code.converter.execution.info.SourceInfo;
+import org.retro.code.converter.execution.output.OrderedSegments;
+import org.retro.code.converter.execution.output.PlaceholderExpander;
+import org.retro.code.converter.execution.output.PlaceholderWriter;
+import org.retro.code.converter.execution.output.TargetSegments;
+import org.retro.code.converter.execution.output.TargetSink;
+import org.retro.code.converter.execution.lexer.SourceLexer;
+import org.retro.code.converter.execution.lexer.TokenTable;
+import org.retro.code.converter.execution.plan.CompiledCodeSection;
+import org.retro.code.converter.execution.plan.SectionScanner;
+import org.retro.code.converter.regex.RegexEngines;
+import org.retro.code.converter.regex.RegexPrefilter;
 import org.retro.code.converter.utils.*;
 import org.retro.code.converter.xml.CodeConversionsLoader;
 import org.retro.code.converter.xml.TransformLoader;
 import org.retro.code.converter.xml.TranslationsLoader;
 import org.retro.code.converter.xml.v1.types.*;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
 
 /**
@@ -36,6 +53,8 @@ public class Executor {
     private static final String DUPLICATE_CODE_SECTION_ID = "Duplicate code section id ";
     private static final String INVALID_CODE_SECTION_ID   = "Invalid code section id ";
     private static final String CYCLIC_CODE_SECTION_ID    = "Circular or duplicate code section id ";
+    private static final String INVALID_VARIABLE          = "Invalid variable name ";
+    private static final String DUPLICATE_VARIABLE        = "Duplicate variable name ";
 
     private TranslationsLoader    translationsLoader;
     private CodeConversionsLoader codeConversionsLoader;
@@ -73,14 +92,15 @@ public class Executor {
 
     /**
      * This loads the conversion and translations file after the transform.xml file has been loaded.
-     * It also executes the actual conversion.
+     * It also executes the actual conversion, with the regex engine of the transform file as the default engine.
      *
      * @param transformFile The settings file contents, that are used to load the
      *                         relevant conversion and translation files.
      */
     public void processSettingsAndExecute(XTransformFile transformFile) throws ExecutionException {
+        LogUtil.debug(log, "Regex engine: {}", RegexEngines.get(transformFile.getRegexEngine()).getName());
         codeConversionsLoader.load(transformFile.getConversionFiles());
-        translationsLoader.load(transformFile.getTranslationFiles());
+        translationsLoader.load(transformFile.getTranslationFiles(), transformFile.getRegexEngine());
         execute(transformFile);
     }
 
@@ -106,36 +126,138 @@ public class Executor {
             file.setFileName(transformLoader.getSettingsFolder() + file.getFileName());
         }
         Map<Integer, StringBuilder> templateContents = FileReaderUtils.getFileListContents(templateFiles);
-        Map<Integer, StringBuilder> targetOutput = new LinkedHashMap<Integer, StringBuilder>();
+        Map<XCodeSection, CompiledCodeSection> compiledCodeSections = compileAllCodeSections(TemplateUtils.compileTemplates(templateContents));
+        Map<Integer, SourceInfo> sourceInfos = getSourceInfos(transformFile, sourceContents);
+        Map<XCodeConversionFileType, SectionScanner> sectionScanners = compileSectionScanners(compiledCodeSections);
+        TargetSegments targetOutput = new TargetSegments();
 
         for (XCodeConversionFileType entry : codeConversionsLoader.getCodeConversionTypes()) {
             StringBuilder source = sourceContents.get(entry.getSourceFileId());
-            for (XCodeSection codeSection : entry.getCodeSections().getCodeSection()) {
-                log.debug("Processing code section " + codeSection.getTitle());
-                XFileContentsType fileContentsType = getFileContentsType(transformFile, entry.getSourceFileId());
+            XFileContentsType fileContentsType = getFileContentsType(transformFile, entry.getSourceFileId());
+            List<CompiledCodeSection> codeSections = sectionScanners.get(entry).getCodeSections();
+            int[][] candidates = new int[codeSections.size()][];
+            if (fileContentsType == XFileContentsType.CODE && source != null) {
+                candidates = sectionScanners.get(entry).scan(source);
+            }
+            for (int i = 0; i < codeSections.size(); i++) {
+                log.debug("Processing code section " + codeSections.get(i).getCodeSection().getTitle());
                 Converter converter = new Converter(translationsLoader);
-                converter.convert(source, fileContentsType, codeSection, templateContents, targetOutput);
+                converter.convert(source, fileContentsType, sourceInfos.get(entry.getSourceFileId()), candidates[i],
+                                  codeSections.get(i), templateContents, targetOutput);
             }
         }
 
-        // Insert the class name from the file name
+        // Insert the class name from the file name and the variables
         // Clean up the placeholders
-        for (Map.Entry<Integer, StringBuilder> target : targetOutput.entrySet()) {
+        // The code of each target streams through the placeholders and the formatting into the file
+        List<String> markers = new ArrayList<String>(Arrays.asList(CLASS_NAME, TemplateUtils.CONTENTS_MARKER));
+        List<String> values = new ArrayList<String>(Arrays.asList("", ""));
+        addVariables(transformFile, markers, values);
+        PlaceholderExpander expander = PlaceholderExpander.compile(markers);
+        TargetSink targetSink = new TargetSink();
+        for (Map.Entry<Integer, OrderedSegments> target : targetOutput.getTargets().entrySet()) {
             int id = target.getKey();
             String targetFileName = findFileEntry(transformFile.getTargets().getFileItem(), id).getFileName();
-            int classNameIndex;
-            while ((classNameIndex = target.getValue().indexOf(CLASS_NAME)) != -1) {
-                target.getValue().replace(classNameIndex, classNameIndex + CLASS_NAME.length(),
-                                         ConverterUtils.stripPathForClassName(targetFileName));
+            values.set(0, ConverterUtils.stripPathForClassName(targetFileName));
+            Writer targetWriter = targetSink.open(targetFileName, transformFile.isOverwriteTargets());
+            try {
+                PlaceholderWriter placeholders = new PlaceholderWriter(targetWriter, expander,
+                                                                      values.toArray(new String[values.size()]));
+                // remove the contents marker as it is no longer required
+                placeholders.replaceFirstOnly(1);
+                target.getValue().writeTo(placeholders);
+                placeholders.close();
+            } catch (IOException e) {
+                throw new FileException(e);
+            } finally {
+                FileWriteUtils.closeQuietly(targetWriter);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            LogUtil.debug(log, RegexPrefilter.getReport(translationsLoader.getRegexPrefilters()));
+            LogUtil.debug(log, translationsLoader.getTranslationCache().getReport());
+        }
+    }
+
+    /*
+     * The placeholders and values of the variables of the transform file.
+     */
+    private void addVariables(XTransformFile transformFile, List<String> markers, List<String> values) {
+        if (transformFile.getVariables() == null) {
+            return;
+        }
+        for (XVariable variable : transformFile.getVariables().getVariable()) {
+            String marker = PlaceholderExpander.toMarker(variable.getName());
+            if (StringUtils.isBlank(variable.getName()) || marker.equals(Properties.KEY) || marker.equals(Properties.VALUE) ||
+                marker.equals(CLASS_NAME) || marker.equals(TemplateUtils.CONTENTS_MARKER)) {
+                throw new ExecutionException(new Throwable(INVALID_VARIABLE + variable.getName()));
+            }
+            if (markers.contains(marker)) {
+                throw new ExecutionException(new Throwable(DUPLICATE_VARIABLE + variable.getName()));
+            }
+            LogUtil.debug(log, "Variable {}", marker);
+            markers.add(marker);
+            values.add(variable.getValue());
+        }
+    }
+
+    /*
+     * Compiles the linked code section trees once, before any source is converted.
+     */
+    private Map<XCodeSection, CompiledCodeSection> compileAllCodeSections(TemplateCache templates) {
+        Map<XCodeSection, CompiledCodeSection> compiled = new IdentityHashMap<XCodeSection, CompiledCodeSection>();
+        for (XCodeConversionFileType entry : codeConversionsLoader.getCodeConversionTypes()) {
+            for (XCodeSection codeSection : entry.getCodeSections().getCodeSection()) {
+                CompiledCodeSection compiledCodeSection =
+                        CompiledCodeSection.compile(codeSection, translationsLoader, templates);
+                if (log.isDebugEnabled()) {
+                    LogUtil.debug(log, "Search plan:\n{}", compiledCodeSection.getPlanReport());
+                }
+                compiled.put(codeSection, compiledCodeSection);
             }
-            // remove the contents marker as it is no longer required
-            int contentsIndex = target.getValue().indexOf(TemplateUtils.CONTENTS_MARKER);
-            if (contentsIndex != -1) {
-                target.getValue().replace(contentsIndex, contentsIndex + TemplateUtils.CONTENTS_MARKER.length(), "");
+        }
+        return compiled;
+    }
+
+    /*
+     * One scanner for the top level code sections of each conversion file, which all convert the same source.
+     */
+    private Map<XCodeConversionFileType, SectionScanner> compileSectionScanners(
+            Map<XCodeSection, CompiledCodeSection> compiledCodeSections) {
+        Map<XCodeConversionFileType, SectionScanner> scanners =
+                new IdentityHashMap<XCodeConversionFileType, SectionScanner>();
+        for (XCodeConversionFileType entry : codeConversionsLoader.getCodeConversionTypes()) {
+            List<CompiledCodeSection> codeSections = new ArrayList<CompiledCodeSection>();
+            for (XCodeSection codeSection : entry.getCodeSections().getCodeSection()) {
+                codeSections.add(compiledCodeSections.get(codeSection));
             }
-            FileWriteUtils.writeContents(targetFileName, ConverterUtils.formatCode(target.getValue()),
-                                         transformFile.isOverwriteTargets());
+            SectionScanner scanner = new SectionScanner(codeSections);
+            LogUtil.debug(log, "Source " + entry.getSourceFileId() + ": " + scanner.getLiteralCount() +
+                               " leading literals for " + codeSections.size() + " code sections");
+            scanners.put(entry, scanner);
         }
+        return scanners;
+    }
+
+    /*
+     * Indexes every CODE source once, for all the code sections that convert it.
+     * A source with a language is lexed first.
+     */
+    private Map<Integer, SourceInfo> getSourceInfos(XTransformFile transformFile,
+                                                    Map<Integer, StringBuilder> sourceContents) {
+        Map<Integer, SourceInfo> sourceInfos = new HashMap<Integer, SourceInfo>();
+        for (XFileSourceEntry fileSourceEntry : transformFile.getSources().getFileItem()) {
+            StringBuilder source = sourceContents.get(fileSourceEntry.getId());
+            if (fileSourceEntry.getContentsType() == XFileContentsType.CODE && source != null) {
+                TokenTable tokens = SourceLexer.lex(source, fileSourceEntry.getLanguage());
+                if (tokens != null) {
+                    LogUtil.debug(log, "Lexed source " + fileSourceEntry.getId() + " as " + fileSourceEntry.getLanguage() +
+                                       ": " + tokens.size() + " symbols, " + tokens.getMaskCount() + " comments and literals");
+                }
+                sourceInfos.put(fileSourceEntry.getId(), new SourceInfo(source, tokens));
+            }
+        }
+        return sourceInfos;
     }
 
     /**
@@ -180,7 +302,6 @@ public class Executor {
                 throw new ExecutionException(new Throwable(INVALID_SOURCE_ID + entry.getSourceFileId()));
             }
             for (XCodeSection codeSection : entry.getCodeSections().getCodeSection()) {
-                CodeSectionUtils.verifyCodeSection(codeSection);
                 checkRecursiveCodeSections(transformFile, codeSection, allCodeSections);
             }
         }
@@ -208,10 +329,9 @@ public class Executor {
             throw new ExecutionException(new Throwable(INVALID_CODE_SECTION_ID + idString));
         }
         // this will throw an exception if any of the IDs are invalid
-        translationsLoader.getTranslationEntries(codeSection.getTranslations().getId());
+        translationsLoader.getTranslationChain(codeSection.getTranslations());
         if (codeSection.getCodeSections().getCodeSection() != null) {
             for (XCodeSection child : codeSection.getCodeSections().getCodeSection()) {
-                CodeSectionUtils.verifyCodeSection(child);
                 checkRecursiveCodeSections(transformFile, child, allCodeSections);
             }
         }
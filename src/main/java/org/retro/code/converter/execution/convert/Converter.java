@@ -15,9 +15,11 @@ import org.apache.log4j.Logger;
 import org.retro.code.converter.exception.CodeConversionException;
 import org.retro.code.converter.execution.convert.types.Code;
 import org.retro.code.converter.execution.convert.types.Properties;
+import org.retro.code.converter.execution.info.SourceInfo;
+import org.retro.code.converter.execution.output.TargetSegments;
+import org.retro.code.converter.execution.plan.CompiledCodeSection;
 import org.retro.code.converter.utils.LogUtil;
 import org.retro.code.converter.xml.TranslationsLoader;
-import org.retro.code.converter.xml.v1.types.XCodeSection;
 import org.retro.code.converter.xml.v1.types.XFileContentsType;
 
 import java.util.Map;
@@ -44,16 +46,18 @@ public class Converter {
      *
      * @param source       The contents of the source file.
      * @param contentsType Either CODE or PROPERTIES {@link org.retro.code.converter.xml.v1.types.XFileContentsType}
-     * @param codeSection  The code section configured in the conversion file
+     * @param sourceInfo   The indexes of a CODE source, null to index the source for this code section only.
+     * @param candidates   The indexes in the source where the code section can match, null to search everywhere.
+     * @param codeSection  The compiled code section configured in the conversion file
      *                     {@link org.retro.code.converter.xml.v1.types.XCodeConversionFileType}
      *                     {@link org.retro.code.converter.xml.v1.types.XCodeSectionList}
      * @param templates    The templates to be used for code insertion.
-     * @param targetOutput The output map
+     * @param targetOutput The pieces of code of the targets.
      * @throws CodeConversionException Any exception thrown by the conversion process.
      */
-    public void convert(StringBuilder source, XFileContentsType contentsType,
-                        XCodeSection codeSection, Map<Integer, StringBuilder> templates,
-                       Map<Integer, StringBuilder> targetOutput)
+    public void convert(StringBuilder source, XFileContentsType contentsType, SourceInfo sourceInfo, int[] candidates,
+                        CompiledCodeSection codeSection, Map<Integer, StringBuilder> templates,
+                        TargetSegments targetOutput)
     throws CodeConversionException {
 
         if (contentsType == null) {
@@ -61,15 +65,16 @@ public class Converter {
         }
         switch (contentsType) {
             case PROPERTIES:
-                LogUtil.debug(logger, "Processing properties for " + codeSection.getTitle());
+                LogUtil.debug(logger, "Processing properties for {}", codeSection.getCodeSection().getTitle());
                 Properties properties = new Properties(translationsLoader, templates);
                 properties.convert(source, codeSection, targetOutput);
                 break;
 
             case CODE:
-                LogUtil.debug(logger, "Processing code for " + codeSection.getTitle());
+                LogUtil.debug(logger, "Processing code for {}", codeSection.getCodeSection().getTitle());
                 Code code = new Code(translationsLoader, templates);
-                code.convert(source, codeSection, targetOutput);
+                code.convert(sourceInfo == null ? new SourceInfo(source, null) : sourceInfo, candidates,
+                             codeSection, targetOutput);
                 break;
         }
     }
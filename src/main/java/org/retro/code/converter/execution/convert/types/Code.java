@@ -19,18 +19,16 @@ import org.apache.commons.lang3.mutable.MutableInt;
 import org.apache.log4j.Logger;
 import org.retro.code.converter.exception.CodeConversionException;
 import org.retro.code.converter.execution.info.CodeBuffer;
-import org.retro.code.converter.execution.info.CodeSectionInfo;
-import org.retro.code.converter.utils.TemplateUtils;
-import org.retro.code.converter.utils.TranslationUtils;
+import org.retro.code.converter.execution.info.SourceInfo;
+import org.retro.code.converter.execution.output.OrderedSegments;
+import org.retro.code.converter.execution.output.TargetSegments;
+import org.retro.code.converter.execution.plan.CompiledCodeSection;
+import org.retro.code.converter.execution.plan.SectionMatcher;
+import org.retro.code.converter.execution.plan.SectionScanner;
+import org.retro.code.converter.execution.translation.TranslationChain;
 import org.retro.code.converter.xml.v1.types.XCodeSection;
-import org.retro.code.converter.xml.v1.types.XIdList;
 
-import java.util.Collection;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Converts source code.
@@ -55,6 +53,7 @@ public class Code {
     /**
      * This function converts and translates code by applying code section information,
      * that is then used to keep state during the conversion process.
+     * The code section is compiled first, see {@link #convert(StringBuilder, CompiledCodeSection, Map)}.
      *
      * @param source       The source code.
      * @param codeSection  The code section configured in the conversion xml file.
@@ -62,25 +61,66 @@ public class Code {
      */
     public void convert(StringBuilder source, XCodeSection codeSection,
                        Map<Integer, StringBuilder> targetOutput)
+    throws CodeConversionException {
+        convert(source, CompiledCodeSection.compile(codeSection, translationsLoader, templates), targetOutput);
+    }
+
+    /**
+     * This function converts and translates code with a compiled code section tree.
+     *
+     * @param source       The source code.
+     * @param codeSection  The compiled code section.
+     * @param targetOutput The output map
+     */
+    public void convert(StringBuilder source, CompiledCodeSection codeSection,
+                       Map<Integer, StringBuilder> targetOutput)
+    throws CodeConversionException {
+        convert(new SourceInfo(source, null), null, codeSection, targetOutput);
+    }
+
+    /**
+     * This function converts and translates code with a compiled code section tree,
+     * the code blocks are found with the indexes of the source.
+     *
+     * @param source       The source code and its indexes.
+     * @param candidates   The indexes in the source where the code section can match, in order,
+     *                     null to search everywhere, see {@link SectionScanner}.
+     * @param codeSection  The compiled code section.
+     * @param targetOutput The output map
+     */
+    public void convert(SourceInfo source, int[] candidates, CompiledCodeSection codeSection,
+                       Map<Integer, StringBuilder> targetOutput)
+    throws CodeConversionException {
+        TargetSegments targetSegments = new TargetSegments();
+        convert(source, candidates, codeSection, targetSegments);
+        targetSegments.appendTo(targetOutput);
+    }
+
+    /**
+     * This function converts and translates code with a compiled code section tree,
+     * the code is written straight into the pieces of the targets.
+     * All the code of the conversion comes after the code already in the targets,
+     * the target order only sorts the code of this conversion.
+     *
+     * @param source         The source code and its indexes.
+     * @param candidates     The indexes in the source where the code section can match, in order,
+     *                       null to search everywhere, see {@link SectionScanner}.
+     * @param codeSection    The compiled code section.
+     * @param targetSegments The pieces of code of the targets.
+     */
+    public void convert(SourceInfo source, int[] candidates, CompiledCodeSection codeSection,
+                        TargetSegments targetSegments)
     throws CodeConversionException {
         MutableInt level = new MutableInt(1);
-        LogUtil.debug(logger, level.getValue(), "Converting CODE for code section " + codeSection.getTitle());
-        CodeSectionInfo codeSectionInfo = new CodeSectionInfo(codeSection);
+        LogUtil.debug(logger, level.getValue(), "Converting CODE for code section {}", codeSection.getCodeSection().getTitle());
         CodeBuffer codeBuffer = new CodeBuffer(source);
-        Map<Integer, Map<Integer, String>> filePieces = new LinkedHashMap<Integer, Map<Integer, String>>();
-        processContent(codeBuffer, codeSectionInfo, filePieces, level, 1);
-        appendPostprocessedComplete(getResultCode(filePieces, codeSection), codeBuffer,
-                                   codeSectionInfo.getCodeSection(), level);
-        ConverterUtils.insertMapIntoOutput(targetOutput, filePieces);
+        processContent(codeBuffer, codeSection, candidates, targetSegments, level);
+        appendPostprocessedComplete(getResultCode(targetSegments, codeSection), codeBuffer, codeSection, level);
+        targetSegments.endGroup();
     }
 
-    private Map<Integer, String> getResultCode(Map<Integer, Map<Integer, String>> targetOutput, XCodeSection codeSection) {
-        Map<Integer, String> sourceMap;
-        if ((sourceMap = targetOutput.get(codeSection.getTargetFileId())) == null) {
-            sourceMap = new LinkedHashMap<Integer, String>();
-            targetOutput.put(codeSection.getTargetFileId(), sourceMap);
-        }
-        return sourceMap;
+    private OrderedSegments getResultCode(TargetSegments targetOutput, CompiledCodeSection codeSection) {
+        return targetOutput.get(codeSection.getCodeSection().getTargetFileId());
     }
 
     /*
@@ -89,139 +129,123 @@ public class Code {
      * and then this section is broken down into smaller sections for it's children.
      */
     private CodeBuffer processContent(CodeBuffer externalCode,
-                                     CodeSectionInfo codeSectionInfo,
-                                     Map<Integer, Map<Integer, String>> targetOutput,
-                                     MutableInt level, int sequenceNo)
+                                     CompiledCodeSection codeSection,
+                                     int[] candidates,
+                                     TargetSegments targetOutput,
+                                     MutableInt level)
     throws CodeConversionException {
-        CodeBuffer codeBuffer = new CodeBuffer(externalCode.getToBeProcessedCode());
-        Pattern p = Pattern.compile(codeSectionInfo.getCodeSection().getSearchStart());
+        CodeBuffer codeBuffer = new CodeBuffer(externalCode);
+        SectionMatcher matcher = new SectionMatcher(codeSection, codeBuffer, candidates);
         while (true) {
-            final String allCodeFromStartIndex = codeBuffer.getAllCodeFromStartIndex();
-            if (StringUtils.isBlank(allCodeFromStartIndex)) {
+            final int startIndex = codeBuffer.getStartIndex();
+            if (isBlank(codeBuffer.getCode(), startIndex)) {
                 break;
             }
-            Matcher matcher = p.matcher(allCodeFromStartIndex);
-            LogUtil.trace(logger, level.getValue(), "Finding next [" + codeSectionInfo.getCodeSection().getSearchStart() + "]");
-            LogUtil.trace(logger, level.getValue(), "In code " + LogUtil.getSingleLineOutput(allCodeFromStartIndex, SHORT_CODE_LENGTH));
-            if (matcher.find()) {
-                LogUtil.trace(logger, level.getValue(), "Found [" + allCodeFromStartIndex.substring(matcher.start(), matcher.end()) + "]");
-                codeBuffer.appendStartIndex(matcher.start());
-                appendPreprocessedCode(targetOutput, codeBuffer, codeSectionInfo, level, sequenceNo);
-                ConverterUtils.extractCodeBlock(codeSectionInfo, codeBuffer, matcher.start(), matcher.end());
-                appendCode(codeSectionInfo, codeBuffer, targetOutput, level, sequenceNo);
-                if (codeSectionInfo.getCodeSection().isProcessOnce()) {
+            LogUtil.trace(logger, level.getValue(), "Finding next [{}]", codeSection.getCodeSection().getSearchStart());
+            LogUtil.traceSingleLine(logger, level.getValue(), "In code ", codeBuffer.getCode(), startIndex, SHORT_CODE_LENGTH);
+            if (matcher.find(startIndex)) {
+                final int matchStart = matcher.start() - startIndex;
+                final int matchEnd = matcher.end() - startIndex;
+                if (logger.isTraceEnabled()) {
+                    LogUtil.trace(logger, level.getValue(), "Found [{}] at {}",
+                                  codeBuffer.getCode().subSequence(matcher.start(), matcher.end()),
+                                  codeBuffer.getSourcePosition(matcher.start()));
+                }
+                codeBuffer.appendStartIndex(matchStart);
+                appendPreprocessedCode(targetOutput, codeBuffer, codeSection, level);
+                ConverterUtils.extractCodeBlock(codeSection, codeBuffer, matchStart, matchEnd);
+                appendCode(codeSection, codeBuffer, targetOutput, level);
+                if (codeSection.getCodeSection().isProcessOnce()) {
                     break;
                 }
             } else {
-                appendPreprocessedCode(targetOutput, codeBuffer, codeSectionInfo, level, sequenceNo);
+                appendPreprocessedCode(targetOutput, codeBuffer, codeSection, level);
                 break;
             }
         }
-        if (isLastCodeSection(codeSectionInfo, sequenceNo)) {
-            XCodeSection codeSection = codeSectionInfo.getCodeSectionParent() == null ?
-                                       codeSectionInfo.getCodeSection() : codeSectionInfo.getCodeSectionParent();
-            appendPostprocessedComplete(getResultCode(targetOutput, codeSection),
-                                       codeBuffer, codeSection, level);
+        if (codeSection.isLast()) {
+            CompiledCodeSection outer = codeSection.getParent() == null ? codeSection : codeSection.getParent();
+            appendPostprocessedComplete(getResultCode(targetOutput, outer), codeBuffer, outer, level);
         }
         return codeBuffer;
     }
 
-    private boolean isFirstCodeSectionWithParent(CodeSectionInfo codeSectionInfo, int sequenceNo) {
-        return codeSectionInfo.getCodeSectionParent() != null && sequenceNo == 1;
-    }
-
-    private boolean isLastCodeSection(CodeSectionInfo codeSectionInfo, int sequenceNo) {
-        return codeSectionInfo.getCodeSectionParent() == null ||
-               sequenceNo == codeSectionInfo.getCodeSectionParent().getCodeSections().getCodeSection().size();
+    /*
+     * The same as StringUtils.isBlank on the code from the index on, without copying it.
+     */
+    private static boolean isBlank(CharSequence code, int fromIndex) {
+        for (int i = fromIndex; i < code.length(); i++) {
+            if (!Character.isWhitespace(code.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private void appendCode(CodeSectionInfo codeSectionInfo, CodeBuffer codeBuffer,
-                           Map<Integer, Map<Integer, String>> targetOutput,
-                           MutableInt level, int parentSequenceNo) {
-
-        String templatePre = TemplateUtils.getTemplatePreamble(codeSectionInfo.getCodeSection(), templates);
-        String templatePost = TemplateUtils.getTemplatePostamble(codeSectionInfo.getCodeSection(), templates);
-        Map<Integer, String> targetMap = getResultCode(targetOutput, codeSectionInfo.getCodeSection());
+    private void appendCode(CompiledCodeSection codeSection, CodeBuffer codeBuffer,
+                           TargetSegments targetOutput,
+                           MutableInt level) {
+        final XCodeSection config = codeSection.getCodeSection();
+        String templatePre = codeSection.getTemplatePreamble();
+        String templatePost = codeSection.getTemplatePostamble();
+        OrderedSegments resultCode = getResultCode(targetOutput, codeSection);
 
-        LogUtil.trace(logger, level.getValue(), "Pre-template [" + templatePre + "]");
-        ConverterUtils.insertCodeIntoResultMap(targetMap, templatePre, codeSectionInfo.getCodeSection().getTargetOrder());
+        LogUtil.trace(logger, level.getValue(), "Pre-template [{}]", templatePre);
+        resultCode.append(config.getTargetOrder(), templatePre);
 
-        if (StringUtils.isNotBlank(codeSectionInfo.getCodeSection().getOutputPreamble())) {
-            LogUtil.trace(logger, level.getValue(), "Preamble [" + codeSectionInfo.getCodeSection().getOutputPreamble() + "]");
-            ConverterUtils.insertCodeIntoResultMap(targetMap, codeSectionInfo.getCodeSection().getOutputPreamble(),
-                                                  codeSectionInfo.getCodeSection().getTargetOrder());
+        if (StringUtils.isNotBlank(config.getOutputPreamble())) {
+            LogUtil.trace(logger, level.getValue(), "Preamble [{}]", config.getOutputPreamble());
+            resultCode.append(config.getTargetOrder(), config.getOutputPreamble());
         }
-        if (!codeSectionInfo.isContainer()) {
-            translateAndAppend(targetMap, codeBuffer, codeSectionInfo.getCodeSection(), level);
+        if (!codeSection.isContainer()) {
+            translateAndAppend(resultCode, codeBuffer, codeSection, level);
         } else {
-            int sequenceNo = 1;
-            for (XCodeSection childSection : codeSectionInfo.getCodeSection().getCodeSections().getCodeSection()) {
+            for (CompiledCodeSection childSection : codeSection.getChildren()) {
                 level.increment();
-                CodeBuffer retStatus = processContent(codeBuffer,
-                                                     new CodeSectionInfo(childSection,
-                                                                        codeSectionInfo.getCodeSection()),
-                                                     targetOutput, level, sequenceNo++);
+                CodeBuffer retStatus = processContent(codeBuffer, childSection, null, targetOutput, level);
                 codeBuffer.appendStartIndex(retStatus.getEndIndex() + retStatus.getRemoveOffset());
                 codeBuffer.setProcessedToStartIndex();
                 level.decrement();
             }
-            if (isLastCodeSection(codeSectionInfo, parentSequenceNo)) {
-                XCodeSection codeSection = codeSectionInfo.getCodeSectionParent() == null ?
-                                           codeSectionInfo.getCodeSection() : codeSectionInfo.getCodeSectionParent();
-                appendPostprocessedComplete(getResultCode(targetOutput, codeSection),
-                                           codeBuffer, codeSection, level);
+            if (codeSection.isLast()) {
+                CompiledCodeSection outer = codeSection.getParent() == null ? codeSection : codeSection.getParent();
+                appendPostprocessedComplete(getResultCode(targetOutput, outer), codeBuffer, outer, level);
             }
         }
-        if (StringUtils.isNotBlank(codeSectionInfo.getCodeSection().getOutputPostamble())) {
-            LogUtil.trace(logger, level.getValue(), "Postamble [" + codeSectionInfo.getCodeSection().getOutputPostamble() + "]");
-            ConverterUtils.insertCodeIntoResultMap(targetMap, codeSectionInfo.getCodeSection().getOutputPostamble(),
-                                                  codeSectionInfo.getCodeSection().getTargetOrder());
+        if (StringUtils.isNotBlank(config.getOutputPostamble())) {
+            LogUtil.trace(logger, level.getValue(), "Postamble [{}]", config.getOutputPostamble());
+            resultCode.append(config.getTargetOrder(), config.getOutputPostamble());
         }
-        LogUtil.trace(logger, level.getValue(), "Post-template [" + templatePost + "]");
-        ConverterUtils.insertCodeIntoResultMap(targetMap, templatePost, codeSectionInfo.getCodeSection().getTargetOrder());
+        LogUtil.trace(logger, level.getValue(), "Post-template [{}]", templatePost);
+        resultCode.append(config.getTargetOrder(), templatePost);
     }
 
-    private void appendPreprocessedCode(Map<Integer, Map<Integer, String>> targetOutput,
-                                       CodeBuffer codeBuffer, CodeSectionInfo codeSectionInfo,
-                                       MutableInt level, int sequenceNo) {
-        Map<Integer, String> resultCode;
-        XIdList translationList;
-        final String translated;
-        if (isFirstCodeSectionWithParent(codeSectionInfo, sequenceNo)) {
-            translationList = codeSectionInfo.getCodeSectionParent().getTranslations();
-            resultCode = getResultCode(targetOutput, codeSectionInfo.getCodeSectionParent());
-            translated = translate(codeBuffer.getPreprocessedCode(), translationList);
-            LogUtil.trace(logger, level.getValue(), "Pre-code [" + translated + "]");
-            ConverterUtils.insertCodeIntoResultMap(resultCode, translated,
-                                                  codeSectionInfo.getCodeSectionParent().getTargetOrder());
-        } else {
-            translationList = codeSectionInfo.getCodeSection().getTranslations();
-            resultCode = getResultCode(targetOutput, codeSectionInfo.getCodeSection());
-            translated = translate(codeBuffer.getPreprocessedCode(), translationList);
-            LogUtil.trace(logger, level.getValue(), "Pre-code [" + translated + "]");
-            ConverterUtils.insertCodeIntoResultMap(resultCode, translated,
-                                                  codeSectionInfo.getCodeSection().getTargetOrder());
-        }
+    private void appendPreprocessedCode(TargetSegments targetOutput,
+                                       CodeBuffer codeBuffer, CompiledCodeSection codeSection,
+                                       MutableInt level) {
+        CompiledCodeSection owner = codeSection.isFirstChild() ? codeSection.getParent() : codeSection;
+        OrderedSegments resultCode = getResultCode(targetOutput, owner);
+        final String translated = translate(codeBuffer.getPreprocessedCode().toString(), owner.getTranslations());
+        LogUtil.trace(logger, level.getValue(), "Pre-code [{}]", translated);
+        resultCode.append(owner.getCodeSection().getTargetOrder(), translated);
         codeBuffer.setProcessedToStartIndex();
     }
 
-    private void appendPostprocessedComplete(Map<Integer, String> resultCode, CodeBuffer codeBuffer,
-                                            XCodeSection codeSection, MutableInt level) {
-        String translated = translate(codeBuffer.getPostProcessedComplete(),
-                                     codeSection.getTranslations());
-        LogUtil.trace(logger, level.getValue(), "Complete [" + translated + "]");
-        ConverterUtils.insertCodeIntoResultMap(resultCode, translated, codeSection.getTargetOrder());
+    private void appendPostprocessedComplete(OrderedSegments resultCode, CodeBuffer codeBuffer,
+                                            CompiledCodeSection codeSection, MutableInt level) {
+        String translated = translate(codeBuffer.getPostProcessedComplete().toString(), codeSection.getTranslations());
+        LogUtil.trace(logger, level.getValue(), "Complete [{}]", translated);
+        resultCode.append(codeSection.getCodeSection().getTargetOrder(), translated);
         codeBuffer.close();
     }
 
-    private void translateAndAppend(Map<Integer, String> resultCode, CodeBuffer codeBuffer,
-                                   XCodeSection codeSection, MutableInt level)
+    private void translateAndAppend(OrderedSegments resultCode, CodeBuffer codeBuffer,
+                                   CompiledCodeSection codeSection, MutableInt level)
     throws CodeConversionException {
         try {
-            final String translated = translate(codeBuffer.getToBeProcessedCode(),
-                                               codeSection.getTranslations());
-            LogUtil.trace(logger, level.getValue(), "Translated [" + translated + "]");
-            ConverterUtils.insertCodeIntoResultMap(resultCode, translated, codeSection.getTargetOrder());
+            final String translated = translate(codeBuffer.getToBeProcessedCode().toString(), codeSection.getTranslations());
+            LogUtil.trace(logger, level.getValue(), "Translated [{}]", translated);
+            resultCode.append(codeSection.getCodeSection().getTargetOrder(), translated);
             codeBuffer.setStartIndexToEnd();
             codeBuffer.setProcessedToStartIndex();
         } catch (Throwable throwable) {
@@ -229,15 +253,9 @@ public class Code {
         }
     }
 
-    private String translate(String code, XIdList translationList) throws CodeConversionException {
-        Collection<Integer> ids;
-        if (translationList == null) {
-            ids = new LinkedList<Integer>();
-        } else {
-            ids = translationList.getId();
-        }
+    private String translate(String code, TranslationChain translations) throws CodeConversionException {
         try {
-            return TranslationUtils.translate(code, translationsLoader.getTranslationEntries(ids));
+            return translationsLoader.getTranslationCache().translate(translations, code);
         } catch (Throwable throwable) {
             throw new CodeConversionException(throwable);
         }
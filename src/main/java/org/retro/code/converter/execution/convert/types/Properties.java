@@ -16,12 +16,19 @@ import org.retro.code.converter.xml.TranslationsLoader;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.retro.code.converter.exception.CodeConversionException;
+import org.retro.code.converter.execution.output.OrderedSegments;
+import org.retro.code.converter.execution.output.PlaceholderExpander;
+import org.retro.code.converter.execution.output.TargetSegments;
+import org.retro.code.converter.execution.plan.CompiledCodeSection;
+import org.retro.code.converter.execution.translation.TranslationChain;
+import org.retro.code.converter.regex.CompiledRegex;
+import org.retro.code.converter.regex.RegexBudget;
+import org.retro.code.converter.regex.RegexPattern;
 import org.retro.code.converter.xml.v1.types.XCodeSection;
 
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 /**
  * Converts property files.
@@ -34,6 +41,8 @@ public class Properties {
     public static final  String CR        = "\r";
     public static final  String LINE_JOIN = "\\";
 
+    private static final PlaceholderExpander PROPERTY_MARKERS = PlaceholderExpander.compile(KEY, VALUE);
+
     private final TranslationsLoader          translationsLoader;
     private final Map<Integer, StringBuilder> templates;
 
@@ -54,6 +63,7 @@ public class Properties {
      * Only the lines that satisfy the search are processed.
      * <p/>
      * Note: This function does not perform recursive processing (only one code section).
+     * The code section is compiled first.
      *
      * @param source      The source with properties.
      * @param codeSection The code section from the XML conversion configuration.
@@ -62,42 +72,67 @@ public class Properties {
     public void convert(StringBuilder source, XCodeSection codeSection,
                                               Map<Integer, StringBuilder> targetMap)
     throws CodeConversionException {
-        LogUtil.trace(logger, "Converting PROPERTIES for code section " + codeSection.getTitle());
-        CodeSectionUtils.verifyCodeSection(codeSection);
-        String templatePre = TemplateUtils.getTemplatePreamble(codeSection, templates);
-        String templatePost = TemplateUtils.getTemplatePostamble(codeSection, templates);
+        convert(source, CompiledCodeSection.compile(codeSection, translationsLoader, templates), targetMap);
+    }
+
+    /**
+     * Processes the properties with a compiled code section, see {@link #convert(StringBuilder, XCodeSection, Map)}.
+     *
+     * @param source      The source with properties.
+     * @param codeSection The compiled code section.
+     * @param targetMap   The output map
+     */
+    public void convert(StringBuilder source, CompiledCodeSection codeSection,
+                        Map<Integer, StringBuilder> targetMap)
+    throws CodeConversionException {
+        TargetSegments targetSegments = new TargetSegments();
+        convert(source, codeSection, targetSegments);
+        targetSegments.appendTo(targetMap);
+    }
+
+    /**
+     * Processes the properties with a compiled code section, the lines are written straight into
+     * the pieces of the target, after the code already there.
+     *
+     * @param source         The source with properties.
+     * @param codeSection    The compiled code section.
+     * @param targetSegments The pieces of code of the targets.
+     */
+    public void convert(StringBuilder source, CompiledCodeSection codeSection, TargetSegments targetSegments)
+    throws CodeConversionException {
+        final XCodeSection config = codeSection.getCodeSection();
+        LogUtil.trace(logger, "Converting PROPERTIES for code section {}", config.getTitle());
+        String templatePre = codeSection.getTemplatePreamble();
+        String templatePost = codeSection.getTemplatePostamble();
 
-        StringBuilder output = new StringBuilder();
-        LogUtil.trace(logger, "Pre-template [" + templatePre + "]");
-        output.append(templatePre);
+        OrderedSegments output = targetSegments.get(config.getTargetFileId());
+        LogUtil.trace(logger, "Pre-template [{}]", templatePre);
+        output.append(0, templatePre);
 
-        Pattern p = Pattern.compile(codeSection.getSearchStart());
+        TranslationChain translationChain = codeSection.getTranslations();
+        CompiledRegex search = codeSection.getSearchStart();
+        RegexPattern p = search.getPattern();
+        RegexBudget budget = codeSection.getBudget();
         for (StringBuilder line : getLines(source)) {
-            if (!p.matcher(line).find()) {
+            if (!search.mayMatch(line, 0) || !p.matcher(budget.wrap(line)).find()) {
                 continue;
             }
             int equalsPos = line.indexOf("=");
             if (equalsPos > 0 && line.length() != equalsPos + 1) {
                 String key = line.toString().substring(0, line.indexOf("="));
                 String value = line.toString().substring(line.indexOf("=") + 1);
-                String outLine = codeSection.getOutputPreamble().replace(KEY, key);
-                outLine = outLine.replace(VALUE, value);
-                LogUtil.trace(logger, "Key [" + key + "]");
-                LogUtil.trace(logger, "Value [" + value + "]");
-                Collection<Integer> ids;
-                if (codeSection.getTranslations() == null) {
-                    ids = new LinkedList<Integer>();
-                } else {
-                    ids = codeSection.getTranslations().getId();
-                }
-                final String translated = TranslationUtils.translate(outLine, translationsLoader.getTranslationEntries(ids));
-                output.append(translated);
-                output.append(NEW_LINE);
+                String outLine = PROPERTY_MARKERS.expand(config.getOutputPreamble(), key, value);
+                LogUtil.trace(logger, "Key [{}]", key);
+                LogUtil.trace(logger, "Value [{}]", value);
+                // every property line is different, so it bypasses the translation cache
+                final String translated = translationChain.translate(outLine);
+                output.append(0, translated);
+                output.append(0, NEW_LINE);
             }
         }
-        LogUtil.trace(logger, "Post-template [" + templatePost + "]");
-        output.append(templatePost);
-        ConverterUtils.insertStringIntoOutput(targetMap, output, codeSection.getTargetFileId());
+        LogUtil.trace(logger, "Post-template [{}]", templatePost);
+        output.append(0, templatePost);
+        targetSegments.endGroup();
     }
 
     private Collection<StringBuilder> getLines(StringBuilder source) {
@@ -109,7 +144,7 @@ public class Properties {
             part = StringUtils.removeEnd(part, CR);
             newLine.append(StringUtils.removeEnd(part, LINE_JOIN));
             if (part.length() == 0 || !part.endsWith(LINE_JOIN)) {
-                LogUtil.trace(logger, "Extracting property line: " + newLine);
+                LogUtil.trace(logger, "Extracting property line: {}", newLine);
                 lines.add(newLine);
                 newLine = new StringBuilder();
             }
@@ -0,0 +1,198 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.info;
+
+import org.retro.code.converter.execution.lexer.TokenTable;
+
+import java.util.Arrays;
+
+/**
+ * An index of the round and curly brackets of a source, built in one pass the first time it is used.
+ * <p/>
+ * Each bracket type is indexed on its own, the same way {@link BracketInfo} counts them:
+ * every open bracket is paired with its closing bracket with a stack, and the depth after every
+ * bracket is kept so that the closing bracket of any number of open brackets can be found
+ * without reading the code again. All the indexes are indexes in the source.
+ * <p/>
+ * If the source was lexed, only the brackets of the {@link TokenTable} are indexed,
+ * so the brackets in comments and literals are skipped.
+ */
+public final class BracketIndex {
+    private final CharSequence source;
+    private final TokenTable   tokens;
+    private Brackets round;
+    private Brackets curly;
+
+    /**
+     * @param source The source, it must not be changed while the index is used.
+     */
+    public BracketIndex(CharSequence source) {
+        this(source, null);
+    }
+
+    /**
+     * @param source The source, it must not be changed while the index is used.
+     * @param tokens The token table of the source, null to index every bracket.
+     */
+    public BracketIndex(CharSequence source, TokenTable tokens) {
+        this.source = source;
+        this.tokens = tokens;
+    }
+
+    private Brackets get(char open) {
+        if (round == null) {
+            CharSequence symbols = tokens == null ? source : tokens.getSymbols();
+            round = new Brackets(symbols, tokens, BracketInfo.ROUND_BRACKET_OPEN, BracketInfo.ROUND_BRACKET_CLOSE);
+            curly = new Brackets(symbols, tokens, BracketInfo.CURLY_BRACKET_OPEN, BracketInfo.CURLY_BRACKET_CLOSE);
+        }
+        return open == BracketInfo.ROUND_BRACKET_OPEN ? round : curly;
+    }
+
+    /**
+     * @param open    The open bracket, ( or {.
+     * @param fromIndex The index to start at.
+     * @return The index of the first open bracket at or after the index, -1 if there is none.
+     */
+    public int getFirstOpen(char open, int fromIndex) {
+        Brackets brackets = get(open);
+        int index = Arrays.binarySearch(brackets.opens, fromIndex);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < brackets.opens.length ? brackets.opens[index] : -1;
+    }
+
+    /**
+     * @param open      The open bracket, ( or {.
+     * @param openIndex The index of an open bracket.
+     * @return The index of the closing bracket that pairs with it, -1 if it is never closed.
+     */
+    public int getMatchingClose(char open, int openIndex) {
+        Brackets brackets = get(open);
+        int index = Arrays.binarySearch(brackets.opens, openIndex);
+        return index < 0 ? -1 : brackets.matches[index];
+    }
+
+    /**
+     * Finds the closing bracket of a number of brackets that are open before the index,
+     * all the brackets opened and closed after the index are skipped.
+     *
+     * @param open      The open bracket, ( or {.
+     * @param fromIndex The index to start at.
+     * @param count     The number of open brackets, at least 1.
+     * @return The index of the closing bracket, -1 if there are not enough closing brackets.
+     */
+    public int getClosing(char open, int fromIndex, int count) {
+        Brackets brackets = get(open);
+        int first = Arrays.binarySearch(brackets.positions, fromIndex);
+        if (first < 0) {
+            first = -first - 1;
+        }
+        int depth = first == 0 ? 0 : brackets.depths[first - 1];
+        int found = brackets.findDepth(first, depth - count);
+        return found == -1 ? -1 : brackets.positions[found];
+    }
+
+    /*
+     * The brackets of one type.
+     */
+    private static final class Brackets {
+        // the index of every open and close bracket in the source, in order
+        private final int[] positions;
+        // the number of open minus the number of close brackets up to and including each bracket
+        private final int[] depths;
+        // the index of every open bracket and the index of its closing bracket, or -1
+        private final int[] opens;
+        private final int[] matches;
+        // the minimum depth of the brackets under each node, the leaves start at size
+        private final int[] minimums;
+        private final int   size;
+
+        /*
+         * The symbols are the source itself if there are no tokens, otherwise the symbols of the tokens.
+         */
+        Brackets(CharSequence source, TokenTable tokens, char open, char close) {
+            int count = 0;
+            int openCount = 0;
+            for (int i = 0; i < source.length(); i++) {
+                char ch = source.charAt(i);
+                if (ch == open) {
+                    openCount++;
+                }
+                if (ch == open || ch == close) {
+                    count++;
+                }
+            }
+            positions = new int[count];
+            depths = new int[count];
+            opens = new int[openCount];
+            matches = new int[openCount];
+            int[] stack = new int[openCount];
+            int top = 0;
+            int next = 0;
+            int nextOpen = 0;
+            int depth = 0;
+            for (int i = 0; i < source.length(); i++) {
+                char ch = source.charAt(i);
+                int position = tokens == null ? i : tokens.getOffset(i);
+                if (ch == open) {
+                    opens[nextOpen] = position;
+                    matches[nextOpen] = -1;
+                    stack[top++] = nextOpen++;
+                    depth++;
+                } else if (ch == close) {
+                    if (top > 0) {
+                        matches[stack[--top]] = position;
+                    }
+                    depth--;
+                } else {
+                    continue;
+                }
+                positions[next] = position;
+                depths[next++] = depth;
+            }
+            int leaves = 1;
+            while (leaves < count) {
+                leaves <<= 1;
+            }
+            size = leaves;
+            minimums = new int[leaves * 2];
+            Arrays.fill(minimums, Integer.MAX_VALUE);
+            System.arraycopy(depths, 0, minimums, leaves, count);
+            for (int node = leaves - 1; node > 0; node--) {
+                minimums[node] = Math.min(minimums[node * 2], minimums[node * 2 + 1]);
+            }
+        }
+
+        /*
+         * The first bracket at or after the index whose depth is at most the target.
+         */
+        int findDepth(int fromIndex, int target) {
+            if (fromIndex >= positions.length) {
+                return -1;
+            }
+            return findDepth(1, 0, size, fromIndex, target);
+        }
+
+        private int findDepth(int node, int nodeStart, int nodeEnd, int fromIndex, int target) {
+            if (nodeEnd <= fromIndex || minimums[node] > target) {
+                return -1;
+            }
+            if (node >= size) {
+                return node - size;
+            }
+            int middle = (nodeStart + nodeEnd) >>> 1;
+            int found = findDepth(node * 2, nodeStart, middle, fromIndex, target);
+            return found != -1 ? found : findDepth(node * 2 + 1, middle, nodeEnd, fromIndex, target);
+        }
+    }
+}
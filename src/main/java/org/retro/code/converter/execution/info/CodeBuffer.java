@@ -15,15 +15,28 @@ import org.retro.code.converter.exception.CodeConversionException;
 import org.retro.code.converter.utils.LogUtil;
 import org.apache.log4j.Logger;
 import org.retro.code.converter.execution.convert.types.Code;
+import org.retro.code.converter.execution.lexer.TokenTable;
+import org.retro.code.converter.regex.SourceLocator;
 
 /**
  * Holds a piece of code to be processed and the indexes to the processing.
+ * <p/>
+ * The code is a piece table over the original source, which is never changed: a list of pieces,
+ * each a range of the original, in the order they are read. Removing a character splits or shortens
+ * a piece instead of shifting the rest of the code, see {@link #deleteCharAt(int)}.
+ * The pieces are kept in a balanced tree, so a removal takes O(log pieces) on average, see {@link PieceTree}.
+ * The buffer of a child code section gets its own pieces for the part of the parent that is to be processed,
+ * so it sees the code as it was when it was created, whatever the parent changes afterwards.
+ * All the indexes are relative to the start of the buffer's own code.
  */
-public class CodeBuffer {
+public class CodeBuffer implements SourceLocator {
     private static Logger logger = Logger.getLogger(CodeBuffer.class);
     public static final String SOURCE_INDEX_ERROR = "Source index out of bounds. ";
 
-    private StringBuilder code;
+    private final CharSequence text = new Text();
+    private final CharSequence original;
+    private final SourceInfo   source;
+    private PieceTree          pieces;
     private int processedIndex;
     private int startIndex;
     private int endIndex;
@@ -31,11 +44,12 @@ public class CodeBuffer {
 
     /**
      * This class is used by {@link Code} to keep state.
+     * The code is not copied and not changed, it must not be changed while the buffer is used.
      *
      * @param code The piece of code to work with
      */
     public CodeBuffer(StringBuilder code) {
-        setCode(code);
+        this(new SourceInfo(code, null));
     }
 
     /**
@@ -44,25 +58,135 @@ public class CodeBuffer {
      * @param code The piece of code to work with
      */
     public CodeBuffer(String code) {
-        setCode(new StringBuilder(code));
+        this(new SourceInfo(code, null));
     }
 
-    private void setCode(StringBuilder code) {
-        this.code = code;
+    /**
+     * This class is used by {@link Code} to keep state, on a source with its indexes.
+     * The code is not copied and not changed, it must not be changed while the buffer is used.
+     *
+     * @param source The source to work with
+     */
+    public CodeBuffer(SourceInfo source) {
+        this.original = source.getSource();
+        this.source = source;
+        setPieces(new PieceTree(0, original.length()));
+    }
+
+    /**
+     * Creates a buffer for a child code section on the code of the parent that is to be processed,
+     * see {@link #getToBeProcessedCode()}. The code is not copied, only the pieces that cover it.
+     *
+     * @param parent The buffer of the parent code section.
+     */
+    public CodeBuffer(CodeBuffer parent) {
+        this.original = parent.original;
+        this.source = parent.source;
+        int from = parent.startIndex;
+        int to = Math.max(from, Math.min(parent.endIndex, parent.length()));
+        setPieces(new PieceTree(parent.pieces, from, to));
+    }
+
+    private void setPieces(PieceTree pieces) {
+        this.pieces = pieces;
         this.startIndex = 0;
         this.processedIndex = 0;
-        this.endIndex = code.length();
+        this.endIndex = length();
         this.removeOffset = 0;
         showIndexLogTrace("setCode");
     }
 
+    private int length() {
+        return pieces.length();
+    }
+
+    /**
+     * The index of the brackets of the original source, shared by all the buffers on the source.
+     * Use {@link #toSourceIndex(int)} and {@link #toCodeIndex(int)} to convert its indexes.
+     *
+     * @return The bracket index.
+     */
+    public BracketIndex getBracketIndex() {
+        return source.getBracketIndex();
+    }
+
+    /**
+     * The index of the line ends and semicolons of the original source, shared by all the buffers on the source.
+     * Use {@link #toSourceIndex(int)} and {@link #toCodeIndex(int)} to convert its indexes.
+     *
+     * @return The line index.
+     */
+    public LineIndex getLineIndex() {
+        return source.getLineIndex();
+    }
+
+    /**
+     * Gets the position of a character in the original source, for diagnostics.
+     *
+     * @param index An index in the code, the length of the code for its end.
+     * @return The line and column in the original source, as line:column.
+     */
+    public String getSourcePosition(int index) {
+        if (index < length()) {
+            return source.getLineIndex().getPosition(toSourceIndex(index));
+        }
+        return source.getLineIndex().getPosition(length() == 0 ? 0 : toSourceIndex(length() - 1) + 1);
+    }
+
+    /**
+     * The token table of the original source, shared by all the buffers on the source.
+     *
+     * @return The token table, null if the source was not lexed.
+     */
+    public TokenTable getTokenTable() {
+        return source.getTokenTable();
+    }
+
+    /**
+     * @return The index in the original source where the code starts, so that the code is the same as the source
+     *         from that index on, or -1 if characters were removed from the code.
+     */
+    public int getSourceOffset() {
+        return pieces.size() <= 1 ? pieces.getFirstStart() : -1;
+    }
+
     /**
-     * Get the code string builder.
+     * @param index An index in the code, less than its length.
+     * @return The index of the character in the original source.
+     */
+    public int toSourceIndex(int index) {
+        return pieces.toSourceIndex(index);
+    }
+
+    /**
+     * @param sourceIndex An index in the original source.
+     * @return The index of the character in the code, -1 if it was removed or is not part of the code.
+     */
+    public int toCodeIndex(int sourceIndex) {
+        return pieces.toCodeIndex(sourceIndex);
+    }
+
+    /**
+     * Get the code of the buffer.
+     * The sequence reads the current code of the buffer, it follows any changes made to the buffer.
      *
      * @return the code
      */
-    public StringBuilder getCode() {
-        return code;
+    public CharSequence getCode() {
+        return text;
+    }
+
+    /**
+     * Removes a character from the code.
+     * Only the pieces are changed, the characters after the index are not moved.
+     *
+     * @param index The index of the character.
+     */
+    public void deleteCharAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new CodeConversionException(new Throwable(SOURCE_INDEX_ERROR + index + " : " + length()));
+        }
+        pieces.delete(index);
     }
 
     /**
@@ -155,12 +279,8 @@ public class CodeBuffer {
      * @return The code that starts at the search index and ends at the
      *         computed end of the code section.
      */
-    public String getToBeProcessedCode() {
-        String retString = "";
-        if (startIndex < endIndex) {
-            retString = code.substring(startIndex, endIndex);
-        }
-        return retString;
+    public CodeSlice getToBeProcessedCode() {
+        return slice(startIndex, endIndex);
     }
 
     /**
@@ -169,30 +289,29 @@ public class CodeBuffer {
      *
      * @return The code after the end of the current section.
      */
-    public String getPostProcessedComplete() {
-        String retString = "";
-        if (endIndex < code.length()) {
-            retString = code.substring(endIndex);
-        }
-        return retString;
+    public CodeSlice getPostProcessedComplete() {
+        return slice(endIndex, length());
     }
 
     /**
      * @return The code between the processed index and the start index.
      */
-    public String getPreprocessedCode() {
-        String retString = "";
-        if (processedIndex < startIndex) {
-            retString = code.substring(processedIndex, startIndex);
-        }
-        return retString;
+    public CodeSlice getPreprocessedCode() {
+        return slice(processedIndex, startIndex);
     }
 
     /**
      * @return Returns all the code after the start index (the current search index)
      */
-    public String getAllCodeFromStartIndex() {
-        return code.substring(startIndex);
+    public CodeSlice getAllCodeFromStartIndex() {
+        return slice(startIndex, length());
+    }
+
+    private CodeSlice slice(int start, int end) {
+        if (start >= end) {
+            return CodeSlice.EMPTY;
+        }
+        return new CodeSlice(text, start, end);
     }
 
     /**
@@ -202,23 +321,57 @@ public class CodeBuffer {
         LogUtil.trace(logger, "Closing buffer with state");
         showIndexLogTrace("Before close");
 
-        startIndex = code.length();
-        endIndex = code.length();
-        processedIndex = code.length();
+        startIndex = length();
+        endIndex = length();
+        processedIndex = length();
 
         LogUtil.trace(logger, "Buffer closed with state");
         showIndexLogTrace("After close");
     }
 
     private void checkIndex(int index) {
-        if (index < 0 || index > code.length()) {
-            throw new CodeConversionException(new Throwable(SOURCE_INDEX_ERROR + index + " : " + code.length()));
+        if (index < 0 || index > length()) {
+            throw new CodeConversionException(new Throwable(SOURCE_INDEX_ERROR + index + " : " + length()));
         }
     }
 
+    /*
+     * Called on every change of an index, so the message is only built when trace is enabled.
+     */
     private void showIndexLogTrace(String index) {
-        LogUtil.trace(logger, (index + ": Start,Processed,end,offset: " + startIndex +
-                                  " " + processedIndex + " " + endIndex + " " + removeOffset));
+        if (logger.isTraceEnabled()) {
+            LogUtil.trace(logger, index + ": Start,Processed,end,offset: " + startIndex +
+                                  " " + processedIndex + " " + endIndex + " " + removeOffset);
+        }
     }
 
+    /*
+     * The code of the buffer, read through the current pieces.
+     */
+    private final class Text implements CharSequence {
+        public int length() {
+            return pieces.length();
+        }
+
+        public char charAt(int index) {
+            if (index < 0 || index >= length()) {
+                throw new StringIndexOutOfBoundsException(index);
+            }
+            return original.charAt(toSourceIndex(index));
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length() || start > end) {
+                throw new StringIndexOutOfBoundsException("Code " + start + " to " + end + " of " + length());
+            }
+            StringBuilder copy = new StringBuilder(end - start);
+            pieces.appendTo(copy, original, start, end);
+            return copy.toString();
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
 }
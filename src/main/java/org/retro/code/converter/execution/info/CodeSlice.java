@@ -0,0 +1,71 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.info;
+
+/**
+ * A part of the code of a {@link CodeBuffer}, read directly from the characters of the buffer.
+ * <p/>
+ * A slice is only valid until the buffer it comes from is changed, the text is copied once
+ * {@link #toString()} is called and that string can be kept.
+ */
+public final class CodeSlice implements CharSequence {
+    public static final CodeSlice EMPTY = new CodeSlice("", 0, 0);
+
+    private final CharSequence store;
+    private final int          start;
+    private final int          end;
+    private String             text;
+
+    CodeSlice(CharSequence store, int start, int end) {
+        this.store = store;
+        this.start = start;
+        this.end = end;
+    }
+
+    public int length() {
+        return end - start;
+    }
+
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new StringIndexOutOfBoundsException(index);
+        }
+        return store.charAt(start + index);
+    }
+
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new StringIndexOutOfBoundsException("Slice " + start + " to " + end + " of " + length());
+        }
+        return new CodeSlice(store, this.start + start, this.start + end);
+    }
+
+    /**
+     * @return True if the slice has no characters.
+     */
+    public boolean isEmpty() {
+        return start == end;
+    }
+
+    /**
+     * Copies the characters of the slice, the copy is made only once.
+     *
+     * @return The text of the slice.
+     */
+    @Override
+    public String toString() {
+        if (text == null) {
+            text = store.subSequence(start, end).toString();
+        }
+        return text;
+    }
+}
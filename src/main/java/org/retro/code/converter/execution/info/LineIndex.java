@@ -0,0 +1,137 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.info;
+
+import org.retro.code.converter.execution.lexer.TokenTable;
+
+import java.util.Arrays;
+
+/**
+ * An index of the line ends and semicolons of a source, built in one pass the first time it is used.
+ * <p/>
+ * The line ends and semicolons that end LINE_END and COMMAND code blocks are found with a binary search.
+ * If the source was lexed, only the ones of the {@link TokenTable} end a block, so the ones in comments
+ * and literals are skipped. Every line end counts for the line and column of an index.
+ * All the indexes are indexes in the source.
+ */
+public final class LineIndex {
+    private static final char LINE_END   = '\n';
+    private static final char SEMI_COLON = ';';
+
+    private final CharSequence source;
+    private final TokenTable   tokens;
+    private int[]              lineEnds;
+    private int[]              blockLineEnds;
+    private int[]              semicolons;
+
+    /**
+     * @param source The source, it must not be changed while the index is used.
+     * @param tokens The token table of the source, null to use every line end and semicolon.
+     */
+    public LineIndex(CharSequence source, TokenTable tokens) {
+        this.source = source;
+        this.tokens = tokens;
+    }
+
+    private void build() {
+        int lineCount = 0;
+        int semicolonCount = 0;
+        int[] lines = new int[64];
+        int[] statements = new int[64];
+        for (int i = 0; i < source.length(); i++) {
+            char ch = source.charAt(i);
+            if (ch == LINE_END) {
+                if (lineCount == lines.length) {
+                    lines = Arrays.copyOf(lines, lineCount * 2);
+                }
+                lines[lineCount++] = i;
+            } else if (ch == SEMI_COLON && tokens == null) {
+                if (semicolonCount == statements.length) {
+                    statements = Arrays.copyOf(statements, semicolonCount * 2);
+                }
+                statements[semicolonCount++] = i;
+            }
+        }
+        lineEnds = Arrays.copyOf(lines, lineCount);
+        if (tokens == null) {
+            blockLineEnds = lineEnds;
+            semicolons = Arrays.copyOf(statements, semicolonCount);
+        } else {
+            blockLineEnds = getOffsets(tokens, LINE_END);
+            semicolons = getOffsets(tokens, SEMI_COLON);
+        }
+    }
+
+    private static int[] getOffsets(TokenTable tokens, char symbol) {
+        CharSequence symbols = tokens.getSymbols();
+        int count = 0;
+        for (int i = 0; i < symbols.length(); i++) {
+            if (symbols.charAt(i) == symbol) {
+                count++;
+            }
+        }
+        int[] offsets = new int[count];
+        count = 0;
+        for (int i = 0; i < symbols.length(); i++) {
+            if (symbols.charAt(i) == symbol) {
+                offsets[count++] = tokens.getOffset(i);
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * @param symbol    A line end or a semicolon.
+     * @param fromIndex The index to start at.
+     * @return The index of the first line end or semicolon at or after the index that ends a block, -1 if there is none.
+     */
+    public int getNextBlockEnd(char symbol, int fromIndex) {
+        if (lineEnds == null) {
+            build();
+        }
+        int[] offsets = symbol == SEMI_COLON ? semicolons : blockLineEnds;
+        int index = Arrays.binarySearch(offsets, fromIndex);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < offsets.length ? offsets[index] : -1;
+    }
+
+    /**
+     * @param index An index in the source.
+     * @return The line of the index, starting at 1.
+     */
+    public int getLine(int index) {
+        if (lineEnds == null) {
+            build();
+        }
+        int line = Arrays.binarySearch(lineEnds, index);
+        return (line < 0 ? -line - 1 : line) + 1;
+    }
+
+    /**
+     * @param index An index in the source.
+     * @return The column of the index, starting at 1.
+     */
+    public int getColumn(int index) {
+        int line = getLine(index);
+        return line == 1 ? index + 1 : index - lineEnds[line - 2];
+    }
+
+    /**
+     * @param index An index in the source.
+     * @return The line and column of the index, as line:column.
+     */
+    public String getPosition(int index) {
+        return getLine(index) + ":" + getColumn(index);
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.execution.info;
+
+import java.util.Arrays;
+
+/**
+ * The pieces of a {@link CodeBuffer}, each a range of the original source, in the order they are read.
+ * <p/>
+ * The pieces are kept in a treap ordered by their position in the code, where every node also holds
+ * the length of the code of its subtree. Finding the piece of an index, and removing a character,
+ * which shortens, drops or splits one piece, take O(log pieces) on average however many pieces there are.
+ * The nodes are kept in arrays, node 0 stands for no node.
+ */
+final class PieceTree {
+    private int[] starts;
+    private int[] lengths;
+    private int[] sums;
+    private int[] lefts;
+    private int[] rights;
+    private int[] priorities;
+    private int   nodeCount;
+    private int   root;
+    private int   pieceCount;
+    private int   seed = 0x2545F491;
+    // the node of the last find and the index in the code where it starts, as the code is mostly read in order
+    private int   lastNode;
+    private int   lastOffset;
+    // the nodes of removed pieces, linked through rights
+    private int   freeNodes;
+    private int   splitFirst;
+    private int   splitSecond;
+
+    /**
+     * @param start  The index in the original where the code starts.
+     * @param length The length of the code.
+     */
+    PieceTree(int start, int length) {
+        allocate(2);
+        if (length > 0) {
+            root = newNode(start, length);
+            pieceCount = 1;
+        }
+    }
+
+    /**
+     * The pieces that cover a part of the code of another tree.
+     *
+     * @param parent The tree to take the pieces from.
+     * @param from   The index in the code of the parent to start at.
+     * @param to     The index in the code of the parent to stop at, exclusive.
+     */
+    PieceTree(PieceTree parent, int from, int to) {
+        allocate(Math.max(1, parent.countPieces(from, to)));
+        // the right spine of the tree built so far, the pieces come in order, it is as long as the tree is deep
+        int[] spine = new int[16];
+        int top = 0;
+        for (int index = from; index < to; ) {
+            int piece = parent.find(index);
+            int offset = parent.lastOffset;
+            int end = Math.min(to, offset + parent.lengths[piece]);
+            int node = newNode(parent.starts[piece] + index - offset, end - index);
+            int last = 0;
+            while (top > 0 && priorities[spine[top - 1]] < priorities[node]) {
+                last = spine[--top];
+            }
+            lefts[node] = last;
+            if (top > 0) {
+                rights[spine[top - 1]] = node;
+            } else {
+                root = node;
+            }
+            if (top == spine.length) {
+                spine = Arrays.copyOf(spine, top * 2);
+            }
+            spine[top++] = node;
+            pieceCount++;
+            index = end;
+        }
+        updateSums(root);
+    }
+
+    /*
+     * The number of pieces that hold a part of the code from the index to the end index,
+     * so that a tree for a small part of the code is not as big as the whole tree.
+     */
+    private int countPieces(int from, int to) {
+        int count = 0;
+        for (int index = from; index < to; count++) {
+            int piece = find(index);
+            index = lastOffset + lengths[piece];
+        }
+        return count;
+    }
+
+    private void allocate(int capacity) {
+        starts = new int[capacity + 1];
+        lengths = new int[capacity + 1];
+        sums = new int[capacity + 1];
+        lefts = new int[capacity + 1];
+        rights = new int[capacity + 1];
+        priorities = new int[capacity + 1];
+        nodeCount = 1;
+    }
+
+    private int newNode(int start, int length) {
+        int node;
+        if (freeNodes != 0) {
+            node = freeNodes;
+            freeNodes = rights[node];
+        } else {
+            if (nodeCount == starts.length) {
+                grow(nodeCount * 2);
+            }
+            node = nodeCount++;
+        }
+        starts[node] = start;
+        lengths[node] = length;
+        sums[node] = length;
+        lefts[node] = 0;
+        rights[node] = 0;
+        // xorshift, the same tree for the same edits
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        priorities[node] = seed;
+        return node;
+    }
+
+    private void grow(int capacity) {
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        sums = Arrays.copyOf(sums, capacity);
+        lefts = Arrays.copyOf(lefts, capacity);
+        rights = Arrays.copyOf(rights, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+    }
+
+    private void update(int node) {
+        sums[node] = sums[lefts[node]] + lengths[node] + sums[rights[node]];
+    }
+
+    private void updateSums(int node) {
+        if (node != 0) {
+            updateSums(lefts[node]);
+            updateSums(rights[node]);
+            update(node);
+        }
+    }
+
+    /**
+     * @return The length of the code.
+     */
+    int length() {
+        return sums[root];
+    }
+
+    /**
+     * @return The number of pieces.
+     */
+    int size() {
+        return pieceCount;
+    }
+
+    /**
+     * @return The index in the original where the code starts, 0 if there is no code.
+     */
+    int getFirstStart() {
+        int node = root;
+        while (lefts[node] != 0) {
+            node = lefts[node];
+        }
+        return node == 0 ? 0 : starts[node];
+    }
+
+    /*
+     * The node of the piece that holds the character at the index, the piece starts at lastOffset in the code.
+     */
+    private int find(int index) {
+        if (lastNode != 0 && lastOffset <= index && index < lastOffset + lengths[lastNode]) {
+            return lastNode;
+        }
+        int node = root;
+        int offset = 0;
+        while (true) {
+            int left = lefts[node];
+            if (index < offset + sums[left]) {
+                node = left;
+            } else {
+                offset += sums[left];
+                if (index < offset + lengths[node]) {
+                    lastNode = node;
+                    lastOffset = offset;
+                    return node;
+                }
+                offset += lengths[node];
+                node = rights[node];
+            }
+        }
+    }
+
+    /**
+     * @param index An index in the code, less than its length.
+     * @return The index of the character in the original.
+     */
+    int toSourceIndex(int index) {
+        int node = find(index);
+        return starts[node] + index - lastOffset;
+    }
+
+    /**
+     * @param sourceIndex An index in the original.
+     * @return The index of the character in the code, -1 if it is not part of the code.
+     */
+    int toCodeIndex(int sourceIndex) {
+        int node = root;
+        int offset = 0;
+        while (node != 0) {
+            if (starts[node] > sourceIndex) {
+                node = lefts[node];
+            } else if (sourceIndex - starts[node] >= lengths[node]) {
+                offset += sums[lefts[node]] + lengths[node];
+                node = rights[node];
+            } else {
+                return offset + sums[lefts[node]] + sourceIndex - starts[node];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Appends a part of the code.
+     *
+     * @param copy     The code to append to.
+     * @param original The original the pieces are ranges of.
+     * @param from     The index in the code to start at.
+     * @param to       The index in the code to stop at, exclusive.
+     */
+    void appendTo(StringBuilder copy, CharSequence original, int from, int to) {
+        for (int index = from; index < to; ) {
+            int node = find(index);
+            int end = Math.min(to, lastOffset + lengths[node]);
+            copy.append(original, starts[node] + index - lastOffset, starts[node] + end - lastOffset);
+            index = end;
+        }
+    }
+
+    /**
+     * Removes a character from the code.
+     * The tree is split before and after the character, and the two sides are joined again.
+     *
+     * @param index An index in the code, less than its length.
+     */
+    void delete(int index) {
+        split(root, index);
+        int before = splitFirst;
+        split(splitSecond, 1);
+        int removed = splitFirst;
+        int after = splitSecond;
+        rights[removed] = freeNodes;
+        freeNodes = removed;
+        pieceCount--;
+        root = merge(before, after);
+        lastNode = 0;
+    }
+
+    /*
+     * Splits a treap into the first index characters of its code, in splitFirst, and the rest, in splitSecond.
+     * A piece that holds characters of both is split in two. A split can grow the arrays,
+     * so the results of a call are only stored in the arrays after it returns.
+     */
+    private void split(int node, int index) {
+        if (node == 0) {
+            splitFirst = 0;
+            splitSecond = 0;
+            return;
+        }
+        int left = lefts[node];
+        if (index <= sums[left]) {
+            split(left, index);
+            int second = splitSecond;
+            lefts[node] = second;
+            update(node);
+            splitSecond = node;
+        } else if (index >= sums[left] + lengths[node]) {
+            split(rights[node], index - sums[left] - lengths[node]);
+            int first = splitFirst;
+            rights[node] = first;
+            update(node);
+            splitFirst = node;
+        } else {
+            int position = index - sums[left];
+            int rest = newNode(starts[node] + position, lengths[node] - position);
+            int right = rights[node];
+            lengths[node] = position;
+            rights[node] = 0;
+            update(node);
+            pieceCount++;
+            splitSecond = merge(rest, right);
+            splitFirst = node;
+        }
+    }
+
+    /*
+     * Joins two treaps, all the pieces of the first come before the ones of the second.
+     */
+    private int merge(int first, int second) {
+        if (first == 0) {
+            return second;
+        }
+        if (second == 0) {
+            return first;
+        }
+        if (priorities[first] > priorities[second]) {
+            rights[first] = merge(rights[first], second);
+            update(first);
+            return first;
+        }
+        lefts[second] = merge(first, lefts[second]);
+        update(second);
+        return second;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.info;
+
+import org.retro.code.converter.execution.lexer.TokenTable;
+
+/**
+ * A source and the indexes over it, which are shared by all the code sections that convert the source.
+ * Each index is built the first time it is used, so a source is indexed at most once per run.
+ */
+public final class SourceInfo {
+    private final CharSequence source;
+    private final TokenTable   tokens;
+    private final BracketIndex bracketIndex;
+    private final LineIndex    lineIndex;
+
+    /**
+     * @param source The source, it must not be changed while it is used.
+     * @param tokens The token table of the source, null if it was not lexed.
+     */
+    public SourceInfo(CharSequence source, TokenTable tokens) {
+        this.source = source;
+        this.tokens = tokens;
+        this.bracketIndex = new BracketIndex(source, tokens);
+        this.lineIndex = new LineIndex(source, tokens);
+    }
+
+    /**
+     * @return The source.
+     */
+    public CharSequence getSource() {
+        return source;
+    }
+
+    /**
+     * @return The token table, null if the source was not lexed.
+     */
+    public TokenTable getTokenTable() {
+        return tokens;
+    }
+
+    /**
+     * @return The index of the brackets.
+     */
+    public BracketIndex getBracketIndex() {
+        return bracketIndex;
+    }
+
+    /**
+     * @return The index of the line ends and semicolons.
+     */
+    public LineIndex getLineIndex() {
+        return lineIndex;
+    }
+}
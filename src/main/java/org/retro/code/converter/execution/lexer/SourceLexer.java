@@ -0,0 +1,275 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.lexer;
+
+import org.retro.code.converter.xml.v1.types.XSourceLanguageType;
+
+import java.util.Arrays;
+
+/**
+ * A single pass lexer for C like languages that finds the comments and string and character literals of a source,
+ * so that the brackets, semicolons and line ends inside them are not taken for code.
+ * <p/>
+ * All the languages have line and block comments and string and character literals with backslash escapes.
+ * JAVA adds text blocks and CSHARP adds verbatim, interpolated and raw string literals.
+ * An unterminated literal ends at the line end, an unterminated comment or text block at the end of the source.
+ */
+public final class SourceLexer {
+    private static final String SYMBOLS = "(){};\n";
+    private static final String TRIPLE_QUOTE = "\"\"\"";
+
+    private final CharSequence        source;
+    private final XSourceLanguageType language;
+    private char[] symbols = new char[64];
+    private int[]  offsets = new int[64];
+    private int    count;
+    private int[]  maskStarts = new int[16];
+    private int[]  maskEnds = new int[16];
+    private int    maskCount;
+
+    private SourceLexer(CharSequence source, XSourceLanguageType language) {
+        this.source = source;
+        this.language = language;
+    }
+
+    /**
+     * Lexes a source.
+     *
+     * @param source   The source, it must not be changed while the table is used.
+     * @param language The language of the source.
+     * @return The token table, null if the language is not set or NONE.
+     */
+    public static TokenTable lex(CharSequence source, XSourceLanguageType language) {
+        if (language == null || language == XSourceLanguageType.NONE) {
+            return null;
+        }
+        return new SourceLexer(source, language).lex();
+    }
+
+    private TokenTable lex() {
+        int length = source.length();
+        int index = 0;
+        while (index < length) {
+            char ch = source.charAt(index);
+            int end = -1;
+            if (ch == '/' && index + 1 < length && source.charAt(index + 1) == '/') {
+                end = getLineEnd(index + 2);
+            } else if (ch == '/' && index + 1 < length && source.charAt(index + 1) == '*') {
+                end = getBlockCommentEnd(index + 2);
+            } else if (ch == '"') {
+                end = getStringEnd(index);
+            } else if (ch == '\'') {
+                end = getQuotedEnd(index + 1, '\'');
+            } else if ((ch == '@' || ch == '$') && language == XSourceLanguageType.CSHARP) {
+                end = getPrefixedStringEnd(index);
+            }
+            if (end == -1) {
+                if (SYMBOLS.indexOf(ch) != -1) {
+                    addSymbol(ch, index);
+                }
+                index++;
+            } else {
+                addMask(index, end);
+                index = end;
+            }
+        }
+        return new TokenTable(symbols, offsets, count, maskStarts, maskEnds, maskCount);
+    }
+
+    private void addSymbol(char symbol, int index) {
+        if (count == offsets.length) {
+            symbols = Arrays.copyOf(symbols, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        symbols[count] = symbol;
+        offsets[count++] = index;
+    }
+
+    private void addMask(int start, int end) {
+        if (maskCount == maskStarts.length) {
+            maskStarts = Arrays.copyOf(maskStarts, maskCount * 2);
+            maskEnds = Arrays.copyOf(maskEnds, maskCount * 2);
+        }
+        maskStarts[maskCount] = start;
+        maskEnds[maskCount++] = end;
+    }
+
+    /*
+     * The line end is not part of a line comment, it still ends a line.
+     */
+    private int getLineEnd(int fromIndex) {
+        for (int i = fromIndex; i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                return i;
+            }
+        }
+        return source.length();
+    }
+
+    private int getBlockCommentEnd(int fromIndex) {
+        for (int i = fromIndex; i + 1 < source.length(); i++) {
+            if (source.charAt(i) == '*' && source.charAt(i + 1) == '/') {
+                return i + 2;
+            }
+        }
+        return source.length();
+    }
+
+    private int getStringEnd(int index) {
+        if (language != XSourceLanguageType.C && startsWith(TRIPLE_QUOTE, index)) {
+            return language == XSourceLanguageType.JAVA ? getTextBlockEnd(index + 3) : getRawStringEnd(index);
+        }
+        return getQuotedEnd(index + 1, '"');
+    }
+
+    private int getQuotedEnd(int fromIndex, char quote) {
+        for (int i = fromIndex; i < source.length(); i++) {
+            char ch = source.charAt(i);
+            if (ch == '\\') {
+                i++;
+            } else if (ch == quote) {
+                return i + 1;
+            } else if (ch == '\n') {
+                return i;
+            }
+        }
+        return source.length();
+    }
+
+    private int getTextBlockEnd(int fromIndex) {
+        for (int i = fromIndex; i < source.length(); i++) {
+            if (source.charAt(i) == '\\') {
+                i++;
+            } else if (startsWith(TRIPLE_QUOTE, i)) {
+                return i + 3;
+            }
+        }
+        return source.length();
+    }
+
+    /*
+     * A C# raw string literal is closed by as many quotes as it is opened with.
+     */
+    private int getRawStringEnd(int index) {
+        int quotes = 0;
+        while (index + quotes < source.length() && source.charAt(index + quotes) == '"') {
+            quotes++;
+        }
+        int run = 0;
+        for (int i = index + quotes; i < source.length(); i++) {
+            run = source.charAt(i) == '"' ? run + 1 : 0;
+            if (run == quotes) {
+                return i + 1;
+            }
+        }
+        return source.length();
+    }
+
+    /*
+     * A C# string with @ and $ prefixes, -1 if the prefixes are not followed by a string.
+     * A verbatim string has no escapes, a double quote stands for a quote.
+     */
+    private int getPrefixedStringEnd(int index) {
+        int quote = index;
+        boolean verbatim = false;
+        boolean interpolated = false;
+        while (quote < source.length() && (source.charAt(quote) == '@' || source.charAt(quote) == '$')) {
+            verbatim |= source.charAt(quote) == '@';
+            interpolated |= source.charAt(quote) == '$';
+            quote++;
+        }
+        if (quote == source.length() || source.charAt(quote) != '"') {
+            return -1;
+        }
+        if (interpolated && !startsWith(TRIPLE_QUOTE, quote)) {
+            return getInterpolatedEnd(quote + 1, verbatim);
+        }
+        if (!verbatim) {
+            return getStringEnd(quote);
+        }
+        for (int i = quote + 1; i < source.length(); i++) {
+            if (source.charAt(i) == '"') {
+                if (i + 1 < source.length() && source.charAt(i + 1) == '"') {
+                    i++;
+                } else {
+                    return i + 1;
+                }
+            }
+        }
+        return source.length();
+    }
+
+    /*
+     * The holes of an interpolated string are code, so their braces are counted and the literals in them skipped,
+     * a quote in a hole does not end the string. A doubled brace outside of a hole is a brace of the text.
+     */
+    private int getInterpolatedEnd(int fromIndex, boolean verbatim) {
+        int depth = 0;
+        for (int i = fromIndex; i < source.length(); i++) {
+            char ch = source.charAt(i);
+            if (depth > 0) {
+                int end = getHoleLiteralEnd(i);
+                if (end != -1) {
+                    i = end - 1;
+                } else if (ch == '{') {
+                    depth++;
+                } else if (ch == '}') {
+                    depth--;
+                }
+            } else if (ch == '{') {
+                if (i + 1 < source.length() && source.charAt(i + 1) == '{') {
+                    i++;
+                } else {
+                    depth = 1;
+                }
+            } else if (ch == '"') {
+                if (verbatim && i + 1 < source.length() && source.charAt(i + 1) == '"') {
+                    i++;
+                } else {
+                    return i + 1;
+                }
+            } else if (!verbatim && ch == '\\') {
+                i++;
+            } else if (!verbatim && ch == '\n') {
+                return i;
+            }
+        }
+        return source.length();
+    }
+
+    /*
+     * The end of a string or character literal in a hole of an interpolated string, -1 if there is none at the index.
+     */
+    private int getHoleLiteralEnd(int index) {
+        char ch = source.charAt(index);
+        if (ch == '"') {
+            return getStringEnd(index);
+        } else if (ch == '\'') {
+            return getQuotedEnd(index + 1, '\'');
+        } else if (ch == '@' || ch == '$') {
+            return getPrefixedStringEnd(index);
+        }
+        return -1;
+    }
+
+    private boolean startsWith(String text, int index) {
+        if (index + text.length() > source.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (source.charAt(index + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.lexer;
+
+import java.util.Arrays;
+
+/**
+ * The result of lexing a source, see {@link SourceLexer}.
+ * <p/>
+ * It holds the brackets, semicolons and line ends that are code, in the order they are in the source,
+ * and the ranges of the comments and literals they were skipped in.
+ * All the indexes are indexes in the source.
+ */
+public final class TokenTable {
+    private final String symbols;
+    private final int[]  offsets;
+    private final int[]  maskStarts;
+    private final int[]  maskEnds;
+
+    TokenTable(char[] symbols, int[] offsets, int count, int[] maskStarts, int[] maskEnds, int maskCount) {
+        this.symbols = new String(symbols, 0, count);
+        this.offsets = Arrays.copyOf(offsets, count);
+        this.maskStarts = Arrays.copyOf(maskStarts, maskCount);
+        this.maskEnds = Arrays.copyOf(maskEnds, maskCount);
+    }
+
+    /**
+     * @return The symbols that are code, one character per symbol: ( ) { } ; or a line end.
+     */
+    public CharSequence getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @param token The index of the symbol.
+     * @return The index of the symbol in the source.
+     */
+    public int getOffset(int token) {
+        return offsets[token];
+    }
+
+    /**
+     * @return The number of symbols.
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * @param symbol    The symbol to find.
+     * @param fromIndex The index in the source to start at.
+     * @return The index in the source of the first symbol at or after the index that is code, -1 if there is none.
+     */
+    public int next(char symbol, int fromIndex) {
+        int token = Arrays.binarySearch(offsets, fromIndex);
+        if (token < 0) {
+            token = -token - 1;
+        }
+        int found = symbols.indexOf(symbol, token);
+        return found == -1 ? -1 : offsets[found];
+    }
+
+    /**
+     * @param index An index in the source.
+     * @return True if the character is part of a comment or a literal.
+     */
+    public boolean isMasked(int index) {
+        int mask = Arrays.binarySearch(maskStarts, index);
+        if (mask < 0) {
+            mask = -mask - 2;
+        }
+        return mask >= 0 && index < maskEnds[mask];
+    }
+
+    /**
+     * @return The number of comments and literals.
+     */
+    public int getMaskCount() {
+        return maskStarts.length;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.execution.output;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A writer that encodes the characters into a byte buffer and writes the buffer to a channel when it is full.
+ * <p/>
+ * The byte buffer is supplied so that one direct buffer can be used for all the targets, it is only used
+ * until the writer is closed. Characters that cannot be encoded are replaced, the same as a FileWriter does.
+ */
+public final class ChannelWriter extends Writer {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder      encoder;
+    private final ByteBuffer          bytes;
+    private final CharBuffer          chars = CharBuffer.allocate(BUFFER_SIZE);
+    private boolean                   closed;
+
+    /**
+     * @param channel The channel the bytes are written to, it is closed with the writer.
+     * @param charset The character set of the bytes.
+     * @param bytes   The buffer for the bytes, it is cleared first.
+     */
+    public ChannelWriter(WritableByteChannel channel, Charset charset, ByteBuffer bytes) {
+        this.channel = channel;
+        this.encoder = charset.newEncoder()
+                              .onMalformedInput(CodingErrorAction.REPLACE)
+                              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = bytes;
+        bytes.clear();
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode(false);
+        }
+        chars.put((char) c);
+    }
+
+    @Override
+    public void write(char[] text, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+            int count = Math.min(length, chars.remaining());
+            chars.put(text, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+            int count = Math.min(length, chars.remaining());
+            chars.put(text, offset, offset + count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /*
+     * A surrogate pair split over two buffers stays in the character buffer until the rest comes.
+     */
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isOverflow()) {
+                drain();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        chars.compact();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!closed) {
+            encode(false);
+            drain();
+        }
+    }
+
+    /**
+     * Writes what is left and closes the channel, closing it again does nothing.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            encode(true);
+            while (encoder.flush(bytes).isOverflow()) {
+                drain();
+            }
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+}
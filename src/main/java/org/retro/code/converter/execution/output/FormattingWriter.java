@@ -0,0 +1,167 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.execution.output;
+
+import org.retro.code.converter.execution.info.BracketInfo;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A writer that indents the code written to it and collapses blank lines, on the way to another writer.
+ * <p/>
+ * The spaces and tabs at the start of every line are replaced by one indent per open curly bracket,
+ * a line that starts with a closing curly bracket has one indent less. Runs of blank lines are cut to
+ * the maximum number of blank lines, the lines are otherwise written as they are.
+ * <p/>
+ * The code is formatted as it is written, in one pass, with only the open bracket count and the state
+ * of the current line start kept. Nothing written is looked at again, so the time is linear in the size
+ * of the code and the memory used does not depend on it.
+ */
+public final class FormattingWriter extends Writer {
+    public static final int DEFAULT_INDENT_WIDTH    = 4;
+    public static final int DEFAULT_MAX_BLANK_LINES = 1;
+    public static final int KEEP_BLANK_LINES        = Integer.MAX_VALUE;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Writer out;
+    private final char[] indent;
+    private final int    maxBlankLines;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int          count;
+    private int          bracketLevel;
+    private boolean      lineStart;
+    private int          newLines;
+
+    /**
+     * Formats with an indent of {@link #DEFAULT_INDENT_WIDTH} spaces and at most {@link #DEFAULT_MAX_BLANK_LINES}
+     * blank line in a row.
+     *
+     * @param out The writer the formatted code is written to.
+     */
+    public FormattingWriter(Writer out) {
+        this(out, DEFAULT_INDENT_WIDTH, DEFAULT_MAX_BLANK_LINES);
+    }
+
+    /**
+     * @param out           The writer the formatted code is written to.
+     * @param indentWidth   The number of spaces per open curly bracket.
+     * @param maxBlankLines The number of blank lines in a row that are kept, {@link #KEEP_BLANK_LINES} to keep all.
+     */
+    public FormattingWriter(Writer out, int indentWidth, int maxBlankLines) {
+        if (indentWidth < 0 || maxBlankLines < 0) {
+            throw new IllegalArgumentException("Invalid indent width " + indentWidth +
+                                               " or maximum blank lines " + maxBlankLines);
+        }
+        this.out = out;
+        this.indent = new char[indentWidth];
+        this.maxBlankLines = maxBlankLines;
+        Arrays.fill(indent, ' ');
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        format((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            format(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            format(text.charAt(i));
+        }
+    }
+
+    /**
+     * Formats the characters without copying them first, unlike {@link Writer#append(CharSequence)}.
+     */
+    @Override
+    public Writer append(CharSequence text) throws IOException {
+        return append(text, 0, text.length());
+    }
+
+    @Override
+    public Writer append(CharSequence text, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            format(text.charAt(i));
+        }
+        return this;
+    }
+
+    /*
+     * At the start of a line the spaces and tabs are dropped and the blank lines counted,
+     * the indent is written just before the first other character of the line.
+     */
+    private void format(char ch) throws IOException {
+        if (lineStart) {
+            if (ch == ' ' || ch == '\t') {
+                return;
+            }
+            if (ch == '\n') {
+                if (newLines <= maxBlankLines) {
+                    put(ch);
+                    newLines++;
+                }
+                return;
+            }
+            int indents = ch == BracketInfo.CURLY_BRACKET_CLOSE && bracketLevel > 0 ? bracketLevel - 1 : bracketLevel;
+            for (int i = 0; i < indents; i++) {
+                for (char space : indent) {
+                    put(space);
+                }
+            }
+            lineStart = false;
+            newLines = 0;
+        }
+        put(ch);
+        if (ch == BracketInfo.CURLY_BRACKET_CLOSE && bracketLevel > 0) {
+            bracketLevel--;
+        } else if (ch == BracketInfo.CURLY_BRACKET_OPEN) {
+            bracketLevel++;
+        } else if (ch == '\n') {
+            lineStart = true;
+            newLines = 1;
+        }
+    }
+
+    private void put(char ch) throws IOException {
+        if (count == buffer.length) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+        buffer[count++] = ch;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.execution.output;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The pieces of code of one target file, ordered by the target order of the code section
+ * that wrote them and then by the sequence they were written in.
+ * <p/>
+ * The pieces are written in groups, one group per conversion of a code section tree.
+ * All the pieces of a group come after the pieces of the groups before it, the target order
+ * only moves a piece within its group. A negative target order is the same as 0.
+ * <p/>
+ * Appending is constant time, the pieces of the open group are kept in one bucket per target order.
+ * Ending a group moves its pieces to the ordered pieces, so the pieces are only ever moved once.
+ */
+public final class OrderedSegments {
+    private static final int INITIAL_SIZE = 16;
+
+    private String[]   segments       = new String[INITIAL_SIZE];
+    private int        segmentCount;
+    private int        length;
+    private int[]      bucketOrders   = new int[4];
+    private String[][] bucketSegments = new String[4][];
+    private int[]      bucketSizes    = new int[4];
+    private int        bucketCount;
+    private int        lastBucket     = -1;
+
+    /**
+     * Appends a piece of code to the open group, an empty piece is ignored.
+     *
+     * @param order   The target order of the code section, pieces with a higher order come later in the group.
+     * @param segment The piece of code.
+     */
+    public void append(int order, String segment) {
+        if (segment == null || segment.length() == 0) {
+            return;
+        }
+        int bucket = getBucket(Math.max(order, 0));
+        String[] bucketContents = bucketSegments[bucket];
+        if (bucketSizes[bucket] == bucketContents.length) {
+            bucketContents = Arrays.copyOf(bucketContents, bucketContents.length * 2);
+            bucketSegments[bucket] = bucketContents;
+        }
+        bucketContents[bucketSizes[bucket]++] = segment;
+        length += segment.length();
+    }
+
+    /*
+     * The bucket of the previous append is checked first, as a code section usually writes
+     * several pieces in a row. The orders are kept sorted, there are only a few of them.
+     */
+    private int getBucket(int order) {
+        if (lastBucket != -1 && bucketOrders[lastBucket] == order) {
+            return lastBucket;
+        }
+        int index = Arrays.binarySearch(bucketOrders, 0, bucketCount, order);
+        if (index < 0) {
+            index = -index - 1;
+            if (bucketCount == bucketOrders.length) {
+                bucketOrders = Arrays.copyOf(bucketOrders, bucketCount * 2);
+                bucketSegments = Arrays.copyOf(bucketSegments, bucketCount * 2);
+                bucketSizes = Arrays.copyOf(bucketSizes, bucketCount * 2);
+            }
+            System.arraycopy(bucketOrders, index, bucketOrders, index + 1, bucketCount - index);
+            System.arraycopy(bucketSegments, index, bucketSegments, index + 1, bucketCount - index);
+            System.arraycopy(bucketSizes, index, bucketSizes, index + 1, bucketCount - index);
+            bucketOrders[index] = order;
+            bucketSegments[index] = new String[INITIAL_SIZE];
+            bucketSizes[index] = 0;
+            bucketCount++;
+        }
+        lastBucket = index;
+        return index;
+    }
+
+    /**
+     * Ends the open group, the pieces appended afterwards come after all the pieces appended before.
+     */
+    public void endGroup() {
+        int needed = segmentCount;
+        for (int i = 0; i < bucketCount; i++) {
+            needed += bucketSizes[i];
+        }
+        if (needed > segments.length) {
+            segments = Arrays.copyOf(segments, Math.max(needed, segments.length * 2));
+        }
+        for (int i = 0; i < bucketCount; i++) {
+            System.arraycopy(bucketSegments[i], 0, segments, segmentCount, bucketSizes[i]);
+            segmentCount += bucketSizes[i];
+            bucketSegments[i] = null;
+        }
+        bucketCount = 0;
+        lastBucket = -1;
+    }
+
+    /**
+     * @return The number of pieces, including the ones of the open group.
+     */
+    public int size() {
+        int size = segmentCount;
+        for (int i = 0; i < bucketCount; i++) {
+            size += bucketSizes[i];
+        }
+        return size;
+    }
+
+    /**
+     * @return The number of characters of all the pieces.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Writes the pieces in order, the open group is ended first.
+     *
+     * @param output Where the pieces are written to.
+     * @throws IOException If the output cannot be written.
+     */
+    public void writeTo(Appendable output) throws IOException {
+        endGroup();
+        for (int i = 0; i < segmentCount; i++) {
+            output.append(segments[i]);
+        }
+    }
+
+    /**
+     * Appends the pieces in order, the open group is ended first.
+     *
+     * @param output The code the pieces are appended to.
+     * @return The same string builder.
+     */
+    public StringBuilder appendTo(StringBuilder output) {
+        endGroup();
+        output.ensureCapacity(output.length() + length);
+        for (int i = 0; i < segmentCount; i++) {
+            output.append(segments[i]);
+        }
+        return output;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.execution.output;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A compiled set of placeholders, such as ##_CLASS_NAME_##, that are replaced in one left-to-right pass.
+ * <p/>
+ * The placeholders are compiled into a tree of their characters, so at every index of a text
+ * only the characters that can still be part of a placeholder are compared. A placeholder is found
+ * at the same place as a search with indexOf from the end of the previous one would find it.
+ * <p/>
+ * The expander is immutable and can be shared, the values are given for each expansion
+ * in the order of the placeholders. A placeholder with a null value is left as it is.
+ */
+public final class PlaceholderExpander {
+    public static final String MARKER_START = "##_";
+    public static final String MARKER_END   = "_##";
+
+    private final String[] markers;
+    private final Node     root = new Node();
+
+    /*
+     * A node of the tree, the marker is the index of the placeholder that ends here, -1 if none does.
+     */
+    static final class Node {
+        private char[] keys     = new char[0];
+        private Node[] children = new Node[0];
+        private int    marker   = -1;
+
+        Node next(char ch) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == ch) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        int getMarker() {
+            return marker;
+        }
+
+        private Node add(char ch) {
+            Node child = next(ch);
+            if (child == null) {
+                child = new Node();
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                keys[keys.length - 1] = ch;
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+    }
+
+    private PlaceholderExpander(String[] markers) {
+        this.markers = markers;
+        for (int i = 0; i < markers.length; i++) {
+            if (markers[i].length() == 0 || Arrays.asList(markers).subList(0, i).contains(markers[i])) {
+                throw new IllegalArgumentException("Empty or duplicate placeholder [" + markers[i] + "]");
+            }
+            Node node = root;
+            for (int c = 0; c < markers[i].length(); c++) {
+                node = node.add(markers[i].charAt(c));
+            }
+            node.marker = i;
+        }
+    }
+
+    /**
+     * @param markers The placeholders, the values of an expansion are given in the same order.
+     * @return The compiled placeholders.
+     */
+    public static PlaceholderExpander compile(String... markers) {
+        return new PlaceholderExpander(markers.clone());
+    }
+
+    /**
+     * See {@link #compile(String...)}.
+     */
+    public static PlaceholderExpander compile(Collection<String> markers) {
+        return new PlaceholderExpander(markers.toArray(new String[markers.size()]));
+    }
+
+    /**
+     * @param name The name of a variable.
+     * @return The placeholder of the variable, ##_name_##.
+     */
+    public static String toMarker(String name) {
+        return MARKER_START + name + MARKER_END;
+    }
+
+    /**
+     * Replaces the placeholders in a text.
+     *
+     * @param text   The text with placeholders.
+     * @param values The values of the placeholders, in the order they were compiled in.
+     * @return The text with the placeholders replaced, the same string if there are none.
+     */
+    public String expand(String text, String... values) {
+        StringBuilder output = null;
+        int last = 0;
+        int index = 0;
+        while (index < text.length()) {
+            int marker = match(text, index, values);
+            if (marker == -1) {
+                index++;
+                continue;
+            }
+            if (output == null) {
+                output = new StringBuilder(text.length() + 16);
+            }
+            output.append(text, last, index).append(values[marker]);
+            index += markers[marker].length();
+            last = index;
+        }
+        return output == null ? text : output.append(text, last, text.length()).toString();
+    }
+
+    /*
+     * The index of the placeholder with a value that starts at the index of the text, -1 if none does.
+     */
+    private int match(CharSequence text, int index, String[] values) {
+        Node node = root;
+        for (int i = index; i < text.length(); i++) {
+            node = node.next(text.charAt(i));
+            if (node == null) {
+                return -1;
+            }
+            if (node.marker != -1 && values[node.marker] != null) {
+                return node.marker;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param marker A placeholder.
+     * @return The index of the placeholder, -1 if it is not one of them.
+     */
+    public int indexOf(String marker) {
+        for (int i = 0; i < markers.length; i++) {
+            if (marker.equals(markers[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The number of placeholders.
+     */
+    public int size() {
+        return markers.length;
+    }
+
+    Node getRoot() {
+        return root;
+    }
+}
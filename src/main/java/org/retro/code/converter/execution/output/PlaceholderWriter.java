@@ -0,0 +1,158 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.execution.output;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * A writer that replaces the placeholders of a {@link PlaceholderExpander} in the text written to it,
+ * on the way to another writer.
+ * <p/>
+ * Only the characters that could be the start of a placeholder are held back, until they either
+ * make up a placeholder or cannot be one any more, the rest is passed on as it is written.
+ */
+public final class PlaceholderWriter extends Writer {
+    private final Writer                   out;
+    private final PlaceholderExpander.Node root;
+    private final String[]                 values;
+    private final boolean[]                firstOnly;
+    private final StringBuilder            pending = new StringBuilder();
+    private PlaceholderExpander.Node       node;
+
+    /**
+     * @param out      The writer the text is written to, with the placeholders replaced.
+     * @param expander The placeholders.
+     * @param values   The values of the placeholders, a placeholder with a null value is left as it is.
+     */
+    public PlaceholderWriter(Writer out, PlaceholderExpander expander, String... values) {
+        this.out = out;
+        this.root = expander.getRoot();
+        this.values = Arrays.copyOf(values, expander.size());
+        this.firstOnly = new boolean[expander.size()];
+        this.node = root;
+    }
+
+    /**
+     * Only replaces the first occurrence of a placeholder, the ones after it are left as they are.
+     *
+     * @param marker The index of the placeholder in the expander.
+     * @return This writer.
+     */
+    public PlaceholderWriter replaceFirstOnly(int marker) {
+        firstOnly[marker] = true;
+        return this;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (pending.length() > 0 || root.next((char) c) != null) {
+            feed((char) c);
+        } else {
+            out.write(c);
+        }
+    }
+
+    @Override
+    public void write(char[] text, int offset, int length) throws IOException {
+        process(CharBuffer.wrap(text), offset, offset + length);
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        process(text, offset, offset + length);
+    }
+
+    @Override
+    public Writer append(CharSequence text) throws IOException {
+        process(text, 0, text.length());
+        return this;
+    }
+
+    @Override
+    public Writer append(CharSequence text, int start, int end) throws IOException {
+        process(text, start, end);
+        return this;
+    }
+
+    /*
+     * The text between possible placeholder starts is passed on as it is.
+     */
+    private void process(CharSequence text, int start, int end) throws IOException {
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            char ch = text.charAt(i);
+            if (pending.length() > 0 || root.next(ch) != null) {
+                out.append(text, runStart, i);
+                runStart = i + 1;
+                feed(ch);
+            }
+        }
+        out.append(text, runStart, end);
+    }
+
+    /*
+     * Follows the tree of the placeholders with the held back characters. If the next character does not
+     * continue a placeholder, the first held back character is passed on and the rest are followed again.
+     */
+    private void feed(char ch) throws IOException {
+        PlaceholderExpander.Node next = node.next(ch);
+        if (next == null && pending.length() > 0) {
+            String held = pending.append(ch).toString();
+            pending.setLength(0);
+            node = root;
+            out.write(held.charAt(0));
+            for (int i = 1; i < held.length(); i++) {
+                feed(held.charAt(i));
+            }
+            return;
+        }
+        if (next == null) {
+            out.write(ch);
+            return;
+        }
+        int marker = next.getMarker();
+        if (marker != -1 && values[marker] != null) {
+            out.write(values[marker]);
+            if (firstOnly[marker]) {
+                values[marker] = null;
+            }
+            pending.setLength(0);
+            node = root;
+        } else {
+            pending.append(ch);
+            node = next;
+        }
+    }
+
+    /**
+     * Passes on what was written, characters that may still be the start of a placeholder are kept back.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Passes on the characters that were kept back and closes the writer it writes to.
+     */
+    @Override
+    public void close() throws IOException {
+        out.append(pending);
+        pending.setLength(0);
+        node = root;
+        out.close();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.execution.output;
+
+import java.io.Writer;
+
+/**
+ * A writer to a string builder, without the locking of a {@link java.io.StringWriter}.
+ */
+public final class StringBuilderWriter extends Writer {
+    private final StringBuilder output;
+
+    /**
+     * @param output The string builder that is written to.
+     */
+    public StringBuilderWriter(StringBuilder output) {
+        this.output = output;
+    }
+
+    @Override
+    public void write(int c) {
+        output.append((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+        output.append(chars, offset, length);
+    }
+
+    @Override
+    public void write(String text, int offset, int length) {
+        output.append(text, offset, offset + length);
+    }
+
+    @Override
+    public Writer append(CharSequence text) {
+        output.append(text);
+        return this;
+    }
+
+    @Override
+    public Writer append(CharSequence text, int start, int end) {
+        output.append(text, start, end);
+        return this;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * @return The string builder that is written to.
+     */
+    public StringBuilder getOutput() {
+        return output;
+    }
+}
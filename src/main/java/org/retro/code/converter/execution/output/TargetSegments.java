@@ -0,0 +1,68 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.execution.output;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The {@link OrderedSegments} of all the target files, in the order the targets were first written to.
+ */
+public final class TargetSegments {
+    private final Map<Integer, OrderedSegments> targets = new LinkedHashMap<Integer, OrderedSegments>();
+
+    /**
+     * @param targetFileId The ID of the target file.
+     * @return The pieces of code of the target, they are created the first time the target is used.
+     */
+    public OrderedSegments get(int targetFileId) {
+        OrderedSegments segments = targets.get(targetFileId);
+        if (segments == null) {
+            segments = new OrderedSegments();
+            targets.put(targetFileId, segments);
+        }
+        return segments;
+    }
+
+    /**
+     * Ends the open group of every target, see {@link OrderedSegments#endGroup()}.
+     */
+    public void endGroup() {
+        for (OrderedSegments segments : targets.values()) {
+            segments.endGroup();
+        }
+    }
+
+    /**
+     * @return The pieces of code per target file ID, in the order the targets were first written to.
+     */
+    public Map<Integer, OrderedSegments> getTargets() {
+        return targets;
+    }
+
+    /**
+     * Appends the code of every target to the output of the target.
+     *
+     * @param targetOutput The code per target file ID, a missing target is added.
+     */
+    public void appendTo(Map<Integer, StringBuilder> targetOutput) {
+        for (Map.Entry<Integer, OrderedSegments> target : targets.entrySet()) {
+            StringBuilder contents = targetOutput.get(target.getKey());
+            if (contents == null) {
+                contents = new StringBuilder(target.getValue().length());
+                targetOutput.put(target.getKey(), contents);
+            }
+            target.getValue().appendTo(contents);
+        }
+    }
+}
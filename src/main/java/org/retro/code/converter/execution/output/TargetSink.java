@@ -0,0 +1,70 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.execution.output;
+
+import org.retro.code.converter.exception.FileException;
+import org.retro.code.converter.utils.FileWriteUtils;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Writes target files through a pipeline of writers, so that a target is never held as one string.
+ * <p/>
+ * The code written to a target is formatted by a {@link FormattingWriter} and encoded by a
+ * {@link ChannelWriter} into one direct buffer that is used for all the targets, and then written
+ * to the file channel. Only one target can be open at a time.
+ */
+public final class TargetSink {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Charset    charset;
+    private final ByteBuffer buffer;
+
+    /**
+     * Writes the targets in the default character set of the platform, the same as a FileWriter.
+     */
+    public TargetSink() {
+        this(Charset.defaultCharset());
+    }
+
+    /**
+     * @param charset The character set of the target files.
+     */
+    public TargetSink(Charset charset) {
+        this.charset = charset;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * Opens a target file, the path is created if required.
+     *
+     * @param fileName          The file path and name to write to.
+     * @param overwriteContents Overwrites the contents of the file if it already exists.
+     *                          If this is false and the file exists, then a FileException is thrown.
+     * @return The writer for the code of the target, the code is formatted on the way to the file.
+     *         It must be closed to write all the code.
+     * @throws FileException When the file cannot be opened or there is an overwrite issue.
+     */
+    public Writer open(String fileName, boolean overwriteContents) throws FileException {
+        try {
+            FileOutputStream stream = new FileOutputStream(FileWriteUtils.getTargetFile(fileName, overwriteContents));
+            return new FormattingWriter(new ChannelWriter(stream.getChannel(), charset, buffer));
+        } catch (FileNotFoundException e) {
+            throw new FileException(e);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.plan;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.retro.code.converter.exception.CodeConversionException;
+import org.retro.code.converter.execution.info.BracketInfo;
+import org.retro.code.converter.execution.translation.TranslationChain;
+import org.retro.code.converter.regex.CompiledRegex;
+import org.retro.code.converter.regex.RegexBudget;
+import org.retro.code.converter.regex.RegexLiterals;
+import org.retro.code.converter.regex.SearchRegexes;
+import org.retro.code.converter.utils.CodeSectionUtils;
+import org.retro.code.converter.utils.CompiledTemplate;
+import org.retro.code.converter.utils.TemplateCache;
+import org.retro.code.converter.utils.TemplateUtils;
+import org.retro.code.converter.xml.TranslationsLoader;
+import org.retro.code.converter.xml.v1.types.XCodeBlockType;
+import org.retro.code.converter.xml.v1.types.XCodeSection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ready to run form of a code section and its children.
+ * <p/>
+ * The tree is compiled once, after the code section components are linked, and is not changed afterwards.
+ * Every node holds what the conversion needs for each match: the compiled search regexes, the bracket
+ * analysis of the search, the resolved translations and the template parts.
+ * A component that is linked into more than one code section gets a node for every parent.
+ */
+public final class CompiledCodeSection {
+    private static final String LINE_END   = "\n";
+    private static final String SEMI_COLON = ";";
+
+    private final XCodeSection              codeSection;
+    private final CompiledCodeSection       parent;
+    private final int                       sequenceNo;
+    private final List<CompiledCodeSection> children;
+    private final CompiledRegex             searchStart;
+    private final SearchOperator            searchOperator;
+    private final String                    searchLiteral;
+    private final CompiledRegex             blockEnd;
+    private final BracketInfo               searchBracketInfo;
+    private final RegexBudget               budget;
+    private final TranslationChain          translations;
+    private final CompiledTemplate          template;
+
+    private CompiledCodeSection(XCodeSection codeSection, CompiledCodeSection parent, int sequenceNo,
+                                TranslationsLoader translationsLoader, TemplateCache templates) {
+        CodeSectionUtils.verifyCodeSection(codeSection);
+        this.codeSection = codeSection;
+        this.parent = parent;
+        this.sequenceNo = sequenceNo;
+        SearchRegexes searchRegexes = translationsLoader.getSearchRegexes();
+        this.searchStart = searchRegexes.get(codeSection.getSearchStart(), codeSection.getRegexEngine());
+        this.searchOperator = SearchOperator.of(codeSection.getSearchStart());
+        this.searchLiteral = getSearchLiteral(searchOperator, codeSection.getSearchStart());
+        this.blockEnd = compileBlockEnd(codeSection, searchRegexes);
+        this.searchBracketInfo = new BracketInfo(codeSection.getSearchStart());
+        this.budget = CodeSectionUtils.getRegexBudget(codeSection);
+        this.translations = translationsLoader.getTranslationChain(codeSection.getTranslations());
+        this.template = templates.get(codeSection);
+        List<CompiledCodeSection> compiledChildren = new ArrayList<CompiledCodeSection>();
+        int childSequenceNo = 1;
+        for (XCodeSection child : codeSection.getCodeSections().getCodeSection()) {
+            compiledChildren.add(new CompiledCodeSection(child, this, childSequenceNo++, translationsLoader, templates));
+        }
+        this.children = Collections.unmodifiableList(compiledChildren);
+    }
+
+    /**
+     * Verifies a code section and compiles it with all its children.
+     *
+     * @param codeSection        The code section, with its components already linked.
+     * @param translationsLoader The loader that resolves the translation IDs.
+     * @param templates          The template contents by ID.
+     * @return The compiled code section tree.
+     * @throws CodeConversionException If a code section is invalid.
+     * @throws org.retro.code.converter.exception.TranslationIdException If a translation ID is not declared.
+     * @throws java.util.regex.PatternSyntaxException If a search regex is invalid.
+     */
+    public static CompiledCodeSection compile(XCodeSection codeSection, TranslationsLoader translationsLoader,
+                                              Map<Integer, StringBuilder> templates) throws CodeConversionException {
+        return compile(codeSection, translationsLoader, TemplateUtils.compileTemplates(templates));
+    }
+
+    /**
+     * Verifies a code section and compiles it with all its children,
+     * the code sections share the compiled templates of the cache.
+     *
+     * @param codeSection        The code section, with its components already linked.
+     * @param translationsLoader The loader that resolves the translation IDs.
+     * @param templates          The compiled templates.
+     * @return The compiled code section tree.
+     * @throws CodeConversionException If a code section is invalid or its template is not loaded.
+     * @throws org.retro.code.converter.exception.TranslationIdException If a translation ID is not declared.
+     * @throws java.util.regex.PatternSyntaxException If a search regex is invalid.
+     */
+    public static CompiledCodeSection compile(XCodeSection codeSection, TranslationsLoader translationsLoader,
+                                              TemplateCache templates) throws CodeConversionException {
+        return new CompiledCodeSection(codeSection, null, 1, translationsLoader, templates);
+    }
+
+    private static String getSearchLiteral(SearchOperator searchOperator, String regex) {
+        if (searchOperator == SearchOperator.LITERAL) {
+            return RegexLiterals.toLiteral(regex);
+        } else if (searchOperator == SearchOperator.LEADING_LITERAL) {
+            return RegexLiterals.getLeadingLiteral(regex);
+        }
+        return null;
+    }
+
+    /*
+     * The regex that ends the code block, if the code block type searches for one.
+     */
+    private static CompiledRegex compileBlockEnd(XCodeSection codeSection, SearchRegexes searchRegexes) {
+        if (codeSection.getCodeBlock() == XCodeBlockType.AUTO || codeSection.getCodeBlock() == XCodeBlockType.SEARCH_END) {
+            if (StringUtils.isBlank(codeSection.getSearchEnd())) {
+                return null;
+            }
+            return searchRegexes.get(codeSection.getSearchEnd(), codeSection.getRegexEngine());
+        } else if (codeSection.getCodeBlock() == XCodeBlockType.COMMAND) {
+            return searchRegexes.get(SEMI_COLON, codeSection.getRegexEngine());
+        } else if (codeSection.getCodeBlock() == XCodeBlockType.LINE_END) {
+            return searchRegexes.get(LINE_END, codeSection.getRegexEngine());
+        }
+        return null;
+    }
+
+    /**
+     * @return The configured code section, verified and with its defaults set.
+     */
+    public XCodeSection getCodeSection() {
+        return codeSection;
+    }
+
+    /**
+     * @return The code section this one is a child of, null at the top of the tree.
+     */
+    public CompiledCodeSection getParent() {
+        return parent;
+    }
+
+    /**
+     * @return The position of the code section among the children of its parent, starting at 1.
+     */
+    public int getSequenceNo() {
+        return sequenceNo;
+    }
+
+    /**
+     * @return True if this is the first child of a parent.
+     */
+    public boolean isFirstChild() {
+        return parent != null && sequenceNo == 1;
+    }
+
+    /**
+     * @return True if the code section has no parent or is the last child of its parent.
+     */
+    public boolean isLast() {
+        return parent == null || sequenceNo == parent.children.size();
+    }
+
+    /**
+     * @return The compiled children in the configured order.
+     */
+    public List<CompiledCodeSection> getChildren() {
+        return children;
+    }
+
+    /**
+     * @return True if this code section has children.
+     */
+    public boolean isContainer() {
+        return !children.isEmpty();
+    }
+
+    /**
+     * @return The compiled searchStart.
+     */
+    public CompiledRegex getSearchStart() {
+        return searchStart;
+    }
+
+    /**
+     * @return The operator the searchStart was compiled to.
+     */
+    public SearchOperator getSearchOperator() {
+        return searchOperator;
+    }
+
+    /**
+     * @return The string the LITERAL and LEADING_LITERAL operators search for, otherwise null.
+     */
+    public String getSearchLiteral() {
+        return searchLiteral;
+    }
+
+    /**
+     * The regex that ends the code block: the searchEnd for AUTO and SEARCH_END,
+     * a semicolon for COMMAND and a new line for LINE_END.
+     *
+     * @return The compiled regex, null if the code block type does not search for an end.
+     */
+    public CompiledRegex getBlockEnd() {
+        return blockEnd;
+    }
+
+    /**
+     * @return The bracket analysis of the searchStart regex.
+     */
+    public BracketInfo getSearchBracketInfo() {
+        return searchBracketInfo;
+    }
+
+    /**
+     * @return The budget for the search regexes.
+     */
+    public RegexBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return The translations of the code section.
+     */
+    public TranslationChain getTranslations() {
+        return translations;
+    }
+
+    /**
+     * @return The template wrapped around each match, {@link CompiledTemplate#EMPTY} if there is none.
+     */
+    public CompiledTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return The part of the template before the contents marker, empty if there is none.
+     */
+    public String getTemplatePreamble() {
+        return template.getPreamble();
+    }
+
+    /**
+     * @return The part of the template after the contents marker, empty if there is none.
+     */
+    public String getTemplatePostamble() {
+        return template.getPostamble();
+    }
+
+    /**
+     * Describes the compiled tree, one line for each code section with the operator its searchStart was compiled to.
+     *
+     * @return The plan of the tree.
+     */
+    public String getPlanReport() {
+        StringBuilder report = new StringBuilder();
+        appendPlan(report, 0);
+        return report.toString();
+    }
+
+    private void appendPlan(StringBuilder report, int depth) {
+        if (depth > 0) {
+            report.append('\n');
+        }
+        for (int i = 0; i < depth; i++) {
+            report.append("  ");
+        }
+        report.append(codeSection.getId()).append(' ').append(codeSection.getTitle()).append(": ").append(searchOperator);
+        if (searchLiteral != null) {
+            report.append(" \"").append(StringEscapeUtils.escapeJava(searchLiteral)).append('"');
+        }
+        report.append(" [").append(StringEscapeUtils.escapeJava(codeSection.getSearchStart())).append("] ")
+              .append(codeSection.getCodeBlock() == null ? XCodeBlockType.AUTO : codeSection.getCodeBlock());
+        for (CompiledCodeSection child : children) {
+            child.appendPlan(report, depth + 1);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.plan;
+
+import org.retro.code.converter.regex.CharSet;
+import org.retro.code.converter.regex.RegexLiterals;
+import org.retro.code.converter.regex.RegexNode;
+import org.retro.code.converter.regex.RegexParser;
+
+/**
+ * How a code section searches for its searchStart, chosen from the shape of the regex when the code section
+ * is compiled. Each operator finds the same match as a search with the regex from the start index,
+ * see {@link SectionMatcher}.
+ */
+public enum SearchOperator {
+    /**
+     * The regex is .* so it matches from the start index to the next line end, the regex is not run.
+     */
+    PASSTHROUGH_LINE,
+    /**
+     * The regex is .* with the DOTALL flag, so it matches all the code from the start index, the regex is not run.
+     */
+    PASSTHROUGH,
+    /**
+     * The regex only matches one string, which is searched for with indexOf, the regex is not run.
+     */
+    LITERAL,
+    /**
+     * The regex starts with ^ or \A, so it can only match at the start index. It is only tried there, with lookingAt.
+     */
+    ANCHORED,
+    /**
+     * Every match starts with a string, see {@link RegexLiterals#getLeadingLiteral(String)}.
+     * The regex is only tried, with lookingAt, where the string is found.
+     */
+    LEADING_LITERAL,
+    /**
+     * Any other regex searches from the start index, if its prefilter does not rule out a match.
+     */
+    REGEX;
+
+    /**
+     * @param regex The searchStart of a code section.
+     * @return The operator that searches for it.
+     */
+    public static SearchOperator of(String regex) {
+        if (RegexLiterals.toLiteral(regex) != null) {
+            return LITERAL;
+        }
+        RegexNode root = RegexParser.parse(regex);
+        if (root == null) {
+            return REGEX;
+        }
+        RegexNode single = getSingleNode(root);
+        if (isDotStar(single)) {
+            return ((RegexNode.CharClass) ((RegexNode.Repeat) single).getNode()).getCharSet() == CharSet.ALL ?
+                   PASSTHROUGH : PASSTHROUGH_LINE;
+        }
+        if (isAnchored(root)) {
+            return ANCHORED;
+        }
+        return RegexLiterals.getLeadingLiteral(regex) != null ? LEADING_LITERAL : REGEX;
+    }
+
+    /*
+     * The node without the groups around it and the empty nodes an inline flag like (?s) leaves next to it.
+     */
+    private static RegexNode getSingleNode(RegexNode node) {
+        if (node instanceof RegexNode.Group) {
+            return getSingleNode(((RegexNode.Group) node).getNode());
+        } else if (node instanceof RegexNode.Concat) {
+            RegexNode single = null;
+            for (RegexNode child : ((RegexNode.Concat) node).getNodes()) {
+                if (!(child instanceof RegexNode.Concat) || !((RegexNode.Concat) child).getNodes().isEmpty()) {
+                    if (single != null) {
+                        return node;
+                    }
+                    single = child;
+                }
+            }
+            return single == null ? node : getSingleNode(single);
+        }
+        return node;
+    }
+
+    private static boolean isDotStar(RegexNode root) {
+        if (!(root instanceof RegexNode.Repeat)) {
+            return false;
+        }
+        RegexNode.Repeat repeat = (RegexNode.Repeat) root;
+        if (repeat.getMin() != 0 || repeat.getMax() != -1 || repeat.getMode() != RegexNode.Repeat.Mode.GREEDY ||
+            !(repeat.getNode() instanceof RegexNode.CharClass)) {
+            return false;
+        }
+        CharSet charSet = ((RegexNode.CharClass) repeat.getNode()).getCharSet();
+        return charSet == CharSet.DOT || charSet == CharSet.ALL;
+    }
+
+    /*
+     * The first node that every match goes through is \A, or ^ without the MULTILINE flag.
+     */
+    private static boolean isAnchored(RegexNode node) {
+        if (node instanceof RegexNode.Assertion) {
+            return ((RegexNode.Assertion) node).getKind() == RegexNode.Assertion.Kind.BEGIN_INPUT;
+        } else if (node instanceof RegexNode.Group) {
+            return isAnchored(((RegexNode.Group) node).getNode());
+        } else if (node instanceof RegexNode.Concat) {
+            return !((RegexNode.Concat) node).getNodes().isEmpty() &&
+                   isAnchored(((RegexNode.Concat) node).getNodes().get(0));
+        } else if (node instanceof RegexNode.Alternation) {
+            for (RegexNode alternative : ((RegexNode.Alternation) node).getAlternatives()) {
+                if (!isAnchored(alternative)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
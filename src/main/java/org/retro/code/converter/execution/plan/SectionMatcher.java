@@ -0,0 +1,134 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.plan;
+
+import org.retro.code.converter.execution.info.CodeBuffer;
+import org.retro.code.converter.regex.CharSet;
+import org.retro.code.converter.regex.RegexBudget;
+import org.retro.code.converter.regex.RegexLiterals;
+import org.retro.code.converter.regex.RegexMatcher;
+
+import java.util.Arrays;
+
+/**
+ * Searches the code of a buffer for the searchStart of a code section, with the operator it was compiled to,
+ * see {@link SearchOperator}. Every search gives the same match as the regex would from the start index.
+ * <p/>
+ * The code is read as it is, the matcher follows the changes made to the buffer.
+ */
+public final class SectionMatcher {
+    private final CompiledCodeSection codeSection;
+    private final CodeBuffer          codeBuffer;
+    private final int[]               candidates;
+    private final RegexBudget         budget;
+    private final CharSequence        code;
+    private final RegexMatcher        matcher;
+    private int                       start;
+    private int                       end;
+
+    /**
+     * @param codeSection The compiled code section.
+     * @param codeBuffer  The buffer to search.
+     * @param candidates  The indexes in the source where the leading literal of the searchStart is found,
+     *                    in order, null to search for it, see {@link SectionScanner}.
+     */
+    public SectionMatcher(CompiledCodeSection codeSection, CodeBuffer codeBuffer, int[] candidates) {
+        this.codeSection = codeSection;
+        this.codeBuffer = codeBuffer;
+        this.candidates = candidates;
+        this.budget = codeSection.getBudget();
+        this.code = budget.wrap(codeBuffer.getCode(), codeBuffer, 0);
+        this.matcher = codeSection.getSearchStart().getPattern().matcher(code);
+    }
+
+    /**
+     * Finds the first match at or after an index.
+     *
+     * @param fromIndex The index in the code to start at.
+     * @return True if a match was found.
+     */
+    public boolean find(int fromIndex) {
+        switch (codeSection.getSearchOperator()) {
+            case PASSTHROUGH_LINE:
+                return found(fromIndex, getLineEnd(fromIndex));
+            case PASSTHROUGH:
+                return found(fromIndex, code.length());
+            case LITERAL:
+                int index = getNextLiteral(fromIndex);
+                return index != -1 && found(index, index + codeSection.getSearchLiteral().length());
+            case ANCHORED:
+                budget.restart(code);
+                return matcher.region(fromIndex, code.length()).lookingAt() && found(matcher.start(), matcher.end());
+            case LEADING_LITERAL:
+                budget.restart(code);
+                for (int next = getNextLiteral(fromIndex); next != -1; next = getNextLiteral(next + 1)) {
+                    if (matcher.region(next, code.length()).lookingAt()) {
+                        return found(matcher.start(), matcher.end());
+                    }
+                }
+                return false;
+            default:
+                budget.restart(code);
+                return codeSection.getSearchStart().mayMatch(codeBuffer.getCode(), fromIndex) &&
+                       matcher.region(fromIndex, code.length()).find() && found(matcher.start(), matcher.end());
+        }
+    }
+
+    private boolean found(int matchStart, int matchEnd) {
+        start = matchStart;
+        end = matchEnd;
+        return true;
+    }
+
+    private int getLineEnd(int fromIndex) {
+        CharSequence text = codeBuffer.getCode();
+        for (int i = fromIndex; i < text.length(); i++) {
+            if (CharSet.TERMINATOR.contains(text.charAt(i))) {
+                return i;
+            }
+        }
+        return text.length();
+    }
+
+    /*
+     * The candidates are only used as long as the code is the same as the source.
+     */
+    private int getNextLiteral(int fromIndex) {
+        int sourceOffset = codeBuffer.getSourceOffset();
+        if (candidates == null || sourceOffset == -1) {
+            return RegexLiterals.indexOf(codeBuffer.getCode(), codeSection.getSearchLiteral(), fromIndex);
+        }
+        int candidate = Arrays.binarySearch(candidates, sourceOffset + fromIndex);
+        if (candidate < 0) {
+            candidate = -candidate - 1;
+        }
+        if (candidate == candidates.length ||
+            candidates[candidate] - sourceOffset + codeSection.getSearchLiteral().length() > code.length()) {
+            return -1;
+        }
+        return candidates[candidate] - sourceOffset;
+    }
+
+    /**
+     * @return The index in the code where the last match starts.
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * @return The index in the code just past the last match.
+     */
+    public int end() {
+        return end;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.plan;
+
+import org.retro.code.converter.regex.MultiLiteralMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds where the sibling code sections that convert the same source can match, with one pass over the source.
+ * <p/>
+ * Each code section whose searchStart is or starts with a literal, see {@link CompiledCodeSection#getSearchLiteral()},
+ * can only match where that literal is found. The literals of all the siblings are searched for together,
+ * and each code section then only runs its searchStart from the next of its candidates.
+ * The code sections without a leading literal have no candidates and search as before.
+ */
+public final class SectionScanner {
+    private final List<CompiledCodeSection> codeSections;
+    // the index of the literal of each code section, -1 if it has none
+    private final int[]                     literalIndexes;
+    private final MultiLiteralMatcher       matcher;
+
+    /**
+     * @param codeSections The sibling code sections, in the order they are converted.
+     */
+    public SectionScanner(List<CompiledCodeSection> codeSections) {
+        this.codeSections = new ArrayList<CompiledCodeSection>(codeSections);
+        this.literalIndexes = new int[codeSections.size()];
+        List<String> literals = new ArrayList<String>();
+        for (int i = 0; i < codeSections.size(); i++) {
+            String literal = codeSections.get(i).getSearchLiteral();
+            if (literal != null && !literals.contains(literal)) {
+                literals.add(literal);
+            }
+            literalIndexes[i] = literal == null ? -1 : literals.indexOf(literal);
+        }
+        this.matcher = literals.isEmpty() ? null : new MultiLiteralMatcher(literals);
+    }
+
+    /**
+     * Scans a source once for all the code sections.
+     *
+     * @param source The source.
+     * @return For each code section in order, the indexes in the source where it can match,
+     *         or null if it has no leading literal.
+     */
+    public int[][] scan(CharSequence source) {
+        int[][] candidates = new int[codeSections.size()][];
+        if (matcher == null) {
+            return candidates;
+        }
+        int[][] found = matcher.findAll(source);
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = literalIndexes[i] == -1 ? null : found[literalIndexes[i]];
+        }
+        return candidates;
+    }
+
+    /**
+     * @return The sibling code sections.
+     */
+    public List<CompiledCodeSection> getCodeSections() {
+        return codeSections;
+    }
+
+    /**
+     * @return The number of distinct leading literals that are searched for.
+     */
+    public int getLiteralCount() {
+        return matcher == null ? 0 : matcher.size();
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.translation;
+
+import org.retro.code.converter.exception.CodeConversionException;
+import org.retro.code.converter.exception.TranslationIdException;
+import org.retro.code.converter.regex.RegexBudget;
+import org.retro.code.converter.regex.RegexEngines;
+import org.retro.code.converter.regex.RegexLiterals;
+import org.retro.code.converter.regex.RegexMatcher;
+import org.retro.code.converter.regex.RegexPattern;
+import org.retro.code.converter.regex.RegexPrefilter;
+import org.retro.code.converter.xml.v1.types.XRegexEngineType;
+import org.retro.code.converter.xml.v1.types.XTranslateEntry;
+import org.retro.code.converter.xml.v1.types.XTranslationOperationType;
+
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * An immutable, ready to run version of a translation entry.
+ * The regex is compiled and the replacement string parsed once, when the entry is compiled.
+ * <p/>
+ * A regex that can only match one fixed string is applied with indexOf instead of a Matcher.
+ * As every match is the same text, the replaced text is also worked out once.
+ * Any other regex is only run if the code contains the strings that every match requires,
+ * and then within the {@link RegexBudget} of the translation, by the regex engine configured for the translation.
+ */
+public final class CompiledTranslation implements TranslationStep {
+    public static final String INVALID_TRANSLATION = "Invalid regex or replacement for translation id ";
+
+    private final int                       id;
+    private final XTranslationOperationType operation;
+    private final boolean                   processOnce;
+    private final RegexPattern              pattern;
+    private final Replacement               replacement;
+    private final String                    literal;
+    private final String                    literalReplacement;
+    private final RegexPrefilter            prefilter;
+    private final RegexBudget               budget;
+
+    private CompiledTranslation(int id, XTranslationOperationType operation, boolean processOnce,
+                                RegexPattern pattern, Replacement replacement, RegexBudget budget) {
+        this.id = id;
+        this.budget = budget;
+        this.operation = operation;
+        this.processOnce = processOnce;
+        this.pattern = pattern;
+        this.replacement = replacement;
+        this.literal = RegexLiterals.toLiteral(pattern.pattern());
+        this.literalReplacement = literal == null ? null : translateMatch(literal);
+        this.prefilter = literal == null ? new RegexPrefilter("translation " + id, pattern.pattern()) : null;
+    }
+
+    /**
+     * Compiles a translation entry.
+     * The defaults of the XML schema are used for a missing toString, operation, processOnce or regexEngine.
+     *
+     * @param entry The translation entry from the translation file.
+     * @return The compiled translation.
+     * @throws TranslationIdException If the regex or the replacement string is invalid.
+     */
+    public static CompiledTranslation compile(XTranslateEntry entry) throws TranslationIdException {
+        return compile(entry, null);
+    }
+
+    /**
+     * Compiles a translation entry, with the engine of the transform file for an entry without a regexEngine.
+     *
+     * @param entry             The translation entry from the translation file.
+     * @param defaultEngineType The engine of the transform file, null for JAVA.
+     * @return The compiled translation.
+     * @throws TranslationIdException If the regex or the replacement string is invalid.
+     */
+    public static CompiledTranslation compile(XTranslateEntry entry, XRegexEngineType defaultEngineType)
+            throws TranslationIdException {
+        XTranslationOperationType operation = entry.getOperation() == null ?
+                                              XTranslationOperationType.REPLACE : entry.getOperation();
+        boolean processOnce = entry.isProcessOnce() == null || entry.isProcessOnce();
+        String toString = entry.getToString() == null ? "" : entry.getToString();
+        try {
+            RegexPattern pattern = RegexEngines.get(entry.getRegexEngine(), defaultEngineType).compile(entry.getFromRegex());
+            Replacement replacement = null;
+            if (operation == XTranslationOperationType.REPLACE) {
+                replacement = Replacement.parse(toString, entry.getFromRegex(), pattern.groupCount());
+            }
+            return new CompiledTranslation(entry.getId(), operation, processOnce, pattern, replacement,
+                                           RegexBudget.of("translation id " + entry.getId(), entry.getRegexBudget()));
+        } catch (PatternSyntaxException e) {
+            throw new TranslationIdException(new Throwable(INVALID_TRANSLATION + entry.getId(), e));
+        } catch (IllegalArgumentException e) {
+            throw new TranslationIdException(new Throwable(INVALID_TRANSLATION + entry.getId(), e));
+        }
+    }
+
+    /**
+     * Applies the translation to a piece of code.
+     *
+     * @param source The code to translate.
+     * @return The translated code, or the same string if nothing matched.
+     * @throws CodeConversionException If the regex exceeds its budget.
+     */
+    public String apply(String source) throws CodeConversionException {
+        if (literal != null) {
+            return replaceLiteral(source);
+        }
+        if (!prefilter.mayMatch(source)) {
+            return source;
+        }
+        if (operation == XTranslationOperationType.REPLACE) {
+            return replace(source);
+        }
+        return changeCase(source);
+    }
+
+    /*
+     * The same as String.replaceFirst or String.replaceAll, without recompiling the regex
+     * or parsing the replacement.
+     */
+    private String replace(String source) {
+        RegexMatcher matcher = pattern.matcher(budget.wrap(source));
+        if (!matcher.find()) {
+            return source;
+        }
+        StringBuilder output = new StringBuilder(source.length() + 16);
+        int lastEnd = 0;
+        do {
+            output.append(source, lastEnd, matcher.start());
+            replacement.appendTo(output, source, matcher);
+            lastEnd = matcher.end();
+        } while (!processOnce && matcher.find());
+        output.append(source, lastEnd, source.length());
+        return output.toString();
+    }
+
+    private String replaceLiteral(String source) {
+        int index = source.indexOf(literal);
+        if (index == -1) {
+            return source;
+        }
+        StringBuilder output = new StringBuilder(source.length() + 16);
+        int lastEnd = 0;
+        do {
+            output.append(source, lastEnd, index);
+            output.append(literalReplacement);
+            lastEnd = index + literal.length();
+            index = processOnce ? -1 : source.indexOf(literal, lastEnd);
+        } while (index != -1);
+        output.append(source, lastEnd, source.length());
+        return output.toString();
+    }
+
+    /*
+     * The text a single match is translated to, used to prepare the replacement of a literal.
+     */
+    private String translateMatch(String match) {
+        if (operation == XTranslationOperationType.ALL_UPPER) {
+            return match.toUpperCase();
+        } else if (operation == XTranslationOperationType.ALL_LOWER) {
+            return match.toLowerCase();
+        }
+        RegexMatcher matcher = pattern.matcher(match);
+        matcher.matches();
+        StringBuilder output = new StringBuilder();
+        replacement.appendTo(output, match, matcher);
+        return output.toString();
+    }
+
+    /*
+     * Each search continues on a region that starts at the end of the previous match, with anchoring
+     * and opaque bounds, so ^ and lookbehinds see the same text as a search on the rest of the string.
+     * An empty match does not change anything, the search then moves on by one character.
+     */
+    private String changeCase(String source) {
+        RegexMatcher matcher = pattern.matcher(budget.wrap(source));
+        if (!matcher.find()) {
+            return source;
+        }
+        StringBuilder output = new StringBuilder(source.length());
+        int lastEnd = 0;
+        do {
+            output.append(source, lastEnd, matcher.start());
+            String match = source.substring(matcher.start(), matcher.end());
+            output.append(operation == XTranslationOperationType.ALL_UPPER ? match.toUpperCase() : match.toLowerCase());
+            lastEnd = matcher.end();
+            int nextStart = matcher.end() == matcher.start() ? lastEnd + 1 : lastEnd;
+            if (processOnce || nextStart > source.length()) {
+                break;
+            }
+            matcher.region(nextStart, source.length());
+        } while (matcher.find());
+        output.append(source, lastEnd, source.length());
+        return output.toString();
+    }
+
+    /**
+     * @return The ID of the translation entry.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return The operation, REPLACE if none was configured.
+     */
+    public XTranslationOperationType getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return True if only the first match is translated.
+     */
+    public boolean isProcessOnce() {
+        return processOnce;
+    }
+
+    /**
+     * @return The compiled fromRegex.
+     */
+    public RegexPattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return True if the regex is a plain literal and is applied without a Matcher.
+     */
+    public boolean isLiteral() {
+        return literal != null;
+    }
+
+    /**
+     * @return The string the regex matches if it is a literal, otherwise null.
+     */
+    public String getLiteral() {
+        return literal;
+    }
+
+    /**
+     * @return The text every match of a literal regex is translated to, otherwise null.
+     */
+    public String getLiteralReplacement() {
+        return literalReplacement;
+    }
+
+    /**
+     * @return The prefilter that is checked before the regex is run, null for a literal.
+     */
+    public RegexPrefilter getPrefilter() {
+        return prefilter;
+    }
+
+    /**
+     * @return The parsed toString, null if the operation is not REPLACE.
+     */
+    public Replacement getReplacement() {
+        return replacement;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+package org.retro.code.converter.execution.translation;
+
+import org.retro.code.converter.xml.v1.types.XTranslationOperationType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Consecutive literal REPLACE translations applied in a single scan with an Aho-Corasick automaton.
+ * <p/>
+ * The single scan gives the same output as applying the translations one after the other
+ * only if they cannot interact, so a translation is only accepted into a group when
+ * {@link #canAdd(CompiledTranslation)} says so:
+ * <ul>
+ * <li>No two patterns overlap, so the matches in the source can never compete.</li>
+ * <li>No pattern overlaps the replacement of an earlier translation, and no earlier replacement
+ * is empty, so a translation can never match text that an earlier one has produced.</li>
+ * </ul>
+ * Under these rules every translation finds the same matches in the original code as it would
+ * find in the output of the earlier translations, which is what the scan replaces.
+ */
+public final class LiteralTranslationGroup implements TranslationStep {
+    private final CompiledTranslation[] translations;
+    private final String[]              patterns;
+    private final String[]              replacements;
+    private final boolean[]             processOnce;
+
+    // the automaton, one entry per state, state 0 is the root
+    private char[][] edgeChars;
+    private int[][]  edgeTargets;
+    private int[]    failure;
+    private int[]    output;
+    private int[]    depth;
+
+    /**
+     * Builds the automaton for the translations.
+     *
+     * @param translations Literal REPLACE translations that can be added to each other in this order.
+     */
+    LiteralTranslationGroup(List<CompiledTranslation> translations) {
+        this.translations = translations.toArray(new CompiledTranslation[translations.size()]);
+        patterns = new String[this.translations.length];
+        replacements = new String[this.translations.length];
+        processOnce = new boolean[this.translations.length];
+        for (int i = 0; i < this.translations.length; i++) {
+            patterns[i] = this.translations[i].getLiteral();
+            replacements[i] = this.translations[i].getLiteralReplacement();
+            processOnce[i] = this.translations[i].isProcessOnce();
+        }
+        buildAutomaton();
+    }
+
+    /**
+     * @param translation The translation to check.
+     * @return True if the translation is a literal REPLACE.
+     */
+    static boolean isGroupable(CompiledTranslation translation) {
+        return translation.isLiteral() && translation.getOperation() == XTranslationOperationType.REPLACE;
+    }
+
+    /**
+     * Checks if a translation can be applied after the group within the same scan.
+     *
+     * @param group       The translations of the group so far, in order.
+     * @param translation A literal REPLACE translation.
+     * @return True if the translation cannot interact with any translation of the group.
+     */
+    static boolean canAdd(List<CompiledTranslation> group, CompiledTranslation translation) {
+        String pattern = translation.getLiteral();
+        for (CompiledTranslation earlier : group) {
+            String replacement = earlier.getLiteralReplacement();
+            if (overlaps(earlier.getLiteral(), pattern) || replacement.length() == 0 ||
+                overlaps(replacement, pattern)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * True if an occurrence of one string can share a character with an occurrence of the other.
+     */
+    static boolean overlaps(String first, String second) {
+        if (first.contains(second) || second.contains(first)) {
+            return true;
+        }
+        int shorter = Math.min(first.length(), second.length());
+        for (int length = 1; length < shorter; length++) {
+            if (first.regionMatches(first.length() - length, second, 0, length) ||
+                second.regionMatches(second.length() - length, first, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String apply(String source) {
+        boolean[] done = new boolean[patterns.length];
+        StringBuilder output = null;
+        int lastEnd = 0;
+        int state = 0;
+        for (int i = 0; i < source.length(); i++) {
+            state = nextState(state, source.charAt(i));
+            int match = this.output[state];
+            if (match == -1 || done[match]) {
+                continue;
+            }
+            int start = i + 1 - depth[state];
+            if (start < lastEnd) {
+                // the pattern overlaps its own previous match
+                continue;
+            }
+            if (output == null) {
+                output = new StringBuilder(source.length() + 16);
+            }
+            output.append(source, lastEnd, start);
+            output.append(replacements[match]);
+            lastEnd = i + 1;
+            done[match] = processOnce[match];
+        }
+        if (output == null) {
+            return source;
+        }
+        output.append(source, lastEnd, source.length());
+        return output.toString();
+    }
+
+    /**
+     * @return The translations of the group in the configured order.
+     */
+    public List<CompiledTranslation> getTranslations() {
+        return Arrays.asList(translations.clone());
+    }
+
+    private int nextState(int state, char ch) {
+        int current = state;
+        while (true) {
+            int next = getEdge(current, ch);
+            if (next != -1) {
+                return next;
+            }
+            if (current == 0) {
+                return 0;
+            }
+            current = failure[current];
+        }
+    }
+
+    private int getEdge(int state, char ch) {
+        int index = Arrays.binarySearch(edgeChars[state], ch);
+        return index < 0 ? -1 : edgeTargets[state][index];
+    }
+
+    private void buildAutomaton() {
+        List<StringBuilder> chars = new ArrayList<StringBuilder>();
+        List<List<Integer>> targets = new ArrayList<List<Integer>>();
+        List<Integer> outputs = new ArrayList<Integer>();
+        List<Integer> depths = new ArrayList<Integer>();
+        chars.add(new StringBuilder());
+        targets.add(new ArrayList<Integer>());
+        outputs.add(-1);
+        depths.add(0);
+        for (int p = 0; p < patterns.length; p++) {
+            int state = 0;
+            for (int i = 0; i < patterns[p].length(); i++) {
+                char ch = patterns[p].charAt(i);
+                int edge = chars.get(state).indexOf(String.valueOf(ch));
+                if (edge == -1) {
+                    chars.get(state).append(ch);
+                    targets.get(state).add(chars.size());
+                    state = chars.size();
+                    chars.add(new StringBuilder());
+                    targets.add(new ArrayList<Integer>());
+                    outputs.add(-1);
+                    depths.add(i + 1);
+                } else {
+                    state = targets.get(state).get(edge);
+                }
+            }
+            outputs.set(state, p);
+        }
+
+        int states = chars.size();
+        edgeChars = new char[states][];
+        edgeTargets = new int[states][];
+        output = new int[states];
+        depth = new int[states];
+        for (int s = 0; s < states; s++) {
+            char[] sorted = chars.get(s).toString().toCharArray();
+            Arrays.sort(sorted);
+            edgeChars[s] = sorted;
+            edgeTargets[s] = new int[sorted.length];
+            for (int e = 0; e < sorted.length; e++) {
+                int edge = chars.get(s).indexOf(String.valueOf(sorted[e]));
+                edgeTargets[s][e] = targets.get(s).get(edge);
+            }
+            output[s] = outputs.get(s);
+            depth[s] = depths.get(s);
+        }
+
+        // breadth first, so the failure state is always known before it is needed
+        failure = new int[states];
+        LinkedList<Integer> queue = new LinkedList<Integer>();
+        for (int target : edgeTargets[0]) {
+            queue.add(target);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.removeFirst();
+            for (int e = 0; e < edgeChars[state].length; e++) {
+                int target = edgeTargets[state][e];
+                failure[target] = state == 0 ? 0 : nextState(failure[state], edgeChars[state][e]);
+                queue.add(target);
+            }
+        }
+    }
+}
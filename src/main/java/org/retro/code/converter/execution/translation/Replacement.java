@@ -0,0 +1,207 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.translation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.MatchResult;
+
+/**
+ * A replacement string (the toString of a translation) that has been parsed once.
+ * <p/>
+ * The parsing follows the rules of {@link java.util.regex.Matcher#appendReplacement},
+ * that is a backslash escapes the next character, $n refers to a numbered group and
+ * ${name} to a named group. The string is split into literal parts and group references
+ * so that nothing has to be parsed again when the replacement is applied to a match.
+ */
+public final class Replacement {
+    private static final String ESCAPE_MISSING  = "Character to be escaped is missing in replacement: ";
+    private static final String GROUP_MISSING   = "Illegal group reference in replacement: ";
+    private static final String NO_NAMED_GROUP  = "No group with name {%s} in replacement: ";
+    private static final String NO_GROUP        = "No group %d in replacement: ";
+
+    private final String   replacement;
+    private final String[] literals;
+    private final int[]    groups;
+    private final String   literal;
+
+    private Replacement(String replacement, List<String> literals, List<Integer> groups) {
+        this.replacement = replacement;
+        this.literals = literals.toArray(new String[literals.size()]);
+        this.groups = new int[groups.size()];
+        for (int i = 0; i < this.groups.length; i++) {
+            this.groups[i] = groups.get(i);
+        }
+        this.literal = this.groups.length == 0 ? this.literals[0] : null;
+    }
+
+    /**
+     * Parses the replacement string against the regex it will be used with.
+     *
+     * @param replacement The replacement string, may contain group references.
+     * @param regex       The regex that produces the matches.
+     * @param groupCount  The number of capturing groups in the regex.
+     * @return The parsed replacement.
+     * @throws IllegalArgumentException If the replacement is not valid for the regex.
+     */
+    public static Replacement parse(String replacement, String regex, int groupCount) {
+        List<String> literals = new ArrayList<String>();
+        List<Integer> groups = new ArrayList<Integer>();
+        StringBuilder part = new StringBuilder();
+        int cursor = 0;
+        while (cursor < replacement.length()) {
+            char nextChar = replacement.charAt(cursor);
+            if (nextChar == '\\') {
+                cursor++;
+                if (cursor == replacement.length()) {
+                    throw new IllegalArgumentException(ESCAPE_MISSING + replacement);
+                }
+                part.append(replacement.charAt(cursor++));
+            } else if (nextChar == '$') {
+                cursor++;
+                if (cursor == replacement.length()) {
+                    throw new IllegalArgumentException(GROUP_MISSING + replacement);
+                }
+                int refNum;
+                if (replacement.charAt(cursor) == '{') {
+                    int nameEnd = ++cursor;
+                    while (nameEnd < replacement.length() && isAsciiLetterOrDigit(replacement.charAt(nameEnd))) {
+                        nameEnd++;
+                    }
+                    if (nameEnd == cursor || nameEnd == replacement.length() ||
+                        replacement.charAt(nameEnd) != '}' || isAsciiDigit(replacement.charAt(cursor))) {
+                        throw new IllegalArgumentException(GROUP_MISSING + replacement);
+                    }
+                    String name = replacement.substring(cursor, nameEnd);
+                    refNum = getNamedGroupIndex(regex, name);
+                    if (refNum == -1) {
+                        throw new IllegalArgumentException(String.format(NO_NAMED_GROUP, name) + replacement);
+                    }
+                    cursor = nameEnd + 1;
+                } else {
+                    refNum = replacement.charAt(cursor) - '0';
+                    if (refNum < 0 || refNum > 9) {
+                        throw new IllegalArgumentException(GROUP_MISSING + replacement);
+                    }
+                    cursor++;
+                    // take as many digits as still make up a valid group number
+                    while (cursor < replacement.length() && isAsciiDigit(replacement.charAt(cursor))) {
+                        int newRefNum = refNum * 10 + (replacement.charAt(cursor) - '0');
+                        if (newRefNum > groupCount) {
+                            break;
+                        }
+                        refNum = newRefNum;
+                        cursor++;
+                    }
+                }
+                if (refNum > groupCount) {
+                    throw new IllegalArgumentException(String.format(NO_GROUP, refNum) + replacement);
+                }
+                literals.add(part.toString());
+                groups.add(refNum);
+                part.setLength(0);
+            } else {
+                part.append(nextChar);
+                cursor++;
+            }
+        }
+        literals.add(part.toString());
+        return new Replacement(replacement, literals, groups);
+    }
+
+    /**
+     * Appends the replacement for a single match.
+     *
+     * @param output The output to append to.
+     * @param source The text the match was found in.
+     * @param match  The match, which supplies the group boundaries.
+     */
+    public void appendTo(StringBuilder output, CharSequence source, MatchResult match) {
+        if (literal != null) {
+            output.append(literal);
+            return;
+        }
+        for (int i = 0; i < groups.length; i++) {
+            output.append(literals[i]);
+            int start = match.start(groups[i]);
+            if (start != -1) {
+                output.append(source, start, match.end(groups[i]));
+            }
+        }
+        output.append(literals[groups.length]);
+    }
+
+    /**
+     * @return True if the replacement does not reference any groups.
+     */
+    public boolean isLiteral() {
+        return literal != null;
+    }
+
+    /**
+     * @return The text to insert if the replacement is literal, otherwise null.
+     */
+    public String getLiteral() {
+        return literal;
+    }
+
+    /**
+     * @return The replacement string as configured.
+     */
+    @Override
+    public String toString() {
+        return replacement;
+    }
+
+    /*
+     * Finds the number of a named group by counting the capturing groups that open before it.
+     * Escapes, quotes and character classes are skipped so that their brackets are not counted.
+     */
+    static int getNamedGroupIndex(String regex, String name) {
+        int group = 0;
+        int classDepth = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char ch = regex.charAt(i);
+            if (ch == '\\') {
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') {
+                    int quoteEnd = regex.indexOf("\\E", i + 2);
+                    i = quoteEnd == -1 ? regex.length() : quoteEnd + 1;
+                } else {
+                    i++;
+                }
+            } else if (ch == '[') {
+                classDepth++;
+            } else if (ch == ']' && classDepth > 0) {
+                classDepth--;
+            } else if (ch == '(' && classDepth == 0) {
+                if (!regex.startsWith("?", i + 1)) {
+                    group++;
+                } else if (regex.startsWith("?<", i + 1) && !regex.startsWith("?<=", i + 1) &&
+                           !regex.startsWith("?<!", i + 1)) {
+                    group++;
+                    if (regex.startsWith(name + ">", i + 3)) {
+                        return group;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isAsciiDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    private static boolean isAsciiLetterOrDigit(char ch) {
+        return isAsciiDigit(ch) || (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z');
+    }
+}
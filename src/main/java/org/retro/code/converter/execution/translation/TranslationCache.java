@@ -0,0 +1,172 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.translation;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least recently used cache of translated code, shared by all the code sections of a run.
+ * <p/>
+ * The same piece of code is often translated with the same translations many times, for example
+ * the boilerplate of a set of DAO classes. An entry is looked up by the translation chain and the
+ * hash and length of the code, and the code of the entry is compared as well, so that two pieces
+ * of code with the same hash can never get each other's translation.
+ * <p/>
+ * The size of the cache is limited by a memory budget. The strings are counted at two bytes per
+ * character plus a fixed overhead per entry, an entry bigger than the whole budget is not cached.
+ * All methods are thread safe, the translation itself is done outside of the lock.
+ */
+public class TranslationCache {
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final long                      budget;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    private long                            usedBytes;
+    private long                            hits;
+    private long                            misses;
+    private long                            evictions;
+
+    /**
+     * @param budget The memory budget in bytes, 0 disables the cache.
+     */
+    public TranslationCache(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Translates the code, or returns the cached translation if the same code has been translated
+     * with the same chain before.
+     *
+     * @param chain  The translations to apply.
+     * @param source The code to translate.
+     * @return The translated code.
+     */
+    public String translate(TranslationChain chain, String source) {
+        if (budget <= 0 || chain.size() == 0) {
+            return chain.translate(source);
+        }
+        Key key = new Key(chain, source);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.source.equals(source)) {
+                hits++;
+                return entry.target;
+            }
+            misses++;
+        }
+        String target = chain.translate(source);
+        long size = ENTRY_OVERHEAD + 2L * (source.length() + target.length());
+        if (size <= budget) {
+            synchronized (this) {
+                Entry previous = entries.put(key, new Entry(source, target, size));
+                if (previous != null) {
+                    usedBytes -= previous.size;
+                }
+                usedBytes += size;
+                evict();
+            }
+        }
+        return target;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (usedBytes > budget && iterator.hasNext()) {
+            usedBytes -= iterator.next().getValue().size;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes all entries, the statistics are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return A one line summary of the statistics for the report of the run.
+     */
+    public synchronized String getReport() {
+        return "Translation cache: " + hits + " hits, " + misses + " misses, " + evictions + " evictions, " +
+               entries.size() + " entries using " + usedBytes + " of " + budget + " bytes";
+    }
+
+    /*
+     * The chain is compared by identity, the chains are cached per ID list by the translations loader.
+     */
+    private static final class Key {
+        private final TranslationChain chain;
+        private final int              hash;
+        private final int              length;
+
+        Key(TranslationChain chain, String source) {
+            this.chain = chain;
+            this.hash = source.hashCode();
+            this.length = source.length();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return chain == key.chain && hash == key.hash && length == key.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(chain) + hash) + length;
+        }
+    }
+
+    private static final class Entry {
+        private final String source;
+        private final String target;
+        private final long   size;
+
+        Entry(String source, String target, long size) {
+            this.source = source;
+            this.target = target;
+            this.size = size;
+        }
+    }
+}
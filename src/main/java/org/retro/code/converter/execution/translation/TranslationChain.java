@@ -0,0 +1,73 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.translation;
+
+import org.retro.code.converter.xml.v1.types.XTranslateEntry;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The translations of a code section, resolved from their IDs and kept in the configured order.
+ * <p/>
+ * A chain is immutable, so it is built once per ID list and then shared by every conversion
+ * that uses the same translations. Consecutive literal translations may be fused into a
+ * single {@link LiteralTranslationGroup} step.
+ */
+public final class TranslationChain {
+    public static final TranslationChain EMPTY = new TranslationChain(new XTranslateEntry[0],
+                                                                      new TranslationStep[0]);
+
+    private final XTranslateEntry[] entries;
+    private final TranslationStep[] steps;
+
+    TranslationChain(XTranslateEntry[] entries, TranslationStep[] steps) {
+        this.entries = entries;
+        this.steps = steps;
+    }
+
+    /**
+     * Applies all the translations of the chain in order.
+     *
+     * @param source The code to translate.
+     * @return The translated code.
+     */
+    public String translate(String source) {
+        String target = source;
+        for (TranslationStep step : steps) {
+            target = step.apply(target);
+        }
+        return target;
+    }
+
+    /**
+     * @return The translation entries in the order they are applied.
+     */
+    public List<XTranslateEntry> getEntries() {
+        return Collections.unmodifiableList(Arrays.asList(entries));
+    }
+
+    /**
+     * @return The number of translations in the chain.
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * @return The steps the translations are applied in.
+     */
+    public List<TranslationStep> getSteps() {
+        return Collections.unmodifiableList(Arrays.asList(steps));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.translation;
+
+import org.retro.code.converter.exception.TranslationIdException;
+import org.retro.code.converter.regex.RegexPrefilter;
+import org.retro.code.converter.xml.v1.types.XRegexEngineType;
+import org.retro.code.converter.xml.v1.types.XTranslateEntry;
+import org.retro.code.converter.xml.v1.types.XTranslationFileType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The compiled form of all the loaded translation files.
+ * <p/>
+ * It is built once by the {@link org.retro.code.converter.xml.TranslationsLoader} after all
+ * translation files are loaded and is not changed afterwards, so that the regexes are
+ * compiled once per run instead of every time they are applied.
+ */
+public class TranslationPlan {
+    private final Map<XTranslateEntry, CompiledTranslation> compiledTranslations;
+    private final int                                       literalCount;
+    private final XRegexEngineType                          defaultEngineType;
+
+    /**
+     * Compiles all the translation entries of the supplied files with the JAVA engine as the default engine.
+     *
+     * @param translationFiles The loaded translation files.
+     * @throws TranslationIdException If a regex or replacement string is invalid.
+     */
+    public TranslationPlan(Collection<XTranslationFileType> translationFiles) throws TranslationIdException {
+        this(translationFiles, null);
+    }
+
+    /**
+     * Compiles all the translation entries of the supplied files.
+     *
+     * @param translationFiles  The loaded translation files.
+     * @param defaultEngineType The engine of the transform file, used for the entries that do not configure one.
+     * @throws TranslationIdException If a regex or replacement string is invalid.
+     */
+    public TranslationPlan(Collection<XTranslationFileType> translationFiles, XRegexEngineType defaultEngineType)
+            throws TranslationIdException {
+        this.defaultEngineType = defaultEngineType;
+        Map<XTranslateEntry, CompiledTranslation> compiled = new IdentityHashMap<XTranslateEntry, CompiledTranslation>();
+        int literals = 0;
+        for (XTranslationFileType translationFile : translationFiles) {
+            for (XTranslateEntry entry : translationFile.getTranslations().getTranslateItem()) {
+                CompiledTranslation compiledTranslation = CompiledTranslation.compile(entry, defaultEngineType);
+                compiled.put(entry, compiledTranslation);
+                if (compiledTranslation.isLiteral()) {
+                    literals++;
+                }
+            }
+        }
+        compiledTranslations = Collections.unmodifiableMap(compiled);
+        literalCount = literals;
+    }
+
+    /**
+     * Gets the compiled version of a translation entry.
+     * Entries that are not part of the plan are compiled on the spot.
+     *
+     * @param entry The translation entry.
+     * @return The compiled translation.
+     */
+    public CompiledTranslation getCompiledTranslation(XTranslateEntry entry) {
+        CompiledTranslation compiledTranslation = compiledTranslations.get(entry);
+        if (compiledTranslation == null) {
+            compiledTranslation = CompiledTranslation.compile(entry, defaultEngineType);
+        }
+        return compiledTranslation;
+    }
+
+    /**
+     * Resolves the compiled translations of the entries into an immutable chain.
+     * Runs of literal REPLACE translations that cannot interact are fused into one step.
+     *
+     * @param translateEntries The translation entries in the order they are applied.
+     * @return The translation chain.
+     */
+    public TranslationChain getTranslationChain(Collection<XTranslateEntry> translateEntries) {
+        if (translateEntries.isEmpty()) {
+            return TranslationChain.EMPTY;
+        }
+        XTranslateEntry[] entries = translateEntries.toArray(new XTranslateEntry[translateEntries.size()]);
+        List<TranslationStep> steps = new ArrayList<TranslationStep>();
+        List<CompiledTranslation> group = new ArrayList<CompiledTranslation>();
+        for (XTranslateEntry entry : entries) {
+            CompiledTranslation translation = getCompiledTranslation(entry);
+            if (!LiteralTranslationGroup.isGroupable(translation)) {
+                addGroup(steps, group);
+                steps.add(translation);
+            } else {
+                if (!LiteralTranslationGroup.canAdd(group, translation)) {
+                    addGroup(steps, group);
+                }
+                group.add(translation);
+            }
+        }
+        addGroup(steps, group);
+        return new TranslationChain(entries, steps.toArray(new TranslationStep[steps.size()]));
+    }
+
+    private void addGroup(List<TranslationStep> steps, List<CompiledTranslation> group) {
+        if (group.size() == 1) {
+            steps.add(group.get(0));
+        } else if (group.size() > 1) {
+            steps.add(new LiteralTranslationGroup(group));
+        }
+        group.clear();
+    }
+
+    /**
+     * Translates a piece of code with the entries in the given order.
+     *
+     * @param source           The code to translate.
+     * @param translateEntries The translation entries.
+     * @return The translated code.
+     */
+    public String translate(String source, Collection<XTranslateEntry> translateEntries) {
+        String target = source;
+        for (XTranslateEntry translateEntry : translateEntries) {
+            target = getCompiledTranslation(translateEntry).apply(target);
+        }
+        return target;
+    }
+
+    /**
+     * @return The number of compiled translation entries.
+     */
+    public int size() {
+        return compiledTranslations.size();
+    }
+
+    /**
+     * @return The prefilters of the compiled translations that are not literal.
+     */
+    public List<RegexPrefilter> getPrefilters() {
+        List<RegexPrefilter> prefilters = new ArrayList<RegexPrefilter>();
+        for (CompiledTranslation compiledTranslation : compiledTranslations.values()) {
+            if (compiledTranslation.getPrefilter() != null) {
+                prefilters.add(compiledTranslation.getPrefilter());
+            }
+        }
+        return prefilters;
+    }
+
+    /**
+     * @return The number of compiled translation entries that take the literal fast path.
+     */
+    public int getLiteralCount() {
+        return literalCount;
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+package org.retro.code.converter.execution.translation;
+
+/**
+ * One step of a translation chain, either a single translation or a group of translations
+ * that are applied together.
+ */
+public interface TranslationStep {
+    /**
+     * Applies the step to a piece of code.
+     *
+     * @param source The code to translate.
+     * @return The translated code, or the same string if nothing matched.
+     */
+    String apply(String source);
+}
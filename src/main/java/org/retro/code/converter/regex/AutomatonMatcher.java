@@ -0,0 +1,418 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.retro.code.converter.regex.RegexNode.Assertion;
+
+import java.util.Arrays;
+
+/**
+ * Runs an {@link AutomatonProgram} over a text without backtracking.
+ * <p/>
+ * All the ways the regex can match are followed at the same time, one character after the other
+ * (a Pike VM). The threads are kept in the order java.util.regex would try them, and a thread that
+ * reaches an instruction another thread has already reached at the same position is dropped,
+ * so a search reads every character once and takes at most the number of instructions steps per character.
+ * <p/>
+ * java.util.regex reads a surrogate pair as one character. The first time a search reads a surrogate,
+ * the matcher hands over to java.util.regex for good: the searches since the last reset are replayed
+ * and the search is done again, so the results are always the ones of java.util.regex.
+ */
+final class AutomatonMatcher implements RegexMatcher {
+    private static final String             NO_MATCH       = "No match available";
+    private static final SurrogateException SURROGATE_READ = new SurrogateException();
+    private static final int                NONE           = 0;
+    private static final int                MATCHES        = 1;
+    private static final int                LOOKING_AT     = 2;
+
+    private final AutomatonProgram program;
+    private final RegexPattern     javaPattern;
+    private final CharSequence     text;
+    private final int              groupCount;
+    private final int[]            noGroups;
+    private int[]                  groups;
+    private int                    from;
+    private int                    to;
+    private int                    last;
+    private RegexMatcher           javaMatcher;
+    private int                    firstSearch;
+    private int                    findCount;
+
+    private int[]   currentPcs;
+    private int[][] currentGroups;
+    private int     currentSize;
+    private int[]   nextPcs;
+    private int[][] nextGroups;
+    private int     nextSize;
+    private final int[]   visited;
+    private int           generation;
+    private final int[]   stackPcs;
+    private final int[][] stackGroups;
+
+    AutomatonMatcher(AutomatonProgram program, RegexPattern javaPattern, CharSequence text) {
+        this.program = program;
+        this.javaPattern = javaPattern;
+        this.text = text;
+        this.groupCount = javaPattern.groupCount();
+        int size = program.size();
+        noGroups = new int[(groupCount + 1) * 2];
+        Arrays.fill(noGroups, -1);
+        currentPcs = new int[size];
+        currentGroups = new int[size][];
+        nextPcs = new int[size];
+        nextGroups = new int[size][];
+        visited = new int[size];
+        stackPcs = new int[size * 2 + 1];
+        stackGroups = new int[size * 2 + 1][];
+        region(0, text.length());
+    }
+
+    public boolean find() {
+        if (javaMatcher != null) {
+            return javaMatcher.find();
+        }
+        int start = last;
+        if (groups != null && groups[1] == groups[0]) {
+            start++;
+        }
+        if (start > to) {
+            groups = null;
+            return false;
+        }
+        try {
+            boolean found = search(Math.max(start, from), false, false);
+            if (found) {
+                findCount++;
+            }
+            return found;
+        } catch (SurrogateException e) {
+            return switchToJava().find();
+        }
+    }
+
+    public boolean matches() {
+        if (javaMatcher != null) {
+            return javaMatcher.matches();
+        }
+        try {
+            return startOver(MATCHES, search(from, true, true));
+        } catch (SurrogateException e) {
+            return switchToJava().matches();
+        }
+    }
+
+    public boolean lookingAt() {
+        if (javaMatcher != null) {
+            return javaMatcher.lookingAt();
+        }
+        try {
+            return startOver(LOOKING_AT, search(from, true, false));
+        } catch (SurrogateException e) {
+            return switchToJava().lookingAt();
+        }
+    }
+
+    public RegexMatcher region(int start, int end) {
+        if (start < 0 || start > end || end > text.length()) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end);
+        }
+        if (javaMatcher != null) {
+            javaMatcher.region(start, end);
+        }
+        from = start;
+        to = end;
+        last = start;
+        groups = null;
+        firstSearch = NONE;
+        findCount = 0;
+        return this;
+    }
+
+    /*
+     * matches and lookingAt start at the start of the region, the finds after them are replayed from there.
+     */
+    private boolean startOver(int search, boolean found) {
+        firstSearch = search;
+        findCount = 0;
+        return found;
+    }
+
+    /*
+     * Brings a java.util.regex matcher to the state of this matcher before the search that read a surrogate.
+     */
+    private RegexMatcher switchToJava() {
+        Arrays.fill(currentGroups, null);
+        Arrays.fill(nextGroups, null);
+        javaMatcher = javaPattern.matcher(text);
+        javaMatcher.region(from, to);
+        if (firstSearch == MATCHES) {
+            javaMatcher.matches();
+        } else if (firstSearch == LOOKING_AT) {
+            javaMatcher.lookingAt();
+        }
+        for (int i = 0; i < findCount; i++) {
+            javaMatcher.find();
+        }
+        return javaMatcher;
+    }
+
+    /*
+     * A thread is started at every position until a match is found, after the threads that started earlier,
+     * or only at the start if the search is anchored.
+     * When a thread matches, the threads after it are dropped, as java.util.regex would never try them.
+     */
+    private boolean search(int start, boolean anchored, boolean whole) {
+        int[] found = null;
+        currentSize = 0;
+        for (int pos = start; ; pos++) {
+            if (found == null && (!anchored || pos == start)) {
+                if (currentSize == 0) {
+                    // the instructions visited for an empty list are not valid for the new position
+                    generation++;
+                    if (!anchored && !program.matchesEmpty) {
+                        while (pos < to && !program.startChars.contains(read(pos))) {
+                            pos++;
+                        }
+                        if (pos == to) {
+                            break;
+                        }
+                    }
+                }
+                currentSize = addThread(currentPcs, currentGroups, currentSize, 0, noGroups, pos);
+            }
+            if (currentSize == 0) {
+                if (found != null || anchored || pos >= to) {
+                    break;
+                }
+                continue;
+            }
+            generation++;
+            nextSize = 0;
+            char ch = pos < to ? read(pos) : 0;
+            for (int i = 0; i < currentSize; i++) {
+                int pc = currentPcs[i];
+                int op = program.ops[pc];
+                if (op == AutomatonProgram.MATCH) {
+                    if (!whole || pos == to) {
+                        found = currentGroups[i];
+                        break;
+                    }
+                } else if (pos < to && (op == AutomatonProgram.CHAR ? ch == program.args[pc] : program.sets[pc].contains(ch))) {
+                    nextSize = addThread(nextPcs, nextGroups, nextSize, pc + 1, currentGroups[i], pos + 1);
+                }
+            }
+            swap();
+            if (pos >= to) {
+                break;
+            }
+        }
+        Arrays.fill(currentGroups, 0, currentSize, null);
+        Arrays.fill(nextGroups, null);
+        groups = found;
+        if (found != null) {
+            last = found[1];
+        }
+        return found != null;
+    }
+
+    /*
+     * Follows the instructions that do not read a character and adds the threads that wait for one.
+     */
+    private int addThread(int[] pcs, int[][] threadGroups, int size, int startPc, int[] startGroups, int pos) {
+        int count = size;
+        int top = 0;
+        stackPcs[top] = startPc;
+        stackGroups[top++] = startGroups;
+        while (top > 0) {
+            int pc = stackPcs[--top];
+            int[] saved = stackGroups[top];
+            if (visited[pc] == generation) {
+                continue;
+            }
+            visited[pc] = generation;
+            switch (program.ops[pc]) {
+                case AutomatonProgram.JUMP:
+                    stackPcs[top] = program.args[pc];
+                    stackGroups[top++] = saved;
+                    break;
+                case AutomatonProgram.SPLIT:
+                    stackPcs[top] = program.targets[pc];
+                    stackGroups[top++] = saved;
+                    stackPcs[top] = program.args[pc];
+                    stackGroups[top++] = saved;
+                    break;
+                case AutomatonProgram.SAVE:
+                    int[] copy = saved.clone();
+                    copy[program.args[pc]] = pos;
+                    stackPcs[top] = pc + 1;
+                    stackGroups[top++] = copy;
+                    break;
+                case AutomatonProgram.ASSERT:
+                    if (holds(program.assertions[pc], pos)) {
+                        stackPcs[top] = pc + 1;
+                        stackGroups[top++] = saved;
+                    }
+                    break;
+                default:
+                    pcs[count] = pc;
+                    threadGroups[count++] = saved;
+            }
+        }
+        return count;
+    }
+
+    private void swap() {
+        int[] pcs = currentPcs;
+        int[][] threadGroups = currentGroups;
+        currentPcs = nextPcs;
+        currentGroups = nextGroups;
+        currentSize = nextSize;
+        nextPcs = pcs;
+        nextGroups = threadGroups;
+    }
+
+    /*
+     * The same checks as java.util.regex with anchoring and opaque bounds.
+     */
+    private boolean holds(Assertion.Kind kind, int pos) {
+        switch (kind) {
+            case BEGIN_INPUT:
+                return pos == from;
+            case END_INPUT:
+                return pos == to;
+            case END_INPUT_BEFORE_TERMINATOR:
+                return isLineEnd(pos, false);
+            case END_LINE:
+                return isLineEnd(pos, true);
+            case BEGIN_LINE:
+                if (pos == to) {
+                    return false;
+                }
+                if (pos > from) {
+                    char ch = read(pos - 1);
+                    return isTerminator(ch) && !(ch == '\r' && read(pos) == '\n');
+                }
+                return true;
+            case WORD_BOUNDARY:
+                return isWord(pos - 1) != isWord(pos);
+            case NOT_WORD_BOUNDARY:
+                return isWord(pos - 1) == isWord(pos);
+            default:
+                throw new IllegalStateException(kind.toString());
+        }
+    }
+
+    private boolean isLineEnd(int pos, boolean multiline) {
+        if (!multiline) {
+            if (pos < to - 2) {
+                return false;
+            }
+            if (pos == to - 2 && (read(pos) != '\r' || read(pos + 1) != '\n')) {
+                return false;
+            }
+        }
+        if (pos < to) {
+            char ch = read(pos);
+            if (ch == '\n') {
+                // not between \r and \n
+                return !(pos > 0 && read(pos - 1) == '\r');
+            }
+            return isTerminator(ch);
+        }
+        return true;
+    }
+
+    private boolean isWord(int pos) {
+        if (pos < from || pos >= to) {
+            return false;
+        }
+        char ch = read(pos);
+        return ch == '_' || Character.isLetterOrDigit(ch);
+    }
+
+    /*
+     * Reads a character of the text, the search stops at the first surrogate.
+     */
+    private char read(int pos) {
+        char ch = text.charAt(pos);
+        if (Character.isHighSurrogate(ch) || Character.isLowSurrogate(ch)) {
+            throw SURROGATE_READ;
+        }
+        return ch;
+    }
+
+    private static boolean isTerminator(char ch) {
+        return ch == '\n' || ch == '\r' || ch == '\u0085' || ch == '\u2028' || ch == '\u2029';
+    }
+
+    public int start() {
+        return start(0);
+    }
+
+    public int start(int group) {
+        if (javaMatcher != null) {
+            return javaMatcher.start(group);
+        }
+        checkGroup(group);
+        return groups[group * 2];
+    }
+
+    public int end() {
+        return end(0);
+    }
+
+    public int end(int group) {
+        if (javaMatcher != null) {
+            return javaMatcher.end(group);
+        }
+        checkGroup(group);
+        return groups[group * 2 + 1];
+    }
+
+    public String group() {
+        return group(0);
+    }
+
+    public String group(int group) {
+        if (javaMatcher != null) {
+            return javaMatcher.group(group);
+        }
+        checkGroup(group);
+        if (groups[group * 2] == -1) {
+            return null;
+        }
+        return text.subSequence(groups[group * 2], groups[group * 2 + 1]).toString();
+    }
+
+    public int groupCount() {
+        return groupCount;
+    }
+
+    private void checkGroup(int group) {
+        if (groups == null) {
+            throw new IllegalStateException(NO_MATCH);
+        }
+        if (group < 0 || group > groupCount) {
+            throw new IndexOutOfBoundsException("No group " + group);
+        }
+    }
+
+    /*
+     * Stops a search that read a surrogate, thrown without a stack trace as it is not an error.
+     */
+    private static final class SurrogateException extends RuntimeException {
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.retro.code.converter.regex.RegexNode.Alternation;
+import org.retro.code.converter.regex.RegexNode.Assertion;
+import org.retro.code.converter.regex.RegexNode.Char;
+import org.retro.code.converter.regex.RegexNode.CharClass;
+import org.retro.code.converter.regex.RegexNode.Concat;
+import org.retro.code.converter.regex.RegexNode.Group;
+import org.retro.code.converter.regex.RegexNode.Repeat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A regex compiled into the instructions of a nondeterministic automaton, which the
+ * {@link AutomatonMatcher} runs for all the positions of the text at the same time.
+ * <p/>
+ * The choices of the regex are SPLIT instructions, the first target is the one java.util.regex tries first.
+ * Counted quantifiers are unrolled, so a regex that unrolls into too many instructions is not compiled.
+ */
+final class AutomatonProgram {
+    static final int CHAR   = 0;
+    static final int SET    = 1;
+    static final int SPLIT  = 2;
+    static final int JUMP   = 3;
+    static final int SAVE   = 4;
+    static final int ASSERT = 5;
+    static final int MATCH  = 6;
+
+    private static final int MAX_SIZE = 10000;
+
+    private final List<int[]>          instructions = new ArrayList<int[]>();
+    private final List<CharSet>        charSets     = new ArrayList<CharSet>();
+    private final List<Assertion.Kind> kinds        = new ArrayList<Assertion.Kind>();
+
+    final int[]            ops;
+    final int[]            args;
+    final int[]            targets;
+    final CharSet[]        sets;
+    final Assertion.Kind[] assertions;
+    final CharSet          startChars;
+    final boolean          matchesEmpty;
+
+    /*
+     * Thrown while compiling if the regex uses syntax the automaton cannot run.
+     */
+    private static final class UnsupportedSyntax extends RuntimeException {
+    }
+
+    private AutomatonProgram(RegexNode root) {
+        emit(SAVE, 0, 0);
+        emitNode(root);
+        emit(SAVE, 1, 0);
+        emit(MATCH, 0, 0);
+        int size = instructions.size();
+        ops = new int[size];
+        args = new int[size];
+        targets = new int[size];
+        sets = new CharSet[size];
+        assertions = new Assertion.Kind[size];
+        for (int pc = 0; pc < size; pc++) {
+            int[] instruction = instructions.get(pc);
+            ops[pc] = instruction[0];
+            args[pc] = instruction[1];
+            targets[pc] = instruction[2];
+            sets[pc] = charSets.get(pc);
+            assertions[pc] = kinds.get(pc);
+        }
+        // the characters a match can start with, assertions are passed as if they hold
+        CharSet start = CharSet.EMPTY;
+        boolean empty = false;
+        boolean[] visited = new boolean[size];
+        int[] stack = new int[size * 2 + 1];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int pc = stack[--top];
+            if (visited[pc]) {
+                continue;
+            }
+            visited[pc] = true;
+            switch (ops[pc]) {
+                case CHAR:
+                    start = start.union(CharSet.range((char) args[pc], (char) args[pc]));
+                    break;
+                case SET:
+                    start = start.union(sets[pc]);
+                    break;
+                case MATCH:
+                    empty = true;
+                    break;
+                case JUMP:
+                    stack[top++] = args[pc];
+                    break;
+                case SPLIT:
+                    stack[top++] = args[pc];
+                    stack[top++] = targets[pc];
+                    break;
+                default:
+                    stack[top++] = pc + 1;
+            }
+        }
+        startChars = start;
+        matchesEmpty = empty;
+    }
+
+    /**
+     * Compiles a parsed regex.
+     *
+     * @param root The root of the parsed regex.
+     * @return The program, or null if the regex uses syntax that the automaton does not support.
+     */
+    static AutomatonProgram compile(RegexNode root) {
+        try {
+            return new AutomatonProgram(root);
+        } catch (UnsupportedSyntax e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The number of instructions.
+     */
+    int size() {
+        return ops.length;
+    }
+
+    private void emitNode(RegexNode node) {
+        if (node instanceof Char) {
+            emit(CHAR, ((Char) node).getValue(), 0);
+        } else if (node instanceof CharClass) {
+            emit(SET, 0, 0);
+            charSets.set(charSets.size() - 1, ((CharClass) node).getCharSet());
+        } else if (node instanceof Concat) {
+            for (RegexNode child : ((Concat) node).getNodes()) {
+                emitNode(child);
+            }
+        } else if (node instanceof Alternation) {
+            emitAlternation(((Alternation) node).getAlternatives());
+        } else if (node instanceof Group) {
+            Group group = (Group) node;
+            if (group.isAtomic()) {
+                throw new UnsupportedSyntax();
+            }
+            if (group.getNumber() > 0) {
+                emit(SAVE, group.getNumber() * 2, 0);
+                emitNode(group.getNode());
+                emit(SAVE, group.getNumber() * 2 + 1, 0);
+            } else {
+                emitNode(group.getNode());
+            }
+        } else if (node instanceof Repeat) {
+            emitRepeat((Repeat) node);
+        } else if (node instanceof Assertion && ((Assertion) node).getKind() != Assertion.Kind.END_OF_PREVIOUS_MATCH) {
+            emit(ASSERT, 0, 0);
+            kinds.set(kinds.size() - 1, ((Assertion) node).getKind());
+        } else {
+            // lookarounds, back references and \G
+            throw new UnsupportedSyntax();
+        }
+    }
+
+    private void emitAlternation(List<RegexNode> alternatives) {
+        List<Integer> jumps = new ArrayList<Integer>();
+        for (int i = 0; i < alternatives.size() - 1; i++) {
+            int split = emit(SPLIT, instructions.size() + 1, 0);
+            emitNode(alternatives.get(i));
+            jumps.add(emit(JUMP, 0, 0));
+            instructions.get(split)[2] = instructions.size();
+        }
+        emitNode(alternatives.get(alternatives.size() - 1));
+        for (int jump : jumps) {
+            instructions.get(jump)[1] = instructions.size();
+        }
+    }
+
+    /*
+     * java.util.regex ends a repetition after an iteration that matched nothing, which the automaton does not,
+     * so a repeated body that can be empty is not supported.
+     */
+    private void emitRepeat(Repeat repeat) {
+        if (repeat.getMode() == Repeat.Mode.POSSESSIVE ||
+            (repeat.getMax() != 1 && RegexCostAnalyzer.canBeEmpty(repeat.getNode()))) {
+            throw new UnsupportedSyntax();
+        }
+        boolean greedy = repeat.getMode() == Repeat.Mode.GREEDY;
+        for (int i = 0; i < repeat.getMin(); i++) {
+            emitNode(repeat.getNode());
+        }
+        if (repeat.getMax() == -1) {
+            int split = emit(SPLIT, 0, 0);
+            emitNode(repeat.getNode());
+            emit(JUMP, split, 0);
+            setChoice(split, split + 1, instructions.size(), greedy);
+            return;
+        }
+        List<Integer> splits = new ArrayList<Integer>();
+        for (int i = repeat.getMin(); i < repeat.getMax(); i++) {
+            splits.add(emit(SPLIT, 0, 0));
+            emitNode(repeat.getNode());
+        }
+        for (int split : splits) {
+            setChoice(split, split + 1, instructions.size(), greedy);
+        }
+    }
+
+    private void setChoice(int split, int body, int exit, boolean greedy) {
+        instructions.get(split)[1] = greedy ? body : exit;
+        instructions.get(split)[2] = greedy ? exit : body;
+    }
+
+    private int emit(int op, int arg, int target) {
+        if (instructions.size() == MAX_SIZE) {
+            throw new UnsupportedSyntax();
+        }
+        instructions.add(new int[]{op, arg, target});
+        charSets.add(null);
+        kinds.add(null);
+        return instructions.size() - 1;
+    }
+}
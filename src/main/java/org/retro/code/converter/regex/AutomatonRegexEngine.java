@@ -0,0 +1,67 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.apache.log4j.Logger;
+import org.retro.code.converter.utils.LogUtil;
+
+import java.util.regex.Pattern;
+
+/**
+ * A regex engine that never backtracks, the time of a search grows linearly with the length of the text.
+ * <p/>
+ * It finds the same matches as java.util.regex. A regex that uses syntax the automaton does not support
+ * (back references, lookarounds, possessive quantifiers, atomic groups, \G, inline flags other than m and s,
+ * or a repeated group that can match nothing) is searched for with java.util.regex instead.
+ * So is a text with surrogate pairs, which java.util.regex reads as one character, from the first surrogate
+ * a search reads on.
+ */
+public final class AutomatonRegexEngine implements RegexEngine {
+    private static final Logger logger = Logger.getLogger(AutomatonRegexEngine.class);
+
+    public String getName() {
+        return "automaton";
+    }
+
+    public RegexPattern compile(String regex) {
+        JavaRegexEngine.JavaPattern javaPattern = new JavaRegexEngine.JavaPattern(Pattern.compile(regex));
+        RegexNode root = RegexParser.parse(regex);
+        AutomatonProgram program = root == null ? null : AutomatonProgram.compile(root);
+        if (program == null) {
+            LogUtil.debug(logger, "The automaton does not support the regex [" + regex + "], using java.util.regex");
+            return javaPattern;
+        }
+        return new AutomatonPattern(program, javaPattern);
+    }
+
+    private static final class AutomatonPattern implements RegexPattern {
+        private final AutomatonProgram program;
+        private final RegexPattern     javaPattern;
+
+        private AutomatonPattern(AutomatonProgram program, RegexPattern javaPattern) {
+            this.program = program;
+            this.javaPattern = javaPattern;
+        }
+
+        public String pattern() {
+            return javaPattern.pattern();
+        }
+
+        public int groupCount() {
+            return javaPattern.groupCount();
+        }
+
+        public RegexMatcher matcher(CharSequence input) {
+            return new AutomatonMatcher(program, javaPattern, input);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.retro.code.converter.exception.CodeConversionException;
+
+/**
+ * A text for a {@link java.util.regex.Matcher} that stops the matcher once it has used up its budget.
+ * <p/>
+ * The regex engine reads the text one character at a time, and it reads the same characters again
+ * when it backtracks. Counting the reads gives a measure of the work done that does not depend on
+ * the speed of the machine, and the time is checked every {@link #CHECK_INTERVAL} reads.
+ * When the budget is exceeded a {@link CodeConversionException} is thrown from within the matcher,
+ * with the position in the source if the text is a piece of a source file.
+ */
+public final class BudgetedCharSequence implements CharSequence {
+    public static final String BUDGET_EXCEEDED = "Regex budget exceeded by %s at %s " +
+                                                 "after %d steps and %d ms, the regex probably backtracks too much";
+    public static final String AT_OFFSET       = "offset %d of the searched code";
+    public static final String AT_POSITION     = "source position %s";
+    static final int CHECK_INTERVAL = 1024;
+
+    private final CharSequence  text;
+    private final RegexBudget   budget;
+    private final SourceLocator locator;
+    private final int           offset;
+    private long                startTime;
+    private long                deadline;
+    private long                steps;
+
+    BudgetedCharSequence(CharSequence text, RegexBudget budget, SourceLocator locator, int offset) {
+        this.text = text;
+        this.budget = budget;
+        this.locator = locator;
+        this.offset = offset;
+        restart();
+    }
+
+    /*
+     * Gives the next search over the same text the full budget again.
+     */
+    void restart() {
+        this.steps = 0;
+        this.startTime = System.nanoTime();
+        this.deadline = budget.getMaxMillis() > 0 ? startTime + budget.getMaxMillis() * 1000000L : 0;
+    }
+
+    public char charAt(int index) {
+        if ((++steps & (CHECK_INTERVAL - 1)) == 0 || steps == budget.getMaxSteps() + 1) {
+            checkBudget(index);
+        }
+        return text.charAt(index);
+    }
+
+    private void checkBudget(int index) throws CodeConversionException {
+        long now = System.nanoTime();
+        if ((budget.getMaxSteps() > 0 && steps > budget.getMaxSteps()) || (deadline != 0 && now - deadline > 0)) {
+            throw new CodeConversionException(new Throwable(String.format(BUDGET_EXCEEDED, budget.getName(),
+                                                                          getLocation(index), steps,
+                                                                          (now - startTime) / 1000000L)));
+        }
+    }
+
+    private String getLocation(int index) {
+        if (locator == null) {
+            return String.format(AT_OFFSET, index);
+        }
+        return String.format(AT_POSITION, locator.getSourcePosition(offset + index));
+    }
+
+    public int length() {
+        return text.length();
+    }
+
+    public CharSequence subSequence(int start, int end) {
+        return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+
+    /**
+     * @return The number of characters read so far.
+     */
+    public long getSteps() {
+        return steps;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable set of characters, stored as sorted and merged ranges.
+ */
+public final class CharSet {
+    public static final CharSet EMPTY      = new CharSet(new int[0]);
+    public static final CharSet ALL        = range(Character.MIN_VALUE, Character.MAX_VALUE);
+    public static final CharSet DIGIT      = range('0', '9');
+    public static final CharSet WORD       = of("_").union(DIGIT).union(range('a', 'z')).union(range('A', 'Z'));
+    public static final CharSet SPACE      = of(" \t\n\u000B\f\r");
+    public static final CharSet TERMINATOR = of("\n\r\u0085\u2028\u2029");
+    public static final CharSet DOT        = TERMINATOR.negate();
+
+    // pairs of the first and last character of each range
+    private final int[] ranges;
+
+    private CharSet(int[] ranges) {
+        this.ranges = ranges;
+    }
+
+    /**
+     * @param first The first character.
+     * @param last  The last character, not before the first.
+     * @return The set of all characters from first to last.
+     */
+    public static CharSet range(char first, char last) {
+        return new CharSet(new int[]{first, last});
+    }
+
+    /**
+     * @param chars The characters.
+     * @return The set of the characters of the string.
+     */
+    public static CharSet of(String chars) {
+        CharSet charSet = EMPTY;
+        for (int i = 0; i < chars.length(); i++) {
+            charSet = charSet.union(range(chars.charAt(i), chars.charAt(i)));
+        }
+        return charSet;
+    }
+
+    /**
+     * @param ch The character.
+     * @return True if the character is in the set.
+     */
+    public boolean contains(char ch) {
+        int low = 0;
+        int high = ranges.length / 2 - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (ch < ranges[middle * 2]) {
+                high = middle - 1;
+            } else if (ch > ranges[middle * 2 + 1]) {
+                low = middle + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param other Another set.
+     * @return A set of the characters in either set.
+     */
+    public CharSet union(CharSet other) {
+        List<int[]> all = new ArrayList<int[]>();
+        for (int i = 0; i < ranges.length; i += 2) {
+            all.add(new int[]{ranges[i], ranges[i + 1]});
+        }
+        for (int i = 0; i < other.ranges.length; i += 2) {
+            all.add(new int[]{other.ranges[i], other.ranges[i + 1]});
+        }
+        int[][] sorted = all.toArray(new int[all.size()][]);
+        Arrays.sort(sorted, new Comparator<int[]>() {
+            public int compare(int[] first, int[] second) {
+                return first[0] - second[0];
+            }
+        });
+        int[] merged = new int[sorted.length * 2];
+        int count = 0;
+        for (int[] range : sorted) {
+            if (count > 0 && range[0] <= merged[count - 1] + 1) {
+                merged[count - 1] = Math.max(merged[count - 1], range[1]);
+            } else {
+                merged[count++] = range[0];
+                merged[count++] = range[1];
+            }
+        }
+        return new CharSet(Arrays.copyOf(merged, count));
+    }
+
+    /**
+     * @param other Another set.
+     * @return True if a character is in both sets.
+     */
+    public boolean intersects(CharSet other) {
+        int i = 0;
+        int j = 0;
+        while (i < ranges.length && j < other.ranges.length) {
+            if (ranges[i + 1] < other.ranges[j]) {
+                i += 2;
+            } else if (other.ranges[j + 1] < ranges[i]) {
+                j += 2;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return A set of all the characters not in this set.
+     */
+    public CharSet negate() {
+        int[] negated = new int[ranges.length + 2];
+        int count = 0;
+        int next = Character.MIN_VALUE;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] > next) {
+                negated[count++] = next;
+                negated[count++] = ranges[i] - 1;
+            }
+            next = ranges[i + 1] + 1;
+        }
+        if (next <= Character.MAX_VALUE) {
+            negated[count++] = next;
+            negated[count++] = Character.MAX_VALUE;
+        }
+        return new CharSet(Arrays.copyOf(negated, count));
+    }
+
+    /**
+     * @return The number of characters in the set.
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            size += ranges[i + 1] - ranges[i] + 1;
+        }
+        return size;
+    }
+
+    /**
+     * @return The lowest character of the set, only valid if the set is not empty.
+     */
+    public char first() {
+        return (char) ranges[0];
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof CharSet && Arrays.equals(ranges, ((CharSet) other).ranges);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ranges);
+    }
+}
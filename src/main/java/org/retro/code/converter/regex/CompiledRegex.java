@@ -0,0 +1,74 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.retro.code.converter.xml.v1.types.XRegexEngineType;
+
+/**
+ * A compiled search regex of a code section together with its prefilter.
+ * <p/>
+ * The search regexes of a run are compiled once per regex string and engine by its {@link SearchRegexes},
+ * instead of being compiled again for every piece of code that is searched.
+ */
+public final class CompiledRegex {
+    private final RegexPattern   pattern;
+    private final RegexPrefilter prefilter;
+
+    CompiledRegex(String regex, RegexEngine engine) {
+        this.pattern = engine.compile(regex);
+        this.prefilter = new RegexPrefilter("search", regex);
+    }
+
+    /**
+     * Compiles a search regex on its own, outside of the search regexes of a run.
+     *
+     * @param regex      The regex.
+     * @param engineType The configured engine, null for JAVA.
+     * @return The compiled regex.
+     * @throws java.util.regex.PatternSyntaxException If the regex is invalid.
+     */
+    public static CompiledRegex compile(String regex, XRegexEngineType engineType) {
+        return new CompiledRegex(regex, RegexEngines.get(engineType));
+    }
+
+    public RegexPattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return The prefilter that is checked before the regex is run.
+     */
+    public RegexPrefilter getPrefilter() {
+        return prefilter;
+    }
+
+    /**
+     * Checks the prefilter, see {@link RegexPrefilter#mayMatch(String)}.
+     *
+     * @param text The text the regex is going to search.
+     * @return False if the regex cannot match.
+     */
+    public boolean mayMatch(String text) {
+        return prefilter.mayMatch(text);
+    }
+
+    /**
+     * Checks the prefilter from an index on, see {@link RegexPrefilter#mayMatch(CharSequence, int)}.
+     *
+     * @param text      The text the regex is going to search.
+     * @param fromIndex The index the search starts at.
+     * @return False if the regex cannot match.
+     */
+    public boolean mayMatch(CharSequence text, int fromIndex) {
+        return prefilter.mayMatch(text, fromIndex);
+    }
+}
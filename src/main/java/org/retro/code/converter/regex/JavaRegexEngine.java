@@ -0,0 +1,107 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The backtracking java.util.regex engine, it supports the full regex syntax.
+ */
+public final class JavaRegexEngine implements RegexEngine {
+
+    public String getName() {
+        return "java.util.regex";
+    }
+
+    public RegexPattern compile(String regex) {
+        return new JavaPattern(Pattern.compile(regex));
+    }
+
+    /**
+     * Wraps a compiled java.util.regex pattern.
+     */
+    static final class JavaPattern implements RegexPattern {
+        private final Pattern pattern;
+        private final int     groupCount;
+
+        JavaPattern(Pattern pattern) {
+            this.pattern = pattern;
+            this.groupCount = pattern.matcher("").groupCount();
+        }
+
+        public String pattern() {
+            return pattern.pattern();
+        }
+
+        public int groupCount() {
+            return groupCount;
+        }
+
+        public RegexMatcher matcher(CharSequence input) {
+            return new JavaMatcher(pattern.matcher(input));
+        }
+    }
+
+    private static final class JavaMatcher implements RegexMatcher {
+        private final Matcher matcher;
+
+        private JavaMatcher(Matcher matcher) {
+            this.matcher = matcher;
+        }
+
+        public boolean find() {
+            return matcher.find();
+        }
+
+        public boolean matches() {
+            return matcher.matches();
+        }
+
+        public boolean lookingAt() {
+            return matcher.lookingAt();
+        }
+
+        public RegexMatcher region(int start, int end) {
+            matcher.region(start, end);
+            return this;
+        }
+
+        public int start() {
+            return matcher.start();
+        }
+
+        public int start(int group) {
+            return matcher.start(group);
+        }
+
+        public int end() {
+            return matcher.end();
+        }
+
+        public int end(int group) {
+            return matcher.end(group);
+        }
+
+        public String group() {
+            return matcher.group();
+        }
+
+        public String group(int group) {
+            return matcher.group(group);
+        }
+
+        public int groupCount() {
+            return matcher.groupCount();
+        }
+    }
+}
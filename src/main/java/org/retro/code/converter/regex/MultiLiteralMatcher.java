@@ -0,0 +1,178 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds all the places a number of strings are found in a text, in one pass over the text.
+ * <p/>
+ * The strings are compiled into an Aho-Corasick automaton with a full transition table,
+ * so every character of the text takes one table lookup, however many strings there are.
+ * The table has a column for each character used by the strings and one for all the other characters.
+ */
+public final class MultiLiteralMatcher {
+    private static final int ROOT = 0;
+
+    private final String[]                literals;
+    private final int[]                   asciiColumns = new int[128];
+    private final Map<Character, Integer> otherColumns = new HashMap<Character, Integer>();
+    private final int                     columnCount;
+    private final int[]                   transitions;
+    // the strings that end in each state, by their index, following the failure links
+    private final int[][]                 outputs;
+
+    /**
+     * Compiles the strings.
+     *
+     * @param literals The strings to find, none of them empty.
+     */
+    public MultiLiteralMatcher(List<String> literals) {
+        this.literals = literals.toArray(new String[literals.size()]);
+        int columns = 1;
+        int length = 1;
+        for (String literal : this.literals) {
+            if (literal.length() == 0) {
+                throw new IllegalArgumentException("Empty literal");
+            }
+            length += literal.length();
+            for (int i = 0; i < literal.length(); i++) {
+                if (getColumn(literal.charAt(i)) == 0) {
+                    addColumn(literal.charAt(i), columns++);
+                }
+            }
+        }
+        columnCount = columns;
+
+        // the trie, -1 for a missing edge
+        int[] trie = new int[length * columns];
+        Arrays.fill(trie, -1);
+        int[][] ends = new int[length][];
+        int states = 1;
+        for (int index = 0; index < this.literals.length; index++) {
+            String literal = this.literals[index];
+            int state = ROOT;
+            for (int i = 0; i < literal.length(); i++) {
+                int edge = state * columns + getColumn(literal.charAt(i));
+                if (trie[edge] == -1) {
+                    trie[edge] = states++;
+                }
+                state = trie[edge];
+            }
+            ends[state] = add(ends[state], index);
+        }
+
+        // breadth first, every state gets the transitions and outputs of its failure state
+        transitions = new int[states * columns];
+        outputs = new int[states][];
+        int[] failures = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int column = 0; column < columns; column++) {
+            int next = trie[column];
+            transitions[column] = next == -1 ? ROOT : next;
+            if (next > 0) {
+                failures[next] = ROOT;
+                queue[tail++] = next;
+            }
+        }
+        outputs[ROOT] = new int[0];
+        while (head < tail) {
+            int state = queue[head++];
+            outputs[state] = merge(ends[state], outputs[failures[state]]);
+            for (int column = 0; column < columns; column++) {
+                int next = trie[state * columns + column];
+                int fallback = transitions[failures[state] * columns + column];
+                if (next == -1) {
+                    transitions[state * columns + column] = fallback;
+                } else {
+                    transitions[state * columns + column] = next;
+                    failures[next] = fallback;
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    private int getColumn(char ch) {
+        if (ch < 128) {
+            return asciiColumns[ch];
+        }
+        Integer column = otherColumns.get(ch);
+        return column == null ? 0 : column;
+    }
+
+    private void addColumn(char ch, int column) {
+        if (ch < 128) {
+            asciiColumns[ch] = column;
+        } else {
+            otherColumns.put(ch, column);
+        }
+    }
+
+    private static int[] add(int[] values, int value) {
+        if (values == null) {
+            return new int[] {value};
+        }
+        int[] added = Arrays.copyOf(values, values.length + 1);
+        added[values.length] = value;
+        return added;
+    }
+
+    private static int[] merge(int[] first, int[] second) {
+        if (first == null) {
+            return second;
+        }
+        int[] merged = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, merged, first.length, second.length);
+        return merged;
+    }
+
+    /**
+     * Finds every place each string is found in the text, overlapping places included.
+     *
+     * @param text The text to search.
+     * @return The start index of every place, in order, for each string in the order they were compiled.
+     */
+    public int[][] findAll(CharSequence text) {
+        int[][] found = new int[literals.length][];
+        int[] counts = new int[literals.length];
+        for (int index = 0; index < literals.length; index++) {
+            found[index] = new int[8];
+        }
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * columnCount + getColumn(text.charAt(i))];
+            for (int index : outputs[state]) {
+                if (counts[index] == found[index].length) {
+                    found[index] = Arrays.copyOf(found[index], counts[index] * 2);
+                }
+                found[index][counts[index]++] = i - literals[index].length() + 1;
+            }
+        }
+        for (int index = 0; index < literals.length; index++) {
+            found[index] = Arrays.copyOf(found[index], counts[index]);
+        }
+        return found;
+    }
+
+    /**
+     * @return The number of strings.
+     */
+    public int size() {
+        return literals.length;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.retro.code.converter.xml.v1.types.XRegexBudget;
+
+/**
+ * The limits for a single application of a regex, see {@link BudgetedCharSequence}.
+ */
+public final class RegexBudget {
+    public static final long        DEFAULT_MAX_STEPS  = 0;
+    public static final long        DEFAULT_MAX_MILLIS = 0;
+    public static final RegexBudget UNLIMITED          = new RegexBudget("", 0, 0);
+
+    private final String name;
+    private final long   maxSteps;
+    private final long   maxMillis;
+
+    /**
+     * @param name      The name of the regex for the error message, for example the translation ID.
+     * @param maxSteps  The maximum number of characters read, 0 for no limit.
+     * @param maxMillis The maximum time in milliseconds, 0 for no limit.
+     */
+    public RegexBudget(String name, long maxSteps, long maxMillis) {
+        this.name = name;
+        this.maxSteps = maxSteps;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * Creates the budget from the configuration, the defaults are used for missing values.
+     *
+     * @param name   The name of the regex for the error message.
+     * @param config The configured budget, may be null.
+     * @return The budget.
+     */
+    public static RegexBudget of(String name, XRegexBudget config) {
+        long maxSteps = DEFAULT_MAX_STEPS;
+        long maxMillis = DEFAULT_MAX_MILLIS;
+        if (config != null && config.getMaxSteps() != null) {
+            maxSteps = config.getMaxSteps();
+        }
+        if (config != null && config.getMaxMillis() != null) {
+            maxMillis = config.getMaxMillis();
+        }
+        return new RegexBudget(name, maxSteps, maxMillis);
+    }
+
+    /**
+     * Wraps the text a regex is going to search.
+     * A new wrapper is needed for every application, as the wrapper keeps the count.
+     *
+     * @param text The text.
+     * @return The text itself if there is no limit, otherwise a wrapper that enforces the budget.
+     */
+    public CharSequence wrap(CharSequence text) {
+        return wrap(text, null, 0);
+    }
+
+    /**
+     * Wraps a piece of a source file that a regex is going to search,
+     * an exceeded budget is then reported at the position in the source.
+     *
+     * @param text    The text.
+     * @param locator The positions in the source, null to report the offset in the text.
+     * @param offset  The index of the start of the text for the locator.
+     * @return The text itself if there is no limit, otherwise a wrapper that enforces the budget.
+     */
+    public CharSequence wrap(CharSequence text, SourceLocator locator, int offset) {
+        if (maxSteps <= 0 && maxMillis <= 0) {
+            return text;
+        }
+        return new BudgetedCharSequence(text, this, locator, offset);
+    }
+
+    /**
+     * Starts a new application on a text that was wrapped before, so that one matcher can be
+     * used for several searches over the same text, each with the full budget.
+     *
+     * @param wrapped The text returned by {@link #wrap(CharSequence)}.
+     */
+    public void restart(CharSequence wrapped) {
+        if (wrapped instanceof BudgetedCharSequence) {
+            ((BudgetedCharSequence) wrapped).restart();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+}
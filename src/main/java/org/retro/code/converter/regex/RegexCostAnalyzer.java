@@ -0,0 +1,360 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.retro.code.converter.regex.RegexNode.Alternation;
+import org.retro.code.converter.regex.RegexNode.BackReference;
+import org.retro.code.converter.regex.RegexNode.Char;
+import org.retro.code.converter.regex.RegexNode.CharClass;
+import org.retro.code.converter.regex.RegexNode.Concat;
+import org.retro.code.converter.regex.RegexNode.Group;
+import org.retro.code.converter.regex.RegexNode.Lookaround;
+import org.retro.code.converter.regex.RegexNode.Repeat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Looks for constructs in a regex that can make the regex engine backtrack for a very long time.
+ * <p/>
+ * The analysis works on the tree of the {@link RegexParser} and finds:
+ * <ul>
+ * <li>A quantifier inside an unbounded repetition, where the inner quantifier can take the characters
+ * of the next repetition, like (a+)+ or (\s*\w+)*. This is exponential.</li>
+ * <li>An unbounded quantifier inside a bounded repetition of {@link #LARGE_REPETITION} or more,
+ * where the quantifier can take the characters of the next repetition, like (.*a){12}. The number of ways
+ * to split the text grows with the power of the repetition count.</li>
+ * <li>Alternatives that can start with the same character inside an unbounded repetition,
+ * like (a|ab)*. This is exponential.</li>
+ * <li>Unbounded quantifiers next to each other that can match the same characters, like \s*\s* or
+ * .*.*. This is polynomial.</li>
+ * <li>A leading .* that is not anchored, when the regex is applied with processOnce set to false.
+ * Every search scans the rest of the line or the code again.</li>
+ * </ul>
+ * Possessive quantifiers and atomic groups do not backtrack and are not reported.
+ */
+public final class RegexCostAnalyzer {
+    public static final String NESTED_QUANTIFIER   = "Nested quantifier inside an unbounded repetition, it can backtrack exponentially";
+    public static final String NESTED_IN_BOUNDED   = "Unbounded quantifier inside a large bounded repetition, it can " +
+                                                     "backtrack with the power of the repetition count";
+    public static final String OVERLAPPING_CHOICES = "Alternatives that start with the same characters inside an unbounded " +
+                                                     "repetition, they can backtrack exponentially";
+    public static final String ADJACENT_QUANTIFIERS = "Adjacent unbounded quantifiers that match the same characters, " +
+                                                      "they can backtrack polynomially";
+    public static final String LEADING_ANY         = "Unanchored leading .* with processOnce false, every search scans " +
+                                                     "the rest of the code again";
+    public static final String NOT_ANALYZED        = "The regex uses syntax that is not analyzed";
+    public static final int    LARGE_REPETITION    = 10;
+
+    /**
+     * The severity of a warning, the most severe first.
+     */
+    public enum Severity { HIGH, MEDIUM, LOW }
+
+    /**
+     * A construct found in a regex.
+     */
+    public static final class Warning {
+        private final Severity severity;
+        private final String   message;
+
+        Warning(Severity severity, String message) {
+            this.severity = severity;
+            this.message = message;
+        }
+
+        public Severity getSeverity() {
+            return severity;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private final List<Warning> warnings = new ArrayList<Warning>();
+
+    private RegexCostAnalyzer() {
+    }
+
+    /**
+     * Analyzes a regex.
+     *
+     * @param regex       The regex, compiled without any flags.
+     * @param processOnce False if the regex is searched for again after each match.
+     * @return The warnings, the most severe first, empty if nothing was found.
+     */
+    public static List<Warning> analyze(String regex, boolean processOnce) {
+        RegexCostAnalyzer analyzer = new RegexCostAnalyzer();
+        RegexNode root = RegexParser.parse(regex);
+        if (root == null) {
+            analyzer.add(Severity.LOW, NOT_ANALYZED);
+        } else {
+            analyzer.visit(root, false);
+            if (!processOnce && hasLeadingAny(root)) {
+                analyzer.add(Severity.MEDIUM, LEADING_ANY);
+            }
+        }
+        Collections.sort(analyzer.warnings, new Comparator<Warning>() {
+            public int compare(Warning first, Warning second) {
+                return first.severity.compareTo(second.severity);
+            }
+        });
+        return analyzer.warnings;
+    }
+
+    private void visit(RegexNode node, boolean atomic) {
+        if (node instanceof Group) {
+            visit(((Group) node).getNode(), atomic || ((Group) node).isAtomic());
+        } else if (node instanceof Lookaround) {
+            visit(((Lookaround) node).getNode(), atomic);
+        } else if (node instanceof Alternation) {
+            for (RegexNode alternative : ((Alternation) node).getAlternatives()) {
+                visit(alternative, atomic);
+            }
+        } else if (node instanceof Concat) {
+            visitConcat((Concat) node, atomic);
+        } else if (node instanceof Repeat) {
+            Repeat repeat = (Repeat) node;
+            if (!atomic && isBacktrackingLoop(repeat)) {
+                checkRepeatedBody(repeat.getNode());
+            } else if (!atomic && isLargeBoundedLoop(repeat) && hasCompetingUnbounded(repeat.getNode())) {
+                add(Severity.HIGH, NESTED_IN_BOUNDED);
+            }
+            visit(repeat.getNode(), atomic || repeat.getMode() == Repeat.Mode.POSSESSIVE);
+        }
+    }
+
+    private void checkRepeatedBody(RegexNode body) {
+        // a quantifier at the end of the body competes with the start of the next repetition and
+        // a quantifier at the start with the end of the previous one
+        List<Repeat> edges = new ArrayList<Repeat>();
+        collectEdgeRepeats(body, false, edges);
+        if (competes(edges, edge(body, true))) {
+            add(Severity.HIGH, NESTED_QUANTIFIER);
+            return;
+        }
+        edges.clear();
+        collectEdgeRepeats(body, true, edges);
+        if (competes(edges, edge(body, false))) {
+            add(Severity.HIGH, NESTED_QUANTIFIER);
+            return;
+        }
+        RegexNode inner = unwrap(body);
+        if (inner instanceof Alternation) {
+            List<RegexNode> alternatives = ((Alternation) inner).getAlternatives();
+            for (int i = 0; i < alternatives.size(); i++) {
+                for (int j = i + 1; j < alternatives.size(); j++) {
+                    if (edge(alternatives.get(i), true).intersects(edge(alternatives.get(j), true))) {
+                        add(Severity.HIGH, OVERLAPPING_CHOICES);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * The same check as for the quantifiers of an unbounded repetition, but only an unbounded quantifier
+     * gives a bounded repetition enough ways to split the text.
+     */
+    private static boolean hasCompetingUnbounded(RegexNode body) {
+        List<Repeat> edges = new ArrayList<Repeat>();
+        collectEdgeRepeats(body, false, edges);
+        if (competes(edges, edge(body, true), true)) {
+            return true;
+        }
+        edges.clear();
+        collectEdgeRepeats(body, true, edges);
+        return competes(edges, edge(body, false), true);
+    }
+
+    private static boolean competes(List<Repeat> repeats, CharSet charSet) {
+        return competes(repeats, charSet, false);
+    }
+
+    private static boolean competes(List<Repeat> repeats, CharSet charSet, boolean unboundedOnly) {
+        for (Repeat repeat : repeats) {
+            if (repeat.getMin() != repeat.getMax() && (!unboundedOnly || repeat.getMax() == -1) &&
+                edge(repeat.getNode(), true).intersects(charSet)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void visitConcat(Concat concat, boolean atomic) {
+        Repeat previous = null;
+        for (RegexNode node : concat.getNodes()) {
+            visit(node, atomic);
+            RegexNode inner = unwrap(node);
+            if (inner instanceof Repeat && !atomic && isBacktrackingLoop((Repeat) inner)) {
+                if (previous != null && edge(previous.getNode(), false).intersects(edge(((Repeat) inner).getNode(), true))) {
+                    add(Severity.MEDIUM, ADJACENT_QUANTIFIERS);
+                }
+                previous = (Repeat) inner;
+            } else if (!canBeEmpty(node)) {
+                previous = null;
+            }
+        }
+    }
+
+    /*
+     * The quantifiers a repeated body can start or end with, these compete with the repetition itself.
+     */
+    private static void collectEdgeRepeats(RegexNode node, boolean fromStart, List<Repeat> edges) {
+        if (node instanceof Group && !((Group) node).isAtomic()) {
+            collectEdgeRepeats(((Group) node).getNode(), fromStart, edges);
+        } else if (node instanceof Repeat) {
+            if (((Repeat) node).getMode() != Repeat.Mode.POSSESSIVE) {
+                edges.add((Repeat) node);
+            }
+        } else if (node instanceof Alternation) {
+            for (RegexNode alternative : ((Alternation) node).getAlternatives()) {
+                collectEdgeRepeats(alternative, fromStart, edges);
+            }
+        } else if (node instanceof Concat) {
+            List<RegexNode> nodes = new ArrayList<RegexNode>(((Concat) node).getNodes());
+            if (!fromStart) {
+                Collections.reverse(nodes);
+            }
+            for (RegexNode child : nodes) {
+                collectEdgeRepeats(child, fromStart, edges);
+                if (!canBeEmpty(child)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static boolean hasLeadingAny(RegexNode root) {
+        RegexNode node = unwrap(root);
+        if (!(node instanceof Concat)) {
+            return false;
+        }
+        List<RegexNode> nodes = ((Concat) node).getNodes();
+        int index = 0;
+        // inline flags like (?s) are parsed to empty nodes
+        while (index < nodes.size() && nodes.get(index) instanceof Concat && ((Concat) nodes.get(index)).getNodes().isEmpty()) {
+            index++;
+        }
+        if (index == nodes.size()) {
+            return false;
+        }
+        RegexNode leading = unwrap(nodes.get(index));
+        if (!(leading instanceof Repeat) || ((Repeat) leading).getMax() != -1) {
+            return false;
+        }
+        RegexNode repeated = unwrap(((Repeat) leading).getNode());
+        if (!(repeated instanceof CharClass) || !((CharClass) repeated).getCharSet().contains('a') ||
+            ((CharClass) repeated).getCharSet().size() < CharSet.DOT.size()) {
+            return false;
+        }
+        for (RegexNode next : nodes.subList(index + 1, nodes.size())) {
+            if (!canBeEmpty(next)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBacktrackingLoop(Repeat repeat) {
+        return repeat.getMax() == -1 && repeat.getMode() != Repeat.Mode.POSSESSIVE;
+    }
+
+    private static boolean isLargeBoundedLoop(Repeat repeat) {
+        return repeat.getMax() >= LARGE_REPETITION && repeat.getMode() != Repeat.Mode.POSSESSIVE;
+    }
+
+    private static RegexNode unwrap(RegexNode node) {
+        RegexNode inner = node;
+        while (inner instanceof Group && !((Group) inner).isAtomic()) {
+            inner = ((Group) inner).getNode();
+        }
+        return inner;
+    }
+
+    /*
+     * The characters a non empty match of the node can start or end with.
+     */
+    static CharSet edge(RegexNode node, boolean start) {
+        if (node instanceof Char) {
+            char ch = ((Char) node).getValue();
+            return CharSet.range(ch, ch);
+        } else if (node instanceof CharClass) {
+            return ((CharClass) node).getCharSet();
+        } else if (node instanceof Group) {
+            return edge(((Group) node).getNode(), start);
+        } else if (node instanceof Repeat) {
+            return edge(((Repeat) node).getNode(), start);
+        } else if (node instanceof Alternation) {
+            CharSet charSet = CharSet.EMPTY;
+            for (RegexNode alternative : ((Alternation) node).getAlternatives()) {
+                charSet = charSet.union(edge(alternative, start));
+            }
+            return charSet;
+        } else if (node instanceof Concat) {
+            List<RegexNode> nodes = new ArrayList<RegexNode>(((Concat) node).getNodes());
+            if (!start) {
+                Collections.reverse(nodes);
+            }
+            CharSet charSet = CharSet.EMPTY;
+            for (RegexNode child : nodes) {
+                charSet = charSet.union(edge(child, start));
+                if (!canBeEmpty(child)) {
+                    break;
+                }
+            }
+            return charSet;
+        } else if (node instanceof BackReference) {
+            return CharSet.ALL;
+        }
+        // assertions and lookarounds do not match any characters
+        return CharSet.EMPTY;
+    }
+
+    static boolean canBeEmpty(RegexNode node) {
+        if (node instanceof Char || node instanceof CharClass) {
+            return false;
+        } else if (node instanceof Group) {
+            return canBeEmpty(((Group) node).getNode());
+        } else if (node instanceof Repeat) {
+            return ((Repeat) node).getMin() == 0 || canBeEmpty(((Repeat) node).getNode());
+        } else if (node instanceof Alternation) {
+            for (RegexNode alternative : ((Alternation) node).getAlternatives()) {
+                if (canBeEmpty(alternative)) {
+                    return true;
+                }
+            }
+            return false;
+        } else if (node instanceof Concat) {
+            for (RegexNode child : ((Concat) node).getNodes()) {
+                if (!canBeEmpty(child)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return true;
+    }
+
+    private void add(Severity severity, String message) {
+        for (Warning warning : warnings) {
+            if (warning.message.equals(message)) {
+                return;
+            }
+        }
+        warnings.add(new Warning(severity, message));
+    }
+}
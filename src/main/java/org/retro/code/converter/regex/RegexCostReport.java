@@ -0,0 +1,123 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.retro.code.converter.regex.RegexCostAnalyzer.Severity;
+import org.retro.code.converter.regex.RegexCostAnalyzer.Warning;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The warnings of the {@link RegexCostAnalyzer} for all the regexes of the loaded files,
+ * with the file and ID each regex was configured in.
+ */
+public class RegexCostReport {
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    /**
+     * A warning for one configured regex.
+     */
+    public static final class Entry {
+        private final String  location;
+        private final String  regex;
+        private final Warning warning;
+
+        Entry(String location, String regex, Warning warning) {
+            this.location = location;
+            this.regex = regex;
+            this.warning = warning;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        public String getRegex() {
+            return regex;
+        }
+
+        public Severity getSeverity() {
+            return warning.getSeverity();
+        }
+
+        public String getMessage() {
+            return warning.getMessage();
+        }
+    }
+
+    /**
+     * Analyzes a regex and keeps its warnings.
+     *
+     * @param location    Where the regex is configured, like the file name and ID.
+     * @param regex       The regex, null is ignored.
+     * @param processOnce False if the regex is searched for again after each match.
+     */
+    public void analyze(String location, String regex, boolean processOnce) {
+        if (regex == null) {
+            return;
+        }
+        for (Warning warning : RegexCostAnalyzer.analyze(regex, processOnce)) {
+            entries.add(new Entry(location, regex, warning));
+        }
+    }
+
+    /**
+     * @return The warnings, the most severe first and otherwise in the order they were found.
+     */
+    public List<Entry> getEntries() {
+        List<Entry> ranked = new ArrayList<Entry>(entries);
+        Collections.sort(ranked, new Comparator<Entry>() {
+            public int compare(Entry first, Entry second) {
+                return first.getSeverity().compareTo(second.getSeverity());
+            }
+        });
+        return ranked;
+    }
+
+    /**
+     * @param severity The severity.
+     * @return The number of warnings with this severity.
+     */
+    public int getCount(Severity severity) {
+        int count = 0;
+        for (Entry entry : entries) {
+            if (entry.getSeverity() == severity) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return True if no warnings were found.
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * @return The ranked warnings, one per line.
+     */
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append("Regex cost: ").append(getCount(Severity.HIGH)).append(" high, ")
+              .append(getCount(Severity.MEDIUM)).append(" medium, ").append(getCount(Severity.LOW)).append(" low");
+        for (Entry entry : getEntries()) {
+            report.append("\n  ").append(entry.getSeverity()).append(' ').append(entry.getLocation())
+                  .append(" [").append(entry.getRegex()).append("] ").append(entry.getMessage());
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+/**
+ * A regex engine that compiles the configured regexes.
+ * The engines are looked up through {@link RegexEngines}.
+ */
+public interface RegexEngine {
+    /**
+     * @return The name of the engine, for the log.
+     */
+    String getName();
+
+    /**
+     * Compiles a regex.
+     *
+     * @param regex The regex in the java.util.regex syntax, compiled without any flags.
+     * @return The compiled regex.
+     * @throws java.util.regex.PatternSyntaxException If the regex is invalid.
+     */
+    RegexPattern compile(String regex);
+}
@@ -0,0 +1,44 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.retro.code.converter.xml.v1.types.XRegexEngineType;
+
+/**
+ * Looks up the regex engine configured for a code section or translation.
+ * The engine of the transform file is used when none is configured.
+ */
+public final class RegexEngines {
+    public static final RegexEngine JAVA      = new JavaRegexEngine();
+    public static final RegexEngine AUTOMATON = new AutomatonRegexEngine();
+
+    private RegexEngines() {
+    }
+
+    /**
+     * @param type The configured engine type, may be null.
+     * @return The engine, JAVA if the type is null.
+     */
+    public static RegexEngine get(XRegexEngineType type) {
+        return get(type, null);
+    }
+
+    /**
+     * @param type        The configured engine type, may be null.
+     * @param defaultType The engine type of the transform file, may be null.
+     * @return The engine, the default engine if the type is null and JAVA if both are null.
+     */
+    public static RegexEngine get(XRegexEngineType type, XRegexEngineType defaultType) {
+        XRegexEngineType engineType = type == null ? defaultType : type;
+        return engineType == XRegexEngineType.AUTOMATON ? AUTOMATON : JAVA;
+    }
+}
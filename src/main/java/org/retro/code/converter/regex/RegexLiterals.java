@@ -0,0 +1,187 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.retro.code.converter.regex.RegexNode.Alternation;
+import org.retro.code.converter.regex.RegexNode.Assertion;
+import org.retro.code.converter.regex.RegexNode.Char;
+import org.retro.code.converter.regex.RegexNode.CharClass;
+import org.retro.code.converter.regex.RegexNode.Concat;
+import org.retro.code.converter.regex.RegexNode.Group;
+import org.retro.code.converter.regex.RegexNode.Lookaround;
+import org.retro.code.converter.regex.RegexNode.Repeat;
+
+/**
+ * Detects regexes that can only ever match one fixed string.
+ * <p/>
+ * Such a regex can be searched for with {@link String#indexOf(String)} instead of a
+ * {@link java.util.regex.Matcher}. The check is deliberately conservative, anything
+ * that is not clearly a literal is reported as a regex.
+ */
+public final class RegexLiterals {
+    private static final String META_CHARS = "\\^$.|?*+()[]{}";
+    private static final String QUOTE_END  = "\\E";
+
+    private RegexLiterals() {
+    }
+
+    /**
+     * Gets the string a regex matches if it is a literal.
+     * A literal may only contain plain characters, escaped non alphanumeric characters,
+     * the escapes \t \n \r \f and quoted \Q...\E sections.
+     *
+     * @param regex The regex, compiled without any flags.
+     * @return The unescaped literal, or null if the regex uses any regex features or is empty.
+     */
+    public static String toLiteral(String regex) {
+        StringBuilder literal = new StringBuilder(regex.length());
+        int cursor = 0;
+        while (cursor < regex.length()) {
+            char ch = regex.charAt(cursor++);
+            if (ch != '\\') {
+                if (META_CHARS.indexOf(ch) != -1) {
+                    return null;
+                }
+                literal.append(ch);
+                continue;
+            }
+            if (cursor == regex.length()) {
+                return null;
+            }
+            char escaped = regex.charAt(cursor++);
+            if (escaped == 'Q') {
+                int quoteEnd = regex.indexOf(QUOTE_END, cursor);
+                if (quoteEnd == -1) {
+                    quoteEnd = regex.length();
+                }
+                literal.append(regex, cursor, quoteEnd);
+                cursor = Math.min(quoteEnd + QUOTE_END.length(), regex.length());
+            } else if (escaped == 't') {
+                literal.append('\t');
+            } else if (escaped == 'n') {
+                literal.append('\n');
+            } else if (escaped == 'r') {
+                literal.append('\r');
+            } else if (escaped == 'f') {
+                literal.append('\f');
+            } else if (escaped < 128 && !Character.isLetterOrDigit(escaped)) {
+                literal.append(escaped);
+            } else {
+                return null;
+            }
+        }
+        return literal.length() == 0 ? null : literal.toString();
+    }
+
+    /**
+     * Searches a text for a string without copying it, String and StringBuilder use their own indexOf.
+     *
+     * @param text      The text to search.
+     * @param literal   The string to find.
+     * @param fromIndex The index to start at.
+     * @return The index of the first place the string is found at or after the index, -1 if it is not found.
+     */
+    public static int indexOf(CharSequence text, String literal, int fromIndex) {
+        if (text instanceof String) {
+            return ((String) text).indexOf(literal, fromIndex);
+        } else if (text instanceof StringBuilder) {
+            return ((StringBuilder) text).indexOf(literal, fromIndex);
+        }
+        int last = text.length() - literal.length();
+        for (int i = Math.max(fromIndex, 0); i <= last; i++) {
+            int j = 0;
+            while (j < literal.length() && text.charAt(i + j) == literal.charAt(j)) {
+                j++;
+            }
+            if (j == literal.length()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the string that every match of a regex starts with.
+     * A search for the regex can then start where the string is next found instead of at the start index.
+     * That gives the same match only if the regex does not look at the text before the match,
+     * so a regex with a lookbehind, ^, \A, \G or a word boundary has no leading literal.
+     *
+     * @param regex The regex, compiled without any flags.
+     * @return The leading literal, or null if there is none or the regex is not supported by the parser.
+     */
+    public static String getLeadingLiteral(String regex) {
+        RegexNode root = RegexParser.parse(regex);
+        if (root == null || looksBehind(root)) {
+            return null;
+        }
+        StringBuilder literal = new StringBuilder();
+        appendLeading(root, literal);
+        return literal.length() == 0 ? null : literal.toString();
+    }
+
+    /*
+     * Appends the string every match of the node starts with.
+     * Returns true if that is all the node matches, so the string goes on with the next node.
+     */
+    private static boolean appendLeading(RegexNode node, StringBuilder literal) {
+        if (node instanceof Char) {
+            literal.append(((Char) node).getValue());
+            return true;
+        } else if (node instanceof CharClass) {
+            CharSet charSet = ((CharClass) node).getCharSet();
+            if (charSet.size() == 1) {
+                literal.append(charSet.first());
+                return true;
+            }
+        } else if (node instanceof Group) {
+            return appendLeading(((Group) node).getNode(), literal);
+        } else if (node instanceof Concat) {
+            for (RegexNode child : ((Concat) node).getNodes()) {
+                if (!appendLeading(child, literal)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (node instanceof Repeat) {
+            Repeat repeat = (Repeat) node;
+            return repeat.getMin() > 0 && appendLeading(repeat.getNode(), literal) && repeat.getMax() == 1;
+        }
+        return false;
+    }
+
+    private static boolean looksBehind(RegexNode node) {
+        if (node instanceof Assertion) {
+            Assertion.Kind kind = ((Assertion) node).getKind();
+            return kind != Assertion.Kind.END_INPUT && kind != Assertion.Kind.END_INPUT_BEFORE_TERMINATOR &&
+                   kind != Assertion.Kind.END_LINE;
+        } else if (node instanceof Lookaround) {
+            return ((Lookaround) node).isBehind() || looksBehind(((Lookaround) node).getNode());
+        } else if (node instanceof Group) {
+            return looksBehind(((Group) node).getNode());
+        } else if (node instanceof Repeat) {
+            return looksBehind(((Repeat) node).getNode());
+        } else if (node instanceof Concat) {
+            for (RegexNode child : ((Concat) node).getNodes()) {
+                if (looksBehind(child)) {
+                    return true;
+                }
+            }
+        } else if (node instanceof Alternation) {
+            for (RegexNode child : ((Alternation) node).getAlternatives()) {
+                if (looksBehind(child)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
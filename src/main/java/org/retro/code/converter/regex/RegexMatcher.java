@@ -0,0 +1,52 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import java.util.regex.MatchResult;
+
+/**
+ * Searches a text for a {@link RegexPattern}.
+ * The methods behave like the ones of the same name of {@link java.util.regex.Matcher},
+ * the result of the last successful search is available through the {@link MatchResult} methods.
+ */
+public interface RegexMatcher extends MatchResult {
+    /**
+     * Finds the next match, starting at the end of the previous match.
+     *
+     * @return True if a match was found.
+     */
+    boolean find();
+
+    /**
+     * Matches the whole region against the regex.
+     *
+     * @return True if the whole region matches.
+     */
+    boolean matches();
+
+    /**
+     * Matches the start of the region against the regex, the match does not have to reach the end of the region.
+     *
+     * @return True if a match starts at the start of the region.
+     */
+    boolean lookingAt();
+
+    /**
+     * Resets the matcher and limits the searches to a part of the text.
+     * The bounds are anchoring and opaque, so the region is searched as if it was the whole text.
+     *
+     * @param start The index to start searching at.
+     * @param end   The index to stop searching at, exclusive.
+     * @return This matcher.
+     */
+    RegexMatcher region(int start, int end);
+}
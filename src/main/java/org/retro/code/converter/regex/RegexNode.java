@@ -0,0 +1,216 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+package org.retro.code.converter.regex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A node of the syntax tree built by the {@link RegexParser}.
+ * <p/>
+ * The tree only models the regex features the parser supports, so that the analysis of a
+ * regex can be trusted. The node types are nested classes of this class.
+ */
+public abstract class RegexNode {
+
+    RegexNode() {
+    }
+
+    /**
+     * A single character.
+     */
+    public static final class Char extends RegexNode {
+        private final char value;
+
+        Char(char value) {
+            this.value = value;
+        }
+
+        public char getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * A set of characters, also used for the dot and for predefined classes like \d.
+     */
+    public static final class CharClass extends RegexNode {
+        private final CharSet charSet;
+
+        CharClass(CharSet charSet) {
+            this.charSet = charSet;
+        }
+
+        public CharSet getCharSet() {
+            return charSet;
+        }
+    }
+
+    /**
+     * A sequence of nodes that match one after the other, it is empty for an empty regex.
+     */
+    public static final class Concat extends RegexNode {
+        private final List<RegexNode> nodes;
+
+        Concat(List<RegexNode> nodes) {
+            this.nodes = Collections.unmodifiableList(new ArrayList<RegexNode>(nodes));
+        }
+
+        public List<RegexNode> getNodes() {
+            return nodes;
+        }
+    }
+
+    /**
+     * Alternatives separated by |.
+     */
+    public static final class Alternation extends RegexNode {
+        private final List<RegexNode> alternatives;
+
+        Alternation(List<RegexNode> alternatives) {
+            this.alternatives = Collections.unmodifiableList(new ArrayList<RegexNode>(alternatives));
+        }
+
+        public List<RegexNode> getAlternatives() {
+            return alternatives;
+        }
+    }
+
+    /**
+     * A group in brackets, the group number is 0 if the group does not capture.
+     */
+    public static final class Group extends RegexNode {
+        private final RegexNode node;
+        private final int       number;
+        private final String    name;
+        private final boolean   atomic;
+
+        Group(RegexNode node, int number, String name, boolean atomic) {
+            this.node = node;
+            this.number = number;
+            this.name = name;
+            this.atomic = atomic;
+        }
+
+        public RegexNode getNode() {
+            return node;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isAtomic() {
+            return atomic;
+        }
+    }
+
+    /**
+     * A quantified node, max is -1 if there is no upper bound.
+     */
+    public static final class Repeat extends RegexNode {
+        public enum Mode { GREEDY, LAZY, POSSESSIVE }
+
+        private final RegexNode node;
+        private final int       min;
+        private final int       max;
+        private final Mode      mode;
+
+        Repeat(RegexNode node, int min, int max, Mode mode) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+            this.mode = mode;
+        }
+
+        public RegexNode getNode() {
+            return node;
+        }
+
+        public int getMin() {
+            return min;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        public Mode getMode() {
+            return mode;
+        }
+    }
+
+    /**
+     * A zero width assertion. Without the MULTILINE flag ^ is the same as \A and $ is the same as \Z,
+     * with it they are BEGIN_LINE and END_LINE.
+     */
+    public static final class Assertion extends RegexNode {
+        public enum Kind { BEGIN_INPUT, END_INPUT, END_INPUT_BEFORE_TERMINATOR, BEGIN_LINE, END_LINE,
+                           WORD_BOUNDARY, NOT_WORD_BOUNDARY, END_OF_PREVIOUS_MATCH }
+
+        private final Kind kind;
+
+        Assertion(Kind kind) {
+            this.kind = kind;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+    }
+
+    /**
+     * A lookahead or lookbehind, which does not take part in the matched text.
+     */
+    public static final class Lookaround extends RegexNode {
+        private final RegexNode node;
+        private final boolean   behind;
+        private final boolean   negative;
+
+        Lookaround(RegexNode node, boolean behind, boolean negative) {
+            this.node = node;
+            this.behind = behind;
+            this.negative = negative;
+        }
+
+        public RegexNode getNode() {
+            return node;
+        }
+
+        public boolean isBehind() {
+            return behind;
+        }
+
+        public boolean isNegative() {
+            return negative;
+        }
+    }
+
+    /**
+     * A reference to the text matched by an earlier group.
+     */
+    public static final class BackReference extends RegexNode {
+        private final int number;
+
+        BackReference(int number) {
+            this.number = number;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+    }
+}
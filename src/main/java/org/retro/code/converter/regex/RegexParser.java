@@ -0,0 +1,465 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.retro.code.converter.regex.RegexNode.Alternation;
+import org.retro.code.converter.regex.RegexNode.Assertion;
+import org.retro.code.converter.regex.RegexNode.BackReference;
+import org.retro.code.converter.regex.RegexNode.Char;
+import org.retro.code.converter.regex.RegexNode.CharClass;
+import org.retro.code.converter.regex.RegexNode.Concat;
+import org.retro.code.converter.regex.RegexNode.Group;
+import org.retro.code.converter.regex.RegexNode.Lookaround;
+import org.retro.code.converter.regex.RegexNode.Repeat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses a java.util.regex pattern into a tree of {@link RegexNode}s.
+ * <p/>
+ * Only the syntax that is needed for the configured regexes is supported: characters and escapes,
+ * character classes without intersections, groups, lookarounds, quantifiers, back references and
+ * the boundary matchers and the inline flags m and s. Anything else, for example the flag i or unicode properties, makes the
+ * parser give up, so that nothing is concluded from a regex that is not fully understood.
+ * The regex is expected to have been compiled by {@link java.util.regex.Pattern} already.
+ */
+public final class RegexParser {
+    private final String               regex;
+    private final Map<String, Integer> groupNames = new HashMap<String, Integer>();
+    private int                        cursor;
+    private int                        groupCount;
+    private boolean                    multiline;
+    private boolean                    dotall;
+
+    private RegexParser(String regex) {
+        this.regex = regex;
+    }
+
+    /**
+     * Parses a regex that is compiled without any flags.
+     *
+     * @param regex The regex.
+     * @return The root of the tree, or null if the regex uses syntax that is not supported.
+     */
+    public static RegexNode parse(String regex) {
+        RegexParser parser = new RegexParser(regex);
+        try {
+            RegexNode root = parser.parseAlternation();
+            return parser.more() ? null : root;
+        } catch (UnsupportedSyntax e) {
+            return null;
+        }
+    }
+
+    private RegexNode parseAlternation() {
+        List<RegexNode> alternatives = new ArrayList<RegexNode>();
+        alternatives.add(parseConcat());
+        while (more() && peek() == '|') {
+            cursor++;
+            alternatives.add(parseConcat());
+        }
+        return alternatives.size() == 1 ? alternatives.get(0) : new Alternation(alternatives);
+    }
+
+    private RegexNode parseConcat() {
+        List<RegexNode> nodes = new ArrayList<RegexNode>();
+        while (more() && peek() != '|' && peek() != ')') {
+            if (regex.startsWith("\\Q", cursor)) {
+                int quoteEnd = regex.indexOf("\\E", cursor + 2);
+                if (quoteEnd == -1) {
+                    quoteEnd = regex.length();
+                }
+                for (int i = cursor + 2; i < quoteEnd; i++) {
+                    nodes.add(new Char(regex.charAt(i)));
+                }
+                boolean quoted = quoteEnd > cursor + 2;
+                cursor = Math.min(quoteEnd + 2, regex.length());
+                // a quantifier after the quote applies to the last quoted character
+                if (quoted) {
+                    nodes.add(parseQuantifier(nodes.remove(nodes.size() - 1)));
+                }
+                continue;
+            }
+            nodes.add(parseQuantifier(parseAtom()));
+        }
+        return nodes.size() == 1 ? nodes.get(0) : new Concat(nodes);
+    }
+
+    private RegexNode parseAtom() {
+        char ch = regex.charAt(cursor++);
+        switch (ch) {
+            case '(':
+                return parseGroup();
+            case '[':
+                return new CharClass(parseClass());
+            case '.':
+                return new CharClass(dotall ? CharSet.ALL : CharSet.DOT);
+            case '^':
+                return new Assertion(multiline ? Assertion.Kind.BEGIN_LINE : Assertion.Kind.BEGIN_INPUT);
+            case '$':
+                return new Assertion(multiline ? Assertion.Kind.END_LINE : Assertion.Kind.END_INPUT_BEFORE_TERMINATOR);
+            case '\\':
+                return parseEscape();
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+                throw new UnsupportedSyntax();
+            default:
+                return new Char(ch);
+        }
+    }
+
+    private RegexNode parseGroup() {
+        boolean outerMultiline = multiline;
+        boolean outerDotall = dotall;
+        RegexNode node;
+        if (regex.startsWith("?:", cursor)) {
+            cursor += 2;
+            node = new Group(parseAlternation(), 0, null, false);
+        } else if (regex.startsWith("?>", cursor)) {
+            cursor += 2;
+            node = new Group(parseAlternation(), 0, null, true);
+        } else if (regex.startsWith("?=", cursor) || regex.startsWith("?!", cursor)) {
+            boolean negative = regex.charAt(cursor + 1) == '!';
+            cursor += 2;
+            node = new Lookaround(parseAlternation(), false, negative);
+        } else if (regex.startsWith("?<=", cursor) || regex.startsWith("?<!", cursor)) {
+            boolean negative = regex.charAt(cursor + 2) == '!';
+            cursor += 3;
+            node = new Lookaround(parseAlternation(), true, negative);
+        } else if (regex.startsWith("?<", cursor)) {
+            int nameEnd = regex.indexOf('>', cursor);
+            if (nameEnd == -1) {
+                throw new UnsupportedSyntax();
+            }
+            String name = regex.substring(cursor + 2, nameEnd);
+            cursor = nameEnd + 1;
+            int number = ++groupCount;
+            groupNames.put(name, number);
+            node = new Group(parseAlternation(), number, name, false);
+        } else if (regex.startsWith("?", cursor)) {
+            cursor++;
+            parseFlags();
+            if (more() && peek() == ')') {
+                // the flags stay set until the end of the enclosing group
+                cursor++;
+                return new Concat(new ArrayList<RegexNode>());
+            }
+            expect(':');
+            node = new Group(parseAlternation(), 0, null, false);
+        } else {
+            int number = ++groupCount;
+            node = new Group(parseAlternation(), number, null, false);
+        }
+        expect(')');
+        multiline = outerMultiline;
+        dotall = outerDotall;
+        return node;
+    }
+
+    private void parseFlags() {
+        boolean on = true;
+        while (more() && peek() != ')' && peek() != ':') {
+            char flag = regex.charAt(cursor++);
+            if (flag == '-' && on) {
+                on = false;
+            } else if (flag == 'm') {
+                multiline = on;
+            } else if (flag == 's') {
+                dotall = on;
+            } else {
+                throw new UnsupportedSyntax();
+            }
+        }
+    }
+
+    private RegexNode parseEscape() {
+        if (!more()) {
+            throw new UnsupportedSyntax();
+        }
+        char ch = regex.charAt(cursor++);
+        if (ch >= '1' && ch <= '9') {
+            // the same rule as the Pattern class, take more digits while there are enough groups
+            int number = ch - '0';
+            while (more() && isDigit(peek()) && number * 10 + (peek() - '0') <= groupCount) {
+                number = number * 10 + (regex.charAt(cursor++) - '0');
+            }
+            return new BackReference(number);
+        }
+        switch (ch) {
+            case 'k':
+                expect('<');
+                int nameEnd = regex.indexOf('>', cursor);
+                Integer number = nameEnd == -1 ? null : groupNames.get(regex.substring(cursor, nameEnd));
+                if (number == null) {
+                    throw new UnsupportedSyntax();
+                }
+                cursor = nameEnd + 1;
+                return new BackReference(number);
+            case 'b':
+                return new Assertion(Assertion.Kind.WORD_BOUNDARY);
+            case 'B':
+                return new Assertion(Assertion.Kind.NOT_WORD_BOUNDARY);
+            case 'A':
+                return new Assertion(Assertion.Kind.BEGIN_INPUT);
+            case 'z':
+                return new Assertion(Assertion.Kind.END_INPUT);
+            case 'Z':
+                return new Assertion(Assertion.Kind.END_INPUT_BEFORE_TERMINATOR);
+            case 'G':
+                return new Assertion(Assertion.Kind.END_OF_PREVIOUS_MATCH);
+            default:
+                cursor--;
+                CharSet predefined = parsePredefinedClass();
+                return predefined != null ? new CharClass(predefined) : new Char(parseEscapedChar());
+        }
+    }
+
+    /*
+     * The part of a character class after the opening bracket.
+     */
+    private CharSet parseClass() {
+        boolean negated = more() && peek() == '^';
+        if (negated) {
+            cursor++;
+        }
+        if (!more() || peek() == ']') {
+            throw new UnsupportedSyntax();
+        }
+        CharSet charSet = CharSet.EMPTY;
+        while (true) {
+            if (!more() || regex.startsWith("&&", cursor)) {
+                throw new UnsupportedSyntax();
+            }
+            char ch = regex.charAt(cursor++);
+            if (ch == ']') {
+                break;
+            }
+            if (ch == '[') {
+                // the negation of a class with nested classes does not work as expected in Pattern
+                if (negated) {
+                    throw new UnsupportedSyntax();
+                }
+                charSet = charSet.union(parseClass());
+                continue;
+            }
+            char first = ch;
+            if (ch == '\\') {
+                CharSet predefined = parsePredefinedClass();
+                if (predefined != null) {
+                    charSet = charSet.union(predefined);
+                    continue;
+                }
+                first = parseEscapedChar();
+            }
+            char last = first;
+            if (more() && peek() == '-' && cursor + 1 < regex.length() && regex.charAt(cursor + 1) != ']') {
+                cursor++;
+                last = regex.charAt(cursor++);
+                if (last == '[') {
+                    throw new UnsupportedSyntax();
+                }
+                if (last == '\\') {
+                    if (parsePredefinedClass() != null) {
+                        throw new UnsupportedSyntax();
+                    }
+                    last = parseEscapedChar();
+                }
+                if (last < first) {
+                    throw new UnsupportedSyntax();
+                }
+            }
+            charSet = charSet.union(CharSet.range(first, last));
+        }
+        return negated ? charSet.negate() : charSet;
+    }
+
+    /*
+     * The class of the escape at the cursor, which is after the backslash, or null if it is not a class.
+     */
+    private CharSet parsePredefinedClass() {
+        if (!more()) {
+            throw new UnsupportedSyntax();
+        }
+        CharSet charSet;
+        switch (peek()) {
+            case 'd':
+                charSet = CharSet.DIGIT;
+                break;
+            case 'D':
+                charSet = CharSet.DIGIT.negate();
+                break;
+            case 'w':
+                charSet = CharSet.WORD;
+                break;
+            case 'W':
+                charSet = CharSet.WORD.negate();
+                break;
+            case 's':
+                charSet = CharSet.SPACE;
+                break;
+            case 'S':
+                charSet = CharSet.SPACE.negate();
+                break;
+            default:
+                return null;
+        }
+        cursor++;
+        return charSet;
+    }
+
+    /*
+     * The character of the escape at the cursor, which is after the backslash.
+     */
+    private char parseEscapedChar() {
+        if (!more()) {
+            throw new UnsupportedSyntax();
+        }
+        char ch = regex.charAt(cursor++);
+        switch (ch) {
+            case 't':
+                return '\t';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            case 'a':
+                return '\007';
+            case 'e':
+                return '\033';
+            case '0':
+                return (char) parseNumber(8, 1, peekOctalLength());
+            case 'x':
+                return (char) parseNumber(16, 2, 2);
+            case 'u':
+                return (char) parseNumber(16, 4, 4);
+            case 'c':
+                if (!more()) {
+                    throw new UnsupportedSyntax();
+                }
+                return (char) (regex.charAt(cursor++) ^ 64);
+            default:
+                if (Character.isLetterOrDigit(ch) || ch >= 128) {
+                    throw new UnsupportedSyntax();
+                }
+                return ch;
+        }
+    }
+
+    /*
+     * An octal escape has up to three digits and the first of three digits may not be above 3.
+     */
+    private int peekOctalLength() {
+        int length = 0;
+        while (length < 3 && cursor + length < regex.length() &&
+               regex.charAt(cursor + length) >= '0' && regex.charAt(cursor + length) <= '7') {
+            length++;
+        }
+        if (length == 3 && regex.charAt(cursor) > '3') {
+            length = 2;
+        }
+        return length;
+    }
+
+    private int parseNumber(int radix, int minDigits, int maxDigits) {
+        int end = cursor;
+        while (end < regex.length() && end - cursor < maxDigits && Character.digit(regex.charAt(end), radix) != -1) {
+            end++;
+        }
+        if (end - cursor < minDigits) {
+            throw new UnsupportedSyntax();
+        }
+        int number = Integer.parseInt(regex.substring(cursor, end), radix);
+        cursor = end;
+        return number;
+    }
+
+    private RegexNode parseQuantifier(RegexNode node) {
+        if (!more()) {
+            return node;
+        }
+        int min;
+        int max;
+        switch (peek()) {
+            case '*':
+                min = 0;
+                max = -1;
+                cursor++;
+                break;
+            case '+':
+                min = 1;
+                max = -1;
+                cursor++;
+                break;
+            case '?':
+                min = 0;
+                max = 1;
+                cursor++;
+                break;
+            case '{':
+                cursor++;
+                min = parseNumber(10, 1, 9);
+                max = min;
+                if (more() && peek() == ',') {
+                    cursor++;
+                    max = more() && isDigit(peek()) ? parseNumber(10, 1, 9) : -1;
+                }
+                expect('}');
+                break;
+            default:
+                return node;
+        }
+        Repeat.Mode mode = Repeat.Mode.GREEDY;
+        if (more() && peek() == '?') {
+            mode = Repeat.Mode.LAZY;
+            cursor++;
+        } else if (more() && peek() == '+') {
+            mode = Repeat.Mode.POSSESSIVE;
+            cursor++;
+        }
+        if (more() && "*+?{".indexOf(peek()) != -1) {
+            throw new UnsupportedSyntax();
+        }
+        return new Repeat(node, min, max, mode);
+    }
+
+    private void expect(char ch) {
+        if (!more() || peek() != ch) {
+            throw new UnsupportedSyntax();
+        }
+        cursor++;
+    }
+
+    private boolean more() {
+        return cursor < regex.length();
+    }
+
+    private char peek() {
+        return regex.charAt(cursor);
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    /*
+     * Thrown to stop the parsing as soon as an unsupported feature is found.
+     */
+    private static final class UnsupportedSyntax extends RuntimeException {
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+/**
+ * A regex compiled by a {@link RegexEngine}. It is immutable and can be used by many threads.
+ */
+public interface RegexPattern {
+    /**
+     * @return The regex the pattern was compiled from.
+     */
+    String pattern();
+
+    /**
+     * @return The number of capturing groups in the regex.
+     */
+    int groupCount();
+
+    /**
+     * Creates a matcher that searches a text, the matcher is used by one thread only.
+     *
+     * @param input The text to search.
+     * @return The matcher.
+     */
+    RegexMatcher matcher(CharSequence input);
+}
@@ -0,0 +1,144 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cheap check that is done before a regex is run, it rejects any text that does not contain
+ * all the {@link RequiredLiterals} of the regex.
+ * <p/>
+ * The prefilter counts how often the regex was skipped and how often it had to be run,
+ * these counts are listed in the report at the end of a run.
+ */
+public final class RegexPrefilter {
+    private final String       name;
+    private final String       regex;
+    private final String[]     literals;
+    private final AtomicLong   skipped = new AtomicLong();
+    private final AtomicLong   passed  = new AtomicLong();
+
+    /**
+     * Analyzes a regex for the strings it requires.
+     *
+     * @param name  The name of the regex in the report, for example the translation ID.
+     * @param regex The regex, compiled without any flags.
+     */
+    public RegexPrefilter(String name, String regex) {
+        this.name = name;
+        this.regex = regex;
+        List<String> required = RequiredLiterals.of(regex);
+        this.literals = required.toArray(new String[required.size()]);
+    }
+
+    /**
+     * Checks if the regex can match in the text.
+     *
+     * @param text The text the regex is going to search.
+     * @return False if the regex cannot match, true if the regex has to be run.
+     */
+    public boolean mayMatch(String text) {
+        return mayMatch(text, 0);
+    }
+
+    /**
+     * Checks if the regex can match in the text from an index on.
+     *
+     * @param text      The text the regex is going to search.
+     * @param fromIndex The index the search starts at.
+     * @return False if the regex cannot match, true if the regex has to be run.
+     */
+    public boolean mayMatch(CharSequence text, int fromIndex) {
+        for (String literal : literals) {
+            if (RegexLiterals.indexOf(text, literal, fromIndex) == -1) {
+                skipped.incrementAndGet();
+                return false;
+            }
+        }
+        passed.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return True if the regex requires any strings, otherwise nothing is ever skipped.
+     */
+    public boolean isActive() {
+        return literals.length > 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getRegex() {
+        return regex;
+    }
+
+    /**
+     * @return The required strings, the longest first.
+     */
+    public List<String> getLiterals() {
+        return Collections.unmodifiableList(Arrays.asList(literals));
+    }
+
+    /**
+     * @return The number of times the regex was not run.
+     */
+    public long getSkipCount() {
+        return skipped.get();
+    }
+
+    /**
+     * @return The number of times the regex had to be run.
+     */
+    public long getHitCount() {
+        return passed.get();
+    }
+
+    /**
+     * Creates the report of the prefilters that were used, the ones that skipped most come first.
+     *
+     * @param prefilters The prefilters of the run.
+     * @return The report, one line per prefilter.
+     */
+    public static String getReport(Collection<RegexPrefilter> prefilters) {
+        List<RegexPrefilter> used = new ArrayList<RegexPrefilter>();
+        long skipTotal = 0;
+        long hitTotal = 0;
+        for (RegexPrefilter prefilter : prefilters) {
+            if (prefilter.isActive() && prefilter.getSkipCount() + prefilter.getHitCount() > 0) {
+                used.add(prefilter);
+                skipTotal += prefilter.getSkipCount();
+                hitTotal += prefilter.getHitCount();
+            }
+        }
+        Collections.sort(used, new Comparator<RegexPrefilter>() {
+            public int compare(RegexPrefilter first, RegexPrefilter second) {
+                return Long.valueOf(second.getSkipCount()).compareTo(first.getSkipCount());
+            }
+        });
+        StringBuilder report = new StringBuilder();
+        report.append("Regex prefilter: ").append(skipTotal).append(" skipped, ").append(hitTotal).append(" run");
+        for (RegexPrefilter prefilter : used) {
+            report.append("\n  ").append(prefilter.getName()).append(" [").append(prefilter.getRegex())
+                  .append("] skipped ").append(prefilter.getSkipCount())
+                  .append(", run ").append(prefilter.getHitCount()).append(", requires ").append(prefilter.getLiterals());
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.retro.code.converter.regex.RegexNode.Alternation;
+import org.retro.code.converter.regex.RegexNode.Assertion;
+import org.retro.code.converter.regex.RegexNode.Char;
+import org.retro.code.converter.regex.RegexNode.CharClass;
+import org.retro.code.converter.regex.RegexNode.Concat;
+import org.retro.code.converter.regex.RegexNode.Group;
+import org.retro.code.converter.regex.RegexNode.Lookaround;
+import org.retro.code.converter.regex.RegexNode.Repeat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Works out the strings that the text of every match of a regex must contain.
+ * <p/>
+ * For example any match of getString\((\d+)\) contains "getString(" and ")". If the text to search
+ * does not contain one of these strings, the regex cannot match and does not have to be run.
+ */
+public final class RequiredLiterals {
+    private static final int MAX_EXACT_LENGTH = 256;
+
+    // the string the node always matches, or null if it can match different strings
+    private final String      exact;
+    // strings that are part of every match of the node
+    private final Set<String> required;
+
+    private RequiredLiterals(String exact, Set<String> required) {
+        this.exact = exact;
+        this.required = required;
+    }
+
+    /**
+     * Gets the required strings of a regex, the longest first.
+     * Strings that are part of a longer required string are left out.
+     *
+     * @param regex The regex, compiled without any flags.
+     * @return The required strings, empty if there are none or the regex is not supported by the parser.
+     */
+    public static List<String> of(String regex) {
+        RegexNode root = RegexParser.parse(regex);
+        if (root == null) {
+            return Collections.emptyList();
+        }
+        RequiredLiterals literals = analyze(root);
+        Set<String> all = new LinkedHashSet<String>(literals.required);
+        if (literals.exact != null && literals.exact.length() > 0) {
+            all.add(literals.exact);
+        }
+        List<String> sorted = new ArrayList<String>(all);
+        Collections.sort(sorted, new Comparator<String>() {
+            public int compare(String first, String second) {
+                return second.length() - first.length();
+            }
+        });
+        List<String> result = new ArrayList<String>();
+        for (String literal : sorted) {
+            boolean covered = false;
+            for (String longer : result) {
+                covered |= longer.contains(literal);
+            }
+            if (!covered) {
+                result.add(literal);
+            }
+        }
+        return result;
+    }
+
+    private static RequiredLiterals analyze(RegexNode node) {
+        if (node instanceof Char) {
+            return exact(String.valueOf(((Char) node).getValue()));
+        } else if (node instanceof CharClass) {
+            CharSet charSet = ((CharClass) node).getCharSet();
+            return charSet.size() == 1 ? exact(String.valueOf(charSet.first())) : unknown();
+        } else if (node instanceof Assertion || node instanceof Lookaround) {
+            // zero width, the text before and after is still matched in one piece
+            return exact("");
+        } else if (node instanceof Group) {
+            return analyze(((Group) node).getNode());
+        } else if (node instanceof Concat) {
+            return analyzeConcat((Concat) node);
+        } else if (node instanceof Alternation) {
+            return analyzeAlternation((Alternation) node);
+        } else if (node instanceof Repeat) {
+            return analyzeRepeat((Repeat) node);
+        }
+        // back references
+        return unknown();
+    }
+
+    private static RequiredLiterals analyzeConcat(Concat concat) {
+        Set<String> required = new LinkedHashSet<String>();
+        StringBuilder run = new StringBuilder();
+        boolean allExact = true;
+        for (RegexNode node : concat.getNodes()) {
+            RequiredLiterals literals = analyze(node);
+            if (literals.exact != null) {
+                run.append(literals.exact);
+            } else {
+                allExact = false;
+                addRun(required, run);
+                required.addAll(literals.required);
+            }
+        }
+        if (allExact && run.length() <= MAX_EXACT_LENGTH) {
+            return new RequiredLiterals(run.toString(), required);
+        }
+        addRun(required, run);
+        return new RequiredLiterals(null, required);
+    }
+
+    /*
+     * Only the strings that every alternative requires are required.
+     */
+    private static RequiredLiterals analyzeAlternation(Alternation alternation) {
+        Set<String> common = null;
+        for (RegexNode node : alternation.getAlternatives()) {
+            RequiredLiterals literals = analyze(node);
+            Set<String> required = new LinkedHashSet<String>(literals.required);
+            if (literals.exact != null && literals.exact.length() > 0) {
+                required.add(literals.exact);
+            }
+            if (common == null) {
+                common = required;
+            } else {
+                common.retainAll(required);
+            }
+        }
+        return new RequiredLiterals(null, common == null ? new LinkedHashSet<String>() : common);
+    }
+
+    private static RequiredLiterals analyzeRepeat(Repeat repeat) {
+        if (repeat.getMin() == 0) {
+            return unknown();
+        }
+        RequiredLiterals literals = analyze(repeat.getNode());
+        if (literals.exact != null && repeat.getMin() == repeat.getMax() &&
+            literals.exact.length() * repeat.getMin() <= MAX_EXACT_LENGTH) {
+            StringBuilder repeated = new StringBuilder();
+            for (int i = 0; i < repeat.getMin(); i++) {
+                repeated.append(literals.exact);
+            }
+            return exact(repeated.toString());
+        }
+        Set<String> required = new LinkedHashSet<String>(literals.required);
+        if (literals.exact != null && literals.exact.length() > 0) {
+            required.add(literals.exact);
+        }
+        return new RequiredLiterals(null, required);
+    }
+
+    private static void addRun(Set<String> required, StringBuilder run) {
+        if (run.length() > 0) {
+            required.add(run.toString());
+            run.setLength(0);
+        }
+    }
+
+    private static RequiredLiterals exact(String exact) {
+        return new RequiredLiterals(exact, new LinkedHashSet<String>());
+    }
+
+    private static RequiredLiterals unknown() {
+        return new RequiredLiterals(null, new LinkedHashSet<String>());
+    }
+}
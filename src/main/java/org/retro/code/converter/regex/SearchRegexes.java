@@ -0,0 +1,76 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.regex;
+
+import org.retro.code.converter.xml.v1.types.XRegexEngineType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The search regexes of the code sections of one run, see {@link CompiledRegex}.
+ * <p/>
+ * Each regex is compiled once per regex string and engine, when the code sections are compiled,
+ * and its prefilter counts only the searches of the run that owns it.
+ */
+public final class SearchRegexes {
+    private final Map<String, CompiledRegex> compiledRegexes = new HashMap<String, CompiledRegex>();
+    private final XRegexEngineType           defaultEngineType;
+
+    /**
+     * @param defaultEngineType The engine of the transform file, used for the code sections that
+     *                          do not configure one, null for JAVA.
+     */
+    public SearchRegexes(XRegexEngineType defaultEngineType) {
+        this.defaultEngineType = defaultEngineType;
+    }
+
+    /**
+     * Gets the compiled version of a search regex, it is compiled the first time it is asked for.
+     *
+     * @param regex      The regex.
+     * @param engineType The configured engine, null for the default engine.
+     * @return The compiled regex.
+     * @throws java.util.regex.PatternSyntaxException If the regex is invalid.
+     */
+    public synchronized CompiledRegex get(String regex, XRegexEngineType engineType) {
+        RegexEngine engine = RegexEngines.get(engineType, defaultEngineType);
+        String key = engine.getName() + ':' + regex;
+        CompiledRegex compiledRegex = compiledRegexes.get(key);
+        if (compiledRegex == null) {
+            compiledRegex = new CompiledRegex(regex, engine);
+            compiledRegexes.put(key, compiledRegex);
+        }
+        return compiledRegex;
+    }
+
+    /**
+     * @return The prefilters of all the search regexes compiled so far.
+     */
+    public synchronized List<RegexPrefilter> getPrefilters() {
+        List<RegexPrefilter> prefilters = new ArrayList<RegexPrefilter>();
+        for (CompiledRegex compiledRegex : compiledRegexes.values()) {
+            prefilters.add(compiledRegex.getPrefilter());
+        }
+        return prefilters;
+    }
+
+    /**
+     * @return The number of compiled search regexes.
+     */
+    public synchronized int size() {
+        return compiledRegexes.size();
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+/**
+ * Maps an index in the text a regex searches to a position in the source file, for the error
+ * message of an exceeded {@link RegexBudget}.
+ */
+public interface SourceLocator {
+    /**
+     * @param index An index in the searched text.
+     * @return The position in the source, as line:column.
+     */
+    String getSourcePosition(int index);
+}
@@ -14,6 +14,7 @@ package org.retro.code.converter.utils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.retro.code.converter.exception.CodeConversionException;
+import org.retro.code.converter.regex.RegexBudget;
 import org.retro.code.converter.xml.v1.types.XCodeBlockType;
 import org.retro.code.converter.xml.v1.types.XCodeSection;
 import org.retro.code.converter.xml.v1.types.XCodeSectionList;
@@ -112,4 +113,15 @@ public class CodeSectionUtils {
             }
         }
     }
+
+    /**
+     * Gets the budget for the search regexes of a code section.
+     *
+     * @param codeSection The code section.
+     * @return The configured budget, or the default budget.
+     */
+    public static RegexBudget getRegexBudget(XCodeSection codeSection) {
+        return RegexBudget.of("code section " + codeSection.getTitle() + " (id " + codeSection.getId() + ")",
+                              codeSection.getRegexBudget());
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.utils;
+
+/**
+ * An immutable template, split once at its contents marker.
+ * The preamble and postamble are the same String instances for every code section,
+ * match and target that uses the template, they are never copied again.
+ */
+public final class CompiledTemplate {
+    public static final CompiledTemplate EMPTY = new CompiledTemplate("", "");
+
+    private final String preamble;
+    private final String postamble;
+
+    private CompiledTemplate(String preamble, String postamble) {
+        this.preamble = preamble;
+        this.postamble = postamble;
+    }
+
+    /**
+     * Splits a template at the first contents marker.
+     * A template without a contents marker wraps nothing, both parts are then empty.
+     *
+     * @param template The template contents.
+     * @return The compiled template.
+     */
+    public static CompiledTemplate compile(CharSequence template) {
+        String contents = template.toString();
+        int contentsIndex = contents.indexOf(TemplateUtils.CONTENTS_MARKER);
+        if (contentsIndex == -1) {
+            return EMPTY;
+        }
+        return new CompiledTemplate(contents.substring(0, contentsIndex),
+                                    contents.substring(contentsIndex + TemplateUtils.CONTENTS_MARKER.length()));
+    }
+
+    /**
+     * @return The part of the template before the contents marker, empty if there is none.
+     */
+    public String getPreamble() {
+        return preamble;
+    }
+
+    /**
+     * @return The part of the template after the contents marker, empty if there is none.
+     */
+    public String getPostamble() {
+        return postamble;
+    }
+}
@@ -16,21 +16,20 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.retro.code.converter.execution.info.BracketInfo;
 import org.retro.code.converter.execution.info.CodeBuffer;
-import org.retro.code.converter.execution.info.CodeSectionInfo;
+import org.retro.code.converter.execution.lexer.TokenTable;
+import org.retro.code.converter.execution.output.FormattingWriter;
+import org.retro.code.converter.execution.output.StringBuilderWriter;
+import org.retro.code.converter.execution.plan.CompiledCodeSection;
+import org.retro.code.converter.regex.RegexMatcher;
 import org.retro.code.converter.xml.v1.types.XCodeBlockType;
 import org.retro.code.converter.xml.v1.types.XCodeSection;
 
-import java.util.Map;
-import java.util.TreeMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.IOException;
 
 /**
  * Utility functions for processing code.
  */
 public class ConverterUtils {
-    private static final String LINE_END = "\n";
-    private static final String SEMI_COLON = ";";
     private static final Logger logger = Logger.getLogger(ConverterUtils.class);
 
     /**
@@ -52,162 +51,62 @@ public class ConverterUtils {
         return filePath;
     }
 
-    /**
-     * This function finds the first slot available for inserting the new piece of code into the
-     * resultCode map. The map uses integers to keep the order of the code to be output to the target file.
-     * When the order supplied is greater than one a gap is left (relative to the number supplied) so that
-     * the next piece of code that has a zero order will be inserted before that.
-     *
-     * @param resultCode The result code map with ordered pieces of code
-     * @param codePiece  The piece of code to insert
-     * @param order      A positive number indicating the gap to leave in the sequencing of the new code.
-     */
-    public static void insertCodeIntoResultMap(Map<Integer, String> resultCode, String codePiece, int order) {
-        int firstGap = 1;
-        // there are template and output pieces of code added for every section
-        // we therefore leave a nice big gap for all the components.
-        order *= 100;
-        while (resultCode.get(firstGap) != null) {
-            firstGap++;
-        }
-        if (order <= 0) {
-            resultCode.put(firstGap, codePiece);
-            LogUtil.trace(logger, "Inserted into result map at index " + firstGap);
-        } else {
-            // insert it after the value we want
-            while (resultCode.get(firstGap + order) != null) {
-                firstGap++;
-            }
-            resultCode.put(firstGap + order, codePiece);
-            LogUtil.trace(logger, "Inserting into result map at index " + (firstGap + order));
-        }
-    }
-
-    /**
-     * This function takes a map of pieces for a target file and groups the output
-     * per file.
-     *
-     * @param targetOutput The grouped and end result of the conversion
-     * @param targetPieces The little bits per file
-     */
-    public static void insertMapIntoOutput(Map<Integer, StringBuilder> targetOutput,
-                                          Map<Integer, Map<Integer, String>> targetPieces) {
-        for (Map.Entry<Integer, Map<Integer, String>> allPieces : targetPieces.entrySet()) {
-            StringBuilder fileOutput = getOrderedResultCode(allPieces.getValue());
-            StringBuilder currentContents;
-            if ((currentContents = targetOutput.get(allPieces.getKey())) == null) {
-                targetOutput.put(allPieces.getKey(), fileOutput);
-            } else {
-                currentContents.append(fileOutput);
-            }
-        }
-    }
-
-    /**
-     * Inserts or appends to existing target contents
-     * @param targetOutput The target file(s) output
-     * @param fileOutput   Single output
-     * @param index        Index in the target to insert into
-     */
-    public static void insertStringIntoOutput(Map<Integer, StringBuilder> targetOutput,
-                                             StringBuilder fileOutput, int index) {
-        StringBuilder currentContents;
-        if ((currentContents = targetOutput.get(index)) == null) {
-            targetOutput.put(index, fileOutput);
-        } else {
-            currentContents.append(fileOutput);
-        }
-    }
-
-    /**
-     * This function returns a string builder that includes all the code to be output for a certain
-     * target. The code is ordered as per the order number for each code piece insertion into the list.
-     *
-     * @param resultCode The map which contains the pieces of code and their order number.
-     * @return The ordered resulting code.
-     */
-    private static StringBuilder getOrderedResultCode(Map<Integer, String> resultCode) {
-        StringBuilder output = new StringBuilder();
-        Map<Integer, String> treeMap = new TreeMap<Integer, String>(resultCode);
-        for (Map.Entry<Integer, String> entry : treeMap.entrySet()) {
-            output.append(entry.getValue());
-        }
-        return output;
-    }
-
-
     /**
      * This function cuts out the piece of code depending on the code block configuration.
      *
-     * @param codeSectionInfo This is the information built around the code (like a helper class)
-     * @param codeBuffer      The code buffer to update
+     * @param codeSection The compiled code section with the code block configuration
+     * @param codeBuffer  The code buffer to update
      */
-    public static void extractCodeBlock(CodeSectionInfo codeSectionInfo, CodeBuffer codeBuffer,
+    public static void extractCodeBlock(CompiledCodeSection codeSection, CodeBuffer codeBuffer,
                                        int searchStartIndex, int searchEndIndex) {
-        BracketInfo bracketCodeInfo;
         BracketInfo bracketSearchInfo;
-        if (codeSectionInfo.getCodeSection().isRemoveSearch()) {
+        final XCodeSection config = codeSection.getCodeSection();
+        if (config.isRemoveSearch()) {
             LogUtil.trace(logger, "Removing search regex from string");
             codeBuffer.appendStartIndex(searchEndIndex - searchStartIndex);
             codeBuffer.setProcessedToStartIndex();
         }
-        if (codeSectionInfo.getCodeSection().getCodeBlock() == null ||
-            codeSectionInfo.getCodeSection().getCodeBlock() == XCodeBlockType.AUTO) {
+        if (config.getCodeBlock() == null ||
+            config.getCodeBlock() == XCodeBlockType.AUTO) {
             LogUtil.trace(logger, "Processing code block: AUTO");
-            bracketCodeInfo = new BracketInfo(codeBuffer.getAllCodeFromStartIndex());
-            bracketSearchInfo = new BracketInfo(codeSectionInfo.getCodeSection().getSearchStart());
+            bracketSearchInfo = codeSection.getSearchBracketInfo();
             int codeBarrierIndex;
-            if (StringUtils.isNotBlank(codeSectionInfo.getCodeSection().getSearchEnd())) {
-                codeBarrierIndex = getSearchEndIndex(bracketCodeInfo.getCode(), codeSectionInfo);
+            if (codeSection.getBlockEnd() != null) {
+                codeBarrierIndex = getEndIndex(codeBuffer, codeSection);
                 if (codeBarrierIndex != -1) {
                     codeBuffer.setEndIndex(codeBuffer.getStartIndex() + codeBarrierIndex);
                     return;
                 }
             } else if (bracketSearchInfo.getLeadingBracketType() != 0) {
-                int index = getIndexFromLeadingToCorrespondingClosed(bracketSearchInfo, bracketCodeInfo);
+                int index = getIndexFromLeadingToCorrespondingClosed(bracketSearchInfo, codeBuffer);
                 codeBuffer.setEndIndex(codeBuffer.getStartIndex() + index);
                 return;
             }
-        } else if (codeSectionInfo.getCodeSection().getCodeBlock() == XCodeBlockType.SEARCH_END) {
+        } else if (config.getCodeBlock() == XCodeBlockType.SEARCH_END) {
             LogUtil.trace(logger, "Processing code block: SEARCH_END");
-            bracketCodeInfo = new BracketInfo(codeBuffer.getAllCodeFromStartIndex());
-            if (StringUtils.isNotBlank(codeSectionInfo.getCodeSection().getSearchEnd())) {
-                int codeBarrierIndex = getSearchEndIndex(bracketCodeInfo.getCode(), codeSectionInfo);
+            if (codeSection.getBlockEnd() != null) {
+                int codeBarrierIndex = getEndIndex(codeBuffer, codeSection);
                 if (codeBarrierIndex != -1) {
                     codeBuffer.setEndIndex(codeBuffer.getStartIndex() + codeBarrierIndex);
                     return;
                 }
             }
-        } else if (codeSectionInfo.getCodeSection().getCodeBlock() == XCodeBlockType.STATEMENT) {
+        } else if (config.getCodeBlock() == XCodeBlockType.STATEMENT) {
             LogUtil.trace(logger, "Processing code block: STATEMENT");
-            bracketCodeInfo = new BracketInfo(codeBuffer.getAllCodeFromStartIndex());
-            if (bracketCodeInfo.getIndexOfClosedRound() != -1) {
-                codeBuffer.setEndIndex(codeBuffer.getStartIndex() + bracketCodeInfo.getIndexOfClosedRound());
-            }
-            removeBrackets(bracketCodeInfo, codeBuffer, codeSectionInfo.getCodeSection(), BracketInfo.ROUND_BRACKET_OPEN);
+            extractBracketBlock(codeBuffer, config, BracketInfo.ROUND_BRACKET_OPEN);
             return;
-        } else if (codeSectionInfo.getCodeSection().getCodeBlock() == XCodeBlockType.FUNCTION) {
+        } else if (config.getCodeBlock() == XCodeBlockType.FUNCTION) {
             LogUtil.trace(logger, "Processing code block: FUNCTION");
-            bracketCodeInfo = new BracketInfo(codeBuffer.getAllCodeFromStartIndex());
-            if (bracketCodeInfo.getIndexOfClosedCurly() != -1) {
-                codeBuffer.setEndIndex(codeBuffer.getStartIndex() + bracketCodeInfo.getIndexOfClosedCurly());
-            }
-            removeBrackets(bracketCodeInfo, codeBuffer, codeSectionInfo.getCodeSection(), BracketInfo.CURLY_BRACKET_OPEN);
+            extractBracketBlock(codeBuffer, config, BracketInfo.CURLY_BRACKET_OPEN);
             return;
-        } else if (codeSectionInfo.getCodeSection().getCodeBlock() == XCodeBlockType.COMMAND) {
-            LogUtil.trace(logger, "Processing code block: COMMAND");
-            bracketCodeInfo = new BracketInfo(codeBuffer.getAllCodeFromStartIndex());
-            int codeBarrierIndex = getEndIndex(bracketCodeInfo.getCode(), SEMI_COLON);
+        } else if (config.getCodeBlock() == XCodeBlockType.COMMAND ||
+                   config.getCodeBlock() == XCodeBlockType.LINE_END) {
+            LogUtil.trace(logger, "Processing code block: {}", config.getCodeBlock());
+            int codeBarrierIndex = getFirstSymbolIndex(codeBuffer,
+                                                       config.getCodeBlock() == XCodeBlockType.COMMAND ? ';' : '\n');
             if (codeBarrierIndex != -1) {
-                codeBuffer.setEndIndex(codeBuffer.getStartIndex() + codeBarrierIndex);
-                return;
-            }
-        } else if (codeSectionInfo.getCodeSection().getCodeBlock() == XCodeBlockType.LINE_END) {
-            LogUtil.trace(logger, "Processing code block: LINE_END");
-            bracketCodeInfo = new BracketInfo(codeBuffer.getAllCodeFromStartIndex());
-            int codeBarrierIndex = getEndIndex(bracketCodeInfo.getCode(), LINE_END);
-            if (codeBarrierIndex != -1) {
-                codeBuffer.setEndIndex(codeBuffer.getStartIndex() + codeBarrierIndex);
+                // the block ends just past the line end or semicolon
+                codeBuffer.setEndIndex(codeBuffer.getStartIndex() + codeBarrierIndex + 1);
                 return;
             }
         }
@@ -216,47 +115,112 @@ public class ConverterUtils {
         codeBuffer.setEndIndex(codeBuffer.getCode().length());
     }
 
-    private static void removeBrackets(BracketInfo bracketInfo, CodeBuffer codeBuffer,
-                                      XCodeSection codeSection, char bracket) {
+    /*
+     * The block ends at the bracket that closes the first open bracket after the start index.
+     */
+    private static void extractBracketBlock(CodeBuffer codeBuffer, XCodeSection codeSection, char open) {
+        int openIndex = getFirstSymbolIndex(codeBuffer, open);
+        int closedIndex = openIndex == -1 ? -1 : getClosedIndex(codeBuffer, open, openIndex);
+        if (closedIndex != -1) {
+            codeBuffer.setEndIndex(codeBuffer.getStartIndex() + closedIndex);
+        }
+        removeBrackets(codeBuffer, codeSection, openIndex, closedIndex);
+    }
+
+    /*
+     * The index after the start index of the first symbol that is code, -1 if there is none.
+     * Symbols that were removed from the code are skipped.
+     * Open brackets are found with the bracket index, line ends and semicolons with the line index.
+     */
+    private static int getFirstSymbolIndex(CodeBuffer codeBuffer, char symbol) {
+        int length = codeBuffer.getCode().length();
+        if (codeBuffer.getStartIndex() >= length) {
+            return -1;
+        }
+        int lastSourceIndex = codeBuffer.toSourceIndex(length - 1);
+        int sourceIndex = codeBuffer.toSourceIndex(codeBuffer.getStartIndex());
+        while ((sourceIndex = getNextSymbol(codeBuffer, symbol, sourceIndex)) != -1 &&
+               sourceIndex <= lastSourceIndex) {
+            int codeIndex = codeBuffer.toCodeIndex(sourceIndex);
+            if (codeIndex != -1) {
+                return codeIndex - codeBuffer.getStartIndex();
+            }
+            sourceIndex++;
+        }
+        return -1;
+    }
+
+    private static int getNextSymbol(CodeBuffer codeBuffer, char symbol, int sourceIndex) {
+        if (symbol == BracketInfo.ROUND_BRACKET_OPEN || symbol == BracketInfo.CURLY_BRACKET_OPEN) {
+            return codeBuffer.getBracketIndex().getFirstOpen(symbol, sourceIndex);
+        }
+        return codeBuffer.getLineIndex().getNextBlockEnd(symbol, sourceIndex);
+    }
+
+    /*
+     * The index after the start index just past the bracket that closes an open bracket, -1 if it is not closed.
+     * Brackets are only ever removed in pairs, so the pair of a bracket in the code is in the code
+     * unless it is after the end of the code.
+     */
+    private static int getClosedIndex(CodeBuffer codeBuffer, char open, int openIndex) {
+        int sourceIndex = codeBuffer.toSourceIndex(codeBuffer.getStartIndex() + openIndex);
+        int close = codeBuffer.getBracketIndex().getMatchingClose(open, sourceIndex);
+        int codeIndex = close == -1 ? -1 : codeBuffer.toCodeIndex(close);
+        return codeIndex == -1 ? -1 : codeIndex - codeBuffer.getStartIndex() + 1;
+    }
+
+    private static void removeBrackets(CodeBuffer codeBuffer, XCodeSection codeSection,
+                                      int firstBracket, int lastBracket) {
         if (codeSection.isRemoveBrackets()) {
-            int firstBracket = 0;
-            int lastBracket = 0;
-            if (bracket == BracketInfo.CURLY_BRACKET_OPEN) {
-                if (bracketInfo.getIndexOfOpenCurly() == -1 ||
-                    bracketInfo.getIndexOfClosedCurly() == -1) {
-                    return;
-                }
-                firstBracket = bracketInfo.getIndexOfOpenCurly();
-                lastBracket = bracketInfo.getIndexOfClosedCurly();
-            } else {
-                if (bracketInfo.getIndexOfOpenRound() == -1 ||
-                    bracketInfo.getIndexOfClosedRound() == -1) {
-                    return;
-                }
-                firstBracket = bracketInfo.getIndexOfOpenRound();
-                lastBracket = bracketInfo.getIndexOfClosedRound();
+            if (firstBracket == -1 || lastBracket == -1) {
+                return;
             }
-            codeBuffer.getCode().replace(codeBuffer.getStartIndex() + lastBracket - 1,
-                                        codeBuffer.getStartIndex() + lastBracket, "");
-            codeBuffer.getCode().replace(codeBuffer.getStartIndex() + firstBracket,
-                                        codeBuffer.getStartIndex() + firstBracket + 1, "");
+            codeBuffer.deleteCharAt(codeBuffer.getStartIndex() + lastBracket - 1);
+            codeBuffer.deleteCharAt(codeBuffer.getStartIndex() + firstBracket);
             codeBuffer.setRemoveOffset(2);
             codeBuffer.setEndIndex(codeBuffer.getEndIndex() - codeBuffer.getRemoveOffset());
         }
     }
 
+    /*
+     * The index after the start index just past the bracket that closes the brackets left open by the search,
+     * or the length of the rest of the code if they are not closed.
+     */
     private static int getIndexFromLeadingToCorrespondingClosed(BracketInfo bracketSearchInfo,
-                                                               BracketInfo bracketCodeInfo) {
+                                                               CodeBuffer codeBuffer) {
         char open = bracketSearchInfo.getLeadingBracketType();
         char close = bracketSearchInfo.getLeadingClosedBracketType();
         int bracketCount = bracketSearchInfo.getLeadingBracketCount();
-        return getIndexWithBrackets(bracketCodeInfo.getCode(), open, close, bracketCount);
+        int startIndex = codeBuffer.getStartIndex();
+        int remaining = codeBuffer.getCode().length() - startIndex;
+        if (remaining <= 0) {
+            return 0;
+        }
+        int sourceIndex = codeBuffer.toSourceIndex(startIndex);
+        int closeIndex = codeBuffer.getBracketIndex().getClosing(open, sourceIndex, bracketCount);
+        if (closeIndex == -1 || closeIndex > codeBuffer.toSourceIndex(startIndex + remaining - 1)) {
+            return remaining;
+        }
+        int codeIndex = codeBuffer.toCodeIndex(closeIndex);
+        if (codeIndex != -1 && codeIndex - startIndex == closeIndex - sourceIndex) {
+            return codeIndex - startIndex + 1;
+        }
+        // brackets were removed in between, so the depths of the index do not apply
+        return getIndexWithBrackets(codeBuffer, open, close, bracketCount);
     }
 
-    private static int getIndexWithBrackets(String code, char open, char close, int searchBracketCount) {
+    private static int getIndexWithBrackets(CodeBuffer codeBuffer, char open, char close, int searchBracketCount) {
+        CharSequence code = codeBuffer.getAllCodeFromStartIndex();
+        TokenTable tokens = codeBuffer.getTokenTable();
         int currentIndex = 0;
 
-        for (char ch : code.toCharArray()) {
+        for (int i = 0; i < code.length(); i++) {
+            char ch = code.charAt(i);
+            if ((ch == open || ch == close) && tokens != null &&
+                tokens.isMasked(codeBuffer.toSourceIndex(codeBuffer.getStartIndex() + i))) {
+                currentIndex++;
+                continue;
+            }
             if (ch == open) {
                 searchBracketCount++;
             }
@@ -272,73 +236,31 @@ public class ConverterUtils {
     }
 
     /**
-     * This function indents the code and removes many new lines
+     * This function indents the code and removes many new lines, see {@link FormattingWriter}.
      *
      * @param code The code to reformat
      * @return the reformatted code
      */
     public static StringBuilder formatCode(StringBuilder code) {
-        int bracketLevel = 0;
-        String indentSpace = "    ";
-        StringBuilder output = new StringBuilder();
-        boolean spacing = false;
-        boolean insertedSpaces = false;
-        int nlCount = 0;
-
-        for (char ch : code.toString().toCharArray()) {
-            if (spacing) {
-                if (ch == ' ' || ch == '\t') {
-                    continue;
-                }
-                if (ch == '\n') {
-                    if (nlCount++ > 2) {
-                        continue;
-                    }
-                    insertedSpaces = true;
-                }
-                if (!insertedSpaces) {
-                    for (int i = 0; i < bracketLevel; i++) {
-                        output.append(indentSpace);
-                    }
-                    insertedSpaces = true;
-                    nlCount = 0;
-                }
-                if (ch == BracketInfo.CURLY_BRACKET_CLOSE) {
-                    if (output.toString().endsWith(indentSpace)) {
-                        output.replace(output.length() - indentSpace.length(),
-                                      output.length(), "");
-                    }
-                }
-                spacing = false;
-                output.append(ch);
-            } else {
-                output.append(ch);
-            }
-            if (ch == BracketInfo.CURLY_BRACKET_CLOSE && bracketLevel > 0) {
-                bracketLevel--;
-            }
-            if (ch == BracketInfo.CURLY_BRACKET_OPEN) {
-                bracketLevel++;
-            }
-            if (ch == '\n') {
-                spacing = true;
-                insertedSpaces = false;
-                nlCount++;
-            }
+        StringBuilder output = new StringBuilder(code.length());
+        FormattingWriter writer = new FormattingWriter(new StringBuilderWriter(output));
+        try {
+            writer.append(code);
+            writer.flush();
+        } catch (IOException e) {
+            // a string builder cannot fail
+            throw new IllegalStateException(e);
         }
         return output;
     }
 
-    private static int getSearchEndIndex(String source, CodeSectionInfo codeSectionInfo) {
-        if (codeSectionInfo.getCodeSection().getSearchEnd().isEmpty()) {
+    private static int getEndIndex(CodeBuffer codeBuffer, CompiledCodeSection codeSection) {
+        CharSequence source = codeBuffer.getAllCodeFromStartIndex();
+        if (!codeSection.getBlockEnd().mayMatch(source, 0)) {
             return -1;
         }
-        return getEndIndex(source, codeSectionInfo.getCodeSection().getSearchEnd());
-    }
-
-    private static int getEndIndex(String source, String searchFor) {
-        Pattern p = Pattern.compile(searchFor);
-        Matcher matcher = p.matcher(source);
+        CharSequence text = codeSection.getBudget().wrap(source, codeBuffer, codeBuffer.getStartIndex());
+        RegexMatcher matcher = codeSection.getBlockEnd().getPattern().matcher(text);
         if (matcher.find()) {
             return matcher.end();
         } else {
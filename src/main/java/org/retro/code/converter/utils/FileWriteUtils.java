@@ -18,6 +18,7 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 
 /**
  * Utilities for writing target output files.
@@ -38,17 +39,8 @@ public class FileWriteUtils {
     public static void writeContents(String fileName, StringBuilder contents, boolean overwriteContents)
     throws FileException {
         try {
-            if (fileName.lastIndexOf("/") > 0) {
-                File path = new File(fileName.substring(0, fileName.lastIndexOf("/")));
-                if (!path.mkdirs()) {
-                    logger.info("Folder " + path + " already exists. No need to create.");
-                }
-            }
-            File file = new File(fileName);
-            if (!overwriteContents && file.exists()) {
-                throw new FileException(new Exception());
-            }
-            FileWriter fw = new FileWriter(file.getAbsoluteFile());
+            File file = getTargetFile(fileName, overwriteContents);
+            FileWriter fw = new FileWriter(file);
             BufferedWriter bufferedWriter;
             bufferedWriter = new BufferedWriter(fw);
             bufferedWriter.write(contents.toString());
@@ -58,4 +50,39 @@ public class FileWriteUtils {
         }
     }
 
+    /**
+     * Gets the file to write a target to, creating the path if required.
+     *
+     * @param fileName          The file path and name to write to.
+     * @param overwriteContents If this is false and the file exists, then a FileException is thrown.
+     * @return The absolute file.
+     * @throws FileException When there is an overwrite issue.
+     */
+    public static File getTargetFile(String fileName, boolean overwriteContents) throws FileException {
+        if (fileName.lastIndexOf("/") > 0) {
+            File path = new File(fileName.substring(0, fileName.lastIndexOf("/")));
+            if (!path.mkdirs()) {
+                logger.info("Folder " + path + " already exists. No need to create.");
+            }
+        }
+        File file = new File(fileName);
+        if (!overwriteContents && file.exists()) {
+            throw new FileException(new Exception());
+        }
+        return file.getAbsoluteFile();
+    }
+
+    /**
+     * Closes a writer after a failure, without hiding the failure with an exception from the close.
+     *
+     * @param writer The writer to close, closing it again must do nothing.
+     */
+    public static void closeQuietly(Writer writer) {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.debug("Closing after a failure: " + e.getMessage());
+        }
+    }
+
 }
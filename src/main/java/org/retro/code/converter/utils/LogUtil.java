@@ -21,17 +21,40 @@ import org.apache.log4j.Logger;
  */
 
 public class LogUtil {
+    private static final String ARGUMENT = "{}";
+    private static final Object NONE     = new Object();
 
     public static void debug(Logger logger, String output) {
         debug(logger, 0, output);
     }
 
     public static void debug(Logger logger, int level, String output) {
-        if (level > 0) {
-            output = "L" + level + ": " + output;
+        if (logger.isDebugEnabled()) {
+            logger.debug(getMessage(level, output, NONE, NONE, NONE));
         }
+    }
+
+    /**
+     * Logs a debug message with the {} in the format replaced by the argument.
+     * The message is only put together if debug is enabled, so nothing is allocated when it is not.
+     */
+    public static void debug(Logger logger, String format, Object arg) {
+        debug(logger, 0, format, arg, NONE);
+    }
+
+    /**
+     * See {@link #debug(Logger, String, Object)}.
+     */
+    public static void debug(Logger logger, int level, String format, Object arg) {
+        debug(logger, level, format, arg, NONE);
+    }
+
+    /**
+     * See {@link #debug(Logger, String, Object)}, for a format with two {}.
+     */
+    public static void debug(Logger logger, int level, String format, Object arg1, Object arg2) {
         if (logger.isDebugEnabled()) {
-            logger.debug(output);
+            logger.debug(getMessage(level, format, arg1, arg2, NONE));
         }
     }
 
@@ -40,12 +63,83 @@ public class LogUtil {
     }
 
     public static void trace(Logger logger, int level, String output) {
-        if (level > 0) {
-            output = "L" + level + ": " + output;
+        if (logger.isTraceEnabled()) {
+            logger.trace(getMessage(level, output, NONE, NONE, NONE));
+        }
+    }
+
+    /**
+     * Logs a trace message with the {} in the format replaced by the argument.
+     * The message is only put together if trace is enabled, so nothing is allocated when it is not.
+     * The arguments should be values that are already there, not strings built for the message.
+     */
+    public static void trace(Logger logger, String format, Object arg) {
+        trace(logger, 0, format, arg, NONE, NONE);
+    }
+
+    /**
+     * See {@link #trace(Logger, String, Object)}, the int is not boxed unless trace is enabled.
+     */
+    public static void trace(Logger logger, String format, int arg) {
+        if (logger.isTraceEnabled()) {
+            logger.trace(getMessage(0, format, arg, NONE, NONE));
+        }
+    }
+
+    /**
+     * See {@link #trace(Logger, String, Object)}.
+     */
+    public static void trace(Logger logger, int level, String format, Object arg) {
+        trace(logger, level, format, arg, NONE, NONE);
+    }
+
+    /**
+     * See {@link #trace(Logger, String, Object)}, for a format with two {}.
+     */
+    public static void trace(Logger logger, int level, String format, Object arg1, Object arg2) {
+        trace(logger, level, format, arg1, arg2, NONE);
+    }
+
+    /**
+     * See {@link #trace(Logger, String, Object)}, for a format with three {}.
+     */
+    public static void trace(Logger logger, int level, String format, Object arg1, Object arg2, Object arg3) {
+        if (logger.isTraceEnabled()) {
+            logger.trace(getMessage(level, format, arg1, arg2, arg3));
         }
+    }
+
+    /**
+     * Logs the code from an index on as {@link #getSingleLineOutput(CharSequence, int, int)}, after a prefix.
+     * The code is only read if trace is enabled.
+     */
+    public static void traceSingleLine(Logger logger, int level, String prefix,
+                                       CharSequence code, int start, int requiredLength) {
         if (logger.isTraceEnabled()) {
-            logger.trace(output);
+            logger.trace(getMessage(level, prefix + ARGUMENT,
+                                    getSingleLineOutput(code, start, requiredLength), NONE, NONE));
+        }
+    }
+
+    /*
+     * Puts the level and the arguments into the message, an argument that is NONE is not used.
+     * A {} without an argument is left as it is.
+     */
+    private static String getMessage(int level, String format, Object arg1, Object arg2, Object arg3) {
+        StringBuilder message = new StringBuilder(format.length() + 32);
+        if (level > 0) {
+            message.append('L').append(level).append(": ");
         }
+        Object[] args = {arg1, arg2, arg3};
+        int argIndex = 0;
+        int last = 0;
+        int index;
+        while (argIndex < args.length && args[argIndex] != NONE &&
+               (index = format.indexOf(ARGUMENT, last)) != -1) {
+            message.append(format, last, index).append(args[argIndex++]);
+            last = index + ARGUMENT.length();
+        }
+        return message.append(format, last, format.length()).toString();
     }
 
     public static String getSingleLineOutput(String code, int requiredLength) {
@@ -58,4 +152,33 @@ public class LogUtil {
                    result.substring(result.length() - (requiredLength/2));
         }
     }
+
+    /**
+     * The same output as {@link #getSingleLineOutput(String, int)} for the code from an index on.
+     * Only the characters that are shown are read, so the cost does not grow with the size of the code.
+     */
+    public static String getSingleLineOutput(CharSequence code, int start, int requiredLength) {
+        int half = requiredLength / 2 - 1;
+        StringBuilder head = new StringBuilder("[");
+        int index = start;
+        while (index < code.length() && head.length() < requiredLength - 1) {
+            if (code.charAt(index) != '\n') {
+                head.append(code.charAt(index));
+            }
+            index++;
+        }
+        if (index == code.length() && head.length() < requiredLength - 1) {
+            return head.append(']').toString();
+        }
+        StringBuilder tail = new StringBuilder("]");
+        index = code.length() - 1;
+        while (index >= start && tail.length() <= half) {
+            if (code.charAt(index) != '\n') {
+                tail.append(code.charAt(index));
+            }
+            index--;
+        }
+        head.setLength(half + 1);
+        return head.append(" ... ").append(tail.reverse()).toString();
+    }
 }
@@ -0,0 +1,70 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.utils;
+
+import org.retro.code.converter.exception.CodeConversionException;
+import org.retro.code.converter.xml.v1.types.XCodeSection;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The compiled form of all the loaded templates.
+ * <p/>
+ * It is built once per run from the template contents and is not changed afterwards,
+ * so every code section that uses a template shares the same {@link CompiledTemplate}.
+ */
+public class TemplateCache {
+    public static final String INVALID_TEMPLATE = "No template loaded for template id ";
+
+    private final Map<Integer, CompiledTemplate> compiledTemplates;
+
+    /**
+     * Compiles all the templates.
+     *
+     * @param templates The template contents by ID.
+     */
+    public TemplateCache(Map<Integer, StringBuilder> templates) {
+        Map<Integer, CompiledTemplate> compiled = new LinkedHashMap<Integer, CompiledTemplate>();
+        for (Map.Entry<Integer, StringBuilder> template : templates.entrySet()) {
+            compiled.put(template.getKey(), CompiledTemplate.compile(template.getValue()));
+        }
+        compiledTemplates = Collections.unmodifiableMap(compiled);
+    }
+
+    /**
+     * Gets the compiled template of a code section.
+     *
+     * @param codeSection The code section.
+     * @return The compiled template, {@link CompiledTemplate#EMPTY} if the code section has no template.
+     * @throws CodeConversionException If no template is loaded for the template ID of the code section.
+     */
+    public CompiledTemplate get(XCodeSection codeSection) throws CodeConversionException {
+        if (codeSection.getTemplateId() == null || codeSection.getTemplateId() <= 0) {
+            return CompiledTemplate.EMPTY;
+        }
+        CompiledTemplate compiledTemplate = compiledTemplates.get(codeSection.getTemplateId());
+        if (compiledTemplate == null) {
+            throw new CodeConversionException(new Throwable(INVALID_TEMPLATE + codeSection.getTemplateId()));
+        }
+        return compiledTemplate;
+    }
+
+    /**
+     * @return The number of compiled templates.
+     */
+    public int size() {
+        return compiledTemplates.size();
+    }
+}
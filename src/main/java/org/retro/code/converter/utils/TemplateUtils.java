@@ -23,6 +23,16 @@ public class TemplateUtils {
     private static final Logger logger = Logger.getLogger(TemplateUtils.class);
     public static final String CONTENTS_MARKER = "##_CONTENTS_##";
 
+    /**
+     * Compiles the templates once, so that they are split at their contents marker only once per run.
+     *
+     * @param templates All the templates loaded for this conversion.
+     * @return The compiled templates.
+     */
+    public static TemplateCache compileTemplates(Map<Integer, StringBuilder> templates) {
+        return new TemplateCache(templates);
+    }
+
     /**
      * This function gets the first part of the template to add to the
      * code map as it is being created. It is added to the first position.
@@ -32,15 +42,8 @@ public class TemplateUtils {
      * @return The first part of the template, up to the content marker.
      *         If there is not content marker, then an empty string is returned.
      */
-    public static String getTemplatePreamble(XCodeSection codeSection, Map<Integer, StringBuilder> templates) {
-        if (codeSection.getTemplateId() == null || codeSection.getTemplateId() <= 0) {
-            return "";
-        }
-        StringBuilder template = templates.get(codeSection.getTemplateId());
-        if (template.indexOf(CONTENTS_MARKER) == -1) {
-            return "";
-        }
-        return template.substring(0, template.indexOf(CONTENTS_MARKER));
+    public static String getTemplatePreamble(XCodeSection codeSection, TemplateCache templates) {
+        return templates.get(codeSection).getPreamble();
     }
 
     /**
@@ -52,15 +55,8 @@ public class TemplateUtils {
      * @return The end part of the template, after the content marker.
      *         If there is not content marker, then an empty string is returned.
      */
-    public static String getTemplatePostamble(XCodeSection codeSection, Map<Integer, StringBuilder> templates) {
-        if (codeSection.getTemplateId() == null || codeSection.getTemplateId() <= 0) {
-            return "";
-        }
-        StringBuilder template = templates.get(codeSection.getTemplateId());
-        if (template.indexOf(CONTENTS_MARKER) == -1) {
-            return "";
-        }
-        return template.substring(template.indexOf(CONTENTS_MARKER) + CONTENTS_MARKER.length());
+    public static String getTemplatePostamble(XCodeSection codeSection, TemplateCache templates) {
+        return templates.get(codeSection).getPostamble();
     }
 
 }
@@ -11,12 +11,10 @@
 
 package org.retro.code.converter.utils;
 
+import org.retro.code.converter.execution.translation.CompiledTranslation;
 import org.retro.code.converter.xml.v1.types.XTranslateEntry;
-import org.retro.code.converter.xml.v1.types.XTranslationOperationType;
 
 import java.util.Collection;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Translates (substitutes) regex strings to another strings.
@@ -25,6 +23,9 @@ public class TranslationUtils {
 
     /**
      * Translates all the supplied translation entries against the supplied code.
+     * The entries are compiled for this call only; the conversion itself uses the
+     * {@link org.retro.code.converter.execution.translation.TranslationPlan} that is
+     * compiled once by the translations loader.
      *
      * @param source           The code to translate
      * @param translateEntries The translation entries
@@ -34,42 +35,9 @@ public class TranslationUtils {
 
         String target = source;
         for (XTranslateEntry translateEntry : translateEntries) {
-            if (translateEntry.getOperation() == null ||
-                translateEntry.getOperation() == XTranslationOperationType.REPLACE) {
-                target = performReplacement(target, translateEntry.getFromRegex(), translateEntry.getToString(),
-                                           translateEntry.isProcessOnce());
-            } else {
-                target = regexReplace(target, translateEntry);
-            }
+            target = CompiledTranslation.compile(translateEntry).apply(target);
         }
         return target;
     }
 
-    private static String performReplacement(String source, String regexFrom, String toString, boolean single) {
-        if (single) {
-            return source.replaceFirst(regexFrom, toString);
-        }
-        return source.replaceAll(regexFrom, toString);
-    }
-
-    private static String regexReplace(String source, XTranslateEntry translateEntry) {
-        Pattern p = Pattern.compile(translateEntry.getFromRegex());
-        Matcher matcher = p.matcher(source);
-        if (matcher.find()) {
-            String toString = source.substring(matcher.start(), matcher.end());
-            if (translateEntry.getOperation() == XTranslationOperationType.ALL_UPPER) {
-                toString = toString.toUpperCase();
-            } else {
-                toString = toString.toLowerCase();
-            }
-            if (translateEntry.isProcessOnce()) {
-                return source.substring(0, matcher.start()) + toString + source.substring(matcher.end());
-            } else {
-                return source.substring(0, matcher.start()) + toString +
-                       regexReplace(source.substring(matcher.end()), translateEntry);
-            }
-        }
-        return source;
-    }
-
 }
@@ -13,7 +13,10 @@ package org.retro.code.converter.xml;
 
 import org.retro.code.converter.utils.LogUtil;
 import org.apache.log4j.Logger;
+import org.retro.code.converter.exception.ExecutionException;
 import org.retro.code.converter.exception.XMLMarshalException;
+import org.retro.code.converter.regex.RegexCostAnalyzer;
+import org.retro.code.converter.regex.RegexCostReport;
 import org.retro.code.converter.xml.v1.types.XCodeConversionFileType;
 import org.retro.code.converter.xml.v1.types.XCodeSection;
 import org.retro.code.converter.xml.v1.types.XCodeSectionList;
@@ -35,9 +38,12 @@ import java.util.List;
 public class CodeConversionsLoader {
 
     private static final Logger logger = Logger.getLogger(CodeConversionsLoader.class);
+    public static final String COSTLY_REGEX = "Regexes that can backtrack exponentially found in the conversion files: ";
     private List<XCodeConversionFileType> codeConversionTypes = new LinkedList<XCodeConversionFileType>();
     private List<XCodeSection> codeSectionList = new LinkedList<XCodeSection>();
     private TransformLoader transformLoader;
+    private boolean strictRegexCheck;
+    private RegexCostReport regexCostReport = new RegexCostReport();
 
     /**
      * The code conversions constructor.
@@ -53,26 +59,69 @@ public class CodeConversionsLoader {
         this.transformLoader = transformLoader;
     }
 
+    /**
+     * Sets whether the conversion is refused if a regex can backtrack exponentially.
+     * @param strictRegexCheck True to fail the load on a HIGH regex cost warning, false to only log the warnings.
+     */
+    public void setStrictRegexCheck(boolean strictRegexCheck) {
+        this.strictRegexCheck = strictRegexCheck;
+    }
+
     /**
      * Loads all the XML conversion files, which are declared in the setting file.
+     * The regexes of the code sections are checked by the {@link RegexCostAnalyzer} and the warnings are logged.
      *
      * @param fileNames The file names to load
      * @throws XMLMarshalException The wrapped Marshal exception.
+     * @throws ExecutionException If the strict regex check is on and a regex can backtrack exponentially.
      */
-    public void load(XFileNameEntryList fileNames) throws XMLMarshalException {
+    public void load(XFileNameEntryList fileNames) throws XMLMarshalException, ExecutionException {
+        RegexCostReport report = new RegexCostReport();
         for (String fileName : fileNames.getFileName()) {
             Object conversionFile = XMLUtils.unmarshal(transformLoader.getSettingsFolder() +
                                                        fileName, XCodeConversionFileType.class);
             if (conversionFile instanceof XCodeConversionFileType) {
                 codeConversionTypes.add((XCodeConversionFileType) conversionFile);
+                analyzeRegexes(report, fileName, ((XCodeConversionFileType) conversionFile).getCodeSections());
             }
             if (conversionFile instanceof XCodeSectionList) {
                 for (XCodeSection codeSection : ((XCodeSectionList) conversionFile).getCodeSection()) {
                     codeSectionList.add(codeSection);
                 }
+                analyzeRegexes(report, fileName, (XCodeSectionList) conversionFile);
             }
             LogUtil.debug(logger, "Loaded conversion file: " + transformLoader.getSettingsFolder() + fileName);
         }
+        regexCostReport = report;
+        if (!report.isEmpty()) {
+            logger.warn(report.getReport());
+        }
+        if (strictRegexCheck && report.getCount(RegexCostAnalyzer.Severity.HIGH) > 0) {
+            throw new ExecutionException(new Throwable(COSTLY_REGEX + report.getCount(RegexCostAnalyzer.Severity.HIGH)));
+        }
+    }
+
+    /*
+     * Only searchStart is searched for again after a match, when processOnce is false.
+     */
+    private void analyzeRegexes(RegexCostReport report, String fileName, XCodeSectionList codeSections) {
+        if (codeSections == null) {
+            return;
+        }
+        for (XCodeSection codeSection : codeSections.getCodeSection()) {
+            String location = fileName + " code section " + codeSection.getId();
+            boolean processOnce = codeSection.isProcessOnce() == null || codeSection.isProcessOnce();
+            report.analyze(location + " searchStart", codeSection.getSearchStart(), processOnce);
+            report.analyze(location + " searchEnd", codeSection.getSearchEnd(), true);
+            analyzeRegexes(report, fileName, codeSection.getCodeSections());
+        }
+    }
+
+    /**
+     * @return The regex cost warnings of the last load.
+     */
+    public RegexCostReport getRegexCostReport() {
+        return regexCostReport;
     }
 
     /**
@@ -12,16 +12,31 @@
 package org.retro.code.converter.xml;
 
 import org.apache.log4j.Logger;
+import org.retro.code.converter.exception.ExecutionException;
 import org.retro.code.converter.exception.TranslationIdException;
 import org.retro.code.converter.exception.XMLMarshalException;
+import org.retro.code.converter.execution.translation.TranslationCache;
+import org.retro.code.converter.execution.translation.TranslationChain;
+import org.retro.code.converter.execution.translation.TranslationPlan;
+import org.retro.code.converter.regex.RegexCostAnalyzer;
+import org.retro.code.converter.regex.RegexCostReport;
+import org.retro.code.converter.regex.RegexPrefilter;
+import org.retro.code.converter.regex.SearchRegexes;
 import org.retro.code.converter.utils.LogUtil;
 import org.retro.code.converter.xml.v1.types.XFileNameEntryList;
+import org.retro.code.converter.xml.v1.types.XIdList;
+import org.retro.code.converter.xml.v1.types.XRegexEngineType;
 import org.retro.code.converter.xml.v1.types.XTranslateEntry;
 import org.retro.code.converter.xml.v1.types.XTranslationFileType;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The class responsible for loading all translations.
@@ -29,9 +44,20 @@ import java.util.List;
 public class TranslationsLoader {
     private static final Logger logger = Logger.getLogger(TranslationsLoader.class);
     public static final String INVALID_TRANSLATION_ID = "Translation not found for id(s): ";
+    public static final String DUPLICATE_TRANSLATION_ID = "Translation id declared more than once: ";
+    public static final String COSTLY_REGEX = "Regexes that can backtrack exponentially found in the translation files: ";
+    public static final long DEFAULT_TRANSLATION_CACHE_SIZE = 32L * 1024 * 1024;
 
     private final List<XTranslationFileType> translationTypes = new LinkedList<XTranslationFileType>();
     private TransformLoader transformLoader;
+    private TranslationPlan translationPlan = new TranslationPlan(Collections.<XTranslationFileType>emptyList());
+    private Map<Integer, XTranslateEntry> translationIndex = new HashMap<Integer, XTranslateEntry>();
+    private final Map<XIdList, TranslationChain> chainsByList = new IdentityHashMap<XIdList, TranslationChain>();
+    private final Map<List<Integer>, TranslationChain> chainsByIds = new HashMap<List<Integer>, TranslationChain>();
+    private TranslationCache translationCache = new TranslationCache(DEFAULT_TRANSLATION_CACHE_SIZE);
+    private boolean strictRegexCheck;
+    private RegexCostReport regexCostReport = new RegexCostReport();
+    private SearchRegexes searchRegexes = new SearchRegexes(null);
 
     public TranslationsLoader() {
     }
@@ -40,27 +66,147 @@ public class TranslationsLoader {
         this.transformLoader = transformLoader;
     }
 
+    /**
+     * Sets the memory budget of the cache of translated code.
+     *
+     * @param translationCacheSize The budget in bytes, 0 disables the cache.
+     */
+    public void setTranslationCacheSize(long translationCacheSize) {
+        this.translationCache = new TranslationCache(translationCacheSize);
+    }
+
+    /**
+     * Sets whether the conversion is refused if a regex can backtrack exponentially.
+     *
+     * @param strictRegexCheck True to fail the load on a HIGH regex cost warning, false to only log the warnings.
+     */
+    public void setStrictRegexCheck(boolean strictRegexCheck) {
+        this.strictRegexCheck = strictRegexCheck;
+    }
+
     /**
      * Loads the translation files specified in the settings xml file.
+     * Once all the files are loaded the translations are compiled into the translation plan.
+     * The search regexes of the code sections compiled before are dropped, the next run compiles its own.
+     * The regexes are checked by the {@link RegexCostAnalyzer} and the warnings are logged.
      *
-     * @param fileNames A list of file names
+     * @param fileNames   A list of file names
+     * @param regexEngine The regex engine of the transform file, used for the translations and
+     *                    code sections that do not configure one, null for JAVA.
      * @throws XMLMarshalException A wrapped marshal error.
+     * @throws TranslationIdException If an ID is declared more than once or a translation does not compile.
+     * @throws ExecutionException If the strict regex check is on and a regex can backtrack exponentially.
      */
-    public void load(XFileNameEntryList fileNames) throws XMLMarshalException {
+    public void load(XFileNameEntryList fileNames, XRegexEngineType regexEngine) throws XMLMarshalException, TranslationIdException, ExecutionException {
+        RegexCostReport report = new RegexCostReport();
         for (String name : fileNames.getFileName()) {
             final XTranslationFileType translationFileType = (XTranslationFileType) XMLUtils.unmarshal(transformLoader.getSettingsFolder() +
                                                                                                        name, XTranslationFileType.class);
             translationTypes.add(translationFileType);
             LogUtil.debug(logger, "Loaded translation file " + transformLoader.getSettingsFolder() + name);
             for (XTranslateEntry entry : translationFileType.getTranslations().getTranslateItem()) {
-                LogUtil.trace(logger, "Loaded translation ID=" + entry.getId() + " : " + entry.getFromRegex());
+                LogUtil.trace(logger, 0, "Loaded translation ID={} : {}", entry.getId(), entry.getFromRegex());
+                report.analyze(name + " translation id " + entry.getId(), entry.getFromRegex(),
+                               entry.isProcessOnce() == null || entry.isProcessOnce());
+            }
+        }
+        indexTranslations();
+        translationPlan = new TranslationPlan(translationTypes, regexEngine);
+        searchRegexes = new SearchRegexes(regexEngine);
+        LogUtil.debug(logger, "Compiled " + translationPlan.size() + " translations, " +
+                              translationPlan.getLiteralCount() + " of them literal");
+        regexCostReport = report;
+        if (!report.isEmpty()) {
+            logger.warn(report.getReport());
+        }
+        if (strictRegexCheck && report.getCount(RegexCostAnalyzer.Severity.HIGH) > 0) {
+            throw new ExecutionException(new Throwable(COSTLY_REGEX + report.getCount(RegexCostAnalyzer.Severity.HIGH)));
+        }
+    }
+
+    /**
+     * @return The regex cost warnings of the last load.
+     */
+    public RegexCostReport getRegexCostReport() {
+        return regexCostReport;
+    }
+
+    /*
+     * Rebuilds the ID index and sets the defaults of toString and processOnce, the cached chains are dropped.
+     */
+    private void indexTranslations() throws TranslationIdException {
+        Map<Integer, XTranslateEntry> index = new HashMap<Integer, XTranslateEntry>();
+        for (XTranslationFileType translationFileType : translationTypes) {
+            for (XTranslateEntry translateEntry : translationFileType.getTranslations().getTranslateItem()) {
+                if (index.put(translateEntry.getId(), translateEntry) != null) {
+                    throw new TranslationIdException(new Throwable(DUPLICATE_TRANSLATION_ID + translateEntry.getId()));
+                }
+                if (translateEntry.getToString() == null) {
+                    translateEntry.setToString("");
+                }
+                if (translateEntry.isProcessOnce() == null) {
+                    translateEntry.setProcessOnce(true);
+                }
             }
         }
+        synchronized (this) {
+            translationIndex = index;
+            chainsByList.clear();
+            chainsByIds.clear();
+        }
+        translationCache.clear();
+    }
+
+    /**
+     * The translation plan holds the compiled regexes and replacements of all the loaded translations.
+     *
+     * @return The plan compiled by the last load, or an empty plan if nothing has been loaded.
+     */
+    public TranslationPlan getTranslationPlan() {
+        return translationPlan;
     }
 
     /**
-     * This function looks up the IDs specified and checks to see if they are
-     * declared in the translation files.
+     * Translates a piece of code with the translations of a code section.
+     * The result is taken from the translation cache if the same code was translated before.
+     *
+     * @param code            The code to translate.
+     * @param translationList The translation IDs of the code section, may be null.
+     * @return The translated code.
+     * @throws TranslationIdException if an ID is not declared in any of the files.
+     */
+    public String translate(String code, XIdList translationList) throws TranslationIdException {
+        return translationCache.translate(getTranslationChain(translationList), code);
+    }
+
+    /**
+     * @return The cache of translated code.
+     */
+    public TranslationCache getTranslationCache() {
+        return translationCache;
+    }
+
+    /**
+     * The search regexes of the code sections, they are compiled with the code sections of the run.
+     *
+     * @return The search regexes of the last load.
+     */
+    public SearchRegexes getSearchRegexes() {
+        return searchRegexes;
+    }
+
+    /**
+     * @return The prefilters of the regexes of the loaded translations and of the compiled search regexes,
+     *         for the report of the run.
+     */
+    public List<RegexPrefilter> getRegexPrefilters() {
+        List<RegexPrefilter> prefilters = new ArrayList<RegexPrefilter>(translationPlan.getPrefilters());
+        prefilters.addAll(searchRegexes.getPrefilters());
+        return prefilters;
+    }
+
+    /**
+     * Looks up the IDs specified in the index of the loaded translations.
      * <p/>
      * Note: The actual IDs in the translation files need to be unique across the files.
      *
@@ -69,44 +215,51 @@ public class TranslationsLoader {
      *         The IDs may span across many files.
      * @throws TranslationIdException if the ID is not declared in any of the files.
      */
-    public Collection<XTranslateEntry> getTranslationEntries(Collection<Integer> ids)
+    public List<XTranslateEntry> getTranslationEntries(Collection<Integer> ids)
     throws TranslationIdException {
-        Collection<XTranslateEntry> translateEntries = new LinkedList<XTranslateEntry>();
-        if (ids != null) {
-            List<Integer> allIDs = new LinkedList<Integer>();
-            for (XTranslationFileType translationFileType : translationTypes) {
-                for (XTranslateEntry translateEntry : translationFileType.getTranslations().getTranslateItem()) {
-                    allIDs.add(translateEntry.getId());
-                    // set defaults on toString and processOnce
-                    if (translateEntry.getToString() == null) {
-                        translateEntry.setToString("");
-                    }
-                    if (translateEntry.isProcessOnce() == null) {
-                        translateEntry.setProcessOnce(true);
-                    }
-                }
-            }
-            if (!allIDs.containsAll(ids)) {
-                Collection<Integer> unknownIDs = new LinkedList<Integer>(ids);
-                unknownIDs.removeAll(allIDs);
-                String idString = "";
-                for (int id : unknownIDs) {
-                    idString += id + " ";
-                }
-                throw new TranslationIdException(new Throwable(INVALID_TRANSLATION_ID + idString));
-            }
-            for (int id  : ids) {
-                for (XTranslationFileType translationFileType : translationTypes) {
-                    for (XTranslateEntry translateEntry : translationFileType.getTranslations().getTranslateItem()) {
-                        if (translateEntry.getId() == id) {
-                            translateEntries.add(translateEntry);
-                            break;
-                        }
-                    }
-                }
+        if (ids == null) {
+            return new ArrayList<XTranslateEntry>();
+        }
+        List<XTranslateEntry> translateEntries = new ArrayList<XTranslateEntry>(ids.size());
+        String idString = "";
+        for (Integer id : ids) {
+            XTranslateEntry translateEntry = translationIndex.get(id);
+            if (translateEntry == null) {
+                idString += id + " ";
+            } else {
+                translateEntries.add(translateEntry);
             }
         }
+        if (!idString.isEmpty()) {
+            throw new TranslationIdException(new Throwable(INVALID_TRANSLATION_ID + idString));
+        }
         return translateEntries;
     }
 
+    /**
+     * Gets the compiled translations for the ID list of a code section.
+     * The chain is resolved on the first call and returned from the cache for the same list afterwards,
+     * ID lists with the same IDs share one chain.
+     *
+     * @param translationList The translation IDs of the code section, may be null.
+     * @return The translation chain, empty if there are no IDs.
+     * @throws TranslationIdException if an ID is not declared in any of the files.
+     */
+    public synchronized TranslationChain getTranslationChain(XIdList translationList) throws TranslationIdException {
+        if (translationList == null) {
+            return TranslationChain.EMPTY;
+        }
+        TranslationChain chain = chainsByList.get(translationList);
+        if (chain == null) {
+            List<Integer> ids = new ArrayList<Integer>(translationList.getId());
+            chain = chainsByIds.get(ids);
+            if (chain == null) {
+                chain = translationPlan.getTranslationChain(getTranslationEntries(ids));
+                chainsByIds.put(ids, chain);
+            }
+            chainsByList.put(translationList, chain);
+        }
+        return chain;
+    }
+
 }
@@ -0,0 +1,102 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.convert.types;
+
+import org.retro.code.converter.regex.CompiledRegex;
+import org.retro.code.converter.regex.RegexBudget;
+import org.retro.code.converter.regex.RegexMatcher;
+
+/**
+ * Times the search for every searchStart of a code section with processOnce false, on sources of doubling size.
+ * The search the way {@link Code} does it, with one matcher moved on with a region, should take about the same
+ * time per match as the source grows. A search on a copy of the rest of the code is shown next to it,
+ * its time per match grows with the size of the source.
+ * <p/>
+ * It is not run by the unit tests, start it with the test classpath:
+ * java org.retro.code.converter.execution.convert.types.CodeSearchBenchmark
+ */
+public class CodeSearchBenchmark {
+    private static final String      LINE = "    logger.debug(\"value \" + value);\n";
+    private static final String      SEARCH_START = "logger\\.debug\\(";
+    private static final RegexBudget BUDGET = RegexBudget.of("benchmark", null);
+    private static final int         RUNS = 5;
+    private static final int         WARM_UP = 20;
+
+    public static void main(String[] args) {
+        CompiledRegex search = CompiledRegex.compile(SEARCH_START, null);
+        StringBuilder warmUp = createSource(2000);
+        for (int i = 0; i < WARM_UP; i++) {
+            searchRegion(search, warmUp);
+            searchCopy(search, warmUp);
+        }
+
+        for (int lines = 1000; lines <= 16000; lines *= 2) {
+            StringBuilder code = createSource(lines);
+            long region = time(search, code, true);
+            long copy = time(search, code, false);
+            System.out.println(String.format("%8d matches %10d chars region %8.2f ms %8.1f ns/match" +
+                                             "    copy %10.2f ms %10.1f ns/match",
+                                             lines, code.length(), region / 1e6, (double) region / lines,
+                                             copy / 1e6, (double) copy / lines));
+        }
+    }
+
+    private static long time(CompiledRegex search, StringBuilder code, boolean region) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            int matches = region ? searchRegion(search, code) : searchCopy(search, code);
+            best = Math.min(best, System.nanoTime() - start);
+            if (matches == 0) {
+                throw new IllegalStateException("No matches");
+            }
+        }
+        return best;
+    }
+
+    private static int searchRegion(CompiledRegex search, StringBuilder code) {
+        CharSequence text = BUDGET.wrap(code);
+        RegexMatcher matcher = search.getPattern().matcher(text);
+        int startIndex = 0;
+        int matches = 0;
+        while (true) {
+            BUDGET.restart(text);
+            if (!search.mayMatch(code, startIndex) || !matcher.region(startIndex, text.length()).find()) {
+                return matches;
+            }
+            matches++;
+            startIndex = matcher.end();
+        }
+    }
+
+    private static int searchCopy(CompiledRegex search, StringBuilder code) {
+        int startIndex = 0;
+        int matches = 0;
+        while (true) {
+            String rest = code.substring(startIndex);
+            RegexMatcher matcher = search.getPattern().matcher(BUDGET.wrap(rest));
+            if (!search.mayMatch(rest) || !matcher.find()) {
+                return matches;
+            }
+            matches++;
+            startIndex += matcher.end();
+        }
+    }
+
+    private static StringBuilder createSource(int lines) {
+        StringBuilder source = new StringBuilder(lines * LINE.length());
+        for (int i = 0; i < lines; i++) {
+            source.append(LINE);
+        }
+        return source;
+    }
+}
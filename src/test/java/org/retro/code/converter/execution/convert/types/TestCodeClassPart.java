@@ -22,7 +22,6 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
-import static org.mockito.Mockito.mock;
 
 /**
  * This test keeps the name of the class (the first contents marker) and changes the type of the class.
@@ -101,8 +100,8 @@ public class TestCodeClassPart {
         outerSection.setTranslations(new XIdList());
         outerSection.setProcessOnce(true);
 
-        TranslationsLoader transMock = mock(TranslationsLoader.class);
-        Code code = new Code(transMock, new LinkedHashMap<Integer, StringBuilder>());
+        TranslationsLoader translationsLoader = new TranslationsLoader();
+        Code code = new Code(translationsLoader, new LinkedHashMap<Integer, StringBuilder>());
         Map<Integer, StringBuilder> result = new LinkedHashMap<Integer, StringBuilder>();
         code.convert(new StringBuilder(SOURCE_CLASS), outerSection, result);
         assertEquals(EXPECTED_CLASS_OUTPUT, result.get(1).toString());
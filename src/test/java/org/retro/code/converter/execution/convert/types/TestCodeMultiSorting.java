@@ -24,7 +24,6 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
-import static org.mockito.Mockito.mock;
 
 /**
  * This test will sort the source code sections into a different order
@@ -51,7 +50,7 @@ public class TestCodeMultiSorting {
     private static final XCodeSection CODE_SECTION_2 = new XCodeSection();
     private static final XCodeSection CONTAINER = new XCodeSection();
 
-    private static final TranslationsLoader TRANS_MOCK = mock(TranslationsLoader.class);
+    private static final TranslationsLoader TRANSLATIONS_LOADER = new TranslationsLoader();
 
     @Before
     public void init() {
@@ -90,7 +89,7 @@ public class TestCodeMultiSorting {
 
     @Test
     public void testSimpleMultiTargets() {
-        Code code = new Code(TRANS_MOCK, new LinkedHashMap<Integer, StringBuilder>());
+        Code code = new Code(TRANSLATIONS_LOADER, new LinkedHashMap<Integer, StringBuilder>());
         Map<Integer, StringBuilder> result = new LinkedHashMap<Integer, StringBuilder>();
         code.convert(new StringBuilder(SOURCE_CLASS), CONTAINER, result);
         assertEquals(EXPECTED, result.get(1).toString());
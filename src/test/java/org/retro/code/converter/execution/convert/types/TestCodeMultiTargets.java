@@ -23,7 +23,6 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
-import static org.mockito.Mockito.mock;
 
 /**
  * This test tests the situation where there are many targets from a single source.
@@ -49,7 +48,7 @@ public class TestCodeMultiTargets {
     private static final XCodeSection CODE_SECTION_2 = new XCodeSection();
     private static final XCodeSection CONTAINER = new XCodeSection();
 
-    private static final TranslationsLoader TRANS_MOCK = mock(TranslationsLoader.class);
+    private static final TranslationsLoader TRANSLATIONS_LOADER = new TranslationsLoader();
 
     @Before
     public void init() {
@@ -87,7 +86,7 @@ public class TestCodeMultiTargets {
 
     @Test
     public void testSimpleThreeTargets() {
-        Code code = new Code(TRANS_MOCK, new LinkedHashMap<Integer, StringBuilder>());
+        Code code = new Code(TRANSLATIONS_LOADER, new LinkedHashMap<Integer, StringBuilder>());
         Map<Integer, StringBuilder> result = new LinkedHashMap<Integer, StringBuilder>();
         code.convert(new StringBuilder(SOURCE_CLASS), CONTAINER, result);
         assertEquals(EXPECTED_1, result.get(1).toString());
@@ -97,7 +96,7 @@ public class TestCodeMultiTargets {
 
     @Test
     public void testSimpleTwoTargets() {
-        Code code = new Code(TRANS_MOCK, new LinkedHashMap<Integer, StringBuilder>());
+        Code code = new Code(TRANSLATIONS_LOADER, new LinkedHashMap<Integer, StringBuilder>());
         CONTAINER.setRemoveSearch(true);
         CODE_SECTION_1.setTargetFileId(1);
         CODE_SECTION_2.setTargetFileId(2);
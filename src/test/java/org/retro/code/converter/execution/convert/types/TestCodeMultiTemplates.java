@@ -24,7 +24,6 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
-import static org.mockito.Mockito.mock;
 
 /**
  * This test wraps the output to many targets with templates.
@@ -50,7 +49,7 @@ public class TestCodeMultiTemplates {
     private static final XCodeSection CODE_SECTION_2 = new XCodeSection();
     private static final XCodeSection CONTAINER = new XCodeSection();
 
-    private static final TranslationsLoader TRANS_MOCK = mock(TranslationsLoader.class);
+    private static final TranslationsLoader TRANSLATIONS_LOADER = new TranslationsLoader();
 
     @Before
     public void init() {
@@ -93,7 +92,7 @@ public class TestCodeMultiTemplates {
         final LinkedHashMap<Integer, StringBuilder> templates = new LinkedHashMap<Integer, StringBuilder>();
         templates.put(1, new StringBuilder(TEMPLATE_1));
         templates.put(2, new StringBuilder(TEMPLATE_2));
-        Code code = new Code(TRANS_MOCK, templates);
+        Code code = new Code(TRANSLATIONS_LOADER, templates);
         Map<Integer, StringBuilder> result = new LinkedHashMap<Integer, StringBuilder>();
         code.convert(new StringBuilder(SOURCE_CLASS), CONTAINER, result);
         assertEquals(EXPECTED_1, result.get(1).toString());
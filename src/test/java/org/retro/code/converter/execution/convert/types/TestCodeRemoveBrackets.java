@@ -22,7 +22,6 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
-import static org.mockito.Mockito.mock;
 
 /**
  * This test removes the brackets (both round and curly) from a class and statement.
@@ -79,8 +78,8 @@ public class TestCodeRemoveBrackets {
         cls.setRemoveBrackets(true);
         cls.setRemoveSearch(true);
 
-        TranslationsLoader transMock = mock(TranslationsLoader.class);
-        Code code = new Code(transMock, new LinkedHashMap<Integer, StringBuilder>());
+        TranslationsLoader translationsLoader = new TranslationsLoader();
+        Code code = new Code(translationsLoader, new LinkedHashMap<Integer, StringBuilder>());
         Map<Integer, StringBuilder> result = new LinkedHashMap<Integer, StringBuilder>();
         code.convert(new StringBuilder(SOURCE_CLASS), cls, result);
         assertEquals(EXPECTED_CLASS_OUTPUT, result.get(1).toString());
@@ -99,8 +98,8 @@ public class TestCodeRemoveBrackets {
         stmt.setRemoveBrackets(true);
         stmt.setRemoveSearch(true);
 
-        TranslationsLoader transMock = mock(TranslationsLoader.class);
-        Code code = new Code(transMock, new LinkedHashMap<Integer, StringBuilder>());
+        TranslationsLoader translationsLoader = new TranslationsLoader();
+        Code code = new Code(translationsLoader, new LinkedHashMap<Integer, StringBuilder>());
         Map<Integer, StringBuilder> result = new LinkedHashMap<Integer, StringBuilder>();
         code.convert(new StringBuilder(SOURCE_STATEMENT_1), stmt, result);
         assertEquals(EXPECTED_STATEMENT_OUTPUT_1, result.get(1).toString());
@@ -163,8 +162,8 @@ public class TestCodeRemoveBrackets {
         container.getCodeSections().getCodeSection().add(stmt1);
         container.getCodeSections().getCodeSection().add(stmt2);
 
-        TranslationsLoader transMock = mock(TranslationsLoader.class);
-        Code code = new Code(transMock, new LinkedHashMap<Integer, StringBuilder>());
+        TranslationsLoader translationsLoader = new TranslationsLoader();
+        Code code = new Code(translationsLoader, new LinkedHashMap<Integer, StringBuilder>());
         Map<Integer, StringBuilder> result = new LinkedHashMap<Integer, StringBuilder>();
         code.convert(new StringBuilder(SOURCE_STATEMENT_2), container, result);
         assertEquals(EXPECTED_STATEMENT_OUTPUT_2, result.get(1).toString());
@@ -20,7 +20,6 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
-import static org.mockito.Mockito.mock;
 
 /**
  *
@@ -57,8 +56,8 @@ public class TestCodeSimple {
         codeSection.setTitle("TITLE");
         codeSection.setTranslations(new XIdList());
 
-        TranslationsLoader transMock = mock(TranslationsLoader.class);
-        Code code = new Code(transMock, new LinkedHashMap<Integer, StringBuilder>());
+        TranslationsLoader translationsLoader = new TranslationsLoader();
+        Code code = new Code(translationsLoader, new LinkedHashMap<Integer, StringBuilder>());
         Map<Integer, StringBuilder> result = new LinkedHashMap<Integer, StringBuilder>();
         code.convert(new StringBuilder(SOURCE), codeSection, result);
         assertEquals(EXPECTED_OUTPUT, result.get(1).toString());
@@ -12,23 +12,30 @@
 package org.retro.code.converter.execution.convert.types;
 
 import org.junit.Test;
+import org.retro.code.converter.execution.translation.TranslationPlan;
 import org.retro.code.converter.xml.TranslationsLoader;
 import org.retro.code.converter.xml.v1.types.XCodeSection;
 import org.retro.code.converter.xml.v1.types.XIdList;
+import org.retro.code.converter.xml.v1.types.XTranslateEntry;
+import org.retro.code.converter.xml.v1.types.XTranslateList;
+import org.retro.code.converter.xml.v1.types.XTranslationFileType;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
 /**
- * We just need to verify that the translation static is called from the code conversion.
+ * We just need to verify that the compiled translation chain is used by the code conversion.
  */
 
 public class TestCodeTranslations {
 
     private static final String SEARCH_NAME_START = "123";
     private static final String SOURCE = "123";
+    private static final String TRANSLATED = "321";
 
     @Test
     public void testCodeTranslate() {
@@ -39,10 +46,22 @@ public class TestCodeTranslations {
         codeSection.setTargetFileId(1);
         codeSection.setTranslations(translationList);
         codeSection.setSearchStart(SEARCH_NAME_START);
-        TranslationsLoader transMock = mock(TranslationsLoader.class);
-        Code code = new Code(transMock, new LinkedHashMap<Integer, StringBuilder>());
+
+        XTranslateEntry entry = new XTranslateEntry();
+        entry.setId(1);
+        entry.setFromRegex(SOURCE);
+        entry.setToString(TRANSLATED);
+        XTranslationFileType translationFile = new XTranslationFileType();
+        translationFile.setTranslations(new XTranslateList());
+        translationFile.getTranslations().getTranslateItem().add(entry);
+
+        TranslationsLoader transSpy = spy(new TranslationsLoader());
+        TranslationPlan plan = new TranslationPlan(Collections.singletonList(translationFile));
+        doReturn(plan.getTranslationChain(Collections.singletonList(entry))).when(transSpy).getTranslationChain(translationList);
+        Code code = new Code(transSpy, new LinkedHashMap<Integer, StringBuilder>());
         Map<Integer, StringBuilder> result = new LinkedHashMap<Integer, StringBuilder>();
         code.convert(new StringBuilder(SOURCE), codeSection, result);
-        verify(transMock, atLeastOnce()).getTranslationEntries(translationList.getId());
+        verify(transSpy, atLeastOnce()).getTranslationChain(translationList);
+        assertEquals(TRANSLATED, result.get(1).toString());
     }
 }
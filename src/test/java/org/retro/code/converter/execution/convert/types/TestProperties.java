@@ -21,7 +21,6 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
-import static org.mockito.Mockito.mock;
 
 /**
  *
@@ -49,8 +48,8 @@ public class TestProperties {
                                       Properties.KEY + START_STRING +
                                       Properties.VALUE + END_STRING);
 
-        TranslationsLoader transMock = mock(TranslationsLoader.class);
-        Properties properties = new Properties(transMock, new LinkedHashMap<Integer, StringBuilder>());
+        TranslationsLoader translationsLoader = new TranslationsLoader();
+        Properties properties = new Properties(translationsLoader, new LinkedHashMap<Integer, StringBuilder>());
         Map<Integer, StringBuilder> map = new LinkedHashMap<Integer, StringBuilder>();
         properties.convert(source, codeSection, map);
         StringBuilder expected = new StringBuilder(PUBLIC_STATIC_FINAL_STRING);
@@ -73,8 +72,8 @@ public class TestProperties {
         codeSection.setOutputPreamble(PUBLIC_STATIC_FINAL_STRING +
                                       Properties.KEY + START_STRING +
                                       Properties.VALUE + END_STRING);
-        TranslationsLoader transMock = mock(TranslationsLoader.class);
-        Properties properties = new Properties(transMock, new LinkedHashMap<Integer, StringBuilder>());
+        TranslationsLoader translationsLoader = new TranslationsLoader();
+        Properties properties = new Properties(translationsLoader, new LinkedHashMap<Integer, StringBuilder>());
         Map<Integer, StringBuilder> map = new LinkedHashMap<Integer, StringBuilder>();
         properties.convert(source, codeSection, map);
         StringBuilder expected = new StringBuilder(PUBLIC_STATIC_FINAL_STRING);
@@ -0,0 +1,80 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.info;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestBracketIndex {
+
+    private static final String CODE = "f(a, (b)) { if (c) { d(); } } e)";
+
+    @Test
+    public void testFirstOpenAndMatchingClose() {
+        BracketIndex index = new BracketIndex(CODE);
+        assertEquals(1, index.getFirstOpen('(', 0));
+        assertEquals(5, index.getFirstOpen('(', 2));
+        assertEquals(-1, index.getFirstOpen('(', 24));
+        assertEquals(8, index.getMatchingClose('(', 1));
+        assertEquals(CODE.lastIndexOf('}'), index.getMatchingClose('{', CODE.indexOf('{')));
+        assertEquals(-1, index.getMatchingClose('(', 0));
+    }
+
+    @Test
+    public void testClosing() {
+        BracketIndex index = new BracketIndex(CODE);
+        assertEquals(CODE.lastIndexOf(')'), index.getClosing('(', 9, 1));
+        assertEquals(-1, index.getClosing('(', 9, 2));
+        assertEquals(8, index.getClosing('(', 2, 1));
+    }
+
+    @Test
+    public void testSameAsScan() {
+        Random random = new Random(5);
+        char[] chars = {'(', ')', '{', '}', 'a', ' '};
+        for (int run = 0; run < 200; run++) {
+            StringBuilder code = new StringBuilder();
+            int length = random.nextInt(60);
+            for (int i = 0; i < length; i++) {
+                code.append(chars[random.nextInt(chars.length)]);
+            }
+            BracketIndex index = new BracketIndex(code);
+            for (int from = 0; from < code.length(); from++) {
+                for (int count = 1; count < 4; count++) {
+                    assertEquals(code + " " + from, scanClosing(code, '(', ')', from, count),
+                                 index.getClosing('(', from, count));
+                    assertEquals(code + " " + from, scanClosing(code, '{', '}', from, count),
+                                 index.getClosing('{', from, count));
+                }
+                if (code.charAt(from) == '(') {
+                    assertEquals(code + " " + from, scanClosing(code, '(', ')', from + 1, 1),
+                                 index.getMatchingClose('(', from));
+                }
+            }
+        }
+    }
+
+    private static int scanClosing(CharSequence code, char open, char close, int from, int count) {
+        int depth = count;
+        for (int i = from; i < code.length(); i++) {
+            if (code.charAt(i) == open) {
+                depth++;
+            } else if (code.charAt(i) == close && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
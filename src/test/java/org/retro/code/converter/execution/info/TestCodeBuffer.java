@@ -0,0 +1,170 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.info;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TestCodeBuffer {
+
+    private static final String CODE = "class A { void f() { int a; } }";
+
+    @Test
+    public void testSlices() {
+        CodeBuffer codeBuffer = new CodeBuffer(CODE);
+        codeBuffer.appendStartIndex(CODE.indexOf('{'));
+        codeBuffer.setEndIndex(CODE.length() - 1);
+        assertEquals("class A ", codeBuffer.getPreprocessedCode().toString());
+        assertEquals("{ void f() { int a; } ", codeBuffer.getToBeProcessedCode().toString());
+        assertEquals("}", codeBuffer.getPostProcessedComplete().toString());
+        assertEquals(CODE.substring(CODE.indexOf('{')), codeBuffer.getAllCodeFromStartIndex().toString());
+        codeBuffer.setProcessedToStartIndex();
+        assertSame(CodeSlice.EMPTY, codeBuffer.getPreprocessedCode());
+    }
+
+    @Test
+    public void testChildView() {
+        StringBuilder source = new StringBuilder(CODE);
+        CodeBuffer parent = new CodeBuffer(source);
+        parent.appendStartIndex(CODE.indexOf("void"));
+        parent.setEndIndex(CODE.length() - 2);
+        CodeBuffer child = new CodeBuffer(parent);
+        assertEquals("void f() { int a; }", child.getCode().toString());
+        assertEquals(19, child.getCode().length());
+        assertEquals('v', child.getCode().charAt(0));
+
+        child.appendStartIndex(child.getCode().toString().indexOf("int"));
+        CodeBuffer grandChild = new CodeBuffer(child);
+        assertEquals("int a; }", grandChild.getCode().toString());
+    }
+
+    @Test
+    public void testDeleteKeepsSource() {
+        StringBuilder source = new StringBuilder(CODE);
+        CodeBuffer parent = new CodeBuffer(source);
+        parent.appendStartIndex(CODE.indexOf("void"));
+        CodeBuffer child = new CodeBuffer(parent);
+        CharSequence childCode = child.getCode();
+
+        child.deleteCharAt(child.getCode().toString().indexOf('{'));
+        assertEquals("void f()  int a; } }", childCode.toString());
+        assertEquals(CODE, source.toString());
+        assertEquals(CODE.substring(CODE.indexOf("void")), parent.getAllCodeFromStartIndex().toString());
+
+        parent.deleteCharAt(0);
+        assertEquals(CODE, source.toString());
+        assertEquals(CODE.substring(1), parent.getCode().toString());
+    }
+
+    @Test
+    public void testChildSnapshot() {
+        CodeBuffer parent = new CodeBuffer(CODE);
+        parent.appendStartIndex(CODE.indexOf("void"));
+        CodeBuffer child = new CodeBuffer(parent);
+        parent.deleteCharAt(CODE.indexOf("void") + 1);
+        assertEquals(CODE.substring(CODE.indexOf("void")), child.getCode().toString());
+    }
+
+    @Test
+    public void testDeleteSameAsStringBuilder() {
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            StringBuilder expected = new StringBuilder();
+            int length = 1 + random.nextInt(60);
+            for (int c = 0; c < length; c++) {
+                expected.append((char) ('a' + random.nextInt(26)));
+            }
+            CodeBuffer parent = new CodeBuffer(expected.toString());
+            int from = random.nextInt(length);
+            parent.appendStartIndex(from);
+            parent.setEndIndex(from + random.nextInt(length - from + 1));
+            expected = new StringBuilder(parent.getToBeProcessedCode().toString());
+            CodeBuffer codeBuffer = new CodeBuffer(parent);
+            while (expected.length() > 0 && random.nextInt(8) != 0) {
+                int index = random.nextInt(expected.length());
+                expected.deleteCharAt(index);
+                codeBuffer.deleteCharAt(index);
+                assertEquals(expected.toString(), codeBuffer.getCode().toString());
+                int start = random.nextInt(expected.length() + 1);
+                assertEquals(expected.substring(start), codeBuffer.getCode().subSequence(start, expected.length()));
+                if (start < expected.length()) {
+                    assertEquals(expected.charAt(start), codeBuffer.getCode().charAt(start));
+                }
+            }
+            CodeBuffer child = new CodeBuffer(codeBuffer);
+            assertEquals(expected.toString(), child.getCode().toString());
+        }
+    }
+
+    @Test
+    public void testManyPieces() {
+        StringBuilder source = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            char ch = (char) ('a' + i % 26);
+            source.append(ch);
+            if (i % 2 == 0) {
+                expected.append(ch);
+            }
+        }
+        CodeBuffer codeBuffer = new CodeBuffer(source);
+        // every other character, so every character left is a piece of its own
+        for (int index = 1; index < codeBuffer.getCode().length(); index++) {
+            codeBuffer.deleteCharAt(index);
+        }
+        assertEquals(expected.toString(), codeBuffer.getCode().toString());
+        assertEquals(-1, codeBuffer.getSourceOffset());
+        for (int index = 0; index < expected.length(); index += 997) {
+            assertEquals(index * 2, codeBuffer.toSourceIndex(index));
+            assertEquals(index, codeBuffer.toCodeIndex(index * 2));
+            assertEquals(-1, codeBuffer.toCodeIndex(index * 2 + 1));
+        }
+        codeBuffer.appendStartIndex(1000);
+        CodeBuffer child = new CodeBuffer(codeBuffer);
+        assertEquals(expected.substring(1000), child.getCode().toString());
+    }
+
+    @Test
+    public void testSmallChildOfManyPieces() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            source.append((char) ('a' + i % 26));
+        }
+        CodeBuffer codeBuffer = new CodeBuffer(source);
+        for (int index = 1; index < codeBuffer.getCode().length(); index++) {
+            codeBuffer.deleteCharAt(index);
+        }
+        String expected = codeBuffer.getCode().toString();
+        // a child only takes the pieces of its own code, however many pieces the parent has
+        for (int start = 0; start + 10 < expected.length(); start += 2) {
+            codeBuffer.appendStartIndex(start - codeBuffer.getStartIndex());
+            codeBuffer.setEndIndex(start + 10);
+            CodeBuffer child = new CodeBuffer(codeBuffer);
+            assertEquals(expected.substring(start, start + 10), child.getCode().toString());
+            assertEquals(start * 2 + 2, child.toSourceIndex(1));
+        }
+    }
+
+    @Test
+    public void testEmptyChild() {
+        CodeBuffer parent = new CodeBuffer(CODE);
+        parent.appendStartIndex(5);
+        parent.setEndIndex(5);
+        CodeBuffer child = new CodeBuffer(parent);
+        assertEquals(0, child.getCode().length());
+        assertSame(CodeSlice.EMPTY, child.getAllCodeFromStartIndex());
+    }
+}
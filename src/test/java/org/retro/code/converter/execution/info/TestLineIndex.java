@@ -0,0 +1,54 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.execution.info;
+
+import org.junit.Test;
+import org.retro.code.converter.execution.lexer.SourceLexer;
+import org.retro.code.converter.xml.v1.types.XSourceLanguageType;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestLineIndex {
+
+    private static final String CODE = "int a = 1;\n// b; c\nString d = \"e;\";\nf();";
+
+    @Test
+    public void testNextBlockEnd() {
+        LineIndex index = new LineIndex(CODE, null);
+        assertEquals(9, index.getNextBlockEnd(';', 0));
+        assertEquals(9, index.getNextBlockEnd(';', 9));
+        assertEquals(CODE.indexOf(';', 10), index.getNextBlockEnd(';', 10));
+        assertEquals(10, index.getNextBlockEnd('\n', 0));
+        assertEquals(-1, index.getNextBlockEnd('\n', CODE.lastIndexOf('\n') + 1));
+        assertEquals(-1, index.getNextBlockEnd(';', CODE.length()));
+    }
+
+    @Test
+    public void testNextBlockEndSkipsCommentsAndLiterals() {
+        LineIndex index = new LineIndex(CODE, SourceLexer.lex(CODE, XSourceLanguageType.JAVA));
+        assertEquals(9, index.getNextBlockEnd(';', 0));
+        assertEquals(CODE.indexOf("\";") + 1, index.getNextBlockEnd(';', 10));
+        assertEquals(CODE.length() - 1, index.getNextBlockEnd(';', CODE.indexOf("\";") + 2));
+    }
+
+    @Test
+    public void testPosition() {
+        LineIndex index = new LineIndex(CODE, null);
+        assertEquals(1, index.getLine(0));
+        assertEquals(1, index.getColumn(0));
+        assertEquals(1, index.getLine(10));
+        assertEquals(11, index.getColumn(10));
+        assertEquals("2:1", index.getPosition(11));
+        assertEquals("4:2", index.getPosition(CODE.lastIndexOf('(')));
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.lexer;
+
+import org.junit.Test;
+import org.retro.code.converter.xml.v1.types.XSourceLanguageType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestSourceLexer {
+
+    @Test
+    public void testNone() {
+        assertNull(SourceLexer.lex("f();", null));
+        assertNull(SourceLexer.lex("f();", XSourceLanguageType.NONE));
+    }
+
+    @Test
+    public void testComments() {
+        String code = "a(); // b(); {\n/* c;\n } */ d{}";
+        TokenTable tokens = SourceLexer.lex(code, XSourceLanguageType.C);
+        assertEquals("();\n{}", tokens.getSymbols().toString());
+        assertEquals(2, tokens.getMaskCount());
+        assertTrue(tokens.isMasked(code.indexOf('{')));
+        assertFalse(tokens.isMasked(code.indexOf('\n')));
+        assertTrue(tokens.isMasked(code.indexOf('\n', code.indexOf('/', 8) + 2)));
+        assertEquals(code.lastIndexOf('{'), tokens.next('{', 0));
+        assertEquals(-1, tokens.next(';', 4));
+    }
+
+    @Test
+    public void testLiterals() {
+        String code = "s = \"a\\\"(;\"; c = '}'; e = '\\'';\nt = \"open(\nu;";
+        TokenTable tokens = SourceLexer.lex(code, XSourceLanguageType.C);
+        assertEquals(";;;\n\n;", tokens.getSymbols().toString());
+    }
+
+    @Test
+    public void testJavaTextBlock() {
+        String code = "s = \"\"\"\n  a(\\\"\"\";\n  \"\"\"; b();";
+        assertEquals(";();", SourceLexer.lex(code, XSourceLanguageType.JAVA).getSymbols().toString());
+        assertEquals("\n(\n", SourceLexer.lex(code, XSourceLanguageType.C).getSymbols().toString());
+    }
+
+    @Test
+    public void testCSharpStrings() {
+        String code = "a = @\"c:\\\"\"{\"; b = $@\"{x}\n;\"; c = $\"{y}\\\"\"; d = \"\"\"\n\"\" ;\n\"\"\"; @if(e);";
+        assertEquals(";;;;();", SourceLexer.lex(code, XSourceLanguageType.CSHARP).getSymbols().toString());
+    }
+
+    @Test
+    public void testCSharpInterpolationHoles() {
+        String code = "a = $\"{b[\"k\"]}(\"; c(); d = $@\"{e(\"}\")}\"\"{{;\"; f = $\"{(g ? '}' : $\"{h[\"i\"]};\")}\"; j;";
+        TokenTable tokens = SourceLexer.lex(code, XSourceLanguageType.CSHARP);
+        assertEquals(";();;;;", tokens.getSymbols().toString());
+        assertEquals(3, tokens.getMaskCount());
+        assertFalse(tokens.isMasked(code.indexOf("c()")));
+        assertTrue(tokens.isMasked(code.indexOf("{{")));
+        assertFalse(tokens.isMasked(code.indexOf("j;")));
+    }
+}
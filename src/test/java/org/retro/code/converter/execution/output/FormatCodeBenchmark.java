@@ -0,0 +1,57 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.execution.output;
+
+import org.retro.code.converter.utils.ConverterUtils;
+
+/**
+ * Times ConverterUtils.formatCode on generated targets from 10 KB to 50 MB.
+ * The time per character should stay about the same as the target grows.
+ * <p/>
+ * It is not run by the unit tests, start it with the test classpath and enough heap:
+ * java -Xmx2g org.retro.code.converter.execution.output.FormatCodeBenchmark
+ */
+public class FormatCodeBenchmark {
+    private static final String METHOD = "public void method() {\n  if (a) {\n      b();\n  }\n\n\n\n  c();\n}\n";
+    private static final int    RUNS = 3;
+    private static final int    WARM_UP = 20;
+    private static final int[]  SIZES = {10000, 100000, 1000000, 10000000, 50000000};
+
+    public static void main(String[] args) {
+        StringBuilder warmUp = createTarget(10000);
+        for (int i = 0; i < WARM_UP; i++) {
+            ConverterUtils.formatCode(warmUp);
+        }
+
+        for (int size : SIZES) {
+            StringBuilder target = createTarget(size);
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                ConverterUtils.formatCode(target);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            System.out.println(String.format("%10d chars %10.2f ms %6.2f ns/char",
+                                             target.length(), best / 1e6, (double) best / target.length()));
+        }
+    }
+
+    private static StringBuilder createTarget(int size) {
+        StringBuilder target = new StringBuilder(size + 100);
+        target.append("public class Target {\n");
+        while (target.length() < size) {
+            target.append(METHOD);
+        }
+        return target.append("}\n");
+    }
+}
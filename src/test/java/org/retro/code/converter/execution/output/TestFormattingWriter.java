@@ -0,0 +1,127 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.execution.output;
+
+import org.junit.Test;
+import org.retro.code.converter.utils.ConverterUtils;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestFormattingWriter {
+
+    private static final String CODE = "class A {\n\n\n\n  void f() {\n\t  if (a) {\n b();\n   }\n}\n\n}\n  } x\n";
+
+    @Test
+    public void testSameAsPreviousFormatter() {
+        Random random = new Random(5);
+        String chars = "{}  \t\n\n\nab;";
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder code = new StringBuilder();
+            int length = random.nextInt(300);
+            for (int c = 0; c < length; c++) {
+                code.append(chars.charAt(random.nextInt(chars.length())));
+            }
+            assertEquals(previousFormatCode(code), ConverterUtils.formatCode(code).toString());
+        }
+        assertEquals(previousFormatCode(new StringBuilder(CODE)), ConverterUtils.formatCode(new StringBuilder(CODE)).toString());
+    }
+
+    @Test
+    public void testIndentWidthAndBlankLines() throws IOException {
+        assertEquals("class A {\n\n  void f() {\n    if (a) {\n      b();\n    }\n  }\n\n}\n} x\n",
+                     format(CODE, 2, 1));
+        assertEquals("class A {\nvoid f() {\nif (a) {\nb();\n}\n}\n}\n} x\n", format(CODE, 0, 0));
+        assertEquals("class A {\n\n\n\n   void f() {\n      if (a) {\n         b();\n      }\n   }\n\n}\n} x\n",
+                     format(CODE, 3, FormattingWriter.KEEP_BLANK_LINES));
+    }
+
+    @Test
+    public void testWritesInChunks() throws IOException {
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            code.append("  {\n  x;\n\n\n\n  }\n");
+        }
+        StringBuilder output = new StringBuilder();
+        FormattingWriter writer = new FormattingWriter(new StringBuilderWriter(output));
+        for (int i = 0; i < code.length(); i += 7) {
+            writer.write(code.substring(i, Math.min(i + 7, code.length())));
+        }
+        writer.close();
+        assertEquals(previousFormatCode(code), output.toString());
+    }
+
+    private static String format(String code, int indentWidth, int maxBlankLines) throws IOException {
+        StringBuilder output = new StringBuilder();
+        FormattingWriter writer = new FormattingWriter(new StringBuilderWriter(output), indentWidth, maxBlankLines);
+        writer.append(code);
+        writer.flush();
+        return output.toString();
+    }
+
+    /*
+     * The formatter from before the formatting writer, to check the output did not change.
+     */
+    private static String previousFormatCode(StringBuilder code) {
+        int bracketLevel = 0;
+        String indentSpace = "    ";
+        StringBuilder output = new StringBuilder();
+        boolean spacing = false;
+        boolean insertedSpaces = false;
+        int nlCount = 0;
+
+        for (char ch : code.toString().toCharArray()) {
+            if (spacing) {
+                if (ch == ' ' || ch == '\t') {
+                    continue;
+                }
+                if (ch == '\n') {
+                    if (nlCount++ > 2) {
+                        continue;
+                    }
+                    insertedSpaces = true;
+                }
+                if (!insertedSpaces) {
+                    for (int i = 0; i < bracketLevel; i++) {
+                        output.append(indentSpace);
+                    }
+                    insertedSpaces = true;
+                    nlCount = 0;
+                }
+                if (ch == '}') {
+                    if (output.toString().endsWith(indentSpace)) {
+                        output.replace(output.length() - indentSpace.length(), output.length(), "");
+                    }
+                }
+                spacing = false;
+                output.append(ch);
+            } else {
+                output.append(ch);
+            }
+            if (ch == '}' && bracketLevel > 0) {
+                bracketLevel--;
+            }
+            if (ch == '{') {
+                bracketLevel++;
+            }
+            if (ch == '\n') {
+                spacing = true;
+                insertedSpaces = false;
+                nlCount++;
+            }
+        }
+        return output.toString();
+    }
+}
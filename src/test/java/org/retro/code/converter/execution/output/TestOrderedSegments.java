@@ -0,0 +1,78 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.execution.output;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestOrderedSegments {
+
+    @Test
+    public void testOrderWithinGroup() {
+        OrderedSegments segments = new OrderedSegments();
+        segments.append(0, "a");
+        segments.append(2, "e");
+        segments.append(1, "c");
+        segments.append(0, "b");
+        segments.append(1, "d");
+        segments.append(-1, "");
+        segments.append(-3, "b2");
+        assertEquals(6, segments.size());
+        assertEquals("abb2cde", segments.appendTo(new StringBuilder()).toString());
+        assertEquals(7, segments.length());
+    }
+
+    @Test
+    public void testGroups() {
+        OrderedSegments segments = new OrderedSegments();
+        segments.append(1, "b");
+        segments.append(0, "a");
+        segments.endGroup();
+        segments.append(0, "c");
+        segments.append(5, "e");
+        segments.append(0, "d");
+        assertEquals("abcde", segments.appendTo(new StringBuilder()).toString());
+        segments.append(0, "f");
+        assertEquals("abcdef", segments.appendTo(new StringBuilder()).toString());
+    }
+
+    @Test
+    public void testManyPieces() {
+        OrderedSegments segments = new OrderedSegments();
+        StringBuilder expected0 = new StringBuilder();
+        StringBuilder expected1 = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            segments.append(i % 2, Integer.toString(i));
+            (i % 2 == 0 ? expected0 : expected1).append(i);
+        }
+        assertEquals(expected0.append(expected1).toString(), segments.appendTo(new StringBuilder()).toString());
+    }
+
+    @Test
+    public void testTargets() {
+        TargetSegments targets = new TargetSegments();
+        targets.get(2).append(1, "b");
+        targets.get(1).append(0, "x");
+        targets.get(2).append(0, "a");
+        Map<Integer, StringBuilder> output = new LinkedHashMap<Integer, StringBuilder>();
+        output.put(1, new StringBuilder("w"));
+        targets.appendTo(output);
+        assertEquals("wx", output.get(1).toString());
+        assertEquals("ab", output.get(2).toString());
+        assertEquals(2, targets.getTargets().keySet().iterator().next().intValue());
+    }
+}
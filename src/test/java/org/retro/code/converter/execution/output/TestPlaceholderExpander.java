@@ -0,0 +1,65 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.execution.output;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TestPlaceholderExpander {
+    private static final PlaceholderExpander EXPANDER = PlaceholderExpander.compile("##_KEY_##", "##_VALUE_##",
+                                                                                    "##_K_##");
+
+    @Test
+    public void testExpand() {
+        assertEquals("a=1;", EXPANDER.expand("##_KEY_##=##_VALUE_##;", "a", "1", null));
+        assertEquals("#a ##_K_## 1", EXPANDER.expand("###_KEY_## ##_K_## ##_VALUE_##", "a", "1", null));
+        assertEquals("##_VALUE_## 2", EXPANDER.expand("##_KEY_## ##_K_##", "##_VALUE_##", "1", "2"));
+        String text = "no placeholders #";
+        assertSame(text, EXPANDER.expand(text, "a", "1", "2"));
+        assertEquals("##_KEY_", EXPANDER.expand("##_KEY_", "a", "1", "2"));
+        assertEquals("##_NAME_##", PlaceholderExpander.toMarker("NAME"));
+        assertEquals(1, EXPANDER.indexOf("##_VALUE_##"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicate() {
+        PlaceholderExpander.compile("##_A_##", "##_B_##", "##_A_##");
+    }
+
+    @Test
+    public void testWriterSameAsExpand() throws IOException {
+        Random random = new Random(3);
+        String[] parts = {"#", "##_", "_##", "KEY", "K", "VALUE", "x", "##_K_##", "##_KEY_##", "\n"};
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder text = new StringBuilder();
+            int count = random.nextInt(30);
+            for (int p = 0; p < count; p++) {
+                text.append(parts[random.nextInt(parts.length)]);
+            }
+            String[] values = {"<key>", random.nextBoolean() ? null : "<value>", "<k>"};
+            StringBuilder output = new StringBuilder();
+            PlaceholderWriter writer = new PlaceholderWriter(new StringBuilderWriter(output), EXPANDER, values);
+            int chunk = 1 + random.nextInt(5);
+            for (int c = 0; c < text.length(); c += chunk) {
+                writer.write(text.substring(c, Math.min(c + chunk, text.length())));
+            }
+            writer.close();
+            assertEquals(text.toString(), EXPANDER.expand(text.toString(), values), output.toString());
+        }
+    }
+}
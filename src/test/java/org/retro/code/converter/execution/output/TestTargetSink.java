@@ -0,0 +1,113 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.execution.output;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.retro.code.converter.utils.ConverterUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TestTargetSink {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPlaceholders() throws IOException {
+        assertEquals("class Target { Target(); }##_CONTENTS_##",
+                     replace("class ##_CLASS_NAME_## {##_CONTENTS_## ##_CLASS_NAME_##(); }##_CONTENTS_##", 1));
+        assertEquals("##Target# ##_CLASS_NAM", replace("####_CLASS_NAME_### ##_CLASS_NAM", 1));
+        assertEquals("a Target b", replace("a ##_CLASS_NAME_## b", 5));
+    }
+
+    private static String replace(String text, int chunk) throws IOException {
+        StringBuilder output = new StringBuilder();
+        PlaceholderExpander expander = PlaceholderExpander.compile("##_CLASS_NAME_##", "##_CONTENTS_##");
+        PlaceholderWriter writer = new PlaceholderWriter(new StringBuilderWriter(output), expander, "Target", "");
+        writer.replaceFirstOnly(1);
+        for (int i = 0; i < text.length(); i += chunk) {
+            writer.write(text, i, Math.min(chunk, text.length() - i));
+        }
+        writer.close();
+        return output.toString();
+    }
+
+    @Test
+    public void testChannelWriterSmallBuffer() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("caf\u00e9 \uD83D\uDE00 ").append(i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Writer writer = new ChannelWriter(Channels.newChannel(bytes), UTF_8, ByteBuffer.allocateDirect(7));
+        for (int i = 0; i < text.length(); i += 3) {
+            writer.write(text.substring(i, Math.min(i + 3, text.length())));
+        }
+        writer.close();
+        writer.close();
+        assertArrayEquals(text.toString().getBytes(UTF_8), bytes.toByteArray());
+    }
+
+    @Test
+    public void testWritesFormattedTarget() throws IOException {
+        OrderedSegments segments = new OrderedSegments();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            segments.append(i % 3, "void f" + i + "() {\n  g();\n\n\n}\n");
+            if (i % 3 == 0) {
+                expected.append("void f").append(i).append("() {\n  g();\n\n\n}\n");
+            }
+        }
+        for (int order = 1; order < 3; order++) {
+            for (int i = order; i < 3000; i += 3) {
+                expected.append("void f").append(i).append("() {\n  g();\n\n\n}\n");
+            }
+        }
+        File file = new File(folder.getRoot(), "out/Target.java");
+        TargetSink sink = new TargetSink(UTF_8);
+        Writer writer = sink.open(file.getPath(), false);
+        segments.writeTo(writer);
+        writer.close();
+        assertEquals(ConverterUtils.formatCode(expected).toString(), read(file));
+
+        writer = sink.open(file.getPath(), true);
+        writer.write("{\nx;\n}\n");
+        writer.close();
+        assertEquals("{\n    x;\n}\n", read(file));
+    }
+
+    private static String read(File file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FileInputStream input = new FileInputStream(file);
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = input.read(buffer)) != -1) {
+            bytes.write(buffer, 0, count);
+        }
+        input.close();
+        return new String(bytes.toByteArray(), UTF_8);
+    }
+}
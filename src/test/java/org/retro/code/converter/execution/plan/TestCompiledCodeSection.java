@@ -0,0 +1,174 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.plan;
+
+import org.junit.Test;
+import org.retro.code.converter.exception.CodeConversionException;
+import org.retro.code.converter.exception.TranslationIdException;
+import org.retro.code.converter.execution.info.BracketInfo;
+import org.retro.code.converter.execution.translation.TranslationChain;
+import org.retro.code.converter.utils.CompiledTemplate;
+import org.retro.code.converter.utils.TemplateCache;
+import org.retro.code.converter.utils.TemplateUtils;
+import org.retro.code.converter.xml.TranslationsLoader;
+import org.retro.code.converter.xml.v1.types.XCodeBlockType;
+import org.retro.code.converter.xml.v1.types.XCodeSection;
+import org.retro.code.converter.xml.v1.types.XCodeSectionList;
+import org.retro.code.converter.xml.v1.types.XIdList;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TestCompiledCodeSection {
+
+    private static XCodeSection createCodeSection(int id, String searchStart, XCodeBlockType codeBlock) {
+        XCodeSection codeSection = new XCodeSection();
+        codeSection.setId(id);
+        codeSection.setTargetFileId(1);
+        codeSection.setSearchStart(searchStart);
+        codeSection.setCodeBlock(codeBlock);
+        return codeSection;
+    }
+
+    private static CompiledCodeSection compile(XCodeSection codeSection, Map<Integer, StringBuilder> templates) {
+        return CompiledCodeSection.compile(codeSection, new TranslationsLoader(), templates);
+    }
+
+    @Test
+    public void testTree() {
+        XCodeSection parent = createCodeSection(1, "class \\w+ \\{", XCodeBlockType.AUTO);
+        XCodeSection component = createCodeSection(2, "void", XCodeBlockType.FUNCTION);
+        parent.setCodeSections(new XCodeSectionList());
+        parent.getCodeSections().getCodeSection().add(createCodeSection(3, "int", XCodeBlockType.COMMAND));
+        parent.getCodeSections().getCodeSection().add(component);
+
+        CompiledCodeSection compiled = compile(parent, new LinkedHashMap<Integer, StringBuilder>());
+        assertNull(compiled.getParent());
+        assertTrue(compiled.isContainer());
+        assertTrue(compiled.isLast());
+        assertFalse(compiled.isFirstChild());
+        assertEquals(2, compiled.getChildren().size());
+
+        CompiledCodeSection first = compiled.getChildren().get(0);
+        CompiledCodeSection second = compiled.getChildren().get(1);
+        assertSame(compiled, first.getParent());
+        assertTrue(first.isFirstChild());
+        assertFalse(first.isLast());
+        assertEquals(2, second.getSequenceNo());
+        assertTrue(second.isLast());
+        assertSame(component, second.getCodeSection());
+        assertFalse(second.isContainer());
+    }
+
+    @Test
+    public void testDefaults() {
+        XCodeSection codeSection = createCodeSection(1, "int", null);
+        CompiledCodeSection compiled = compile(codeSection, new LinkedHashMap<Integer, StringBuilder>());
+        assertEquals(XCodeBlockType.AUTO, codeSection.getCodeBlock());
+        assertTrue(codeSection.isProcessOnce());
+        assertSame(TranslationChain.EMPTY, compiled.getTranslations());
+        assertEquals("", compiled.getTemplatePreamble());
+        assertEquals("", compiled.getTemplatePostamble());
+    }
+
+    @Test(expected = CodeConversionException.class)
+    public void testInvalidChild() {
+        XCodeSection parent = createCodeSection(1, "class", XCodeBlockType.AUTO);
+        parent.setCodeSections(new XCodeSectionList());
+        parent.getCodeSections().getCodeSection().add(createCodeSection(2, "", XCodeBlockType.AUTO));
+        compile(parent, new LinkedHashMap<Integer, StringBuilder>());
+    }
+
+    @Test(expected = TranslationIdException.class)
+    public void testUnknownTranslation() {
+        XCodeSection codeSection = createCodeSection(1, "int", XCodeBlockType.AUTO);
+        codeSection.setTranslations(new XIdList());
+        codeSection.getTranslations().getId().add(99);
+        compile(codeSection, new LinkedHashMap<Integer, StringBuilder>());
+    }
+
+    @Test
+    public void testBlockEnd() {
+        XCodeSection auto = createCodeSection(1, "while \\(", XCodeBlockType.AUTO);
+        CompiledCodeSection compiled = compile(auto, new LinkedHashMap<Integer, StringBuilder>());
+        assertNull(compiled.getBlockEnd());
+        assertEquals(BracketInfo.ROUND_BRACKET_OPEN, compiled.getSearchBracketInfo().getLeadingBracketType());
+
+        XCodeSection searchEnd = createCodeSection(2, "begin", XCodeBlockType.SEARCH_END);
+        searchEnd.setSearchEnd("end;");
+        assertEquals("end;", compile(searchEnd, new LinkedHashMap<Integer, StringBuilder>())
+                             .getBlockEnd().getPattern().pattern());
+
+        XCodeSection command = createCodeSection(3, "int", XCodeBlockType.COMMAND);
+        assertEquals(";", compile(command, new LinkedHashMap<Integer, StringBuilder>())
+                          .getBlockEnd().getPattern().pattern());
+
+        XCodeSection lineEnd = createCodeSection(4, "#", XCodeBlockType.LINE_END);
+        assertEquals("\n", compile(lineEnd, new LinkedHashMap<Integer, StringBuilder>())
+                           .getBlockEnd().getPattern().pattern());
+
+        XCodeSection function = createCodeSection(5, "void", XCodeBlockType.FUNCTION);
+        function.setSearchEnd("}");
+        assertNull(compile(function, new LinkedHashMap<Integer, StringBuilder>()).getBlockEnd());
+    }
+
+    @Test
+    public void testSearchRegexesOfRun() {
+        TranslationsLoader run = new TranslationsLoader();
+        CompiledCodeSection first = CompiledCodeSection.compile(createCodeSection(1, "int", XCodeBlockType.COMMAND), run,
+                                                                new LinkedHashMap<Integer, StringBuilder>());
+        CompiledCodeSection second = CompiledCodeSection.compile(createCodeSection(2, "int", XCodeBlockType.COMMAND), run,
+                                                                 new LinkedHashMap<Integer, StringBuilder>());
+        CompiledCodeSection other = compile(createCodeSection(3, "int", XCodeBlockType.COMMAND),
+                                            new LinkedHashMap<Integer, StringBuilder>());
+        // the regexes are compiled with the plan and shared within a run only
+        assertSame(first.getSearchStart(), second.getSearchStart());
+        assertNotSame(first.getSearchStart(), other.getSearchStart());
+        assertEquals(2, run.getSearchRegexes().size());
+        first.getSearchStart().mayMatch("x = 1;", 0);
+        assertEquals(1, first.getSearchStart().getPrefilter().getSkipCount());
+        assertEquals(0, other.getSearchStart().getPrefilter().getSkipCount());
+        assertEquals(2, run.getRegexPrefilters().size());
+    }
+
+    @Test
+    public void testTemplate() {
+        Map<Integer, StringBuilder> templates = new LinkedHashMap<Integer, StringBuilder>();
+        templates.put(7, new StringBuilder("before " + TemplateUtils.CONTENTS_MARKER + " after"));
+        XCodeSection codeSection = createCodeSection(1, "int", XCodeBlockType.AUTO);
+        codeSection.setTemplateId(7);
+        CompiledCodeSection compiled = compile(codeSection, templates);
+        assertEquals("before ", compiled.getTemplatePreamble());
+        assertEquals(" after", compiled.getTemplatePostamble());
+    }
+
+    @Test
+    public void testSharedTemplate() {
+        Map<Integer, StringBuilder> templates = new LinkedHashMap<Integer, StringBuilder>();
+        templates.put(7, new StringBuilder("before " + TemplateUtils.CONTENTS_MARKER + " after"));
+        XCodeSection parent = createCodeSection(1, "class", XCodeBlockType.AUTO);
+        parent.setTemplateId(7);
+        XCodeSection child = createCodeSection(2, "int", XCodeBlockType.COMMAND);
+        child.setTemplateId(7);
+        parent.setCodeSections(new XCodeSectionList());
+        parent.getCodeSections().getCodeSection().add(child);
+        TemplateCache cache = TemplateUtils.compileTemplates(templates);
+        CompiledCodeSection compiled = CompiledCodeSection.compile(parent, new TranslationsLoader(), cache);
+        CompiledCodeSection other = CompiledCodeSection.compile(createCodeSection(3, "int", XCodeBlockType.AUTO),
+                                                                new TranslationsLoader(), cache);
+        assertSame(compiled.getTemplate(), compiled.getChildren().get(0).getTemplate());
+        assertSame(compiled.getTemplatePreamble(), compiled.getChildren().get(0).getTemplatePreamble());
+        assertSame(CompiledTemplate.EMPTY, other.getTemplate());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.plan;
+
+import org.junit.Test;
+import org.retro.code.converter.execution.info.CodeBuffer;
+import org.retro.code.converter.xml.TranslationsLoader;
+import org.retro.code.converter.xml.v1.types.XCodeBlockType;
+import org.retro.code.converter.xml.v1.types.XCodeSection;
+
+import java.util.LinkedHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestSearchOperator {
+
+    private static final String CODE = "public class A {\r\n" +
+                                       "  public void run() { int a = 1; }\n" +
+                                       "  private void stop() {}\n" +
+                                       "}\n";
+
+    private static final String[] REGEXES = {
+        ".*", "(?s).*", "(.*)", "void", "\\Qint a\\E", "^public", "^\\s*(public|private)", "\\Apublic",
+        "void \\w+\\(\\)", "public|private", "(?m)^  \\w+", "\\bvoid", ".*?", "x?void"
+    };
+
+    private static final SearchOperator[] OPERATORS = {
+        SearchOperator.PASSTHROUGH_LINE, SearchOperator.PASSTHROUGH, SearchOperator.PASSTHROUGH_LINE,
+        SearchOperator.LITERAL, SearchOperator.LITERAL, SearchOperator.ANCHORED, SearchOperator.ANCHORED,
+        SearchOperator.ANCHORED, SearchOperator.LEADING_LITERAL, SearchOperator.REGEX, SearchOperator.REGEX,
+        SearchOperator.REGEX, SearchOperator.REGEX, SearchOperator.REGEX
+    };
+
+    private static CompiledCodeSection compile(String searchStart) {
+        XCodeSection codeSection = new XCodeSection();
+        codeSection.setId(1);
+        codeSection.setTargetFileId(1);
+        codeSection.setTitle("SEARCH");
+        codeSection.setSearchStart(searchStart);
+        codeSection.setCodeBlock(XCodeBlockType.ALL);
+        return CompiledCodeSection.compile(codeSection, new TranslationsLoader(),
+                                           new LinkedHashMap<Integer, StringBuilder>());
+    }
+
+    @Test
+    public void testOperators() {
+        for (int i = 0; i < REGEXES.length; i++) {
+            assertEquals(REGEXES[i], OPERATORS[i], SearchOperator.of(REGEXES[i]));
+        }
+        assertEquals("void ", compile("void \\w+\\(\\)").getSearchLiteral());
+        assertEquals("int a", compile("\\Qint a\\E").getSearchLiteral());
+    }
+
+    @Test
+    public void testSameAsRegex() {
+        for (String regex : REGEXES) {
+            CompiledCodeSection codeSection = compile(regex);
+            for (int from = 0; from <= CODE.length(); from++) {
+                SectionMatcher sectionMatcher = new SectionMatcher(codeSection, new CodeBuffer(CODE), null);
+                Matcher matcher = Pattern.compile(regex).matcher(CODE).region(from, CODE.length());
+                boolean found = matcher.find();
+                assertEquals(regex + " from " + from, found, sectionMatcher.find(from));
+                if (found) {
+                    assertEquals(regex + " from " + from, matcher.start(), sectionMatcher.start());
+                    assertEquals(regex + " from " + from, matcher.end(), sectionMatcher.end());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPlanReport() {
+        String report = compile("void \\w+\\(\\)").getPlanReport();
+        assertTrue(report, report.startsWith("1 SEARCH: LEADING_LITERAL \"void \" [void \\\\w+\\\\(\\\\)] ALL"));
+    }
+}
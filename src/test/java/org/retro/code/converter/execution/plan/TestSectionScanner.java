@@ -0,0 +1,102 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.plan;
+
+import org.junit.Test;
+import org.retro.code.converter.execution.convert.types.Code;
+import org.retro.code.converter.execution.info.SourceInfo;
+import org.retro.code.converter.xml.TranslationsLoader;
+import org.retro.code.converter.xml.v1.types.XCodeBlockType;
+import org.retro.code.converter.xml.v1.types.XCodeSection;
+import org.retro.code.converter.xml.v1.types.XCodeSectionList;
+import org.retro.code.converter.xml.v1.types.XIdList;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TestSectionScanner {
+
+    private static final String SOURCE = "public void a() {\n" +
+                                         "  int x = (1);\n" +
+                                         "}\n" +
+                                         "private void b() {\n" +
+                                         "  int y = (2);\n" +
+                                         "}\n" +
+                                         "public void c() {\n" +
+                                         "  int z = (3);\n" +
+                                         "}\n";
+
+    private static XCodeSection createCodeSection(int id, String searchStart, XCodeBlockType codeBlock) {
+        XCodeSection codeSection = new XCodeSection();
+        codeSection.setId(id);
+        codeSection.setTargetFileId(id);
+        codeSection.setTitle("SECTION " + id);
+        codeSection.setSearchStart(searchStart);
+        codeSection.setSearchEnd("");
+        codeSection.setCodeBlock(codeBlock);
+        codeSection.setOutputPreamble("<" + id + ">");
+        codeSection.setOutputPostamble("</" + id + ">");
+        codeSection.setRemoveSearch(true);
+        codeSection.setRemoveBrackets(true);
+        codeSection.setProcessOnce(false);
+        codeSection.setTranslations(new XIdList());
+        codeSection.setCodeSections(new XCodeSectionList());
+        return codeSection;
+    }
+
+    private static List<CompiledCodeSection> createSiblings() {
+        List<CompiledCodeSection> codeSections = new ArrayList<CompiledCodeSection>();
+        XCodeSection[] sections = {
+            createCodeSection(1, "public void \\w+\\(\\) ", XCodeBlockType.FUNCTION),
+            createCodeSection(2, "int \\w+ = ", XCodeBlockType.STATEMENT),
+            createCodeSection(3, "\\s+int", XCodeBlockType.COMMAND),
+            createCodeSection(4, "void", XCodeBlockType.LINE_END),
+        };
+        for (XCodeSection section : sections) {
+            codeSections.add(CompiledCodeSection.compile(section, new TranslationsLoader(),
+                                                         new LinkedHashMap<Integer, StringBuilder>()));
+        }
+        return codeSections;
+    }
+
+    @Test
+    public void testScan() {
+        SectionScanner scanner = new SectionScanner(createSiblings());
+        assertEquals(3, scanner.getLiteralCount());
+        int[][] candidates = scanner.scan(SOURCE);
+        assertArrayEquals(new int[] {0, SOURCE.lastIndexOf("public")}, candidates[0]);
+        assertEquals(3, candidates[1].length);
+        assertNull(candidates[2]);
+        assertEquals(3, candidates[3].length);
+    }
+
+    @Test
+    public void testSameAsSearchEverywhere() {
+        List<CompiledCodeSection> codeSections = createSiblings();
+        int[][] candidates = new SectionScanner(codeSections).scan(SOURCE);
+        Map<Integer, StringBuilder> scanned = new LinkedHashMap<Integer, StringBuilder>();
+        Map<Integer, StringBuilder> searched = new LinkedHashMap<Integer, StringBuilder>();
+        Code code = new Code(new TranslationsLoader(), new LinkedHashMap<Integer, StringBuilder>());
+        for (int i = 0; i < codeSections.size(); i++) {
+            code.convert(new SourceInfo(SOURCE, null), candidates[i], codeSections.get(i), scanned);
+            code.convert(new SourceInfo(SOURCE, null), null, codeSections.get(i), searched);
+        }
+        assertEquals(searched.toString(), scanned.toString());
+        assertEquals(codeSections.size(), scanned.size());
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.translation;
+
+import org.retro.code.converter.xml.v1.types.XTranslateEntry;
+import org.retro.code.converter.xml.v1.types.XTranslationOperationType;
+
+/**
+ * Times an ALL_UPPER translation with processOnce false on sources of doubling size.
+ * The time per character should stay about the same as the source grows.
+ * <p/>
+ * It is not run by the unit tests, start it with the test classpath:
+ * java org.retro.code.converter.execution.translation.CaseTranslationBenchmark
+ */
+public class CaseTranslationBenchmark {
+    private static final String LINE = "select id, name from customer where id = ?;\n";
+    private static final int    RUNS = 5;
+    private static final int    WARM_UP = 20;
+
+    public static void main(String[] args) {
+        XTranslateEntry entry = new XTranslateEntry();
+        entry.setId(1);
+        entry.setFromRegex("\\b(select|from|where)\\b");
+        entry.setOperation(XTranslationOperationType.ALL_UPPER);
+        entry.setProcessOnce(false);
+        CompiledTranslation translation = CompiledTranslation.compile(entry);
+        String warmUp = createSource(10000);
+        for (int i = 0; i < WARM_UP; i++) {
+            translation.apply(warmUp);
+        }
+
+        for (int lines = 1000; lines <= 256000; lines *= 2) {
+            String code = createSource(lines);
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                translation.apply(code);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            System.out.println(String.format("%8d matches %10d chars %8.2f ms %6.2f ns/char",
+                                             lines * 3, code.length(), best / 1e6, (double) best / code.length()));
+        }
+    }
+
+    private static String createSource(int lines) {
+        StringBuilder source = new StringBuilder(lines * LINE.length());
+        for (int i = 0; i < lines; i++) {
+            source.append(LINE);
+        }
+        return source.toString();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.translation;
+
+import org.junit.Test;
+import org.retro.code.converter.xml.v1.types.XTranslateEntry;
+import org.retro.code.converter.xml.v1.types.XTranslationFileType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a fused group of literal translations gives the same output as applying them one by one.
+ */
+public class TestLiteralTranslationGroup {
+
+    private static final String SOURCE = "rs.getString(1); stmt.close(); rs.getString(2); rs.close();";
+
+    @Test
+    public void testRenames() {
+        List<XTranslateEntry> entries = Arrays.asList(createEntry(1, "rs\\.", "resultSet.", false),
+                                                      createEntry(2, "getString", "readString", false),
+                                                      createEntry(3, "\\(", "[", false),
+                                                      createEntry(4, "stmt", "statement", true));
+        TranslationChain chain = new TranslationPlan(Collections.<XTranslationFileType>emptyList()).getTranslationChain(entries);
+        assertEquals(1, chain.getSteps().size());
+        assertTrue(chain.getSteps().get(0) instanceof LiteralTranslationGroup);
+        assertEquals("resultSet.readString[1); statement.close[); resultSet.readString[2); resultSet.close[);",
+                     chain.translate(SOURCE));
+    }
+
+    @Test
+    public void testInteractingTranslationsAreNotFused() {
+        // the second translation matches the output of the first one
+        List<XTranslateEntry> entries = Arrays.asList(createEntry(1, "stmt", "rs", false),
+                                                      createEntry(2, "rs\\.", "resultSet.", false));
+        TranslationChain chain = new TranslationPlan(Collections.<XTranslationFileType>emptyList()).getTranslationChain(entries);
+        assertEquals(2, chain.getSteps().size());
+        assertEquals("resultSet.getString(1); resultSet.close(); resultSet.getString(2); resultSet.close();",
+                     chain.translate(SOURCE));
+    }
+
+    @Test
+    public void testOverlaps() {
+        assertTrue(LiteralTranslationGroup.overlaps("abc", "b"));
+        assertTrue(LiteralTranslationGroup.overlaps("abc", "cd"));
+        assertTrue(LiteralTranslationGroup.overlaps("cd", "abc"));
+        assertFalse(LiteralTranslationGroup.overlaps("abc", "bd"));
+        assertTrue(LiteralTranslationGroup.overlaps("ab", "ab"));
+    }
+
+    @Test
+    public void testRandomTranslations() {
+        Random random = new Random(4711);
+        TranslationPlan plan = new TranslationPlan(Collections.<XTranslationFileType>emptyList());
+        int groups = 0;
+        for (int run = 0; run < 5000; run++) {
+            List<XTranslateEntry> entries = new ArrayList<XTranslateEntry>();
+            int count = 1 + random.nextInt(6);
+            for (int i = 0; i < count; i++) {
+                entries.add(createEntry(i, Pattern.quote(randomString(random, "abcd", 1, 3)),
+                                        randomString(random, "abcdXY", 0, 3), random.nextBoolean()));
+            }
+            TranslationChain chain = plan.getTranslationChain(entries);
+            for (TranslationStep step : chain.getSteps()) {
+                if (step instanceof LiteralTranslationGroup) {
+                    groups++;
+                }
+            }
+            for (int i = 0; i < 5; i++) {
+                String source = randomString(random, "abcdX", 0, 40);
+                String expected = source;
+                for (XTranslateEntry entry : entries) {
+                    expected = CompiledTranslation.compile(entry).apply(expected);
+                }
+                assertEquals(entries.toString() + source, expected, chain.translate(source));
+            }
+        }
+        assertTrue(groups > 500);
+    }
+
+    private static String randomString(Random random, String alphabet, int minLength, int maxLength) {
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    private static XTranslateEntry createEntry(int id, String from, String to, boolean processOnce) {
+        XTranslateEntry entry = new XTranslateEntry();
+        entry.setId(id);
+        entry.setFromRegex(from);
+        entry.setToString(to);
+        entry.setProcessOnce(processOnce);
+        return entry;
+    }
+}
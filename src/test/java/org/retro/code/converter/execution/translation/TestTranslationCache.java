@@ -0,0 +1,111 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.translation;
+
+import org.junit.Test;
+import org.retro.code.converter.xml.v1.types.XTranslateEntry;
+import org.retro.code.converter.xml.v1.types.XTranslationFileType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the hits, misses and evictions of the translation cache.
+ */
+public class TestTranslationCache {
+
+    @Test
+    public void testHitsAndMisses() {
+        TranslationChain chain = createChain("A", "x");
+        TranslationCache cache = new TranslationCache(1024 * 1024);
+        assertEquals("xa", cache.translate(chain, "Aa"));
+        assertEquals("xa", cache.translate(chain, "Aa"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        // same hash code and length as "Aa"
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertEquals("BB", cache.translate(chain, "BB"));
+        assertEquals(2, cache.getMissCount());
+        assertEquals("xa", cache.translate(chain, "Aa"));
+        assertEquals(3, cache.getMissCount());
+        // a different chain does not share the entries
+        assertEquals("ya", cache.translate(createChain("A", "y"), "Aa"));
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void testEviction() {
+        TranslationChain chain = createChain("A", "x");
+        TranslationCache cache = new TranslationCache(1000);
+        for (int i = 0; i < 20; i++) {
+            cache.translate(chain, "A" + i);
+        }
+        assertEquals(true, cache.getUsedBytes() <= 1000);
+        assertEquals(20, cache.size() + cache.getEvictionCount());
+        // the oldest entries are gone, the newest are still there
+        cache.translate(chain, "A19");
+        assertEquals(1, cache.getHitCount());
+        cache.translate(chain, "A0");
+        assertEquals(1, cache.getHitCount());
+
+        // too big for the budget, it is translated but not cached
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            big.append('A');
+        }
+        int size = cache.size();
+        cache.translate(chain, big.toString());
+        assertEquals(size, cache.size());
+    }
+
+    @Test
+    public void testThreads() throws InterruptedException {
+        final TranslationChain chain = createChain("A", "x");
+        final TranslationCache cache = new TranslationCache(2000);
+        final AtomicInteger errors = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 5000; i++) {
+                        String source = "A" + (i % 50);
+                        if (!cache.translate(chain, source).equals("x" + (i % 50))) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+        assertEquals(20000, cache.getHitCount() + cache.getMissCount());
+    }
+
+    private static TranslationChain createChain(String from, String to) {
+        XTranslateEntry entry = new XTranslateEntry();
+        entry.setId(1);
+        entry.setFromRegex(from);
+        entry.setToString(to);
+        entry.setProcessOnce(false);
+        return new TranslationPlan(Collections.<XTranslationFileType>emptyList())
+            .getTranslationChain(Collections.singletonList(entry));
+    }
+}
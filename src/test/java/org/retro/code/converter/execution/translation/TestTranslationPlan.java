@@ -0,0 +1,137 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.execution.translation;
+
+import org.junit.Test;
+import org.retro.code.converter.exception.TranslationIdException;
+import org.retro.code.converter.xml.v1.types.XTranslateEntry;
+import org.retro.code.converter.xml.v1.types.XTranslateList;
+import org.retro.code.converter.xml.v1.types.XTranslationFileType;
+import org.retro.code.converter.xml.v1.types.XTranslationOperationType;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the compiled translations give the same results as the String replace functions.
+ */
+public class TestTranslationPlan {
+
+    private static final String SOURCE = "rs.getString(1); rs.getInt(22); rs.getLong(3) $ \\ end";
+
+    private static final String[][] REPLACEMENTS = {
+        {"getString\\((\\d+)\\)", "get(\"F$1\")"},
+        {"get([A-Za-z]+)\\((\\d)(\\d)?\\)", "$2-$3-$1-$0"},
+        {"(?<type>get[A-Z][a-z]+)", "${type}Value"},
+        {"\\$", "\\$\\$"},
+        {"\\\\", "\\\\\\\\"},
+        {"(a)(b)?(c)?(d)?(e)?(f)?(g)?(h)?(i)?(j)?", "$10$1"},
+        {"x*", "-"},
+        {"rs\\.", ""},
+        {"rs", "[$0]"},
+        {"\\(", "\\(\\("},
+        {"\\Q$ \\E", "\\$"},
+    };
+
+    @Test
+    public void testSameAsStringReplace() {
+        for (String[] replacement : REPLACEMENTS) {
+            XTranslateEntry entry = createEntry(1, replacement[0], replacement[1], false);
+            assertEquals(replacement[0], SOURCE.replaceAll(replacement[0], replacement[1]),
+                         CompiledTranslation.compile(entry).apply(SOURCE));
+            entry.setProcessOnce(true);
+            assertEquals(replacement[0], SOURCE.replaceFirst(replacement[0], replacement[1]),
+                         CompiledTranslation.compile(entry).apply(SOURCE));
+        }
+    }
+
+    @Test
+    public void testLiteralChangeCase() {
+        XTranslateEntry entry = createEntry(1, "rs\\.get", "", false);
+        entry.setOperation(XTranslationOperationType.ALL_UPPER);
+        CompiledTranslation translation = CompiledTranslation.compile(entry);
+        assertTrue(translation.isLiteral());
+        assertEquals("RS.GETString(1); RS.GETInt(22); RS.GETLong(3) $ \\ end", translation.apply(SOURCE));
+        entry.setProcessOnce(true);
+        assertEquals("RS.GETString(1); rs.getInt(22); rs.getLong(3) $ \\ end", CompiledTranslation.compile(entry).apply(SOURCE));
+        entry.setOperation(XTranslationOperationType.ALL_LOWER);
+        assertEquals(SOURCE, CompiledTranslation.compile(entry).apply(SOURCE));
+    }
+
+    @Test
+    public void testChangeCaseSameAsRestOfString() {
+        // each search starts on the rest of the string, so ^ matches again after a match
+        XTranslateEntry entry = createEntry(1, "^a", "", false);
+        entry.setOperation(XTranslationOperationType.ALL_UPPER);
+        assertEquals("AAba", CompiledTranslation.compile(entry).apply("aaba"));
+        entry.setFromRegex("(?<=s)elect");
+        assertEquals("sELECT sELECT", CompiledTranslation.compile(entry).apply("select select"));
+        entry.setFromRegex("b*");
+        assertEquals("aBBa", CompiledTranslation.compile(entry).apply("abba"));
+    }
+
+    @Test
+    public void testChangeCaseManyMatches() {
+        StringBuilder source = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            source.append("select x from y;\n");
+            expected.append("SELECT x FROM y;\n");
+        }
+        XTranslateEntry entry = createEntry(1, "\\b(select|from)\\b", "", false);
+        entry.setOperation(XTranslationOperationType.ALL_UPPER);
+        assertEquals(expected.toString(), CompiledTranslation.compile(entry).apply(source.toString()));
+    }
+
+    @Test
+    public void testPlanCompilesOnce() {
+        XTranslateEntry entry = createEntry(1, "rs", "resultSet", false);
+        XTranslationFileType file = new XTranslationFileType();
+        file.setTranslations(new XTranslateList());
+        file.getTranslations().getTranslateItem().add(entry);
+        TranslationPlan plan = new TranslationPlan(Collections.singletonList(file));
+        assertEquals(1, plan.size());
+        assertEquals(1, plan.getLiteralCount());
+        assertSame(plan.getCompiledTranslation(entry), plan.getCompiledTranslation(entry));
+        assertEquals(SOURCE.replaceAll("rs", "resultSet"), plan.translate(SOURCE, Collections.singletonList(entry)));
+    }
+
+    @Test
+    public void testDefaults() {
+        XTranslateEntry entry = new XTranslateEntry();
+        entry.setId(1);
+        entry.setFromRegex("rs");
+        assertEquals(SOURCE.replaceFirst("rs", ""), CompiledTranslation.compile(entry).apply(SOURCE));
+    }
+
+    @Test(expected = TranslationIdException.class)
+    public void testInvalidRegex() {
+        CompiledTranslation.compile(createEntry(1, "rs(", "", true));
+    }
+
+    @Test(expected = TranslationIdException.class)
+    public void testInvalidGroupReference() {
+        CompiledTranslation.compile(createEntry(1, "rs", "$1", true));
+    }
+
+    private static XTranslateEntry createEntry(int id, String from, String to, boolean processOnce) {
+        XTranslateEntry entry = new XTranslateEntry();
+        entry.setId(id);
+        entry.setFromRegex(from);
+        entry.setToString(to);
+        entry.setProcessOnce(processOnce);
+        return entry;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Times the java.util.regex and the automaton engine on the regexes and sources of the sample conversions,
+ * and on a regex that backtracks exponentially.
+ * <p/>
+ * It is not run by the unit tests, start it from the project folder with the test classpath:
+ * java org.retro.code.converter.regex.RegexEngineBenchmark [sample-conversions]
+ */
+public class RegexEngineBenchmark {
+    private static final Pattern  REGEX_ELEMENT = Pattern.compile("<(searchStart|searchEnd|fromRegex)>(.*?)</\\1>",
+                                                                  Pattern.DOTALL);
+    private static final int      RUNS          = 5;
+    private static final int      WARM_UP       = 20;
+
+    public static void main(String[] args) throws IOException {
+        File samples = new File(args.length > 0 ? args[0] : "sample-conversions");
+        File[] folders = samples.listFiles();
+        if (folders == null) {
+            System.out.println("No sample conversions in " + samples.getAbsolutePath());
+            return;
+        }
+        System.out.println(String.format("%-24s %8s %10s %12s %12s", "sample", "regexes", "chars", "java ms", "automaton ms"));
+        for (File folder : folders) {
+            if (folder.isDirectory()) {
+                List<String> regexes = getRegexes(folder);
+                List<String> sources = getSources(new File(folder, "source"));
+                int chars = 0;
+                for (String source : sources) {
+                    chars += source.length();
+                }
+                System.out.println(String.format("%-24s %8d %10d %12.3f %12.3f", folder.getName(), regexes.size(), chars,
+                                                 time(RegexEngines.JAVA, regexes, sources),
+                                                 time(RegexEngines.AUTOMATON, regexes, sources)));
+            }
+        }
+        List<String> backtracking = new ArrayList<String>();
+        backtracking.add("(\\w+\\s?)+;");
+        List<String> line = new ArrayList<String>();
+        line.add("int value = another value");
+        System.out.println(String.format("%-24s %8d %10d %12.3f %12.3f", "backtracking", 1, line.get(0).length(),
+                                         time(RegexEngines.JAVA, backtracking, line),
+                                         time(RegexEngines.AUTOMATON, backtracking, line)));
+    }
+
+    /*
+     * The best time of finding all the matches of all the regexes in all the sources.
+     */
+    private static double time(RegexEngine engine, List<String> regexes, List<String> sources) {
+        List<RegexPattern> patterns = new ArrayList<RegexPattern>();
+        for (String regex : regexes) {
+            patterns.add(engine.compile(regex));
+        }
+        for (int i = 0; i < WARM_UP; i++) {
+            findAll(patterns, sources);
+        }
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            findAll(patterns, sources);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    private static int findAll(List<RegexPattern> patterns, List<String> sources) {
+        int matches = 0;
+        for (RegexPattern pattern : patterns) {
+            for (String source : sources) {
+                RegexMatcher matcher = pattern.matcher(source);
+                while (matcher.find()) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static List<String> getRegexes(File folder) throws IOException {
+        List<String> regexes = new ArrayList<String>();
+        for (File file : listFiles(folder)) {
+            if (file.getName().endsWith(".xml")) {
+                Matcher matcher = REGEX_ELEMENT.matcher(readFile(file));
+                while (matcher.find()) {
+                    regexes.add(matcher.group(2).replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                                       .replace("&apos;", "'").replace("&amp;", "&"));
+                }
+            }
+        }
+        return regexes;
+    }
+
+    private static List<String> getSources(File folder) throws IOException {
+        List<String> sources = new ArrayList<String>();
+        for (File file : listFiles(folder)) {
+            if (file.isFile()) {
+                sources.add(readFile(file));
+            }
+        }
+        return sources;
+    }
+
+    private static File[] listFiles(File folder) {
+        File[] files = folder.listFiles();
+        return files == null ? new File[0] : files;
+    }
+
+    private static String readFile(File file) throws IOException {
+        StringBuilder contents = new StringBuilder();
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                contents.append(buffer, 0, read);
+            }
+        } finally {
+            reader.close();
+        }
+        return contents.toString();
+    }
+}
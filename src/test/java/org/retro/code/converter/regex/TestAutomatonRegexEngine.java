@@ -0,0 +1,181 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.junit.Test;
+import org.retro.code.converter.xml.v1.types.XRegexEngineType;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the automaton engine finds the same matches and groups as java.util.regex.
+ */
+public class TestAutomatonRegexEngine {
+    private static final String[] ATOMS = {"a", "b", "ab", "[ab]", "[^a]", ".", "\\s", "\\w", "(a)", "(a|b)",
+                                           "(?:ab|a)", "\\b", "^", "$", "(?m)^", "(?m)$", "\\n", "x"};
+    private static final String[] QUANTIFIERS = {"", "", "*", "+", "?", "*?", "+?", "??", "{2}", "{1,3}", "{0,2}?"};
+    private static final String   ALPHABET = "aab bx\n\r_";
+
+    @Test
+    public void testSameMatches() {
+        assertSameMatches("a+b", "xaaab ab b");
+        assertSameMatches("(\\w+)\\s*=\\s*(\\w+);", "int a = 1;\nb=c;");
+        assertSameMatches("(?s)/\\*.*?\\*/", "a /* one */ b /* two\n */");
+        assertSameMatches("^\\s*(public|private)?\\s*void\\s+(\\w+)\\(", "  public void run() {\nvoid stop(");
+        assertSameMatches("(?m)^\\w+$", "one\r\ntwo\nthree four\n");
+        assertSameMatches("end$", "the end\n");
+        assertSameMatches("\\bis\\b", "this is island is");
+        assertSameMatches("a*", "baab");
+        assertSameMatches("(a|ab)(c|bcd)(d*)", "abcd");
+    }
+
+    @Test
+    public void testRandomRegexes() {
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder regex = new StringBuilder();
+            int atoms = 1 + random.nextInt(4);
+            for (int j = 0; j < atoms; j++) {
+                regex.append(ATOMS[random.nextInt(ATOMS.length)]);
+                if (!regex.toString().endsWith("^") && !regex.toString().endsWith("$") && !regex.toString().endsWith("\\b")) {
+                    regex.append(QUANTIFIERS[random.nextInt(QUANTIFIERS.length)]);
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            assertSameMatches(regex.toString(), text.toString());
+        }
+    }
+
+    @Test
+    public void testMatchesAndRegion() {
+        RegexMatcher matcher = RegexEngines.AUTOMATON.compile("a(b*)").matcher("xabbab");
+        assertFalse(matcher.matches());
+        matcher.region(1, 4);
+        assertTrue(matcher.matches());
+        assertEquals("bb", matcher.group(1));
+        matcher.region(4, 6);
+        assertTrue(matcher.find());
+        assertEquals(4, matcher.start());
+        assertFalse(matcher.find());
+        matcher = RegexEngines.AUTOMATON.compile("(x)?a").matcher("a");
+        assertTrue(matcher.find());
+        assertNull(matcher.group(1));
+        assertEquals(-1, matcher.start(1));
+    }
+
+    @Test
+    public void testFallback() {
+        // back references, lookarounds and possessive quantifiers are left to java.util.regex
+        assertTrue(RegexEngines.AUTOMATON.compile("(a)\\1") instanceof JavaRegexEngine.JavaPattern);
+        assertTrue(RegexEngines.AUTOMATON.compile("a(?=b)") instanceof JavaRegexEngine.JavaPattern);
+        assertTrue(RegexEngines.AUTOMATON.compile("a++") instanceof JavaRegexEngine.JavaPattern);
+        assertFalse(RegexEngines.AUTOMATON.compile("a+") instanceof JavaRegexEngine.JavaPattern);
+        assertSameMatches("(a)\\1", "xaa");
+    }
+
+    @Test
+    public void testDefaultEngine() {
+        assertSame(RegexEngines.JAVA, RegexEngines.get(null));
+        assertSame(RegexEngines.AUTOMATON, RegexEngines.get(null, XRegexEngineType.AUTOMATON));
+        assertSame(RegexEngines.JAVA, RegexEngines.get(XRegexEngineType.JAVA, XRegexEngineType.AUTOMATON));
+        assertNotNull(CompiledRegex.compile("a+b", null).getPattern());
+
+        // the default engine belongs to the search regexes of one run and does not leak into another run
+        SearchRegexes automatonRun = new SearchRegexes(XRegexEngineType.AUTOMATON);
+        SearchRegexes javaRun = new SearchRegexes(null);
+        assertFalse(automatonRun.get("a+b", null).getPattern() instanceof JavaRegexEngine.JavaPattern);
+        assertTrue(javaRun.get("a+b", null).getPattern() instanceof JavaRegexEngine.JavaPattern);
+        assertTrue(automatonRun.get("a+b", XRegexEngineType.JAVA).getPattern() instanceof JavaRegexEngine.JavaPattern);
+    }
+
+    @Test
+    public void testLinearTime() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            text.append('a');
+        }
+        RegexBudget budget = new RegexBudget("test regex", 1000000, 0);
+        assertFalse(RegexEngines.AUTOMATON.compile("(a+)+b").matcher(budget.wrap(text)).find());
+    }
+
+    @Test
+    public void testSurrogates() {
+        assertSameMatches(".", "a\uD83D\uDE00b");
+        assertSameMatches("x.y", "xay x\uD83D\uDE00y");
+        assertSameMatches("a(b?)", "ab a\uD83D\uDE00ab");
+        assertSameMatches("[^a]+", "\uD83D\uDE00a\uDE00");
+        RegexMatcher matcher = RegexEngines.AUTOMATON.compile("a.").matcher("ab a\uD83D\uDE00");
+        assertTrue(matcher.find());
+        assertEquals("ab", matcher.group());
+        assertTrue(matcher.find());
+        assertEquals("a\uD83D\uDE00", matcher.group());
+        assertFalse(matcher.find());
+        assertTrue(matcher.region(0, 2).matches());
+        assertEquals(2, matcher.end());
+    }
+
+    @Test
+    public void testLinearBudget() {
+        // the surrogates are only looked for in the characters the search reads, not charged up front
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 6000; i++) {
+            text.append('a');
+        }
+        text.append("xz");
+        RegexBudget budget = new RegexBudget("test regex", 8000, 0);
+        RegexMatcher java = RegexEngines.JAVA.compile("x[yz]").matcher(budget.wrap(text));
+        RegexMatcher automaton = RegexEngines.AUTOMATON.compile("x[yz]").matcher(budget.wrap(text));
+        assertTrue(java.find());
+        assertTrue(automaton.find());
+        assertEquals(java.start(), automaton.start());
+        assertEquals(java.end(), automaton.end());
+    }
+
+    private void assertSameMatches(String regex, String text) {
+        Matcher expected = Pattern.compile(regex).matcher(text);
+        RegexMatcher actual = RegexEngines.AUTOMATON.compile(regex).matcher(text);
+        String message = regex + " in [" + text + "]";
+        while (true) {
+            boolean found = expected.find();
+            assertEquals(message, found, actual.find());
+            if (!found) {
+                break;
+            }
+            for (int group = 0; group <= expected.groupCount(); group++) {
+                assertEquals(message + " group " + group, expected.start(group), actual.start(group));
+                assertEquals(message + " group " + group, expected.end(group), actual.end(group));
+            }
+        }
+        expected.reset();
+        assertEquals(message, expected.matches(), RegexEngines.AUTOMATON.compile(regex).matcher(text).matches());
+        expected.reset();
+        actual = RegexEngines.AUTOMATON.compile(regex).matcher(text);
+        boolean lookingAt = expected.lookingAt();
+        assertEquals(message, lookingAt, actual.lookingAt());
+        if (lookingAt) {
+            assertEquals(message, expected.end(), actual.end());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class TestMultiLiteralMatcher {
+
+    @Test
+    public void testOverlapping() {
+        MultiLiteralMatcher matcher = new MultiLiteralMatcher(Arrays.asList("he", "she", "his", "hers"));
+        int[][] found = matcher.findAll("ushers and hisé");
+        assertArrayEquals(new int[] {2}, found[0]);
+        assertArrayEquals(new int[] {1}, found[1]);
+        assertArrayEquals(new int[] {11}, found[2]);
+        assertArrayEquals(new int[] {2}, found[3]);
+    }
+
+    @Test
+    public void testSameAsIndexOf() {
+        Random random = new Random(11);
+        String[] literals = {"ab", "aab", "b", "abab", "baé", "c"};
+        MultiLiteralMatcher matcher = new MultiLiteralMatcher(Arrays.asList(literals));
+        for (int run = 0; run < 100; run++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(80);
+            for (int i = 0; i < length; i++) {
+                text.append("abcéx".charAt(random.nextInt(5)));
+            }
+            int[][] found = matcher.findAll(text);
+            for (int index = 0; index < literals.length; index++) {
+                assertArrayEquals(text.toString(), indexesOf(text.toString(), literals[index]), found[index]);
+            }
+        }
+    }
+
+    private static int[] indexesOf(String text, String literal) {
+        int[] indexes = new int[text.length()];
+        int count = 0;
+        for (int index = text.indexOf(literal); index != -1; index = text.indexOf(literal, index + 1)) {
+            indexes[count++] = index;
+        }
+        return Arrays.copyOf(indexes, count);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.junit.Test;
+import org.retro.code.converter.exception.CodeConversionException;
+import org.retro.code.converter.execution.info.CodeBuffer;
+import org.retro.code.converter.execution.info.SourceInfo;
+import org.retro.code.converter.execution.plan.CompiledCodeSection;
+import org.retro.code.converter.execution.plan.SectionMatcher;
+import org.retro.code.converter.execution.translation.CompiledTranslation;
+import org.retro.code.converter.xml.TranslationsLoader;
+import org.retro.code.converter.xml.v1.types.XCodeBlockType;
+import org.retro.code.converter.xml.v1.types.XCodeSection;
+import org.retro.code.converter.xml.v1.types.XRegexBudget;
+import org.retro.code.converter.xml.v1.types.XTranslateEntry;
+
+import java.util.LinkedHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that a regex that backtracks too much is stopped by its budget.
+ */
+public class TestRegexBudget {
+
+    // still exponential on the JDKs that memoize nested quantifiers like (a+)+b
+    private static final String BACKTRACKING = "(.*a){12}b";
+    private static final String SOURCE = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+
+    @Test
+    public void testStepBudget() {
+        RegexBudget budget = new RegexBudget("test regex", 100000, 0);
+        try {
+            Pattern.compile(BACKTRACKING).matcher(budget.wrap(SOURCE)).find();
+            fail();
+        } catch (CodeConversionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("test regex at offset "));
+            assertTrue(e.getMessage(), e.getMessage().contains("after 100001 steps"));
+        }
+    }
+
+    @Test(expected = CodeConversionException.class)
+    public void testTimeBudget() {
+        RegexBudget budget = new RegexBudget("test regex", 0, 100);
+        Pattern.compile(BACKTRACKING).matcher(budget.wrap(SOURCE)).find();
+    }
+
+    @Test
+    public void testWithinBudget() {
+        RegexBudget budget = new RegexBudget("test regex", 100000, 1000);
+        assertTrue(Pattern.compile(BACKTRACKING).matcher(budget.wrap("aaaaaaaaaaaab")).find());
+        assertEquals("aaab", RegexBudget.UNLIMITED.wrap("aaab"));
+    }
+
+    @Test
+    public void testRestart() {
+        RegexBudget budget = new RegexBudget("test regex", 1000, 0);
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 15; i++) {
+            source.append(SOURCE);
+        }
+        CharSequence text = budget.wrap(source);
+        Matcher matcher = Pattern.compile("x").matcher(text);
+        assertFalse(matcher.find());
+        budget.restart(text);
+        assertEquals(0, ((BudgetedCharSequence) text).getSteps());
+        assertFalse(matcher.region(100, text.length()).find());
+    }
+
+    @Test
+    public void testTranslationBudget() {
+        XTranslateEntry entry = new XTranslateEntry();
+        entry.setId(7);
+        // not a required literal, so that the prefilter does not skip the regex
+        entry.setFromRegex("(.*a){12}[bc]");
+        entry.setToString("");
+        entry.setRegexBudget(new XRegexBudget());
+        entry.getRegexBudget().setMaxSteps(10000L);
+        try {
+            CompiledTranslation.compile(entry).apply(SOURCE);
+            fail();
+        } catch (CodeConversionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("translation id 7"));
+        }
+    }
+
+    @Test
+    public void testCodeSectionBudget() {
+        XCodeSection codeSection = new XCodeSection();
+        codeSection.setId(3);
+        codeSection.setTargetFileId(1);
+        codeSection.setTitle("SEARCH");
+        codeSection.setSearchStart("(.*a){12}[bc]");
+        codeSection.setCodeBlock(XCodeBlockType.LINE_END);
+        codeSection.setRegexBudget(new XRegexBudget());
+        codeSection.getRegexBudget().setMaxSteps(10000L);
+        CompiledCodeSection compiled = CompiledCodeSection.compile(codeSection, new TranslationsLoader(),
+                                                                   new LinkedHashMap<Integer, StringBuilder>());
+        CodeBuffer codeBuffer = new CodeBuffer(new SourceInfo("int x;\n" + SOURCE, null));
+        try {
+            new SectionMatcher(compiled, codeBuffer, null).find(0);
+            fail();
+        } catch (CodeConversionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("code section SEARCH (id 3) at source position 2:"));
+        }
+    }
+
+    @Test
+    public void testNoLimitByDefault() {
+        RegexBudget budget = RegexBudget.of("test regex", null);
+        assertEquals(0, budget.getMaxSteps());
+        assertEquals(0, budget.getMaxMillis());
+        assertEquals(SOURCE, budget.wrap(SOURCE));
+    }
+}
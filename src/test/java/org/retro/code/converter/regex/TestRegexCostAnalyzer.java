@@ -0,0 +1,100 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.junit.Test;
+import org.retro.code.converter.regex.RegexCostAnalyzer.Severity;
+import org.retro.code.converter.regex.RegexCostAnalyzer.Warning;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the constructs the regex cost analyzer reports.
+ */
+public class TestRegexCostAnalyzer {
+
+    @Test
+    public void testNestedQuantifiers() {
+        assertWarning("(a+)+b", true, Severity.HIGH, RegexCostAnalyzer.NESTED_QUANTIFIER);
+        assertWarning("(\\s*\\w+)*;", true, Severity.HIGH, RegexCostAnalyzer.NESTED_QUANTIFIER);
+        assertWarning("([a-z]+\\d?)*=", true, Severity.HIGH, RegexCostAnalyzer.NESTED_QUANTIFIER);
+        // the inner quantifier is enclosed by other characters, possessive or atomic
+        assertNoWarning("(ab+c)*");
+        assertNoWarning("(a++)+b");
+        assertNoWarning("(?>(a+)+)b");
+        assertNoWarning("(\\d+,)*\\d+");
+    }
+
+    @Test
+    public void testNestedInBounded() {
+        assertWarning("(.*a){12}b", true, Severity.HIGH, RegexCostAnalyzer.NESTED_IN_BOUNDED);
+        assertWarning("(?:\\w+\\s?){2,20};", true, Severity.HIGH, RegexCostAnalyzer.NESTED_IN_BOUNDED);
+        // a small count, only bounded quantifiers inside, or an enclosed quantifier
+        assertNoWarning("(.*a){3}b");
+        assertNoWarning("(a?b?){12}c");
+        assertNoWarning("(,\\d+;){12}");
+    }
+
+    @Test
+    public void testOverlappingAlternatives() {
+        assertWarning("(a|ab)*c", true, Severity.HIGH, RegexCostAnalyzer.OVERLAPPING_CHOICES);
+        assertWarning("(?:\\w|\\d)+;", true, Severity.HIGH, RegexCostAnalyzer.OVERLAPPING_CHOICES);
+        assertNoWarning("(a|b)*c");
+        assertNoWarning("(?:if|else)+");
+    }
+
+    @Test
+    public void testAdjacentQuantifiers() {
+        assertWarning("\\s*\\s*x", true, Severity.MEDIUM, RegexCostAnalyzer.ADJACENT_QUANTIFIERS);
+        assertWarning("=.*\\s?.*;", true, Severity.MEDIUM, RegexCostAnalyzer.ADJACENT_QUANTIFIERS);
+        assertNoWarning("\\w+\\s*=\\s*\\d+");
+        assertNoWarning("[a-z]*[0-9]*");
+    }
+
+    @Test
+    public void testLeadingAny() {
+        assertWarning(".*=", false, Severity.MEDIUM, RegexCostAnalyzer.LEADING_ANY);
+        assertWarning("(?s).*end", false, Severity.MEDIUM, RegexCostAnalyzer.LEADING_ANY);
+        assertNoWarning(".*=");
+        assertEquals(0, RegexCostAnalyzer.analyze("^.*=", false).size());
+        assertEquals(0, RegexCostAnalyzer.analyze("(?s).*", false).size());
+    }
+
+    @Test
+    public void testReport() {
+        assertWarning("[a-z&&[^c]]+=", true, Severity.LOW, RegexCostAnalyzer.NOT_ANALYZED);
+
+        RegexCostReport report = new RegexCostReport();
+        report.analyze("conv.xml code section 1 searchStart", ".*=", false);
+        report.analyze("conv.xml code section 2 searchStart", "(a+)+b", true);
+        report.analyze("conv.xml code section 2 searchEnd", null, true);
+        assertEquals(1, report.getCount(Severity.HIGH));
+        assertEquals(1, report.getCount(Severity.MEDIUM));
+        assertEquals("conv.xml code section 2 searchStart", report.getEntries().get(0).getLocation());
+        assertTrue(report.getReport(), report.getReport().startsWith("Regex cost: 1 high, 1 medium, 0 low\n" +
+                                                                     "  HIGH conv.xml code section 2 searchStart [(a+)+b] "));
+    }
+
+    private void assertWarning(String regex, boolean processOnce, Severity severity, String message) {
+        List<Warning> warnings = RegexCostAnalyzer.analyze(regex, processOnce);
+        assertEquals(regex, 1, warnings.size());
+        assertEquals(regex, severity, warnings.get(0).getSeverity());
+        assertEquals(regex, message, warnings.get(0).getMessage());
+    }
+
+    private void assertNoWarning(String regex) {
+        assertEquals(regex, 0, RegexCostAnalyzer.analyze(regex, true).size());
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks which regexes are detected as literals.
+ */
+public class TestRegexLiterals {
+
+    private static final String[] LITERALS = {
+        "rs", "\\(1", "translate\\(\\)\\{\\}", "a\\tb\\n", "\\Qa.b*c\\E", "x\\Q(\\Ey", "\\Qopen", "\\\\", " = "
+    };
+
+    private static final String[] REGEXES = {
+        "", "a.b", "a*", "^a", "a$", "(a)", "[ab]", "a|b", "a{2}", "\\d", "\\w+", "\\x41", "\\0101", "\\", "\\Q\\E", "\\E"
+    };
+
+    @Test
+    public void testLiterals() {
+        for (String regex : LITERALS) {
+            String literal = RegexLiterals.toLiteral(regex);
+            assertTrue(regex, Pattern.compile(regex).matcher(literal).matches());
+        }
+        assertEquals("(1", RegexLiterals.toLiteral("\\(1"));
+        assertEquals("x(y", RegexLiterals.toLiteral("x\\Q(\\Ey"));
+    }
+
+    @Test
+    public void testRegexes() {
+        for (String regex : REGEXES) {
+            assertNull(regex, RegexLiterals.toLiteral(regex));
+        }
+    }
+
+    @Test
+    public void testLeadingLiterals() {
+        assertEquals("public void", RegexLiterals.getLeadingLiteral("public void.*\\{"));
+        assertEquals("ab", RegexLiterals.getLeadingLiteral("(?:ab)c?"));
+        assertEquals("abc", RegexLiterals.getLeadingLiteral("a(b)c+d"));
+        assertEquals("x", RegexLiterals.getLeadingLiteral("x(?=y)y"));
+        assertNull(RegexLiterals.getLeadingLiteral("a|b"));
+        assertNull(RegexLiterals.getLeadingLiteral("\\s*class"));
+        assertNull(RegexLiterals.getLeadingLiteral("^class"));
+        assertNull(RegexLiterals.getLeadingLiteral("class\\b"));
+        assertNull(RegexLiterals.getLeadingLiteral("class(?<=s)"));
+        assertNull(RegexLiterals.getLeadingLiteral("(?i)class"));
+    }
+}
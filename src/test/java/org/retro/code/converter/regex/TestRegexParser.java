@@ -0,0 +1,107 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.regex;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the regex parser and that the required literals really are part of every match.
+ */
+public class TestRegexParser {
+
+    private static final String[] REGEXES = {
+        "getString\\((\\d+)\\)", "(?m)^import\\s.*;\n", "a(bc|bd)e", "(ab)+c", "x(?=yz)y", "(?<=a)bc",
+        "(a|b)\\1c", "[ab]{2}c", "ab?c", "a{3}", "(?<n>ab)\\k<n>", "\\Qa.b\\E+c", "[\\S]\\+\\+;", "a|ab|abc",
+        "(?:ab){1,2}c", "\\bcat\\b", "[^a-c]bc", "(?s)a.b", "\\x41\\u0042\\0103", "\\ta\\cJ", "(a*)*b", "ab*+c"
+    };
+
+    private static final String[] UNSUPPORTED = {
+        "(?i)abc", "\\p{Alpha}", "[a&&b]", "[^a[b]]", "\\Rabc", "\\x{41}", "\\hx"
+    };
+
+    @Test
+    public void testRequiredLiterals() {
+        assertEquals(Arrays.asList("getString(", ")"), RequiredLiterals.of("getString\\((\\d+)\\)"));
+        assertEquals(Arrays.asList("import", ";\n"), RequiredLiterals.of("(?m)^import\\s.*;\n"));
+        assertEquals(Arrays.asList("a", "e"), RequiredLiterals.of("a(bc|bd)e"));
+        assertEquals(Arrays.asList("aaa"), RequiredLiterals.of("a{3}"));
+        assertEquals(Collections.<String>emptyList(), RequiredLiterals.of("a|ab|abc"));
+        assertEquals(Arrays.asList("ab"), RequiredLiterals.of("(ab|ab)"));
+        assertEquals(Arrays.asList("cat"), RequiredLiterals.of("\\bcat\\b"));
+        assertEquals(Arrays.asList("ABC"), RequiredLiterals.of("\\x41\\u0042\\0103"));
+        assertEquals(Collections.<String>emptyList(), RequiredLiterals.of("(?i)abc"));
+    }
+
+    @Test
+    public void testUnsupported() {
+        for (String regex : UNSUPPORTED) {
+            Pattern.compile(regex);
+            assertNull(regex, RegexParser.parse(regex));
+        }
+        for (String regex : REGEXES) {
+            assertNotNull(regex, RegexParser.parse(regex));
+        }
+    }
+
+    @Test
+    public void testMatchesContainRequiredLiterals() {
+        Random random = new Random(1234);
+        for (String regex : REGEXES) {
+            Pattern pattern = Pattern.compile(regex);
+            List<String> literals = RequiredLiterals.of(regex);
+            for (int i = 0; i < 2000; i++) {
+                String text = randomText(random);
+                Matcher matcher = pattern.matcher(text);
+                while (matcher.find()) {
+                    for (String literal : literals) {
+                        assertTrue(regex + " in " + text, matcher.group().contains(literal));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPrefilter() {
+        RegexPrefilter prefilter = new RegexPrefilter("test", "getString\\((\\d+)\\)");
+        assertTrue(prefilter.isActive());
+        assertTrue(prefilter.mayMatch("rs.getString(1)"));
+        assertEquals(false, prefilter.mayMatch("rs.getInt(1)"));
+        assertEquals(false, prefilter.mayMatch("rs.getString"));
+        assertEquals(2, prefilter.getSkipCount());
+        assertEquals(1, prefilter.getHitCount());
+        assertTrue(RegexPrefilter.getReport(Collections.singletonList(prefilter)).startsWith("Regex prefilter: 2 skipped, 1 run"));
+    }
+
+    private static String randomText(Random random) {
+        String[] parts = {"a", "b", "c", "d", "e", "x", "y", "z", "ab", "bc", "cat", " ", "\n", "1", "(", ")", ";",
+                          "import ", "getString(", "++;", "ABC", "\t", "A", "B", "C"};
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(12);
+        for (int i = 0; i < length; i++) {
+            text.append(parts[random.nextInt(parts.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -15,9 +15,15 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.retro.code.converter.execution.info.BracketInfo;
 import org.retro.code.converter.execution.info.CodeBuffer;
-import org.retro.code.converter.execution.info.CodeSectionInfo;
+import org.retro.code.converter.execution.info.SourceInfo;
+import org.retro.code.converter.execution.lexer.SourceLexer;
+import org.retro.code.converter.execution.plan.CompiledCodeSection;
+import org.retro.code.converter.xml.TranslationsLoader;
 import org.retro.code.converter.xml.v1.types.XCodeBlockType;
 import org.retro.code.converter.xml.v1.types.XCodeSection;
+import org.retro.code.converter.xml.v1.types.XSourceLanguageType;
+
+import java.util.LinkedHashMap;
 
 import static org.junit.Assert.assertEquals;
 
@@ -92,9 +98,9 @@ public class TestConverterUtils {
         codeSection.setSearchStart(SEARCH_AUTO_1);
         codeSection.setRemoveSearch(true);
         codeSection.setProcessOnce(true);
-        CodeSectionInfo codeSectionInfo = new CodeSectionInfo(codeSection);
+        CompiledCodeSection compiledCodeSection = compile(codeSection);
         final CodeBuffer codeBuffer = new CodeBuffer(CODE_1);
-        ConverterUtils.extractCodeBlock(codeSectionInfo, codeBuffer, 0, BRACKET_INFO_SEARCH_1.getCode().length());
+        ConverterUtils.extractCodeBlock(compiledCodeSection, codeBuffer, 0, BRACKET_INFO_SEARCH_1.getCode().length());
         assertEquals(CODE_1.substring(SEARCH_AUTO_1.replaceAll("\\\\", "").length()).length() - 1,
                     codeBuffer.getEndIndex() - codeBuffer.getStartIndex());
     }
@@ -108,9 +114,9 @@ public class TestConverterUtils {
         codeSection.setSearchStart(SEARCH_AUTO_2);
         codeSection.setRemoveSearch(true);
         codeSection.setProcessOnce(true);
-        CodeSectionInfo codeSectionInfo = new CodeSectionInfo(codeSection);
+        CompiledCodeSection compiledCodeSection = compile(codeSection);
         final CodeBuffer codeBuffer = new CodeBuffer(CODE_2);
-        ConverterUtils.extractCodeBlock(codeSectionInfo, codeBuffer, 0, SEARCH_AUTO_2.replaceAll("\\\\", "").length());
+        ConverterUtils.extractCodeBlock(compiledCodeSection, codeBuffer, 0, SEARCH_AUTO_2.replaceAll("\\\\", "").length());
         assertEquals(CODE_2.substring(SEARCH_AUTO_2.replaceAll("\\\\", "").length()).length() - 1,
                     codeBuffer.getEndIndex() - codeBuffer.getStartIndex());
     }
@@ -125,9 +131,9 @@ public class TestConverterUtils {
         codeSection.setSearchEnd(SEARCH_END_2);
         codeSection.setRemoveSearch(true);
         codeSection.setProcessOnce(true);
-        CodeSectionInfo codeSectionInfo = new CodeSectionInfo(codeSection);
+        CompiledCodeSection compiledCodeSection = compile(codeSection);
         final CodeBuffer codeBuffer = new CodeBuffer(CODE_2);
-        ConverterUtils.extractCodeBlock(codeSectionInfo, codeBuffer, 0, FUNCTION.length());
+        ConverterUtils.extractCodeBlock(compiledCodeSection, codeBuffer, 0, FUNCTION.length());
         assertEquals(SEARCH_INDEX_RESULT_2, codeBuffer.getEndIndex() - codeBuffer.getStartIndex());
     }
 
@@ -140,9 +146,9 @@ public class TestConverterUtils {
         codeSection.setSearchStart(CLASS);
         codeSection.setProcessOnce(true);
         codeSection.setRemoveSearch(true);
-        CodeSectionInfo codeSectionInfo = new CodeSectionInfo(codeSection);
+        CompiledCodeSection compiledCodeSection = compile(codeSection);
         final CodeBuffer codeBuffer = new CodeBuffer(CODE_1);
-        ConverterUtils.extractCodeBlock(codeSectionInfo, codeBuffer, 0, CLASS.length());
+        ConverterUtils.extractCodeBlock(compiledCodeSection, codeBuffer, 0, CLASS.length());
         assertEquals(CODE_1.substring(CLASS.length()).length() - 1,
                     codeBuffer.getEndIndex() - codeBuffer.getStartIndex());
     }
@@ -156,9 +162,9 @@ public class TestConverterUtils {
         codeSection.setSearchStart(FUNCTION);
         codeSection.setRemoveSearch(true);
         codeSection.setProcessOnce(true);
-        CodeSectionInfo codeSectionInfo = new CodeSectionInfo(codeSection);
+        CompiledCodeSection compiledCodeSection = compile(codeSection);
         final CodeBuffer codeBuffer = new CodeBuffer(CODE_2);
-        ConverterUtils.extractCodeBlock(codeSectionInfo, codeBuffer, 0, FUNCTION.length());
+        ConverterUtils.extractCodeBlock(compiledCodeSection, codeBuffer, 0, FUNCTION.length());
         assertEquals(CODE_2.substring(FUNCTION.length()).length() - 1,
                     codeBuffer.getEndIndex() - codeBuffer.getStartIndex());
     }
@@ -172,9 +178,9 @@ public class TestConverterUtils {
         codeSection.setSearchStart(SEARCH_3);
         codeSection.setRemoveSearch(true);
         codeSection.setProcessOnce(true);
-        CodeSectionInfo codeSectionInfo = new CodeSectionInfo(codeSection);
+        CompiledCodeSection compiledCodeSection = compile(codeSection);
         final CodeBuffer codeBuffer = new CodeBuffer(CODE_3);
-        ConverterUtils.extractCodeBlock(codeSectionInfo, codeBuffer, 0, SEARCH_3.length());
+        ConverterUtils.extractCodeBlock(compiledCodeSection, codeBuffer, 0, SEARCH_3.length());
         assertEquals(SEARCH_INDEX_RESULT_3, codeBuffer.getEndIndex() - codeBuffer.getStartIndex());
     }
 
@@ -187,14 +193,53 @@ public class TestConverterUtils {
         codeSection.setSearchStart(SEARCH_4);
         codeSection.setRemoveSearch(true);
         codeSection.setProcessOnce(true);
-        CodeSectionInfo codeSectionInfo = new CodeSectionInfo(codeSection);
+        CompiledCodeSection compiledCodeSection = compile(codeSection);
         final CodeBuffer codeBuffer = new CodeBuffer(CODE_4);
-        ConverterUtils.extractCodeBlock(codeSectionInfo, codeBuffer, 0, SEARCH_4.length());
+        ConverterUtils.extractCodeBlock(compiledCodeSection, codeBuffer, 0, SEARCH_4.length());
         assertEquals(CODE_4.substring(SEARCH_4.length()).length() - 1,
                     codeBuffer.getEndIndex() - codeBuffer.getStartIndex());
 
     }
 
+    @Test
+    public void testEndIndexFUNCTIONWithTokens() {
+        String code = "function() { /* } */ String s = \"}\"; }\n}";
+        XCodeSection codeSection = new XCodeSection();
+        codeSection.setId(1);
+        codeSection.setTargetFileId(1);
+        codeSection.setCodeBlock(XCodeBlockType.FUNCTION);
+        codeSection.setSearchStart(FUNCTION);
+        codeSection.setRemoveSearch(true);
+        codeSection.setProcessOnce(true);
+        CompiledCodeSection compiledCodeSection = compile(codeSection);
+        StringBuilder source = new StringBuilder(code);
+        final CodeBuffer codeBuffer = new CodeBuffer(new SourceInfo(source, SourceLexer.lex(source, XSourceLanguageType.JAVA)));
+        ConverterUtils.extractCodeBlock(compiledCodeSection, codeBuffer, 0, FUNCTION.length());
+        assertEquals(code.indexOf(";") + 3, codeBuffer.getEndIndex());
+    }
+
+    @Test
+    public void testEndIndexCOMMANDWithTokens() {
+        String code = "int a = f(\";\", ';'); // ;\nint b;";
+        XCodeSection codeSection = new XCodeSection();
+        codeSection.setId(1);
+        codeSection.setTargetFileId(1);
+        codeSection.setCodeBlock(XCodeBlockType.COMMAND);
+        codeSection.setSearchStart(SEARCH_4);
+        codeSection.setRemoveSearch(true);
+        codeSection.setProcessOnce(true);
+        CompiledCodeSection compiledCodeSection = compile(codeSection);
+        StringBuilder source = new StringBuilder(code);
+        final CodeBuffer codeBuffer = new CodeBuffer(new SourceInfo(source, SourceLexer.lex(source, XSourceLanguageType.C)));
+        ConverterUtils.extractCodeBlock(compiledCodeSection, codeBuffer, 0, SEARCH_4.length());
+        assertEquals(code.indexOf(");") + 2, codeBuffer.getEndIndex());
+    }
+
+    private static CompiledCodeSection compile(XCodeSection codeSection) {
+        return CompiledCodeSection.compile(codeSection, new TranslationsLoader(),
+                                           new LinkedHashMap<Integer, StringBuilder>());
+    }
+
     @Test
     public void testIndent() {
         assertEquals(EXPECTED_INDENT.toString(), ConverterUtils.formatCode(INDENT_CODE).toString());
@@ -0,0 +1,124 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.utils;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestLogUtil {
+    private static final int CALLS = 100000;
+
+    @Test
+    public void testSingleLineOutputFromIndex() {
+        StringBuilder code = new StringBuilder("prefix\nint a = 1;\n\nint b = 2;\n");
+        assertEquals(LogUtil.getSingleLineOutput(code.substring(7), 150),
+                     LogUtil.getSingleLineOutput(code, 7, 150));
+        assertEquals("[]", LogUtil.getSingleLineOutput(code, code.length(), 150));
+    }
+
+    @Test
+    public void testSingleLineOutputFromIndexSameAsCopy() {
+        Random random = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder code = new StringBuilder();
+            int length = random.nextInt(400);
+            for (int c = 0; c < length; c++) {
+                code.append(random.nextInt(4) == 0 ? '\n' : (char) ('a' + random.nextInt(26)));
+            }
+            int start = random.nextInt(length + 1);
+            int requiredLength = 10 + random.nextInt(200);
+            assertEquals(LogUtil.getSingleLineOutput(code.substring(start), requiredLength),
+                         LogUtil.getSingleLineOutput(code, start, requiredLength));
+        }
+    }
+
+    @Test
+    public void testDeferredMessages() {
+        Logger logger = Logger.getLogger("TestLogUtil.messages");
+        final List<String> messages = new ArrayList<String>();
+        logger.setLevel(Level.TRACE);
+        logger.setAdditivity(false);
+        logger.addAppender(new AppenderSkeleton() {
+            protected void append(LoggingEvent event) {
+                messages.add(event.getRenderedMessage());
+            }
+
+            public void close() {
+            }
+
+            public boolean requiresLayout() {
+                return false;
+            }
+        });
+        LogUtil.trace(logger, "Inserted at index {}", 1200);
+        LogUtil.trace(logger, 2, "Found [{}] at {}", "class A", "3:1");
+        LogUtil.debug(logger, 1, "Converting {}, {} and {}", "a", "b");
+        LogUtil.trace(logger, "Nothing to {}");
+        LogUtil.traceSingleLine(logger, 0, "In code ", "int a;\nint b;", 4, 150);
+        assertEquals("Inserted at index 1200", messages.get(0));
+        assertEquals("L2: Found [class A] at 3:1", messages.get(1));
+        assertEquals("L1: Converting a, b and {}", messages.get(2));
+        assertEquals("Nothing to {}", messages.get(3));
+        assertEquals("In code [a;int b;]", messages.get(4));
+
+        messages.clear();
+        logger.setLevel(Level.INFO);
+        LogUtil.trace(logger, "Inserted at index {}", 1200);
+        LogUtil.debug(logger, "Converting {}", "a");
+        assertEquals(0, messages.size());
+    }
+
+    @Test
+    public void testNoAllocationWhenDisabled() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+
+        Logger logger = Logger.getLogger("TestLogUtil.disabled");
+        logger.setLevel(Level.INFO);
+        StringBuilder code = new StringBuilder("int a = 1;\nint b = 2;\n");
+        long threadId = Thread.currentThread().getId();
+        // the first calls load and initialise the classes
+        logDisabled(logger, code, 0);
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int n = 0; n < CALLS; n++) {
+            logDisabled(logger, code, n);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+        // the JVM itself allocates a little now and then, an allocation per call would be at least 16 bytes a call
+        assertTrue("Allocated " + allocated + " bytes", allocated < CALLS);
+    }
+
+    private static void logDisabled(Logger logger, StringBuilder code, int index) {
+        LogUtil.trace(logger, "Inserted into result map at index {}", index + 1000);
+        LogUtil.trace(logger, 3, "Pre-template [{}]", code);
+        LogUtil.trace(logger, 3, "Found [{}] at {}", code, code);
+        LogUtil.traceSingleLine(logger, 3, "In code ", code, index % code.length(), 150);
+        LogUtil.debug(logger, 1, "Converting CODE for code section {}", code);
+        LogUtil.trace(logger, "Removing search regex from string");
+        LogUtil.debug(logger, 2, "Processing code block: ALL");
+    }
+}
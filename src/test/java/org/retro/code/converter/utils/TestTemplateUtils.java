@@ -0,0 +1,77 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+
+package org.retro.code.converter.utils;
+
+import org.junit.Test;
+import org.retro.code.converter.exception.CodeConversionException;
+import org.retro.code.converter.xml.v1.types.XCodeSection;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests that templates are split once and that the parts are shared by all the code sections.
+ */
+public class TestTemplateUtils {
+    private static final String TEMPLATE = "before " + TemplateUtils.CONTENTS_MARKER + " after " + TemplateUtils.CONTENTS_MARKER;
+
+    private static XCodeSection createCodeSection(Integer templateId) {
+        XCodeSection codeSection = new XCodeSection();
+        codeSection.setTemplateId(templateId);
+        return codeSection;
+    }
+
+    private static TemplateCache createCache() {
+        Map<Integer, StringBuilder> templates = new LinkedHashMap<Integer, StringBuilder>();
+        templates.put(1, new StringBuilder(TEMPLATE));
+        templates.put(2, new StringBuilder("no marker"));
+        return TemplateUtils.compileTemplates(templates);
+    }
+
+    @Test
+    public void testCompile() {
+        CompiledTemplate template = CompiledTemplate.compile(TEMPLATE);
+        assertEquals("before ", template.getPreamble());
+        assertEquals(" after " + TemplateUtils.CONTENTS_MARKER, template.getPostamble());
+        assertSame(CompiledTemplate.EMPTY, CompiledTemplate.compile("no marker"));
+    }
+
+    @Test
+    public void testShared() {
+        TemplateCache templates = createCache();
+        assertEquals(2, templates.size());
+        assertSame(templates.get(createCodeSection(1)), templates.get(createCodeSection(1)));
+        assertSame(TemplateUtils.getTemplatePreamble(createCodeSection(1), templates),
+                   TemplateUtils.getTemplatePreamble(createCodeSection(1), templates));
+        assertSame(TemplateUtils.getTemplatePostamble(createCodeSection(1), templates),
+                   TemplateUtils.getTemplatePostamble(createCodeSection(1), templates));
+    }
+
+    @Test
+    public void testNoTemplate() {
+        TemplateCache templates = createCache();
+        assertSame(CompiledTemplate.EMPTY, templates.get(createCodeSection(null)));
+        assertSame(CompiledTemplate.EMPTY, templates.get(createCodeSection(0)));
+        assertSame(CompiledTemplate.EMPTY, templates.get(createCodeSection(2)));
+        assertEquals("", TemplateUtils.getTemplatePreamble(createCodeSection(2), templates));
+        assertEquals("", TemplateUtils.getTemplatePostamble(createCodeSection(2), templates));
+    }
+
+    @Test(expected = CodeConversionException.class)
+    public void testMissingTemplate() {
+        createCache().get(createCodeSection(3));
+    }
+}
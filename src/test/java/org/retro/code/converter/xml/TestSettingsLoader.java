@@ -42,6 +42,9 @@ public class TestSettingsLoader {
 
         assertEquals("/trans.prop.sql.xml", transformFile.getTranslationFiles().getFileName().get(0));
         assertEquals("/trans.java.xml", transformFile.getTranslationFiles().getFileName().get(1));
+
+        assertEquals("AUTHOR", transformFile.getVariables().getVariable().get(0).getName());
+        assertEquals("Retro Code", transformFile.getVariables().getVariable().get(0).getValue());
     }
 
     @Test(expected = XMLMarshalException.class)
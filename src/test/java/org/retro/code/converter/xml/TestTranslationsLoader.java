@@ -0,0 +1,101 @@
+/*
+ * RetroCodeConv is released under the GNU GPL v3.0 licence.
+ * You may copy, distribute and modify the software as long as you keep modifications under GPL.
+ * All derived works of, or applications using, RetroCodeConv must be released under the same licence and be made available to the Open Source community.
+ *
+ * Please refer to https://www.gnu.org/licenses/gpl-3.0.html for all licence conditions.
+ *
+ * Copyright © Paul C. Rau (Financial Systems Developer)
+ *
+ */
+
+package org.retro.code.converter.xml;
+
+import org.junit.Test;
+import org.retro.code.converter.exception.ExecutionException;
+import org.retro.code.converter.exception.TranslationIdException;
+import org.retro.code.converter.execution.translation.TranslationChain;
+import org.retro.code.converter.regex.RegexCostAnalyzer;
+import org.retro.code.converter.regex.RegexCostReport;
+import org.retro.code.converter.xml.v1.types.XFileNameEntryList;
+import org.retro.code.converter.xml.v1.types.XIdList;
+import org.retro.code.converter.xml.v1.types.XTranslateEntry;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ */
+public class TestTranslationsLoader {
+    @Test
+    public void testLoader() {
+        TranslationsLoader translationsLoader = getTranslationsLoader("trans1.xml");
+
+        List<XTranslateEntry> entries = translationsLoader.getTranslationEntries(Arrays.asList(2, 1));
+        assertEquals(2, entries.get(0).getId());
+        assertEquals(1, entries.get(1).getId());
+        // the defaults are set at load time
+        assertTrue(entries.get(1).isProcessOnce());
+
+        XIdList translationList = createIdList(1, 2);
+        TranslationChain chain = translationsLoader.getTranslationChain(translationList);
+        assertEquals(2, chain.size());
+        assertEquals("resultSet.readInt(1); rs.readString(2);", chain.translate("rs.getInt(1); rs.getString(2);"));
+        assertSame(chain, translationsLoader.getTranslationChain(translationList));
+        assertSame(chain, translationsLoader.getTranslationChain(createIdList(1, 2)));
+        assertSame(TranslationChain.EMPTY, translationsLoader.getTranslationChain(null));
+    }
+
+    @Test(expected = TranslationIdException.class)
+    public void testUnknownId() {
+        getTranslationsLoader("trans1.xml").getTranslationChain(createIdList(1, 5));
+    }
+
+    @Test(expected = TranslationIdException.class)
+    public void testDuplicateId() {
+        getTranslationsLoader("trans1.xml", "trans2.xml");
+    }
+
+    @Test
+    public void testRegexCostReport() {
+        assertTrue(getTranslationsLoader("trans1.xml").getRegexCostReport().isEmpty());
+
+        RegexCostReport report = getTranslationsLoader("trans3.xml").getRegexCostReport();
+        assertEquals(1, report.getCount(RegexCostAnalyzer.Severity.HIGH));
+        assertEquals(1, report.getCount(RegexCostAnalyzer.Severity.MEDIUM));
+        assertEquals("trans3.xml translation id 4", report.getEntries().get(0).getLocation());
+        assertEquals("trans3.xml translation id 5", report.getEntries().get(1).getLocation());
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void testStrictRegexCheck() {
+        getTranslationsLoader(true, "trans3.xml");
+    }
+
+    private XIdList createIdList(Integer... ids) {
+        XIdList idList = new XIdList();
+        idList.getId().addAll(Arrays.asList(ids));
+        return idList;
+    }
+
+    private TranslationsLoader getTranslationsLoader(String... fileNames) {
+        return getTranslationsLoader(false, fileNames);
+    }
+
+    private TranslationsLoader getTranslationsLoader(boolean strictRegexCheck, String... fileNames) {
+        XFileNameEntryList fileEntryList = new XFileNameEntryList();
+        fileEntryList.getFileName().addAll(Arrays.asList(fileNames));
+        TransformLoader transformLoader = new TransformLoader();
+        transformLoader.setSettingsFolder("settings/");
+        TranslationsLoader translationsLoader = new TranslationsLoader();
+        translationsLoader.setTransformLoader(transformLoader);
+        translationsLoader.setStrictRegexCheck(strictRegexCheck);
+        translationsLoader.load(fileEntryList, null);
+        return translationsLoader;
+    }
+}